@@ -0,0 +1,94 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.WalletLedgerServiceApplication;
+import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The application with the {@code test} profile against a Testcontainers Postgres, for benchmarks that need
+ * the database. Pass {@code -Dbench.jdbc.url} (plus {@code bench.jdbc.username} and {@code bench.jdbc.password})
+ * to use an existing database instead.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    static final String USD = "USD";
+    static final long FUNDING_MINOR = 1_000_000_000_000L;
+
+    private final PostgreSQLContainer<?> postgres;
+    private final ConfigurableApplicationContext context;
+
+    /** Owner ids are unique per run, so a reused database never collides with earlier accounts. */
+    private final AtomicLong owners = new AtomicLong(System.currentTimeMillis() * 1_000);
+
+    private BenchmarkApplication(PostgreSQLContainer<?> postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /** {@code extraArgs} are further {@code --name=value} properties; they win over application.yml. */
+    static BenchmarkApplication start(WebApplicationType web, String... extraArgs) {
+        String url = System.getProperty("bench.jdbc.url");
+        String username = System.getProperty("bench.jdbc.username", "test");
+        String password = System.getProperty("bench.jdbc.password", "test");
+        PostgreSQLContainer<?> postgres = null;
+        if (url == null) {
+            postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+                    .withDatabaseName("wallet_db")
+                    .withUsername(username)
+                    .withPassword(password);
+            postgres.start();
+            url = postgres.getJdbcUrl();
+        }
+
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.liquibase.default-schema=wallet_schema",
+                "--spring.liquibase.liquibase-schema=public",
+                "--logging.level.com.example.walletledgerservice=WARN",
+                "--ledger.snapshot.enabled=false"));
+        args.addAll(List.of(extraArgs));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WalletLedgerServiceApplication.class)
+                .web(web)
+                .profiles("test")
+                .run(args.toArray(String[]::new));
+        return new BenchmarkApplication(postgres, context);
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    long newAccount() {
+        return bean(AccountService.class).create(new CreateAccountRequest(owners.incrementAndGet(), USD)).id();
+    }
+
+    /** Serialized: the dev treasury is created lazily and is not safe to create from several threads. */
+    synchronized long fundedAccount() {
+        long id = newAccount();
+        long treasuryId = bean(TreasuryDevService.class).ensureUsdTreasuryWithFunds(FUNDING_MINOR);
+        bean(TransferService.class).createTransfer(new TransferCommand(
+                "bench-fund-" + id, treasuryId, id, FUNDING_MINOR, USD, "bench funding", null));
+        return id;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (postgres != null) postgres.stop();
+    }
+}
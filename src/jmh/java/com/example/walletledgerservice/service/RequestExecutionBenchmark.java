@@ -0,0 +1,147 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /api/v1/transfers} over HTTP with the request thread model and admission control as parameters.
+ * Most clients retry already posted keys, the rest post new transfers between two hot accounts, so every
+ * posting waits for the same row lock. Compare the replay latency across the parameters: on platform threads
+ * without admission, replays queue for Jetty threads held by postings waiting on that lock.
+ * Virtual threads need a Java 21 runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RequestExecutionBenchmark {
+
+    static final int REPLAY_KEYS = 1_000;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"false", "true"})
+    boolean admission;
+
+    BenchmarkApplication app;
+    HttpClient http;
+    URI transfersUri;
+    long hotFromId;
+    long hotToId;
+    String[] replayKeys;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        boolean virtual = threads.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21, running on " + Runtime.version());
+        }
+        app = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--ledger.admission.enabled=" + admission);
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        transfersUri = URI.create("http://localhost:" + app.port() + "/api/v1/transfers");
+
+        hotFromId = app.fundedAccount();
+        hotToId = app.newAccount();
+
+        TransferService transferService = app.bean(TransferService.class);
+        replayKeys = new String[REPLAY_KEYS];
+        for (int i = 0; i < REPLAY_KEYS; i++) {
+            String key = "bench-replay-" + hotFromId + "-" + i;
+            transferService.createTransfer(new TransferCommand(key, hotFromId, hotToId, 1L,
+                    BenchmarkApplication.USD, null, null));
+            replayKeys[i] = key;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        if (app != null) app.close();
+    }
+
+    /** Outcomes besides 201; reported next to the scores, since fast 503s would otherwise look like throughput. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long rejected;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rejected = 0;
+            failed = 0;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(192)
+    public int replay(Outcomes outcomes) {
+        String key = replayKeys[ThreadLocalRandom.current().nextInt(REPLAY_KEYS)];
+        return send(key, outcomes);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(64)
+    public int post(Outcomes outcomes) {
+        return send(UUID.randomUUID().toString(), outcomes);
+    }
+
+    private int send(String key, Outcomes outcomes) {
+        String body = "{\"fromAccountId\":" + hotFromId + ",\"toAccountId\":" + hotToId
+                + ",\"amountMinor\":1,\"currency\":\"USD\"}";
+        HttpRequest request = HttpRequest.newBuilder(transfersUri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status == 503) outcomes.rejected++;
+            else if (status != 201) outcomes.failed++;
+            return status;
+        } catch (IOException e) {
+            outcomes.failed++;
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.domain.model.JournalEntryEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The allocation-only steps around a posted transfer: building the command from a request, mapping the
+ * entry to the response and writing that response as JSON the way the controllers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferMappingBenchmark {
+
+    TransferRequest request;
+    JournalEntryEntity entry;
+    TransferResponse response;
+    ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        request = new TransferRequest(1001L, 1002L, 12_345L, "usd", "Dinner split", "ext-42");
+
+        entry = new JournalEntryEntity();
+        entry.setId(123_456_789L);
+        entry.setIdempotencyKey("2f1c5e0a-6a77-4b0b-9a4e-1f4c1c2d3e4f");
+        entry.setFromAccountId(1001L);
+        entry.setToAccountId(1002L);
+        entry.setAmountMinor(12_345L);
+        entry.setCurrency("USD");
+        entry.setDescription("Dinner split");
+        entry.setExternalRef("ext-42");
+        entry.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+
+        response = TransferService.mapEntryToResponse(entry);
+        // same module set and defaults as the application's mapper
+        writer = Jackson2ObjectMapperBuilder.json().build().writerFor(TransferResponse.class);
+    }
+
+    @Benchmark
+    public TransferCommand commandOf() {
+        return TransferCommand.of(entry.getIdempotencyKey(), request);
+    }
+
+    @Benchmark
+    public TransferResponse mapEntryToResponse() {
+        return TransferService.mapEntryToResponse(entry);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+}
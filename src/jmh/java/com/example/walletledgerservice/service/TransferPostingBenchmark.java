@@ -0,0 +1,89 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransferService#createTransfer} against a real Postgres, without HTTP in front:
+ * <ul>
+ *     <li>DISJOINT: every thread moves money between its own two accounts, so no row lock is shared;</li>
+ *     <li>HOT: every thread pays into one shared account, so all postings queue on its row lock;</li>
+ *     <li>REPLAY: every call repeats an already posted key and is answered by the idempotency path.</li>
+ * </ul>
+ * The database is set up by {@link BenchmarkApplication}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class TransferPostingBenchmark {
+
+    public enum Scenario { DISJOINT, HOT, REPLAY }
+
+    @Param({"DISJOINT", "HOT", "REPLAY"})
+    Scenario scenario;
+
+    BenchmarkApplication app;
+    TransferService transferService;
+    long hotAccountId;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        app = BenchmarkApplication.start(WebApplicationType.NONE, "--spring.datasource.hikari.maximum-pool-size=16");
+        transferService = app.bean(TransferService.class);
+        hotAccountId = app.newAccount();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        if (app != null) app.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Payer {
+        long fromId;
+        long toId;
+        long seq;
+        String prefix;
+        TransferCommand replay;
+
+        @Setup(Level.Trial)
+        public void setUp(TransferPostingBenchmark bench) {
+            fromId = bench.app.fundedAccount();
+            toId = bench.scenario == Scenario.HOT ? bench.hotAccountId : bench.app.newAccount();
+            prefix = "bench-" + fromId + "-";
+            replay = next();
+            bench.transferService.createTransfer(replay);
+        }
+
+        TransferCommand next() {
+            return new TransferCommand(prefix + seq++, fromId, toId, 1L, BenchmarkApplication.USD, null, null);
+        }
+    }
+
+    @Benchmark
+    public TransferResponse createTransfer(Payer payer) {
+        TransferCommand cmd = scenario == Scenario.REPLAY ? payer.replay : payer.next();
+        return transferService.createTransfer(cmd);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.walletledgerservice.load;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load run, read from {@code --name=value} arguments. Every setting has a default.
+ *
+ * @param baseUrl      the service under load, started with the {@code dev} profile for the mint endpoint
+ * @param accounts     accounts created for the run
+ * @param fundingMinor amount minted into every account before the run
+ * @param maxAmount    transfers move a uniform 1..maxAmount
+ * @param zipfExponent skew of the account choice; 0 is uniform, around 1 matches production
+ * @param replayRatio  share of requests that resend an earlier request with its Idempotency-Key
+ * @param rate         requests per second over all workers; 0 sends as fast as the workers can
+ * @param concurrency  worker threads, each with one request in flight
+ * @param warmup       run before measuring, not reported
+ * @param duration     measured run
+ * @param jdbcUrl      when set, the zero-sum check reads every account balance from this database
+ */
+public record LoadOptions(String baseUrl,
+                          int accounts,
+                          long fundingMinor,
+                          long maxAmount,
+                          double zipfExponent,
+                          double replayRatio,
+                          int rate,
+                          int concurrency,
+                          Duration warmup,
+                          Duration duration,
+                          String jdbcUrl,
+                          String jdbcUsername,
+                          String jdbcPassword) {
+
+    public static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        var options = new LoadOptions(
+                values.getOrDefault("base-url", "http://localhost:8080"),
+                Integer.parseInt(values.getOrDefault("accounts", "1000")),
+                Long.parseLong(values.getOrDefault("funding-minor", "10000000")),
+                Long.parseLong(values.getOrDefault("max-amount", "1000")),
+                Double.parseDouble(values.getOrDefault("zipf-exponent", "1.0")),
+                Double.parseDouble(values.getOrDefault("replay-ratio", "0.05")),
+                Integer.parseInt(values.getOrDefault("rate", "0")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Duration.parse("PT" + values.getOrDefault("warmup", "10s")),
+                Duration.parse("PT" + values.getOrDefault("duration", "60s")),
+                values.get("jdbc-url"),
+                values.getOrDefault("jdbc-username", "wallet"),
+                values.getOrDefault("jdbc-password", "wallet"));
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (accounts < 2) throw new IllegalArgumentException("accounts must be at least 2");
+        if (maxAmount < 1) throw new IllegalArgumentException("max-amount must be positive");
+        if (zipfExponent < 0) throw new IllegalArgumentException("zipf-exponent must not be negative");
+        if (replayRatio < 0 || replayRatio > 1) throw new IllegalArgumentException("replay-ratio must be in [0, 1]");
+        if (rate < 0) throw new IllegalArgumentException("rate must not be negative");
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be positive");
+    }
+}
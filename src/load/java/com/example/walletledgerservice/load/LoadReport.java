@@ -0,0 +1,57 @@
+package com.example.walletledgerservice.load;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measured requests of a run. Latency counts from the moment a request was due, not from when it was sent,
+ * so a stalled service shows up in the percentiles instead of only lowering the request count.
+ */
+final class LoadReport {
+
+    private long[] latencies = new long[1 << 16];
+    private int count;
+    private long replays;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    /** Single-threaded: every worker fills its own report, merged at the end. */
+    void record(long latencyNanos, String outcome, boolean replay) {
+        if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = latencyNanos;
+        if (replay) replays++;
+        outcomes.merge(outcome, 1L, Long::sum);
+    }
+
+    void merge(LoadReport other) {
+        for (int i = 0; i < other.count; i++) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = other.latencies[i];
+        }
+        replays += other.replays;
+        other.outcomes.forEach((k, v) -> outcomes.merge(k, v, Long::sum));
+    }
+
+    void print(PrintStream out, Duration elapsed) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsed.toNanos() / 1e9;
+
+        out.printf("requests     %d in %.1f s (%d replays)%n", count, seconds, replays);
+        out.printf("throughput   %.1f req/s%n", count / seconds);
+        out.printf("latency ms   p50=%.2f p95=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99), millis(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+        out.println("outcomes");
+        outcomes.forEach((outcome, n) ->
+                out.printf("  %-28s %8d  %6.2f%%%n", outcome, n, 100.0 * n / Math.max(count, 1)));
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(i, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.walletledgerservice.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load driver for {@code POST /api/v1/transfers} against a running service.
+ * <ol>
+ *     <li>creates the accounts through the account API and funds each one through the dev mint;</li>
+ *     <li>posts transfers at the configured rate and concurrency, choosing both accounts by a Zipf
+ *     distribution and resending earlier requests at the replay ratio;</li>
+ *     <li>prints throughput, latency percentiles and the outcomes by status and error code;</li>
+ *     <li>checks that no money appeared or vanished, and exits with 1 if it did.</li>
+ * </ol>
+ * Run with {@code mvn -Pload -DskipTests test-compile exec:java -Dload.args="--accounts=1000 --rate=500"};
+ * the settings are listed on {@link LoadOptions}.
+ */
+public class TransferLoadDriver {
+
+    static final String USD = "USD";
+    static final int REPLAY_WINDOW = 64;
+
+    private final LoadOptions options;
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ZipfSampler sampler;
+    private long[] accountIds;
+
+    TransferLoadDriver(LoadOptions options) {
+        this.options = options;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.sampler = new ZipfSampler(options.accounts(), options.zipfExponent());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        boolean balanced = new TransferLoadDriver(options).run();
+        System.exit(balanced ? 0 : 1);
+    }
+
+    boolean run() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency());
+        try {
+            setUpAccounts(workers);
+            load(workers);
+            return checkBalances();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void setUpAccounts(ExecutorService workers) {
+        // owner ids unique per run, so repeated runs against one database do not collide
+        long ownerBase = System.currentTimeMillis() * 1_000;
+        accountIds = new long[options.accounts()];
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int i = 0; i < accountIds.length; i++) {
+            int rank = i;
+            pending.add(CompletableFuture.runAsync(() -> accountIds[rank] = createAccount(ownerBase + rank), workers));
+        }
+        pending.forEach(CompletableFuture::join);
+
+        // every mint goes through the single treasury account, so funding runs one at a time
+        for (long id : accountIds) mint(id, options.fundingMinor());
+        System.out.printf("created and funded %d accounts%n", accountIds.length);
+    }
+
+    private void load(ExecutorService workers) {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        long interval = options.rate() == 0 ? 0 : 1_000_000_000L / options.rate();
+        AtomicLong nextDue = new AtomicLong(start);
+
+        List<CompletableFuture<LoadReport>> reports = new ArrayList<>();
+        for (int w = 0; w < options.concurrency(); w++) {
+            reports.add(CompletableFuture.supplyAsync(() -> work(nextDue, interval, measureFrom, end), workers));
+        }
+
+        LoadReport total = new LoadReport();
+        reports.forEach(r -> total.merge(r.join()));
+        // a service that falls behind keeps the workers busy past the end of the schedule
+        total.print(System.out, Duration.ofNanos(System.nanoTime() - measureFrom));
+    }
+
+    private LoadReport work(AtomicLong nextDue, long interval, long measureFrom, long end) {
+        LoadReport report = new LoadReport();
+        List<Transfer> posted = new ArrayList<>(REPLAY_WINDOW);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            long due = interval == 0 ? System.nanoTime() : nextDue.getAndAdd(interval);
+            if (due >= end) return report;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            boolean replay = !posted.isEmpty() && random.nextDouble() < options.replayRatio();
+            Transfer transfer = replay ? posted.get(random.nextInt(posted.size())) : nextTransfer(random);
+            String outcome = send(transfer);
+            long latency = System.nanoTime() - due;
+
+            if (!replay && outcome.equals("201")) {
+                if (posted.size() == REPLAY_WINDOW) posted.set(random.nextInt(REPLAY_WINDOW), transfer);
+                else posted.add(transfer);
+            }
+            if (due >= measureFrom) report.record(latency, outcome, replay);
+        }
+    }
+
+    private Transfer nextTransfer(ThreadLocalRandom random) {
+        int from = sampler.next();
+        int to = sampler.next();
+        while (to == from) to = sampler.next();
+        long amount = random.nextLong(1, options.maxAmount() + 1);
+        return new Transfer(UUID.randomUUID().toString(), accountIds[from], accountIds[to], amount);
+    }
+
+    /** "201", or the status with the {@code code} of the error body, e.g. "409 CONFLICT". */
+    private String send(Transfer t) {
+        String body = json(Map.of(
+                "fromAccountId", t.fromId(), "toAccountId", t.toId(), "amountMinor", t.amountMinor(), "currency", USD));
+        try {
+            HttpResponse<String> res = http.send(post("/api/v1/transfers", body)
+                    .header("Idempotency-Key", t.idempotencyKey()).build(), HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() == 201) return "201";
+            return res.statusCode() + " " + errorCode(res.body());
+        } catch (IOException e) {
+            return "IO_ERROR " + e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "INTERRUPTED";
+        }
+    }
+
+    private long createAccount(long ownerId) {
+        JsonNode account = call(post("/api/v1/accounts", json(Map.of("ownerId", ownerId, "currency", USD))), 201);
+        return account.get("id").asLong();
+    }
+
+    private void mint(long accountId, long amountMinor) {
+        var request = HttpRequest.newBuilder(URI.create(options.baseUrl() + "/api/v1/dev/treasury/mint/usd"
+                        + "?toAccountId=" + accountId + "&amountMinor=" + amountMinor))
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.noBody());
+        call(request, 201);
+    }
+
+    /**
+     * Transfers only move money between the driver's accounts, so their balances must still add up to what was
+     * minted. With a JDBC url the whole ledger is checked as well: every account, treasury and issuer included,
+     * has to sum to zero.
+     */
+    private boolean checkBalances() throws SQLException {
+        long sum = 0;
+        for (long id : accountIds) {
+            sum += call(HttpRequest.newBuilder(URI.create(options.baseUrl() + "/api/v1/accounts/" + id)).GET(), 200)
+                    .get("balanceMinor").asLong();
+        }
+        long minted = options.fundingMinor() * accountIds.length;
+        boolean balanced = sum == minted;
+        System.out.printf("driver accounts: balances %d, minted %d -> %s%n", sum, minted, balanced ? "OK" : "MISMATCH");
+
+        if (options.jdbcUrl() != null) {
+            try (var con = DriverManager.getConnection(options.jdbcUrl(), options.jdbcUsername(), options.jdbcPassword());
+                 var rs = con.createStatement().executeQuery("""
+                         SELECT (SELECT COALESCE(SUM(balance_minor), 0) FROM wallet_schema.account)
+                              + (SELECT COALESCE(SUM(balance_minor), 0) FROM wallet_schema.account_shard)
+                         """)) {
+                rs.next();
+                long ledger = rs.getLong(1);
+                System.out.printf("whole ledger: balances sum to %d -> %s%n", ledger, ledger == 0 ? "OK" : "MISMATCH");
+                balanced &= ledger == 0;
+            }
+        }
+        return balanced;
+    }
+
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private JsonNode call(HttpRequest.Builder request, int expectedStatus) {
+        try {
+            HttpResponse<String> res = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() != expectedStatus) {
+                throw new IllegalStateException("Unexpected status " + res.statusCode() + ": " + res.body());
+            }
+            return objectMapper.readTree(res.body());
+        } catch (IOException e) {
+            throw new IllegalStateException("Request failed: " + request.build().uri(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private String errorCode(String body) {
+        try {
+            JsonNode code = objectMapper.readTree(body).get("code");
+            return code == null ? "UNKNOWN" : code.asText();
+        } catch (IOException e) {
+            return "UNKNOWN";
+        }
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Transfer(String idempotencyKey, long fromId, long toId, long amountMinor) {}
+}
@@ -0,0 +1,28 @@
+package com.example.walletledgerservice.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent: rank 0 is the hottest.
+ * The cumulative distribution is computed once; a draw is a binary search over it.
+ */
+final class ZipfSampler {
+
+    private final double[] cdf;
+
+    ZipfSampler(int n, double exponent) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) cdf[i] /= sum;
+    }
+
+    int next() {
+        int i = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+    }
+}
@@ -1,16 +1,29 @@
 package com.example.walletledgerservice.api.controller;
 
+import com.example.walletledgerservice.api.dto.AccountBalanceDto;
 import com.example.walletledgerservice.api.dto.AccountDto;
+import com.example.walletledgerservice.api.dto.AccountStatementPage;
 import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.api.dto.ShardAccountRequest;
+import com.example.walletledgerservice.config.ReadYourWritesFilter;
+import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.service.AccountReadCache;
 import com.example.walletledgerservice.service.AccountService;
+import com.example.walletledgerservice.service.AdmissionControl;
+import com.example.walletledgerservice.service.AdmissionControl.Lane;
+import com.example.walletledgerservice.service.AccountStatementService;
+import com.example.walletledgerservice.service.BalanceSnapshotService;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.OffsetDateTime;
+
 @RestController
 @RequestMapping("/api/v1/accounts")
 @RequiredArgsConstructor
@@ -18,16 +31,75 @@ import org.springframework.web.bind.annotation.*;
 public class AccountController {
 
     AccountService accountService;
+    AccountStatementService accountStatementService;
+    BalanceSnapshotService balanceSnapshotService;
+    AdmissionControl admissionControl;
+    AccountReadCache accountReadCache;
 
     @PostMapping
     public ResponseEntity<AccountDto> create(@Valid @RequestBody CreateAccountRequest request) {
-        AccountDto dto = accountService.create(request);
+        AccountDto dto = admissionControl.call(Lane.POST, () -> accountService.create(request));
         return ResponseEntity.status(HttpStatus.CREATED).body(dto);
     }
 
+    /**
+     * The account, from the read cache when it holds it. The ETag is the row version: a poll that sends it
+     * back in {@code If-None-Match} gets 304 while the balance is unchanged. A request carrying
+     * {@value ReadYourWritesFilter#POSITION_HEADER} skips the cache: the cache knows nothing of a write made
+     * through another instance, the position routing does.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<AccountDto> get(@PathVariable Long id) {
-        AccountDto dto = accountService.get(id);
+    public ResponseEntity<AccountDto> get(
+            @PathVariable Long id,
+            @RequestHeader(value = ReadYourWritesFilter.POSITION_HEADER, required = false) String position
+    ) {
+        AccountReadCache.Versioned account = position == null ? accountReadCache.get(id) : null;
+        if (account == null) {
+            long stamp = accountReadCache.stamp();
+            account = admissionControl.call(Lane.READ, () -> accountService.getVersioned(id));
+            accountReadCache.put(account, stamp);
+        }
+        String etag = account.etag();
+        if (etag == null) return ResponseEntity.ok(account.account());
+        return ResponseEntity.ok().eTag(etag).body(account.account());
+    }
+
+    /**
+     * Movements of the account, newest first. Pass {@code nextCursor} of a page as {@code cursor}
+     * to get the next, older one; every page costs the same however deep it is.
+     */
+    @GetMapping("/{id}/lines")
+    public ResponseEntity<AccountStatementPage> lines(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) Side side,
+            @RequestParam(defaultValue = "" + AccountStatementService.DEFAULT_LIMIT) int limit
+    ) {
+        return ResponseEntity.ok(admissionControl.call(Lane.READ,
+                () -> accountStatementService.lines(id, cursor, from, to, side, limit)));
+    }
+
+    /**
+     * Balance from the lines created up to {@code asOf} (now when omitted): the nearest earlier
+     * balance snapshot plus the lines after it.
+     */
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<AccountBalanceDto> balance(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf
+    ) {
+        return ResponseEntity.ok(admissionControl.call(Lane.READ, () -> balanceSnapshotService.balanceAsOf(id, asOf)));
+    }
+
+    /**
+     * Splits the balance of a hot account (e.g. a treasury) across N shard rows,
+     * so concurrent transfers lock one shard instead of the whole account.
+     */
+    @PostMapping("/{id}/shards")
+    public ResponseEntity<AccountDto> shard(@PathVariable Long id, @Valid @RequestBody ShardAccountRequest request) {
+        AccountDto dto = admissionControl.call(Lane.POST, () -> accountService.shard(id, request));
         return ResponseEntity.ok(dto);
     }
 }
@@ -0,0 +1,28 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.service.BalanceSnapshotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Admin", description = "Operational endpoints")
+@RestController
+@RequestMapping("/api/v1/admin/balance-snapshots")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BalanceSnapshotController {
+
+    BalanceSnapshotService balanceSnapshotService;
+
+    @Operation(summary = "Take a balance snapshot round now",
+            description = "Snapshots every account with lines since its last snapshot, as of now minus the configured lag.")
+    @PostMapping
+    public BalanceSnapshotService.Round takeSnapshots() {
+        return balanceSnapshotService.takeSnapshots();
+    }
+}
@@ -3,7 +3,7 @@ package com.example.walletledgerservice.api.controller;
 import com.example.walletledgerservice.api.dto.TransferCommand;
 import com.example.walletledgerservice.api.dto.TransferRequest;
 import com.example.walletledgerservice.api.dto.TransferResponse;
-import com.example.walletledgerservice.service.TransferService;
+import com.example.walletledgerservice.service.TransferDispatcher;
 import com.example.walletledgerservice.service.TreasuryDevService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -20,7 +20,7 @@ import org.springframework.web.bind.annotation.*;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class DevMintController {
     TreasuryDevService treasuryDevService;
-    TransferService transferService;
+    TransferDispatcher transferDispatcher;
 
     /**
      * Top up your account via a regular transfer from the USD treasury.
@@ -34,6 +34,8 @@ public class DevMintController {
             @RequestHeader(value = "Idempotency-Key") String idempotencyKey
     ) {
         long treasuryId = treasuryDevService.ensureUsdTreasuryWithFunds(amountMinor);
+        // the mint wrote the treasury balance directly; the in-memory engine has to re-read it
+        transferDispatcher.refreshAccount(treasuryId);
 
         TransferRequest request = new TransferRequest(
                 treasuryId,
@@ -43,7 +45,7 @@ public class DevMintController {
                 "DEV mint USD",
                 "dev-mint"
         );
-        TransferResponse resp = transferService.createTransfer(TransferCommand.of(idempotencyKey, request));
+        TransferResponse resp = transferDispatcher.createTransfer(TransferCommand.of(idempotencyKey, request));
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
 }
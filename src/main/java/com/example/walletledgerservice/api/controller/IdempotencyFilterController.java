@@ -0,0 +1,35 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.service.IdempotencyKeyFilter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Admin", description = "Operational endpoints")
+@RestController
+@RequestMapping("/api/v1/admin/idempotency-filter")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class IdempotencyFilterController {
+
+    IdempotencyKeyFilter idempotencyKeyFilter;
+
+    @Operation(summary = "Idempotency key filter size and expected false-positive rate")
+    @GetMapping
+    public IdempotencyKeyFilter.Stats stats() {
+        return idempotencyKeyFilter.stats();
+    }
+
+    @Operation(summary = "Rebuild the idempotency key filter from journal_entry_key",
+            description = "Streams every stored key into a new filter sized by the current settings, then swaps it in.")
+    @PostMapping("/rebuild")
+    public IdempotencyKeyFilter.Stats rebuild() {
+        return idempotencyKeyFilter.rebuild();
+    }
+}
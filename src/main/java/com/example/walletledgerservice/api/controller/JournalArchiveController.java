@@ -0,0 +1,39 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.service.JournalArchiveService;
+import com.example.walletledgerservice.service.JournalArchiveService.ArchivedMonth;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "Admin", description = "Operational endpoints")
+@RestController
+@RequestMapping("/api/v1/admin/journal-archive")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalArchiveController {
+
+    JournalArchiveService journalArchiveService;
+
+    @Operation(summary = "Archived journal months, one segment file each")
+    @GetMapping
+    public List<ArchivedMonth> segments() {
+        return journalArchiveService.segments();
+    }
+
+    @Operation(summary = "Archive detached journal months",
+            description = "Writes every detached month to a segment file and drops its tables. "
+                    + "Statements and idempotent replays read archived months from the segments. Returns the months archived.")
+    @PostMapping("/run")
+    public List<ArchivedMonth> archive() {
+        return journalArchiveService.archiveDetached();
+    }
+}
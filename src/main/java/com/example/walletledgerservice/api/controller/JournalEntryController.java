@@ -0,0 +1,61 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.api.dto.JournalEntryCommand;
+import com.example.walletledgerservice.api.dto.JournalEntryRequest;
+import com.example.walletledgerservice.api.dto.JournalEntryResponse;
+import com.example.walletledgerservice.service.AdmissionControl;
+import com.example.walletledgerservice.service.AdmissionControl.Lane;
+import com.example.walletledgerservice.service.JournalEntryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Journal entries", description = "Multi-leg journal entries (double-entry)")
+@Validated
+@RestController
+@RequestMapping("/api/v1/entries")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalEntryController {
+
+    JournalEntryService journalEntryService;
+    AdmissionControl admissionControl;
+
+    @Operation(
+            summary = "Post multi-leg entry",
+            description = "Posts 2 to 50 DEBIT/CREDIT legs as one journal entry, atomically and under one "
+                    + "idempotency key. DEBIT raises the account balance, CREDIT lowers it; the legs must "
+                    + "balance in every currency. Not available in engine posting mode."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Entry posted, or posted before under this key",
+                    content = @Content(schema = @Schema(implementation = JournalEntryResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Unbalanced legs, currency mismatch or insufficient funds",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Account not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Idempotency key was used by a transfer",
+                    content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<JournalEntryResponse> postEntry(
+            @RequestHeader(value = "Idempotency-Key") @NotBlank @Size(min = 1, max = 80) String idempotencyKey,
+            @Valid @RequestBody JournalEntryRequest request
+    ) {
+        var cmd = JournalEntryCommand.of(idempotencyKey, request);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(admissionControl.call(Lane.POST, () -> journalEntryService.postEntry(cmd)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.service.JournalExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.zip.GZIPOutputStream;
+
+@Tag(name = "Journal", description = "Journal entries")
+@RestController
+@RequestMapping("/api/v1/journal")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalExportController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    JournalExportService journalExportService;
+
+    @Operation(summary = "Export journal entries as NDJSON",
+            description = "Entries created in [from, to) with their lines, one JSON object per line, oldest first. "
+                    + "Gzip-compressed when the request accepts gzip encoding.")
+    @GetMapping("/export")
+    public void export(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response
+    ) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        journalExportService.export(from, to, () -> {
+            response.setContentType(NDJSON);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!gzip) return response.getOutputStream();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new GZIPOutputStream(response.getOutputStream(), 64 * 1024);
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.domain.repository.JournalPartitionJdbcRepository.Partition;
+import com.example.walletledgerservice.service.JournalPartitionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Tag(name = "Admin", description = "Operational endpoints")
+@RestController
+@RequestMapping("/api/v1/admin/journal-partitions")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalPartitionController {
+
+    JournalPartitionService journalPartitionService;
+
+    @Operation(summary = "Monthly partitions attached to journal_entry and journal_line")
+    @GetMapping
+    public List<Partition> partitions() {
+        return journalPartitionService.partitions();
+    }
+
+    @Operation(summary = "Detach old journal partitions",
+            description = "Detaches, in one transaction, every month of both tables that ends on or before `before`. "
+                    + "Their line sums are kept per account, so reconciliation still adds up. Returns the detached tables.")
+    @PostMapping("/detach")
+    public List<String> detach(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime before) {
+        return journalPartitionService.detachBefore(before);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.api.dto.LedgerEventPage;
+import com.example.walletledgerservice.service.AdmissionControl;
+import com.example.walletledgerservice.service.AdmissionControl.Lane;
+import com.example.walletledgerservice.service.LedgerOutbox;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Events", description = "Stream of posted transfers")
+@RestController
+@RequestMapping("/api/v1/events")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LedgerEventController {
+
+    LedgerOutbox ledgerOutbox;
+    AdmissionControl admissionControl;
+
+    /**
+     * Posted transfers after position {@code after}, oldest first. A consumer keeps the last {@code nextAfter}
+     * it processed and passes it back; positions are gapless and never reordered, so nothing is skipped.
+     */
+    @Operation(summary = "Read the event stream",
+            description = "Events numbered by the outbox relay, read by position from the outbox; "
+                    + "no journal table is scanned.")
+    @GetMapping
+    public ResponseEntity<LedgerEventPage> events(@RequestParam(defaultValue = "0") long after,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(admissionControl.call(Lane.READ, () -> ledgerOutbox.events(after, limit)));
+    }
+}
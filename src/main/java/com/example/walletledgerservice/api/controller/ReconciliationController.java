@@ -0,0 +1,73 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.api.dto.ReconciliationDriftDto;
+import com.example.walletledgerservice.api.dto.ReconciliationRunDto;
+import com.example.walletledgerservice.enums.ReconciliationMode;
+import com.example.walletledgerservice.service.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "Admin", description = "Operational endpoints")
+@Validated
+@RestController
+@RequestMapping("/api/v1/admin/reconciliation")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReconciliationController {
+
+    ReconciliationService reconciliationService;
+
+    @Operation(summary = "Start a balance reconciliation run",
+            description = "FULL checks every account; INCREMENTAL only accounts with entries since the last "
+                    + "completed run. Runs in the background; poll the returned run.")
+    @PostMapping("/runs")
+    public ResponseEntity<ReconciliationRunDto> start(
+            @RequestParam(defaultValue = "FULL") ReconciliationMode mode) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reconciliationService.start(mode));
+    }
+
+    @Operation(summary = "Resume a failed or interrupted run from its checkpoints")
+    @PostMapping("/runs/{id}/resume")
+    public ResponseEntity<ReconciliationRunDto> resume(@PathVariable long id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reconciliationService.resume(id));
+    }
+
+    @GetMapping("/runs")
+    public List<ReconciliationRunDto> recent(@RequestParam(defaultValue = "20") @Min(1) @Max(200) int limit) {
+        return reconciliationService.recent(limit);
+    }
+
+    @GetMapping("/runs/{id}")
+    public ReconciliationRunDto get(@PathVariable long id) {
+        return reconciliationService.get(id);
+    }
+
+    @Operation(summary = "Accounts whose balance differs from the sum of their journal lines")
+    @GetMapping("/runs/{id}/drifts")
+    public List<ReconciliationDriftDto> drifts(@PathVariable long id,
+                                               @RequestParam(defaultValue = "100") @Min(1) @Max(10_000) int limit) {
+        return reconciliationService.drifts(id, limit);
+    }
+
+    @Operation(summary = "Reconciliation counters of this instance")
+    @GetMapping("/stats")
+    public ReconciliationService.Stats stats() {
+        return reconciliationService.stats();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.walletledgerservice.api.controller;
+
+import com.example.walletledgerservice.service.TransferCoalescer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Admin", description = "Operational endpoints")
+@RestController
+@RequestMapping("/api/v1/admin/transfer-coalescer")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TransferCoalescerController {
+
+    TransferCoalescer transferCoalescer;
+
+    @Operation(summary = "Transfer coalescer counters",
+            description = "Totals and mean batch size and commit latency of the coalesced transactions; the distributions "
+                    + "are published as ledger.coalescer.batch.size and ledger.coalescer.commit.")
+    @GetMapping
+    public TransferCoalescer.Stats stats() {
+        return transferCoalescer.stats();
+    }
+}
@@ -1,9 +1,20 @@
 package com.example.walletledgerservice.api.controller;
 
+import com.example.walletledgerservice.api.dto.BatchTransferItemResult;
+import com.example.walletledgerservice.api.dto.BatchTransferRequest;
+import com.example.walletledgerservice.api.dto.BatchTransferResponse;
+import com.example.walletledgerservice.api.dto.QueuedTransferDto;
 import com.example.walletledgerservice.api.dto.TransferCommand;
 import com.example.walletledgerservice.api.dto.TransferRequest;
 import com.example.walletledgerservice.api.dto.TransferResponse;
-import com.example.walletledgerservice.service.TransferService;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.service.AdmissionControl;
+import com.example.walletledgerservice.service.AdmissionControl.Lane;
+import com.example.walletledgerservice.service.BatchItemOutcome;
+import com.example.walletledgerservice.service.IdempotencyKeyFilter;
+import com.example.walletledgerservice.service.IdempotencyResponseCache;
+import com.example.walletledgerservice.service.TransferDispatcher;
+import com.example.walletledgerservice.service.TransferQueueService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -20,6 +31,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Tag(name = "Transfers", description = "Money transfers (double-entry)")
 @Validated
@@ -29,7 +44,11 @@ import org.springframework.web.bind.annotation.*;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class TransferController {
 
-    TransferService transferService;
+    TransferDispatcher transferDispatcher;
+    IdempotencyResponseCache idempotencyResponseCache;
+    IdempotencyKeyFilter idempotencyKeyFilter;
+    AdmissionControl admissionControl;
+    TransferQueueService transferQueueService;
 
     @Operation(
             summary = "Create transfer",
@@ -50,8 +69,98 @@ public class TransferController {
             @RequestHeader(value = "Idempotency-Key") @NotBlank @Size(min = 1, max = 80) String idempotencyKey,
             @Valid @RequestBody TransferRequest request
     ) {
+        // retries of a committed transfer are answered from memory, before any transaction or connection
+        TransferResponse cached = idempotencyResponseCache.get(idempotencyKey);
+        if (cached != null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(cached);
+        }
+
         var cmd = TransferCommand.of(idempotencyKey, request);
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(transferService.createTransfer(cmd));
+                .body(admissionControl.call(laneOf(idempotencyKey), () -> transferDispatcher.createTransfer(cmd)));
+    }
+
+    @Operation(
+            summary = "Create transfers in a batch",
+            description = "Posts up to 1000 transfers in one transaction. Every item carries its own idempotency key. "
+                    + "ALL_OR_NOTHING rolls the whole batch back on the first failed item, PER_ITEM posts the rest."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results",
+                    content = @Content(schema = @Schema(implementation = BatchTransferResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed batch", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A key of the batch was posted concurrently, retry",
+                    content = @Content),
+            @ApiResponse(responseCode = "422", description = "ALL_OR_NOTHING batch rolled back, see per-item results",
+                    content = @Content(schema = @Schema(implementation = BatchTransferResponse.class)))
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransferResponse> createTransfers(@Valid @RequestBody BatchTransferRequest request) {
+        List<TransferCommand> commands = request.items().stream()
+                .map(item -> TransferCommand.of(item.idempotencyKey(), item.transfer()))
+                .toList();
+
+        List<BatchItemOutcome> outcomes = admissionControl.call(Lane.POST,
+                () -> transferDispatcher.createTransfers(commands, request.mode()));
+
+        List<BatchTransferItemResult> items = new ArrayList<>(outcomes.size());
+        int posted = 0, replayed = 0, failed = 0;
+        for (int i = 0; i < outcomes.size(); i++) {
+            BatchItemOutcome o = outcomes.get(i);
+            switch (o.status()) {
+                case POSTED -> posted++;
+                case REPLAYED -> replayed++;
+                case FAILED -> failed++;
+                default -> { }
+            }
+            items.add(new BatchTransferItemResult(i, o.command().idempotencyKey(), o.status(), o.response(),
+                    o.errorCode(), o.error() == null ? null : o.error().getMessage()));
+        }
+
+        boolean committed = request.mode() == BatchMode.PER_ITEM || failed == 0;
+        var body = new BatchTransferResponse(request.mode(), committed, posted, replayed, failed, items);
+        return ResponseEntity.status(committed ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY).body(body);
+    }
+
+    @Operation(
+            summary = "Queue transfer",
+            description = "Validates the transfer and queues it under its idempotency key without touching the "
+                    + "accounts; workers post it in the background. Poll the Location URL for its status."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Transfer queued, or queued before under this key",
+                    content = @Content(schema = @Schema(implementation = QueuedTransferDto.class))),
+            @ApiResponse(responseCode = "400", description = "Validation error", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Asynchronous transfers are disabled", content = @Content)
+    })
+    @PostMapping("/async")
+    public ResponseEntity<QueuedTransferDto> queueTransfer(
+            @RequestHeader(value = "Idempotency-Key") @NotBlank @Size(min = 1, max = 80) String idempotencyKey,
+            @Valid @RequestBody TransferRequest request
+    ) {
+        // an insert without account locks: not admitted behind postings that wait for them
+        QueuedTransferDto queued = transferQueueService.enqueue(TransferCommand.of(idempotencyKey, request));
+        return ResponseEntity.accepted()
+                .location(UriComponentsBuilder.fromPath("/api/v1/transfers/async/{key}")
+                        .buildAndExpand(idempotencyKey).encode().toUri())
+                .body(queued);
+    }
+
+    @Operation(summary = "Queued transfer status",
+            description = "PENDING or PROCESSING until a worker posted it (POSTED, with the transfer) or gave up (FAILED).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Current status",
+                    content = @Content(schema = @Schema(implementation = QueuedTransferDto.class))),
+            @ApiResponse(responseCode = "404", description = "No transfer queued under this key", content = @Content)
+    })
+    @GetMapping("/async/{idempotencyKey}")
+    public ResponseEntity<QueuedTransferDto> queuedTransfer(@PathVariable String idempotencyKey) {
+        return ResponseEntity.ok(admissionControl.call(Lane.READ, () -> transferQueueService.status(idempotencyKey)));
+    }
+
+    /** A key the filter has seen is most likely a retry; it should not queue behind new postings. */
+    private Lane laneOf(String idempotencyKey) {
+        return idempotencyKeyFilter.isReady() && idempotencyKeyFilter.mightContain(idempotencyKey)
+                ? Lane.REPLAY : Lane.POST;
     }
 }
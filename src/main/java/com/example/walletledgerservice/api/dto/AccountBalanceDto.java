@@ -0,0 +1,14 @@
+package com.example.walletledgerservice.api.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Balance from the lines created up to {@code asOf}: the nearest earlier snapshot ({@code snapshotAsOf},
+ * null if there is none) plus {@code linesAfterSnapshot} lines created after it.
+ */
+public record AccountBalanceDto(Long accountId,
+                                OffsetDateTime asOf,
+                                long balanceMinor,
+                                OffsetDateTime snapshotAsOf,
+                                long linesAfterSnapshot) {
+}
@@ -0,0 +1,14 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.Side;
+
+import java.time.OffsetDateTime;
+
+/** CREDIT lowers the account balance, DEBIT raises it. */
+public record AccountLineDto(long lineId,
+                             long journalEntryId,
+                             Side side,
+                             long amountMinor,
+                             String currency,
+                             OffsetDateTime createdAt) {
+}
@@ -0,0 +1,9 @@
+package com.example.walletledgerservice.api.dto;
+
+import java.util.List;
+
+/** {@code nextCursor} is passed back as {@code cursor} for the next (older) page; null on the last page. */
+public record AccountStatementPage(Long accountId,
+                                   List<AccountLineDto> lines,
+                                   Long nextCursor) {
+}
@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record BatchTransferItem(@NotBlank @Size(max = 80) String idempotencyKey,
+                                @NotNull @Valid TransferRequest transfer) {
+}
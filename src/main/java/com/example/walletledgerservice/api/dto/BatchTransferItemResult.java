@@ -0,0 +1,11 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.BatchItemStatus;
+
+public record BatchTransferItemResult(int index,
+                                      String idempotencyKey,
+                                      BatchItemStatus status,
+                                      TransferResponse transfer,
+                                      String errorCode,
+                                      String errorDetails) {
+}
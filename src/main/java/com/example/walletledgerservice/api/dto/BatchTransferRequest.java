@@ -0,0 +1,13 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.BatchMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchTransferRequest(@NotNull BatchMode mode,
+                                   @NotEmpty @Size(max = 1000) List<@NotNull @Valid BatchTransferItem> items) {
+}
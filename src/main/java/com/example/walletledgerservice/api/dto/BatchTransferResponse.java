@@ -0,0 +1,13 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.BatchMode;
+
+import java.util.List;
+
+public record BatchTransferResponse(BatchMode mode,
+                                    boolean committed,
+                                    int posted,
+                                    int replayed,
+                                    int failed,
+                                    List<BatchTransferItemResult> items) {
+}
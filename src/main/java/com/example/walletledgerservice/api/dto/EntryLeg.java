@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.Side;
+import jakarta.validation.constraints.*;
+
+/** One line of a multi-leg entry: DEBIT raises the account balance, CREDIT lowers it. */
+public record EntryLeg(@NotNull @Positive Long accountId,
+                       @NotNull Side side,
+                       @NotNull @Positive Long amountMinor,
+                       @NotBlank @Pattern(regexp = "^[A-Z]{3}$") String currency) {}
@@ -0,0 +1,20 @@
+package com.example.walletledgerservice.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.Locale;
+
+public record JournalEntryCommand(@NotBlank @Size(max = 80) String idempotencyKey,
+                                  List<EntryLeg> legs,
+                                  @Size(max = 255) String description,
+                                  @Size(max = 120) String externalRef) {
+
+    public static JournalEntryCommand of(String idempotencyKey, JournalEntryRequest r) {
+        List<EntryLeg> legs = r.legs().stream()
+                .map(l -> new EntryLeg(l.accountId(), l.side(), l.amountMinor(), l.currency().toUpperCase(Locale.ROOT)))
+                .toList();
+        return new JournalEntryCommand(idempotencyKey, legs, r.description(), r.externalRef());
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.walletledgerservice.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/** Up to 50 legs: the JDBC batch size, so all lines go out as one multi-row INSERT. */
+public record JournalEntryRequest(@NotNull @Size(min = 2, max = 50) List<@NotNull @Valid EntryLeg> legs,
+                                  @Size(max = 255) String description,
+                                  @Size(max = 120) String externalRef) {
+}
@@ -0,0 +1,12 @@
+package com.example.walletledgerservice.api.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/** A posted multi-leg entry; legs in the order they were posted. */
+public record JournalEntryResponse(long journalEntryId,
+                                   List<EntryLeg> legs,
+                                   OffsetDateTime createdAt,
+                                   String description,
+                                   String externalRef) {
+}
@@ -0,0 +1,22 @@
+package com.example.walletledgerservice.api.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * A posted transfer or multi-leg entry as published on the event stream; {@code position} orders the stream.
+ * TRANSFER_POSTED events carry the transfer fields, ENTRY_POSTED events carry {@code legs} instead.
+ */
+public record LedgerEventDto(long position,
+                             String type,
+                             long journalEntryId,
+                             String idempotencyKey,
+                             Long fromAccountId,
+                             Long toAccountId,
+                             Long amountMinor,
+                             String currency,
+                             List<EntryLeg> legs,
+                             String description,
+                             String externalRef,
+                             OffsetDateTime createdAt) {
+}
@@ -0,0 +1,7 @@
+package com.example.walletledgerservice.api.dto;
+
+import java.util.List;
+
+/** Events after the requested position; pass {@code nextAfter} as {@code after} to get the next page. */
+public record LedgerEventPage(List<LedgerEventDto> events, long nextAfter) {
+}
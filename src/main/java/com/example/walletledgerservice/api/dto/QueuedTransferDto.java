@@ -0,0 +1,19 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.QueuedTransferStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * State of an asynchronous transfer. {@code transfer} is the journal entry once it is POSTED; {@code errorCode} and
+ * {@code errorMessage} hold the reason of a FAILED one, or the last retryable error of a pending one.
+ */
+public record QueuedTransferDto(String idempotencyKey,
+                                QueuedTransferStatus status,
+                                int attempts,
+                                OffsetDateTime enqueuedAt,
+                                OffsetDateTime processedAt,
+                                TransferResponse transfer,
+                                String errorCode,
+                                String errorMessage) {
+}
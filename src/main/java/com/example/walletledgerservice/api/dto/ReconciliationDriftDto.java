@@ -0,0 +1,11 @@
+package com.example.walletledgerservice.api.dto;
+
+import java.time.OffsetDateTime;
+
+/** {@code driftMinor} = stored balance - sum of the account's journal lines. */
+public record ReconciliationDriftDto(long accountId,
+                                     long balanceMinor,
+                                     long ledgerMinor,
+                                     long driftMinor,
+                                     OffsetDateTime detectedAt) {
+}
@@ -0,0 +1,21 @@
+package com.example.walletledgerservice.api.dto;
+
+import com.example.walletledgerservice.enums.ReconciliationMode;
+import com.example.walletledgerservice.enums.ReconciliationStatus;
+
+import java.time.OffsetDateTime;
+
+/** While the run is going, rangesDone, accountsChecked and driftCount are read from its checkpoints. */
+public record ReconciliationRunDto(Long id,
+                                   ReconciliationMode mode,
+                                   ReconciliationStatus status,
+                                   OffsetDateTime sinceAt,
+                                   int rangeSize,
+                                   Integer rangesTotal,
+                                   int rangesDone,
+                                   long accountsChecked,
+                                   long driftCount,
+                                   OffsetDateTime startedAt,
+                                   OffsetDateTime finishedAt,
+                                   String error) {
+}
@@ -0,0 +1,7 @@
+package com.example.walletledgerservice.api.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record ShardAccountRequest(@NotNull @Min(2) Integer shardCount) {
+}
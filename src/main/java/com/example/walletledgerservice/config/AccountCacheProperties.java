@@ -0,0 +1,27 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.account-cache")
+public class AccountCacheProperties {
+
+    boolean enabled = true;
+
+    /** Hard cap on cached accounts and invalidation markers; least recently used go first. */
+    int maxEntries = 100_000;
+
+    /**
+     * Longest an account is served from memory. Postings of this instance invalidate it at once; the TTL
+     * bounds how stale a balance changed by another instance can be.
+     */
+    Duration ttl = Duration.ofSeconds(30);
+}
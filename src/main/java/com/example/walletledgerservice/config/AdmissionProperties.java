@@ -0,0 +1,34 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-lane limits on requests that may hold a pool connection at once. The permits of all lanes should not
+ * exceed {@code spring.datasource.hikari.maximum-pool-size}, so a lane never waits for another lane's connection.
+ */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.admission")
+public class AdmissionProperties {
+
+    boolean enabled = false;
+
+    /** Account reads: balance, statement, point-in-time balance. */
+    int readPermits = 3;
+
+    /** Transfers whose Idempotency-Key the filter has seen: most likely retries, answered by one SELECT. */
+    int replayPermits = 2;
+
+    /** New transfers and account writes; they hold row locks and are the slow lane. */
+    int postPermits = 5;
+
+    /** How long a request waits for a permit before it is answered with 503. */
+    Duration maxWait = Duration.ofMillis(200);
+}
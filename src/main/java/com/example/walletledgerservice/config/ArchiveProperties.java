@@ -0,0 +1,34 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.archive")
+public class ArchiveProperties {
+
+    /**
+     * Archives detached journal months into segment files every {@code interval}. Segments already in
+     * {@code directory} are read either way.
+     */
+    boolean enabled = false;
+
+    Duration interval = Duration.ofHours(6);
+
+    /** Segment files, one per month; every instance that serves statements needs the same files. */
+    Path directory = Path.of("journal-archive");
+
+    /** Rows per compressed block: the unit a lookup inflates. */
+    int blockRows = 4_096;
+
+    /** Rows fetched per round trip while a month is read out of Postgres. */
+    int fetchSize = 5_000;
+}
@@ -0,0 +1,37 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Micro-batching of single transfers into shared transactions; jpa posting mode only. */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.coalescer")
+public class CoalescerProperties {
+
+    boolean enabled = false;
+
+    /** How long a worker keeps gathering once it took the first request of a group. */
+    Duration window = Duration.ofMillis(2);
+
+    /** Most transfers posted by one transaction. */
+    int maxBatchSize = 64;
+
+    /** Latency cap: a group is flushed as soon as its oldest request waited this long, window or not. */
+    Duration maxQueueDelay = Duration.ofMillis(20);
+
+    /** Worker threads, each committing its own groups; lock ordering keeps concurrent groups deadlock-free. */
+    int workers = 2;
+
+    /** Requests waiting for a worker; beyond it the caller posts on its own. */
+    int queueCapacity = 10_000;
+
+    /** How long a request waits for its group to commit. */
+    Duration replyTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,32 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Settings of the in-memory ledger engine, used when {@code ledger.posting.mode=engine}. */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.engine")
+public class EngineProperties {
+
+    /** Single-threaded sequencers; an account belongs to partition {@code id mod partitions}. */
+    int partitions = 4;
+
+    /** Slots of each sequencer's submission ring (rounded up to a power of two); a full ring rejects with 503. */
+    int ringSize = 16_384;
+
+    /** Most postings written by one group commit. */
+    int groupCommitMaxSize = 256;
+
+    /** How long a group waits for more postings once its first one arrived. */
+    Duration groupCommitMaxDelay = Duration.ofMillis(1);
+
+    /** How long a request waits for its group to become durable. */
+    Duration replyTimeout = Duration.ofSeconds(10);
+}
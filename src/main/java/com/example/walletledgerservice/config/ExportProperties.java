@@ -0,0 +1,20 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.export")
+public class ExportProperties {
+
+    /** Rows pgjdbc fetches per round trip; bounds the heap an export takes. */
+    int fetchSize = 1_000;
+
+    /** Exports running at once; each holds a pool connection while it streams. Further ones get 503. */
+    int maxConcurrent = 2;
+}
@@ -0,0 +1,28 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.idempotency-cache")
+public class IdempotencyCacheProperties {
+
+    boolean enabled = true;
+
+    /** Hard cap on cached keys. */
+    int maxEntries = 100_000;
+
+    /** Estimated heap the cached responses may take; least recently used keys are evicted beyond it. */
+    DataSize maxMemory = DataSize.ofMegabytes(64);
+
+    /** How long a response is served from memory after it was cached. */
+    Duration ttl = Duration.ofMinutes(10);
+}
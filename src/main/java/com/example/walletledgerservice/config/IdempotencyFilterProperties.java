@@ -0,0 +1,26 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.idempotency-filter")
+public class IdempotencyFilterProperties {
+
+    boolean enabled = true;
+
+    /** Number of keys the filter is sized for; past it the false-positive rate grows. */
+    long expectedKeys = 10_000_000;
+
+    /** Target false-positive rate at {@link #expectedKeys}. */
+    double falsePositiveRate = 0.01;
+
+    /** Upper bound for the bit array; caps the size derived from the two settings above. */
+    DataSize maxMemory = DataSize.ofMegabytes(32);
+}
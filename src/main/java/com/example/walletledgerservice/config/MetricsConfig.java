@@ -0,0 +1,70 @@
+package com.example.walletledgerservice.config;
+
+import com.example.walletledgerservice.service.AccountReadCache;
+import com.example.walletledgerservice.service.IdempotencyKeyFilter;
+import com.example.walletledgerservice.service.IdempotencyResponseCache;
+import com.example.walletledgerservice.service.ReconciliationService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the counters the services already keep for their admin endpoints as meters, read on every scrape.
+ * Hikari pool gauges ({@code hikaricp_*}) come with Actuator.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    MeterBinder idempotencyMetrics(IdempotencyResponseCache cache, IdempotencyKeyFilter filter) {
+        return registry -> {
+            FunctionCounter.builder("ledger.idempotency.cache.requests", cache, IdempotencyResponseCache::hitCount)
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("ledger.idempotency.cache.requests", cache, IdempotencyResponseCache::missCount)
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("ledger.idempotency.cache.evictions", cache, IdempotencyResponseCache::evictionCount)
+                    .register(registry);
+            Gauge.builder("ledger.idempotency.cache.size", cache, IdempotencyResponseCache::size)
+                    .register(registry);
+            Gauge.builder("ledger.idempotency.cache.bytes", cache, IdempotencyResponseCache::estimatedBytes)
+                    .register(registry);
+
+            Gauge.builder("ledger.idempotency.filter.keys", filter, f -> f.stats().insertedKeys())
+                    .register(registry);
+            Gauge.builder("ledger.idempotency.filter.false.positive.rate", filter,
+                            f -> f.stats().expectedFalsePositiveRate())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder accountCacheMetrics(AccountReadCache cache) {
+        return registry -> {
+            FunctionCounter.builder("ledger.account.cache.requests", cache, AccountReadCache::hitCount)
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("ledger.account.cache.requests", cache, AccountReadCache::missCount)
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("ledger.account.cache.evictions", cache, AccountReadCache::evictionCount)
+                    .register(registry);
+            Gauge.builder("ledger.account.cache.size", cache, AccountReadCache::size)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder reconciliationMetrics(ReconciliationService reconciliation) {
+        return registry -> {
+            FunctionCounter.builder("ledger.reconciliation.runs", reconciliation, r -> r.stats().runsCompleted())
+                    .tag("status", "completed").register(registry);
+            FunctionCounter.builder("ledger.reconciliation.runs", reconciliation, r -> r.stats().runsFailed())
+                    .tag("status", "failed").register(registry);
+            FunctionCounter.builder("ledger.reconciliation.accounts.checked", reconciliation,
+                            r -> r.stats().accountsChecked())
+                    .register(registry);
+            FunctionCounter.builder("ledger.reconciliation.drifts", reconciliation, r -> r.stats().driftsFound())
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/** Outbox of posted transfers, its relay and the event stream read from it. */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.outbox")
+public class OutboxProperties {
+
+    /** Writes an outbox row in every posting transaction and runs the relay. */
+    boolean enabled = true;
+
+    /** How often the relay numbers new rows and feeds the sinks. */
+    Duration relayInterval = Duration.ofMillis(200);
+
+    /** Most rows numbered, or delivered to a sink, per transaction. */
+    int batchSize = 500;
+
+    /** Delivered rows stay readable through the event API this long. */
+    Duration retention = Duration.ofDays(7);
+
+    Duration cleanupInterval = Duration.ofHours(1);
+
+    /** Appends every event to this file as a JSON line; no file sink when unset. */
+    Path fileSinkPath;
+}
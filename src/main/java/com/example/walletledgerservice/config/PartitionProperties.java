@@ -0,0 +1,30 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.partitions")
+public class PartitionProperties {
+
+    /** Creates the monthly journal partitions ahead of time, every {@code interval}, starting at boot. */
+    boolean enabled = true;
+
+    Duration interval = Duration.ofHours(6);
+
+    /** Months after the current one that always have their partitions. */
+    int monthsAhead = 3;
+
+    /**
+     * Whole months kept attached besides the current one; older partitions are detached on each run.
+     * 0 keeps everything.
+     */
+    int retentionMonths = 0;
+}
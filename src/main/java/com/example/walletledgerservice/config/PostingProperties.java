@@ -0,0 +1,24 @@
+package com.example.walletledgerservice.config;
+
+import com.example.walletledgerservice.enums.PostingMode;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.posting")
+public class PostingProperties {
+
+    /**
+     * JPA: entities and repositories, several statements per transfer.
+     * SQL_FUNCTION: one call to the {@code post_transfer} database function; transfers touching
+     * a sharded account still go through the JPA path.
+     * ENGINE: balances held in memory by {@link com.example.walletledgerservice.service.LedgerEngine},
+     * persisted in group commits; see {@link EngineProperties}.
+     */
+    PostingMode mode = PostingMode.JPA;
+}
@@ -0,0 +1,85 @@
+package com.example.walletledgerservice.config;
+
+import com.example.walletledgerservice.service.ReplicaLagMonitor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Carries the commit position between a client and the replica routing. Responses to writes get
+ * {@value #POSITION_HEADER}, the primary's WAL position once the request's transactions have committed;
+ * a request that sends it back is read from the replica only once the replica has replayed that far.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String POSITION_HEADER = "X-Ledger-Position";
+
+    private final ReplicaLagMonitor monitor;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long required = null;
+        String header = request.getHeader(POSITION_HEADER);
+        if (header != null) {
+            try {
+                required = ReplicaLagMonitor.parsePosition(header);
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring malformed {}: {}", POSITION_HEADER, header);
+            }
+        }
+
+        boolean write = !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()));
+        PositionResponse wrapped = write ? new PositionResponse(response) : null;
+        ReplicaRoutingDataSource.requirePosition(required);
+        try {
+            chain.doFilter(request, write ? wrapped : response);
+        } finally {
+            ReplicaRoutingDataSource.requirePosition(null);
+        }
+        if (write) wrapped.addPosition();
+    }
+
+    /** Adds the header when the body starts, which is after the controller and its transactions returned. */
+    private final class PositionResponse extends HttpServletResponseWrapper {
+
+        private boolean added;
+
+        PositionResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addPosition();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addPosition();
+            return super.getWriter();
+        }
+
+        void addPosition() {
+            if (added || isCommitted()) return;
+            added = true;
+            try {
+                setHeader(POSITION_HEADER, ReplicaLagMonitor.formatPosition(monitor.primaryPosition()));
+            } catch (RuntimeException e) {
+                log.warn("Cannot read the primary WAL position: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.reconciliation")
+public class ReconciliationProperties {
+
+    /** Account ids per range; a range is one aggregate query and one checkpoint. */
+    int rangeSize = 1_000;
+
+    /** Fork-join workers; each holds a pool connection while it checks a range. */
+    int parallelism = 4;
+
+    /**
+     * An incremental run checks entries created since the previous completed run started, minus this lag,
+     * so transfers still in flight back then are not missed. Keep it above the longest posting transaction.
+     */
+    Duration incrementalLag = Duration.ofMinutes(1);
+
+    /** Runs an incremental reconciliation every {@code incrementalInterval}. */
+    boolean scheduleEnabled = false;
+
+    Duration incrementalInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,71 @@
+package com.example.walletledgerservice.config;
+
+import com.example.walletledgerservice.service.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * With {@code ledger.replica.enabled} the application's {@link DataSource} hands out lazy connections:
+ * read-write ones come from the primary pool ({@code spring.datasource}), read-only ones, i.e. those of
+ * {@code readOnly} transactions, from {@link ReplicaRoutingDataSource}. Work that must see the latest
+ * commit, such as the engine loading balances, runs in read-write transactions.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ledger.replica", name = "enabled", havingValue = "true")
+public class ReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    HikariDataSource replicaDataSource(ReplicaProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                        @Qualifier("replicaDataSource") DataSource replica,
+                                        ReplicaProperties properties, MeterRegistry registry) {
+        return new ReplicaLagMonitor(new JdbcTemplate(primary), new JdbcTemplate(replica), properties, registry);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                          @Qualifier("replicaDataSource") DataSource replica,
+                          ReplicaLagMonitor monitor, MeterRegistry registry) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, monitor, registry);
+        routing.afterPropertiesSet();
+        proxy.setReadOnlyDataSource(routing);
+        return proxy;
+    }
+
+    @Bean
+    ReadYourWritesFilter readYourWritesFilter(ReplicaLagMonitor monitor) {
+        return new ReadYourWritesFilter(monitor);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Read replica for read-only transactions; the primary stays {@code spring.datasource}. */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.replica")
+public class ReplicaProperties {
+
+    /** Sends read-only transactions to the replica pool while it is no further behind than {@code maxLag}. */
+    boolean enabled = false;
+
+    String url;
+
+    String username;
+
+    String password;
+
+    int maximumPoolSize = 10;
+
+    /** Replication lag beyond which reads go back to the primary. */
+    Duration maxLag = Duration.ofSeconds(2);
+
+    /** How often the replay position of the replica is compared with the primary's WAL position. */
+    Duration checkInterval = Duration.ofMillis(500);
+}
@@ -0,0 +1,55 @@
+package com.example.walletledgerservice.config;
+
+import com.example.walletledgerservice.service.ReplicaLagMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Picks the pool of a read-only connection: the replica when it has replayed at least the commit position
+ * the current request asked for (see {@link ReadYourWritesFilter}) and lags less than allowed, else the
+ * primary. Read-write connections never get here, see {@link ReplicaConfig}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Long> REQUIRED_POSITION = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor monitor;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor monitor,
+                                    MeterRegistry registry) {
+        this.monitor = monitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryReads = Counter.builder("ledger.replica.reads")
+                .description("Read-only transactions by the pool that served them")
+                .tag("target", "primary").register(registry);
+        this.replicaReads = Counter.builder("ledger.replica.reads")
+                .description("Read-only transactions by the pool that served them")
+                .tag("target", "replica").register(registry);
+    }
+
+    /** WAL position the reads of this thread must see; null to accept any replica within the lag limit. */
+    static void requirePosition(Long position) {
+        if (position == null) REQUIRED_POSITION.remove();
+        else REQUIRED_POSITION.set(position);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long required = REQUIRED_POSITION.get();
+        if (monitor.canServe(required == null ? 0 : required)) {
+            replicaReads.increment();
+            return Target.REPLICA;
+        }
+        primaryReads.increment();
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** Background jobs; each one checks its own enabled flag. */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,24 @@
+package com.example.walletledgerservice.config;
+
+import com.example.walletledgerservice.enums.ShardPickStrategy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.sharding")
+public class ShardingProperties {
+
+    /** How a transfer picks the shard it locks: HASH of the idempotency key or ROUND_ROBIN. */
+    ShardPickStrategy strategy = ShardPickStrategy.HASH;
+
+    /** Upper bound for the shard count of a single account. */
+    int maxShards = 64;
+
+    /** Dev/test only: shard the USD treasury into this many rows when it is created (0 = off). */
+    int treasuryShards = 0;
+}
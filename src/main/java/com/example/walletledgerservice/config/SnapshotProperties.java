@@ -0,0 +1,30 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.snapshot")
+public class SnapshotProperties {
+
+    /** Takes a snapshot round in the background every {@code interval}. */
+    boolean enabled = true;
+
+    Duration interval = Duration.ofHours(1);
+
+    /**
+     * A round snapshots balances as of now minus this lag, so lines of transactions still open then
+     * (created_at is the transaction start) are already committed. Keep it above the longest posting transaction.
+     */
+    Duration lag = Duration.ofMinutes(1);
+
+    /** Accounts per snapshot statement. */
+    int batchSize = 1_000;
+}
@@ -0,0 +1,43 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Asynchronous transfers: a Postgres queue behind {@code POST /api/v1/transfers/async}. */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.transfer-queue")
+public class TransferQueueProperties {
+
+    /** Accepts asynchronous transfers; without it the endpoint answers 503. */
+    boolean enabled = false;
+
+    /** Worker threads of this instance; 0 only enqueues and leaves draining to other instances. */
+    int workers = 2;
+
+    /** Most transfers a worker claims and posts at once, in one batch transaction. */
+    int batchSize = 100;
+
+    /** How long an idle worker sleeps before it polls again. */
+    Duration pollInterval = Duration.ofMillis(200);
+
+    /** A claimed transfer not finished within this time (its worker died) is claimed again and replays. */
+    Duration lease = Duration.ofMinutes(1);
+
+    /** Attempts of a transfer that keeps failing with a retryable error before it is marked FAILED. */
+    int maxAttempts = 10;
+
+    /** How often the depth and age gauges are sampled. */
+    Duration depthInterval = Duration.ofSeconds(5);
+
+    /** Finished transfers stay pollable this long. */
+    Duration retention = Duration.ofDays(7);
+
+    Duration cleanupInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,40 @@
+package com.example.walletledgerservice.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/** Local write-ahead log of the ledger engine; only read when {@code ledger.posting.mode=engine}. */
+@Getter
+@Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "ledger.wal")
+public class WalProperties {
+
+    /**
+     * Replies once a posting is forced to the local log instead of committed to Postgres; a flusher writes
+     * the log to Postgres behind the replies. Postings acknowledged but not flushed live only on this disk.
+     */
+    boolean enabled = false;
+
+    /** Segment files; must be local, and kept across restarts: unflushed postings are replayed from here. */
+    Path directory = Path.of("ledger-wal");
+
+    /** Size of each pre-allocated segment. */
+    DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /** Most postings written to Postgres by one flush. */
+    int flushMaxSize = 4_096;
+
+    /** How long the flusher waits for a batch to fill. */
+    Duration flushMaxDelay = Duration.ofMillis(20);
+
+    /** Journal entry ids reserved from the sequence at a time, so acknowledging needs no database round trip. */
+    int idBlockSize = 1_000;
+}
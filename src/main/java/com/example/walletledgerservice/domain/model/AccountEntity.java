@@ -2,6 +2,7 @@ package com.example.walletledgerservice.domain.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 import lombok.AccessLevel;
@@ -13,6 +14,7 @@ import java.sql.Timestamp;
 
 
 @Entity
+@SequenceGenerator(name = "id_seq", sequenceName = "account_seq", allocationSize = 50)
 @Table(name = "account")
 @Getter @Setter
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -32,4 +34,15 @@ public class AccountEntity extends BaseEntity {
 
     @Column(insertable = false, updatable = false)
     Timestamp createdAt;
+
+    /**
+     * 0 for a regular account. A positive value means the balance is split across
+     * that many {@link AccountShardEntity} rows and {@link #balanceMinor} is not used.
+     */
+    @Column(nullable = false)
+    int shardCount;
+
+    public boolean isSharded() {
+        return shardCount > 0;
+    }
 }
@@ -0,0 +1,35 @@
+package com.example.walletledgerservice.domain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * One sub-balance of a sharded (high fan-in) account.
+ * The account balance is the sum of all its shards.
+ */
+@Entity
+@SequenceGenerator(name = "id_seq", sequenceName = "account_shard_seq", allocationSize = 50)
+@Table(name = "account_shard")
+@Getter @Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AccountShardEntity extends BaseEntity {
+    @Column(nullable = false)
+    Long accountId;
+
+    @Column(nullable = false)
+    int shardNo;
+
+    @Column(nullable = false)
+    long balanceMinor;
+
+    @Version
+    @Column(nullable = false)
+    Long version;
+}
@@ -2,6 +2,7 @@ package com.example.walletledgerservice.domain.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -11,19 +12,43 @@ import lombok.experimental.FieldDefaults;
 import java.sql.Timestamp;
 
 @Entity
+@SequenceGenerator(name = "id_seq", sequenceName = "journal_entry_seq", allocationSize = 50)
 @Setter
 @Getter
 @Table(name = "journal_entry")
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class JournalEntryEntity extends BaseEntity {
-    @Column(nullable = false, unique = true, length = 80)
+    /** Unique through journal_entry_key; the partitioned table itself cannot enforce it. */
+    @Column(nullable = false, length = 80)
     String idempotencyKey;
 
     @Column(length = 120)
     String externalRef;
 
-    @Column(insertable = false, updatable = false, nullable = false)
+    /**
+     * Set by the writer before insert, so the posting path can answer without re-reading the row.
+     * The partition key; the entry's lines carry the same value.
+     */
+    @Column(updatable = false, nullable = false)
     Timestamp createdAt;
 
     String description;
+
+    /**
+     * Transfer the entry records; same data as its CREDIT/DEBIT lines, kept here for one-row replays.
+     * All four are null on a multi-leg entry, whose lines are its only record.
+     */
+    Long fromAccountId;
+
+    Long toAccountId;
+
+    Long amountMinor;
+
+    @Column(length = 3)
+    String currency;
+
+    /** False for a multi-leg entry: it has no transfer response. */
+    public boolean isTransfer() {
+        return fromAccountId != null;
+    }
 }
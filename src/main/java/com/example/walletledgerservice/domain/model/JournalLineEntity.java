@@ -7,7 +7,10 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.FieldDefaults;
 
+import java.sql.Timestamp;
+
 @Entity
+@SequenceGenerator(name = "id_seq", sequenceName = "journal_line_seq", allocationSize = 50)
 @Setter
 @Getter
 @Table(name = "journal_line")
@@ -31,4 +34,8 @@ public class JournalLineEntity extends BaseEntity {
 
     @Column(nullable = false, length = 3)
     String currency;
+
+    /** createdAt of the entry: the partition key, so an entry and its lines share a partition. */
+    @Column(nullable = false, updatable = false)
+    Timestamp createdAt;
 }
@@ -0,0 +1,54 @@
+package com.example.walletledgerservice.domain.model;
+
+import com.example.walletledgerservice.enums.ReconciliationMode;
+import com.example.walletledgerservice.enums.ReconciliationStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.sql.Timestamp;
+
+/** One balance reconciliation; its progress is the set of reconciliation_range checkpoints. */
+@Entity
+@SequenceGenerator(name = "id_seq", sequenceName = "reconciliation_run_seq", allocationSize = 50)
+@Table(name = "reconciliation_run")
+@Getter @Setter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReconciliationRunEntity extends BaseEntity {
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 12)
+    ReconciliationMode mode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 12)
+    ReconciliationStatus status;
+
+    Timestamp sinceAt;
+
+    /** Ranges are aligned to multiples of this size, so a resumed run splits the id space the same way. */
+    @Column(nullable = false)
+    int rangeSize;
+
+    Integer rangesTotal;
+
+    /** Totals, set when the run completes. */
+    Long accountsChecked;
+
+    Long driftCount;
+
+    @Column(nullable = false)
+    Timestamp startedAt;
+
+    Timestamp finishedAt;
+
+    @Column(length = 500)
+    String error;
+}
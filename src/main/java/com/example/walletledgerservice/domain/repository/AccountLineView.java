@@ -0,0 +1,14 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.enums.Side;
+
+import java.sql.Timestamp;
+
+/** One journal line of an account statement, read without loading the entity or its associations. */
+public record AccountLineView(long id,
+                              long journalEntryId,
+                              Side side,
+                              long amountMinor,
+                              String currency,
+                              Timestamp createdAt) {
+}
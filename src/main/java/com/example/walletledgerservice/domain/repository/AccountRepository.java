@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -21,5 +23,25 @@ public interface AccountRepository extends JpaRepository<AccountEntity, Long> {
             """)
     Optional<AccountEntity> findByIdForUpdate(@Param("id") Long id);
 
+    /**
+     * Locks all given accounts in one statement. Rows are locked in id order, the same order
+     * the single-transfer path uses, so batches and single transfers cannot deadlock each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT a
+                FROM AccountEntity a
+            WHERE a.id IN :ids
+            ORDER BY a.id
+            """)
+    List<AccountEntity> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
     Optional<AccountEntity> findByOwnerIdAndCurrency(Long ownerId, String currency);
+
+    @Query("""
+            SELECT a.id
+                FROM AccountEntity a
+            WHERE a.shardCount > 0
+            """)
+    List<Long> findShardedIds();
 }
@@ -0,0 +1,40 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.domain.model.AccountShardEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountShardRepository extends JpaRepository<AccountShardEntity, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT s
+                FROM AccountShardEntity s
+            WHERE s.accountId = :accountId AND s.shardNo = :shardNo
+            """)
+    Optional<AccountShardEntity> findForUpdate(@Param("accountId") Long accountId, @Param("shardNo") int shardNo);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT s
+                FROM AccountShardEntity s
+            WHERE s.accountId = :accountId
+            ORDER BY s.shardNo
+            """)
+    List<AccountShardEntity> findAllForUpdate(@Param("accountId") Long accountId);
+
+    @Query("""
+            SELECT COALESCE(SUM(s.balanceMinor), 0)
+                FROM AccountShardEntity s
+            WHERE s.accountId = :accountId
+            """)
+    long sumBalance(@Param("accountId") Long accountId);
+}
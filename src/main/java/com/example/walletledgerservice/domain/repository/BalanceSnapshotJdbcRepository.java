@@ -0,0 +1,111 @@
+package com.example.walletledgerservice.domain.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * account_balance_snapshot rows and the line sums around them. Sums are bounded by line created_at
+ * (idx_line_account_created_at), not by line id: pooled ids are not in posting order.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BalanceSnapshotJdbcRepository {
+
+    /** Lower bound for accounts without a snapshot; no line is older. */
+    static final Timestamp BEGINNING = Timestamp.from(Instant.EPOCH);
+
+    /**
+     * New snapshot = latest earlier snapshot + lines created after it, up to as_of. Accounts without
+     * such lines get no row. One statement for the whole batch of accounts.
+     * A snapshot older than the account's detached lines no longer adds up with the remaining ones;
+     * the retired balance of those lines is the base then.
+     */
+    static final String SNAPSHOT_BATCH = """
+            INSERT INTO wallet_schema.account_balance_snapshot (account_id, as_of, balance_minor, last_line_id)
+            SELECT a.id, ?, COALESCE(s.balance_minor, r.balance_minor, 0) + d.delta,
+                   GREATEST(COALESCE(s.last_line_id, 0), d.max_line_id)
+            FROM wallet_schema.account a
+            LEFT JOIN wallet_schema.journal_retired_balance r ON r.account_id = a.id
+            LEFT JOIN LATERAL (SELECT as_of, balance_minor, last_line_id
+                               FROM wallet_schema.account_balance_snapshot
+                               WHERE account_id = a.id AND as_of < ? AND as_of >= COALESCE(r.retired_before, ?)
+                               ORDER BY as_of DESC
+                               LIMIT 1) s ON true
+            JOIN LATERAL (SELECT SUM(CASE side WHEN 'DEBIT' THEN amount_minor ELSE -amount_minor END) AS delta,
+                                 MAX(id) AS max_line_id
+                          FROM wallet_schema.journal_line l
+                          WHERE l.account_id = a.id
+                            AND l.created_at > COALESCE(s.as_of, ?)
+                            AND l.created_at <= ?) d ON d.max_line_id IS NOT NULL
+            WHERE a.id > ? AND a.id <= ?
+            ON CONFLICT (account_id, as_of) DO NOTHING
+            """;
+
+    static final String BATCH_UPPER_ID = """
+            SELECT MAX(id) FROM (SELECT id FROM wallet_schema.account WHERE id > ? ORDER BY id LIMIT ?) b
+            """;
+
+    static final String LATEST_SNAPSHOT = """
+            SELECT as_of, balance_minor
+            FROM wallet_schema.account_balance_snapshot
+            WHERE account_id = ? AND as_of >= ? AND as_of <= ?
+            ORDER BY as_of DESC
+            LIMIT 1
+            """;
+
+    static final String LINES_SUM = """
+            SELECT COALESCE(SUM(CASE side WHEN 'DEBIT' THEN amount_minor ELSE -amount_minor END), 0), COUNT(*)
+            FROM wallet_schema.journal_line
+            WHERE account_id = ? AND created_at > ? AND created_at <= ?
+            """;
+
+    static final String RETIRED_BALANCE = """
+            SELECT retired_before, balance_minor
+            FROM wallet_schema.journal_retired_balance
+            WHERE account_id = ?
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public record Snapshot(Timestamp asOf, long balanceMinor) {}
+
+    /** Sum of the account's lines in detached partitions, all created before {@code retiredBefore}. */
+    public record Retired(Timestamp retiredBefore, long balanceMinor) {}
+
+    public record LinesSum(long amountMinor, long lines) {}
+
+    /** Highest account id of the next batch after {@code afterId}, or null when there is none. */
+    public Long nextBatchUpperId(long afterId, int batchSize) {
+        return jdbcTemplate.queryForObject(BATCH_UPPER_ID, Long.class, afterId, batchSize);
+    }
+
+    /** Snapshots accounts in (afterId, upToId] as of the given time; returns the number of rows written. */
+    public int snapshotBatch(Timestamp asOf, long afterId, long upToId) {
+        return jdbcTemplate.update(SNAPSHOT_BATCH, asOf, asOf, BEGINNING, BEGINNING, asOf, afterId, upToId);
+    }
+
+    /** Latest snapshot in [notBefore, asOf]; {@code notBefore} null means any. */
+    public Optional<Snapshot> latestSnapshot(long accountId, Timestamp notBefore, Timestamp asOf) {
+        return jdbcTemplate.query(LATEST_SNAPSHOT, (rs, n) -> new Snapshot(rs.getTimestamp(1), rs.getLong(2)),
+                accountId, notBefore == null ? BEGINNING : notBefore, asOf).stream().findFirst();
+    }
+
+    public Optional<Retired> retiredBalance(long accountId) {
+        return jdbcTemplate.query(RETIRED_BALANCE,
+                (rs, n) -> new Retired(rs.getTimestamp(1), rs.getLong(2)), accountId).stream().findFirst();
+    }
+
+    /** Signed sum of the account's lines created in (after, upTo]; {@code after} null means from the start. */
+    public LinesSum linesSum(long accountId, Timestamp after, Timestamp upTo) {
+        return jdbcTemplate.queryForObject(LINES_SUM, (rs, n) -> new LinesSum(rs.getLong(1), rs.getLong(2)),
+                accountId, after == null ? BEGINNING : after, upTo);
+    }
+}
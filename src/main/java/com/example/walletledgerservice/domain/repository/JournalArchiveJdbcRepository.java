@@ -0,0 +1,122 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.enums.Side;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads detached journal partitions (see {@link JournalPartitionJdbcRepository}) for archiving, and drops them
+ * once archived. Table names come from the catalog and are checked against the partition naming before they
+ * are put into a statement.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalArchiveJdbcRepository {
+
+    public static final Pattern DETACHED_TABLE = Pattern.compile("journal_(entry|line)_(\\d{4})_(\\d{2})");
+
+    static final String DETACHED_TABLES = """
+            SELECT c.relname
+            FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = 'wallet_schema'
+              AND c.relkind = 'r'
+              AND NOT c.relispartition
+              AND c.relname ~ '^journal_(entry|line)_[0-9]{4}_[0-9]{2}$'
+            ORDER BY c.relname
+            """;
+
+    static final String ENTRIES = """
+            SELECT id, idempotency_key, description, external_ref, created_at,
+                   from_account_id, to_account_id, amount_minor, currency
+            FROM wallet_schema.%s
+            ORDER BY id
+            """;
+
+    static final String LINES = """
+            SELECT id, journal_entry_id, account_id, side, amount_minor, currency, created_at
+            FROM wallet_schema.%s
+            ORDER BY account_id, id
+            """;
+
+    static final String KEYS = """
+            SELECT idempotency_key, entry_id, created_at
+            FROM wallet_schema.journal_entry_key
+            WHERE idempotency_key = ANY (?)
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public record KeyRef(String idempotencyKey, long entryId, Timestamp createdAt) {}
+
+    /** journal_entry_YYYY_MM and journal_line_YYYY_MM tables no longer attached to their parent. */
+    public List<String> detachedTables() {
+        return jdbcTemplate.queryForList(DETACHED_TABLES, String.class);
+    }
+
+    public long countRows(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallet_schema." + checked(table), Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /** Entries of a detached table in id order. Must run inside a transaction to stream with {@code fetchSize}. */
+    public void forEachEntry(String table, int fetchSize, Consumer<EntryRow> consumer) {
+        stream(ENTRIES.formatted(checked(table)), fetchSize, rs -> consumer.accept(new EntryRow(
+                rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getTimestamp(5),
+                rs.getLong(6), rs.getLong(7), rs.getLong(8), rs.getString(9))));
+    }
+
+    /** Lines of a detached table in (account id, id) order, as segments store them. */
+    public void forEachLine(String table, int fetchSize, Consumer<LineRow> consumer) {
+        stream(LINES.formatted(checked(table)), fetchSize, rs -> consumer.accept(new LineRow(
+                rs.getLong(1), rs.getLong(2), rs.getLong(3), Side.valueOf(rs.getString(4)),
+                rs.getLong(5), rs.getString(6), rs.getTimestamp(7))));
+    }
+
+    public void dropTable(String table) {
+        jdbcTemplate.execute("DROP TABLE wallet_schema." + checked(table));
+    }
+
+    /** Where the entries of these keys live, for the keys that were ever posted; a key outlives its partition. */
+    public List<KeyRef> findKeys(Collection<String> idempotencyKeys) {
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(KEYS);
+            ps.setArray(1, con.createArrayOf("varchar", idempotencyKeys.toArray()));
+            return ps;
+        }, (rs, n) -> new KeyRef(rs.getString(1), rs.getLong(2), rs.getTimestamp(3)));
+    }
+
+    public record EntryRow(long id, String idempotencyKey, String description, String externalRef,
+                           Timestamp createdAt, long fromAccountId, long toAccountId, long amountMinor,
+                           String currency) {}
+
+    public record LineRow(long id, long journalEntryId, long accountId, Side side, long amountMinor,
+                          String currency, Timestamp createdAt) {}
+
+    private void stream(String sql, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    private static String checked(String table) {
+        if (!DETACHED_TABLE.matcher(table).matches()) {
+            throw new IllegalArgumentException("Not a journal partition table: " + table);
+        }
+        return table;
+    }
+}
@@ -1,14 +1,66 @@
 package com.example.walletledgerservice.domain.repository;
 
 import com.example.walletledgerservice.domain.model.JournalEntryEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface JournalEntryRepository extends JpaRepository<JournalEntryEntity, Long> {
 
-    Optional<JournalEntryEntity> findByIdempotencyKey(String idempotencyKey);
+    /** Goes through journal_entry_key, whose (entry_id, created_at) leads to the one partition holding the entry. */
+    @Query(value = """
+            SELECT e.*
+            FROM {h-schema}journal_entry_key k
+            JOIN {h-schema}journal_entry e ON e.id = k.entry_id AND e.created_at = k.created_at
+            WHERE k.idempotency_key = :key
+            """, nativeQuery = true)
+    Optional<JournalEntryEntity> findByIdempotencyKey(@Param("key") String idempotencyKey);
 
+    @Query(value = """
+            SELECT e.*
+            FROM {h-schema}journal_entry_key k
+            JOIN {h-schema}journal_entry e ON e.id = k.entry_id AND e.created_at = k.created_at
+            WHERE k.idempotency_key IN (:keys)
+            """, nativeQuery = true)
+    List<JournalEntryEntity> findByIdempotencyKeyIn(@Param("keys") Collection<String> idempotencyKeys);
+
+    /**
+     * Inserts an entry unless its idempotency key is taken; returns the new id or null.
+     * Unlike a failing INSERT, a conflict leaves the Postgres transaction usable.
+     * The id comes from the same pooled sequence Hibernate uses (see insert_journal_entry_if_absent).
+     */
+    @Query(value = """
+            SELECT {h-schema}insert_journal_entry_if_absent(:key, :description, :externalRef, :createdAt,
+                                                            :fromId, :toId, :amount, :currency)
+            """, nativeQuery = true)
+    Long insertIfAbsent(@Param("key") String key,
+                        @Param("description") String description,
+                        @Param("externalRef") String externalRef,
+                        @Param("createdAt") Timestamp createdAt,
+                        @Param("fromId") Long fromId,
+                        @Param("toId") Long toId,
+                        @Param("amount") Long amount,
+                        @Param("currency") String currency);
+
+    /**
+     * Must be consumed inside a transaction, so Postgres streams the rows through a cursor.
+     * Keys of entries in detached partitions are included: they stay taken.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query(value = """
+            SELECT idempotency_key
+                FROM {h-schema}journal_entry_key
+            """, nativeQuery = true)
+    Stream<String> streamAllIdempotencyKeys();
 }
@@ -0,0 +1,98 @@
+package com.example.walletledgerservice.domain.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads journal entries with their lines through a forward-only cursor, one entry in memory at a time.
+ * Plain reads take no row locks, so postings run on while an export streams. Both tables are bounded by
+ * the same created_at range, so only the partitions of the exported months are read.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalExportRepository {
+
+    static final String SELECT_ENTRIES_WITH_LINES = """
+            SELECT e.id, e.idempotency_key, e.created_at, e.description, e.external_ref,
+                   e.from_account_id, e.to_account_id, e.amount_minor, e.currency,
+                   l.id AS line_id, l.account_id AS line_account_id, l.side AS line_side,
+                   l.amount_minor AS line_amount_minor, l.currency AS line_currency
+            FROM wallet_schema.journal_entry e
+            JOIN wallet_schema.journal_line l ON l.journal_entry_id = e.id AND l.created_at = e.created_at
+            WHERE e.created_at >= ? AND e.created_at < ?
+              AND l.created_at >= ? AND l.created_at < ?
+            ORDER BY e.created_at, e.id, l.id
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    /** The transfer columns are null for a multi-leg entry. */
+    public record EntryRow(long id, String idempotencyKey, Timestamp createdAt, String description,
+                           String externalRef, Long fromAccountId, Long toAccountId, Long amountMinor,
+                           String currency, List<LineRow> lines) {}
+
+    public record LineRow(long id, long accountId, String side, long amountMinor, String currency) {}
+
+    /**
+     * Entries created in [from, to), oldest first, each with its lines. Must run inside a transaction:
+     * only then does pgjdbc fetch {@code fetchSize} rows at a time instead of the whole result.
+     */
+    public void forEachEntry(Timestamp from, Timestamp to, int fetchSize, Consumer<EntryRow> consumer) {
+        EntryCollector collector = new EntryCollector(consumer);
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SELECT_ENTRIES_WITH_LINES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.setTimestamp(3, from);
+            ps.setTimestamp(4, to);
+            return ps;
+        }, collector);
+        collector.flush();
+    }
+
+    /** Rows of one entry arrive together; the entry is handed over when the next one starts. */
+    private static final class EntryCollector implements RowCallbackHandler {
+
+        private final Consumer<EntryRow> consumer;
+        private EntryRow current;
+
+        EntryCollector(Consumer<EntryRow> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (current == null || current.id() != id) {
+                flush();
+                current = new EntryRow(id, rs.getString("idempotency_key"), rs.getTimestamp("created_at"),
+                        rs.getString("description"), rs.getString("external_ref"),
+                        rs.getObject("from_account_id", Long.class), rs.getObject("to_account_id", Long.class),
+                        rs.getObject("amount_minor", Long.class),
+                        rs.getString("currency"), new ArrayList<>(2));
+            }
+            current.lines().add(new LineRow(rs.getLong("line_id"), rs.getLong("line_account_id"),
+                    rs.getString("line_side"), rs.getLong("line_amount_minor"), rs.getString("line_currency")));
+        }
+
+        void flush() {
+            if (current == null) return;
+            consumer.accept(current);
+            current = null;
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package com.example.walletledgerservice.domain.repository;
 
 import com.example.walletledgerservice.domain.model.JournalLineEntity;
+import com.example.walletledgerservice.enums.Side;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface JournalLineRepository extends JpaRepository<JournalLineEntity, Long> {
+    /** Lines share the createdAt of their entry; passing it limits the lookup to one partition. */
     @Query("""
            SELECT l
            FROM JournalLineEntity l
            JOIN FETCH l.account a
            WHERE l.entry.id = :entryId
+             AND l.createdAt = :createdAt
            """)
-    List<JournalLineEntity> findByEntryIdWithAccount(Long entryId);
+    List<JournalLineEntity> findByEntryIdWithAccount(Long entryId, Timestamp createdAt);
+
+    /**
+     * One statement page, newest first: lines of the account with id below the cursor.
+     * Walks idx_line_account_id_id backwards, so a page costs the same at any depth.
+     * Only partitions overlapping [from, to) are read.
+     */
+    @Query("""
+           SELECT new com.example.walletledgerservice.domain.repository.AccountLineView(
+                  l.id, l.entry.id, l.side, l.amountMinor, l.currency, l.createdAt)
+           FROM JournalLineEntity l
+           WHERE l.account.id = :accountId
+             AND l.id < :beforeId
+             AND l.side IN :sides
+             AND l.createdAt >= :from
+             AND l.createdAt < :to
+           ORDER BY l.id DESC
+           """)
+    List<AccountLineView> findStatementPage(Long accountId, Long beforeId, Collection<Side> sides,
+                                            Timestamp from, Timestamp to, Limit limit);
 }
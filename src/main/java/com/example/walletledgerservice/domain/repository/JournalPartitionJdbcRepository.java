@@ -0,0 +1,50 @@
+package com.example.walletledgerservice.domain.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Monthly partitions of journal_entry and journal_line, through the functions of journal_partitions.sql.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalPartitionJdbcRepository {
+
+    static final String CREATE_PARTITIONS = "SELECT wallet_schema.create_journal_partitions(?, ?)";
+
+    static final String DETACH_PARTITIONS = "SELECT * FROM wallet_schema.detach_journal_partitions(?)";
+
+    static final String ATTACHED_PARTITIONS = """
+            SELECT t.parent, p.name, p.upper_bound - INTERVAL '1 month', p.upper_bound
+            FROM unnest(ARRAY['journal_entry', 'journal_line']) AS t(parent),
+                 wallet_schema.journal_partitions_before(t.parent, 'infinity') p
+            ORDER BY t.parent, p.name
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public record Partition(String parent, String name, Timestamp from, Timestamp to) {}
+
+    /** Creates the missing partitions for every month overlapping [from, to); returns how many were created. */
+    public int createPartitions(Timestamp from, Timestamp to) {
+        Integer created = jdbcTemplate.queryForObject(CREATE_PARTITIONS, Integer.class, from, to);
+        return created == null ? 0 : created;
+    }
+
+    /** Detaches, in one transaction, every partition whose month ends on or before {@code before}. */
+    public List<String> detachPartitions(Timestamp before) {
+        return jdbcTemplate.queryForList(DETACH_PARTITIONS, String.class, before);
+    }
+
+    public List<Partition> attachedPartitions() {
+        return jdbcTemplate.query(ATTACHED_PARTITIONS, (rs, n) -> new Partition(
+                rs.getString(1), rs.getString(2), rs.getTimestamp(3), rs.getTimestamp(4)));
+    }
+}
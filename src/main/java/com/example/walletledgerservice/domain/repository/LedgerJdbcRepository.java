@@ -0,0 +1,225 @@
+package com.example.walletledgerservice.domain.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access for writers that post many transfers at once without entities
+ * (the in-memory engine's group commits). Inserts are JDBC batches, which pgjdbc rewrites into multi-row INSERTs.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LedgerJdbcRepository {
+
+    /** INCREMENT BY of the id sequences (changeset 004): one nextval reserves the ids (value - 49 .. value]. */
+    static final int ID_BLOCK = 50;
+
+    static final String INSERT_ENTRY = """
+            INSERT INTO wallet_schema.journal_entry (id, idempotency_key, description, external_ref, created_at,
+                                                     from_account_id, to_account_id, amount_minor, currency)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    static final String INSERT_LINE = """
+            INSERT INTO wallet_schema.journal_line (id, journal_entry_id, account_id, amount_minor, side, currency,
+                                                    created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    static final String ADD_BALANCE = """
+            UPDATE wallet_schema.account
+            SET balance_minor = balance_minor + ?, version = version + 1
+            WHERE id = ?
+            """;
+
+    static final String SELECT_ACCOUNT = """
+            SELECT id, currency, balance_minor, shard_count FROM wallet_schema.account
+            """;
+
+    static final String EXISTING_KEYS = """
+            SELECT idempotency_key, entry_id FROM wallet_schema.journal_entry_key WHERE idempotency_key = ANY (?)
+            """;
+
+    static final String WRITTEN_KEYS = """
+            SELECT k.idempotency_key
+            FROM wallet_schema.journal_entry_key k
+                     JOIN wallet_schema.journal_entry e ON e.id = k.entry_id AND e.created_at = k.created_at
+            WHERE k.idempotency_key = ANY (?)
+            """;
+
+    static final String CLAIM_KEYS = """
+            INSERT INTO wallet_schema.journal_entry_key (idempotency_key, entry_id, created_at)
+            SELECT * FROM unnest(?::varchar[], ?::bigint[], ?::timestamp[])
+            ON CONFLICT (idempotency_key) DO NOTHING
+            RETURNING idempotency_key
+            """;
+
+    static final String RELEASE_KEYS = """
+            DELETE FROM wallet_schema.journal_entry_key k
+            USING unnest(?::varchar[], ?::bigint[]) AS c (idempotency_key, entry_id)
+            WHERE k.idempotency_key = c.idempotency_key
+              AND k.entry_id = c.entry_id
+              AND NOT EXISTS (SELECT 1 FROM wallet_schema.journal_entry e
+                              WHERE e.id = k.entry_id AND e.created_at = k.created_at)
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public record TransferRow(long entryId, String idempotencyKey, String description, String externalRef,
+                              Timestamp createdAt, long fromAccountId, long toAccountId, long amountMinor,
+                              String currency) {}
+
+    public record AccountRow(long id, String currency, long balanceMinor, boolean sharded) {}
+
+    static final RowMapper<AccountRow> ACCOUNT_ROW = (rs, n) -> new AccountRow(
+            rs.getLong("id"), rs.getString("currency"), rs.getLong("balance_minor"), rs.getInt("shard_count") > 0);
+
+    /** {@code count} ids from the given sequence, taken in blocks the same way Hibernate's pooled optimizer does. */
+    public long[] allocateIds(String sequence, int count) {
+        int blocks = (count + ID_BLOCK - 1) / ID_BLOCK;
+        List<Long> upperBounds = jdbcTemplate.queryForList(
+                "SELECT nextval(?::regclass) FROM generate_series(1, ?)", Long.class,
+                "wallet_schema." + sequence, blocks);
+
+        long[] ids = new long[count];
+        int i = 0;
+        for (long hi : upperBounds) {
+            for (long id = hi - ID_BLOCK + 1; id <= hi && i < count; id++) ids[i++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Writes entries, their CREDIT/DEBIT lines and the summed balance change of every touched account.
+     * Balances are updated in account id order, like every other writer locks them.
+     */
+    public void writeTransfers(List<TransferRow> rows) {
+        if (rows.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.entryId());
+            ps.setString(2, r.idempotencyKey());
+            ps.setString(3, r.description());
+            ps.setString(4, r.externalRef());
+            ps.setTimestamp(5, r.createdAt());
+            ps.setLong(6, r.fromAccountId());
+            ps.setLong(7, r.toAccountId());
+            ps.setLong(8, r.amountMinor());
+            ps.setString(9, r.currency());
+        });
+
+        long[] lineIds = allocateIds("journal_line_seq", rows.size() * 2);
+        List<Object[]> lines = new ArrayList<>(rows.size() * 2);
+        TreeMap<Long, Long> deltas = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            TransferRow r = rows.get(i);
+            // CREDIT line on the sender (balance goes down), DEBIT line on the receiver (balance goes up)
+            lines.add(new Object[]{lineIds[2 * i], r.entryId(), r.fromAccountId(), r.amountMinor(), "CREDIT", r.currency(),
+                    r.createdAt()});
+            lines.add(new Object[]{lineIds[2 * i + 1], r.entryId(), r.toAccountId(), r.amountMinor(), "DEBIT", r.currency(),
+                    r.createdAt()});
+            deltas.merge(r.fromAccountId(), -r.amountMinor(), Long::sum);
+            deltas.merge(r.toAccountId(), r.amountMinor(), Long::sum);
+        }
+        jdbcTemplate.batchUpdate(INSERT_LINE, lines);
+
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Long> d : deltas.entrySet()) {
+            updates.add(new Object[]{d.getValue(), d.getKey()});
+        }
+        jdbcTemplate.batchUpdate(ADD_BALANCE, updates);
+    }
+
+    /** Streams every account row; must run inside a transaction so the rows come through a cursor. */
+    public void forEachAccount(Consumer<AccountRow> consumer) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SELECT_ACCOUNT);
+            ps.setFetchSize(10_000);
+            return ps;
+        }, rs -> {
+            consumer.accept(ACCOUNT_ROW.mapRow(rs, 0));
+        });
+    }
+
+    /**
+     * The keys among these that were ever posted, detached or archived months included, with the id of the
+     * entry that took each of them.
+     */
+    public Map<String, Long> existingKeys(Collection<String> idempotencyKeys) {
+        if (idempotencyKeys.isEmpty()) return Map.of();
+        Map<String, Long> posted = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(EXISTING_KEYS);
+            ps.setArray(1, con.createArrayOf("varchar", idempotencyKeys.toArray()));
+            return ps;
+        }, rs -> {
+            posted.put(rs.getString(1), rs.getLong(2));
+        });
+        return posted;
+    }
+
+    /** The keys among these whose entry is in the journal; a key that is only claimed is left out. */
+    public Set<String> writtenKeys(Collection<String> idempotencyKeys) {
+        if (idempotencyKeys.isEmpty()) return Set.of();
+        Set<String> written = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(WRITTEN_KEYS);
+            ps.setArray(1, con.createArrayOf("varchar", idempotencyKeys.toArray()));
+            return ps;
+        }, rs -> {
+            written.add(rs.getString(1));
+        });
+        return written;
+    }
+
+    /**
+     * Takes the keys of these rows in journal_entry_key ahead of their entries, which the
+     * journal_entry_claim_key trigger then accepts. Returns the keys taken; a key someone else holds is left out.
+     */
+    public Set<String> claimKeys(List<TransferRow> rows) {
+        if (rows.isEmpty()) return Set.of();
+        Set<String> claimed = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(CLAIM_KEYS);
+            ps.setArray(1, con.createArrayOf("varchar", rows.stream().map(TransferRow::idempotencyKey).toArray()));
+            ps.setArray(2, con.createArrayOf("bigint", rows.stream().map(TransferRow::entryId).toArray()));
+            ps.setArray(3, con.createArrayOf("timestamp", rows.stream().map(TransferRow::createdAt).toArray()));
+            return ps;
+        }, rs -> {
+            claimed.add(rs.getString(1));
+        });
+        return claimed;
+    }
+
+    /** Gives back the claims of these rows whose entries were never written. */
+    public void releaseKeys(List<TransferRow> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement(RELEASE_KEYS);
+            ps.setArray(1, con.createArrayOf("varchar", rows.stream().map(TransferRow::idempotencyKey).toArray()));
+            ps.setArray(2, con.createArrayOf("bigint", rows.stream().map(TransferRow::entryId).toArray()));
+            return ps;
+        });
+    }
+
+    public Optional<AccountRow> findAccount(long id) {
+        return jdbcTemplate.query(SELECT_ACCOUNT + " WHERE id = ?", ACCOUNT_ROW, id).stream().findFirst();
+    }
+}
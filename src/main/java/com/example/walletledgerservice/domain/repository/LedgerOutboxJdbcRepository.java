@@ -0,0 +1,214 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.api.dto.EntryLeg;
+import com.example.walletledgerservice.api.dto.JournalEntryResponse;
+import com.example.walletledgerservice.api.dto.LedgerEventDto;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * ledger_outbox and ledger_event_consumer rows. Rows are written with no position; {@link #sequence} numbers
+ * committed rows in id order under a transaction-scoped advisory lock, so positions are gapless and a position
+ * is never given to a row after a higher one has been read.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LedgerOutboxJdbcRepository {
+
+    public static final String TRANSFER_POSTED = "TRANSFER_POSTED";
+    public static final String ENTRY_POSTED = "ENTRY_POSTED";
+
+    private static final TypeReference<List<EntryLeg>> LEGS = new TypeReference<>() {};
+
+    static final String INSERT = """
+            INSERT INTO wallet_schema.ledger_outbox (event_type, journal_entry_id, idempotency_key, from_account_id,
+                to_account_id, amount_minor, currency, legs, description, external_ref, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    static final String LOCK_SEQUENCER = "SELECT pg_try_advisory_xact_lock(hashtext('wallet_schema.ledger_outbox'))";
+
+    static final String SEQUENCE = """
+            WITH next AS (SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS n
+                          FROM wallet_schema.ledger_outbox
+                          WHERE position IS NULL
+                          ORDER BY id
+                          LIMIT ?),
+                 base AS (SELECT COALESCE(MAX(position), 0) AS p FROM wallet_schema.ledger_outbox)
+            UPDATE wallet_schema.ledger_outbox o
+            SET position = base.p + next.n, sequenced_at = ?
+            FROM next, base
+            WHERE o.id = next.id
+            """;
+
+    static final String EVENTS = """
+            SELECT position, event_type, journal_entry_id, idempotency_key, from_account_id, to_account_id,
+                   amount_minor, currency, legs, description, external_ref, created_at
+            FROM wallet_schema.ledger_outbox
+            WHERE position > ?
+            ORDER BY position
+            LIMIT ?
+            """;
+
+    static final String LOCK_CONSUMER = """
+            SELECT position FROM wallet_schema.ledger_event_consumer WHERE name = ? FOR UPDATE SKIP LOCKED
+            """;
+
+    static final String INSERT_CONSUMER = """
+            INSERT INTO wallet_schema.ledger_event_consumer (name, position, updated_at) VALUES (?, 0, ?)
+            ON CONFLICT (name) DO NOTHING
+            """;
+
+    static final String SAVE_CONSUMER = """
+            UPDATE wallet_schema.ledger_event_consumer SET position = ?, updated_at = ? WHERE name = ?
+            """;
+
+    static final String CONSUMER = "SELECT position FROM wallet_schema.ledger_event_consumer WHERE name = ?";
+
+    static final String UNSEQUENCED = "SELECT COUNT(*) FROM wallet_schema.ledger_outbox WHERE position IS NULL";
+
+    static final String LAST_POSITION = "SELECT COALESCE(MAX(position), 0) FROM wallet_schema.ledger_outbox";
+
+    /** Keeps the highest position, which the next numbering continues from. */
+    static final String PURGE = """
+            DELETE FROM wallet_schema.ledger_outbox
+            WHERE id IN (SELECT id
+                         FROM wallet_schema.ledger_outbox
+                         WHERE position <= ? AND sequenced_at < ?
+                           AND position < (SELECT MAX(position) FROM wallet_schema.ledger_outbox)
+                         LIMIT ?)
+            """;
+
+    JdbcTemplate jdbcTemplate;
+    ObjectMapper objectMapper;
+
+    /** A posted transfer or a posted multi-leg entry; exactly one of the two is set. */
+    public record OutboxRow(String idempotencyKey, TransferResponse transfer, JournalEntryResponse entry) {
+
+        public static OutboxRow of(String idempotencyKey, TransferResponse transfer) {
+            return new OutboxRow(idempotencyKey, transfer, null);
+        }
+
+        public static OutboxRow of(String idempotencyKey, JournalEntryResponse entry) {
+            return new OutboxRow(idempotencyKey, null, entry);
+        }
+    }
+
+    /** One batch; rows get their ids in list order. */
+    public void insert(List<OutboxRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, e) -> {
+            ps.setString(3, e.idempotencyKey());
+            TransferResponse r = e.transfer();
+            if (r != null) {
+                ps.setString(1, TRANSFER_POSTED);
+                ps.setLong(2, r.journalEntryId());
+                ps.setLong(4, r.fromAccountId());
+                ps.setLong(5, r.toAccountId());
+                ps.setLong(6, r.amountMinor());
+                ps.setString(7, r.currency());
+                ps.setNull(8, Types.VARCHAR);
+                ps.setString(9, r.description());
+                ps.setString(10, r.externalRef());
+                ps.setTimestamp(11, Timestamp.from(r.createdAt().toInstant()));
+                return;
+            }
+            JournalEntryResponse entry = e.entry();
+            ps.setString(1, ENTRY_POSTED);
+            ps.setLong(2, entry.journalEntryId());
+            ps.setNull(4, Types.BIGINT);
+            ps.setNull(5, Types.BIGINT);
+            ps.setNull(6, Types.BIGINT);
+            ps.setNull(7, Types.VARCHAR);
+            ps.setString(8, json(entry.legs()));
+            ps.setString(9, entry.description());
+            ps.setString(10, entry.externalRef());
+            ps.setTimestamp(11, Timestamp.from(entry.createdAt().toInstant()));
+        });
+    }
+
+    /** Takes the numbering lock for the current transaction; false when another one holds it. */
+    public boolean tryLockSequencer() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SEQUENCER, Boolean.class));
+    }
+
+    /** Numbers up to {@code limit} rows after the highest position; returns how many. Needs the lock. */
+    public int sequence(int limit, Timestamp now) {
+        return jdbcTemplate.update(SEQUENCE, limit, now);
+    }
+
+    public List<LedgerEventDto> events(long after, int limit) {
+        return jdbcTemplate.query(EVENTS, this::event, after, limit);
+    }
+
+    /**
+     * Locks the consumer's row for the current transaction and returns its position, creating it at 0;
+     * null when another transaction holds it.
+     */
+    public Long lockConsumer(String name, Timestamp now) {
+        List<Long> position = jdbcTemplate.queryForList(LOCK_CONSUMER, Long.class, name);
+        if (!position.isEmpty()) return position.get(0);
+        return jdbcTemplate.update(INSERT_CONSUMER, name, now) == 1 ? 0L : null;
+    }
+
+    public void saveConsumer(String name, long position, Timestamp now) {
+        jdbcTemplate.update(SAVE_CONSUMER, position, now, name);
+    }
+
+    /** Position of the consumer, 0 before its first delivery. */
+    public long consumerPosition(String name) {
+        return jdbcTemplate.queryForList(CONSUMER, Long.class, name).stream().findFirst().orElse(0L);
+    }
+
+    public long unsequenced() {
+        return jdbcTemplate.queryForObject(UNSEQUENCED, Long.class);
+    }
+
+    public long lastPosition() {
+        return jdbcTemplate.queryForObject(LAST_POSITION, Long.class);
+    }
+
+    /** Deletes up to {@code limit} rows numbered up to {@code upTo} before {@code sequencedBefore}; returns how many. */
+    public int purge(long upTo, Timestamp sequencedBefore, int limit) {
+        return jdbcTemplate.update(PURGE, upTo, sequencedBefore, limit);
+    }
+
+    /** Transfer columns are null on ENTRY_POSTED events, legs on TRANSFER_POSTED ones. */
+    private LedgerEventDto event(ResultSet rs, int n) throws SQLException {
+        String legs = rs.getString(9);
+        return new LedgerEventDto(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4),
+                rs.getObject(5, Long.class), rs.getObject(6, Long.class), rs.getObject(7, Long.class),
+                rs.getString(8), legs == null ? null : legs(legs), rs.getString(10), rs.getString(11),
+                rs.getTimestamp(12).toInstant().atOffset(ZoneOffset.UTC));
+    }
+
+    private String json(List<EntryLeg> legs) {
+        try {
+            return objectMapper.writeValueAsString(legs);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot write entry legs", e);
+        }
+    }
+
+    private List<EntryLeg> legs(String json) {
+        try {
+            return objectMapper.readValue(json, LEGS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable entry legs: " + json, e);
+        }
+    }
+}
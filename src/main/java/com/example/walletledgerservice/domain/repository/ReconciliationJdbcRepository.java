@@ -0,0 +1,160 @@
+package com.example.walletledgerservice.domain.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reconciliation reads and checkpoints. The stored balance of an account (plus its shards) is compared with
+ * the signed sum of its journal lines: DEBIT raises the balance, CREDIT lowers it. Lines of detached partitions
+ * count through journal_retired_balance. Both are read by one statement, so a transfer committing meanwhile
+ * is either fully in or fully out.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReconciliationJdbcRepository {
+
+    private static final String CHECK_TEMPLATE = """
+            SELECT a.id,
+                   a.balance_minor + COALESCE(s.balance_minor, 0) AS balance_minor,
+                   COALESCE(l.ledger_minor, 0) + COALESCE(r.balance_minor, 0) AS ledger_minor
+            FROM wallet_schema.account a
+            LEFT JOIN wallet_schema.journal_retired_balance r ON r.account_id = a.id
+            LEFT JOIN (SELECT account_id, SUM(balance_minor) AS balance_minor
+                       FROM wallet_schema.account_shard
+                       WHERE %1$s
+                       GROUP BY account_id) s ON s.account_id = a.id
+            LEFT JOIN (SELECT account_id,
+                              SUM(CASE side WHEN 'DEBIT' THEN amount_minor ELSE -amount_minor END) AS ledger_minor
+                       FROM wallet_schema.journal_line
+                       WHERE %1$s
+                       GROUP BY account_id) l ON l.account_id = a.id
+            WHERE %2$s
+            """;
+
+    static final String CHECK_RANGE = CHECK_TEMPLATE.formatted(
+            "account_id >= ? AND account_id < ?", "a.id >= ? AND a.id < ?");
+
+    static final String CHECK_ACCOUNTS = CHECK_TEMPLATE.formatted(
+            "account_id = ANY(?)", "a.id = ANY(?)");
+
+    /**
+     * Entries are found by the created_at index; their lines through idx_line_entry.
+     * Lines carry the created_at of their entry, so both sides read only the partitions from {@code since} on.
+     */
+    static final String ACCOUNTS_TOUCHED_SINCE = """
+            SELECT DISTINCT l.account_id
+            FROM wallet_schema.journal_entry e
+            JOIN wallet_schema.journal_line l ON l.journal_entry_id = e.id AND l.created_at = e.created_at
+            WHERE e.created_at >= ? AND l.created_at >= ?
+            ORDER BY l.account_id
+            """;
+
+    static final String INSERT_DRIFT = """
+            INSERT INTO wallet_schema.reconciliation_drift (run_id, account_id, balance_minor, ledger_minor)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (run_id, account_id) DO NOTHING
+            """;
+
+    static final String INSERT_RANGE = """
+            INSERT INTO wallet_schema.reconciliation_range (run_id, range_start, accounts_checked, drift_count)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    JdbcTemplate jdbcTemplate;
+
+    public record AccountCheck(long accountId, long balanceMinor, long ledgerMinor) {
+        public boolean drifted() {
+            return balanceMinor != ledgerMinor;
+        }
+    }
+
+    public record RangeTotals(int ranges, long accountsChecked, long driftCount) {}
+
+    public record DriftRow(long accountId, long balanceMinor, long ledgerMinor, Timestamp detectedAt) {}
+
+    static final RowMapper<AccountCheck> ACCOUNT_CHECK = (rs, n) -> new AccountCheck(
+            rs.getLong("id"), rs.getLong("balance_minor"), rs.getLong("ledger_minor"));
+
+    /** Lowest and highest account id, or null without accounts. */
+    public long[] accountIdBounds() {
+        return jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM wallet_schema.account", rs -> {
+            rs.next();
+            long max = rs.getLong(2);
+            return rs.wasNull() ? null : new long[]{rs.getLong(1), max};
+        });
+    }
+
+    /** Accounts in [fromId, toId) with their balance and ledger sum: one aggregate query. */
+    public List<AccountCheck> checkRange(long fromId, long toId) {
+        return jdbcTemplate.query(CHECK_RANGE, ACCOUNT_CHECK, fromId, toId, fromId, toId, fromId, toId);
+    }
+
+    /** Like {@link #checkRange} for the given accounts only. */
+    public List<AccountCheck> checkAccounts(long[] accountIds) {
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(CHECK_ACCOUNTS);
+            var ids = con.createArrayOf("bigint", boxed(accountIds));
+            ps.setArray(1, ids);
+            ps.setArray(2, ids);
+            ps.setArray(3, ids);
+            return ps;
+        }, ACCOUNT_CHECK);
+    }
+
+    public long[] accountsTouchedSince(Timestamp since) {
+        return jdbcTemplate.queryForList(ACCOUNTS_TOUCHED_SINCE, Long.class, since, since).stream()
+                .mapToLong(Long::longValue).toArray();
+    }
+
+    public Set<Long> completedRangeStarts(long runId) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT range_start FROM wallet_schema.reconciliation_range WHERE run_id = ?", Long.class, runId));
+    }
+
+    /** Stores the drifts of a range and its checkpoint; call inside one transaction. */
+    public void saveRange(long runId, long rangeStart, int accountsChecked, List<AccountCheck> drifts) {
+        if (!drifts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DRIFT, drifts, drifts.size(), (ps, d) -> {
+                ps.setLong(1, runId);
+                ps.setLong(2, d.accountId());
+                ps.setLong(3, d.balanceMinor());
+                ps.setLong(4, d.ledgerMinor());
+            });
+        }
+        jdbcTemplate.update(INSERT_RANGE, runId, rangeStart, accountsChecked, drifts.size());
+    }
+
+    public RangeTotals totals(long runId) {
+        return jdbcTemplate.queryForObject("""
+                SELECT COUNT(*), COALESCE(SUM(accounts_checked), 0), COALESCE(SUM(drift_count), 0)
+                FROM wallet_schema.reconciliation_range WHERE run_id = ?
+                """, (rs, n) -> new RangeTotals(rs.getInt(1), rs.getLong(2), rs.getLong(3)), runId);
+    }
+
+    public List<DriftRow> drifts(long runId, int limit) {
+        return jdbcTemplate.query("""
+                SELECT account_id, balance_minor, ledger_minor, detected_at
+                FROM wallet_schema.reconciliation_drift
+                WHERE run_id = ?
+                ORDER BY account_id
+                LIMIT ?
+                """, (rs, n) -> new DriftRow(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getTimestamp(4)),
+                runId, limit);
+    }
+
+    private static Long[] boxed(long[] ids) {
+        Long[] out = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) out[i] = ids[i];
+        return out;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.domain.model.ReconciliationRunEntity;
+import com.example.walletledgerservice.enums.ReconciliationStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRunEntity, Long> {
+
+    Optional<ReconciliationRunEntity> findFirstByStatusOrderByStartedAtDesc(ReconciliationStatus status);
+
+    List<ReconciliationRunEntity> findAllByOrderByIdDesc(Limit limit);
+}
@@ -0,0 +1,64 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.enums.PostTransferReason;
+import com.example.walletledgerservice.enums.PostTransferStatus;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+/**
+ * Calls the {@code post_transfer} database function, which posts a transfer in one round trip.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TransferFunctionRepository {
+
+    static final String POST_TRANSFER_SQL = "SELECT * FROM wallet_schema.post_transfer(?, ?, ?, ?, ?, ?, ?)";
+
+    JdbcTemplate jdbcTemplate;
+
+    /**
+     * {@code response} is set for POSTED and REPLAYED, {@code detail} for NOT_FOUND and INVALID, {@code reason}
+     * for INVALID.
+     * A key replayed from a multi-leg entry has no transfer response: REPLAYED without one.
+     * {@code postedVersions} maps both account ids to the row versions a POSTED transfer committed.
+     */
+    public record Result(PostTransferStatus status, String detail, PostTransferReason reason, TransferResponse response,
+                         Map<Long, Long> postedVersions) {}
+
+    public Result postTransfer(String key, long fromId, long toId, long amount, String currency,
+                               String description, String externalRef) {
+        return jdbcTemplate.queryForObject(POST_TRANSFER_SQL, (rs, n) -> {
+            PostTransferStatus status = PostTransferStatus.valueOf(rs.getString("o_status"));
+            TransferResponse response = null;
+            if ((status == PostTransferStatus.POSTED || status == PostTransferStatus.REPLAYED)
+                    && rs.getObject("o_from") != null) {
+                Timestamp createdAt = rs.getTimestamp("o_created_at");
+                response = new TransferResponse(
+                        rs.getLong("o_entry_id"),
+                        rs.getLong("o_from"),
+                        rs.getLong("o_to"),
+                        rs.getLong("o_amount"),
+                        rs.getString("o_currency"),
+                        createdAt == null ? null : createdAt.toInstant().atOffset(ZoneOffset.UTC),
+                        rs.getString("o_description"),
+                        rs.getString("o_external_ref")
+                );
+            }
+            Map<Long, Long> versions = status == PostTransferStatus.POSTED
+                    ? Map.of(fromId, rs.getLong("o_from_version"), toId, rs.getLong("o_to_version"))
+                    : Map.of();
+            String reason = rs.getString("o_reason");
+            return new Result(status, rs.getString("o_detail"), reason == null ? null : PostTransferReason.valueOf(reason),
+                    response, versions);
+        }, key, fromId, toId, amount, currency, description, externalRef);
+    }
+}
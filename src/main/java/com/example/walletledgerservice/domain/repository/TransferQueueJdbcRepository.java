@@ -0,0 +1,152 @@
+package com.example.walletledgerservice.domain.repository;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.enums.QueuedTransferStatus;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * transfer_queue rows. Workers claim the oldest open rows with {@code FOR UPDATE SKIP LOCKED}, so concurrent
+ * claims, on this instance or others, each get rows nobody else is claiming and never wait for one another.
+ * A claim only marks the rows PROCESSING and commits; the transfers are posted afterwards.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TransferQueueJdbcRepository {
+
+    static final String COLUMNS = """
+            idempotency_key, from_account_id, to_account_id, amount_minor, currency, description, external_ref,
+            status, attempts, enqueued_at, processed_at, journal_entry_id, posted_at, error_code, error_message
+            """;
+
+    static final String ENQUEUE = """
+            INSERT INTO wallet_schema.transfer_queue
+                (idempotency_key, from_account_id, to_account_id, amount_minor, currency, description, external_ref,
+                 status, enqueued_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 'PENDING', ?)
+            ON CONFLICT (idempotency_key) DO NOTHING
+            """;
+
+    static final String FIND = "SELECT " + COLUMNS + " FROM wallet_schema.transfer_queue WHERE idempotency_key = ?";
+
+    /** Pending rows and rows whose claim expired, oldest first; the status list matches idx_transfer_queue_open. */
+    static final String CLAIM = """
+            UPDATE wallet_schema.transfer_queue q
+            SET status = 'PROCESSING', claimed_at = ?, attempts = q.attempts + 1
+            FROM (SELECT idempotency_key
+                  FROM wallet_schema.transfer_queue
+                  WHERE status IN ('PENDING', 'PROCESSING') AND (status = 'PENDING' OR claimed_at < ?)
+                  ORDER BY enqueued_at
+                  LIMIT ?
+                  FOR UPDATE SKIP LOCKED) c
+            WHERE q.idempotency_key = c.idempotency_key
+            RETURNING q.idempotency_key, q.from_account_id, q.to_account_id, q.amount_minor, q.currency,
+                      q.description, q.external_ref, q.status, q.attempts, q.enqueued_at, q.processed_at,
+                      q.journal_entry_id, q.posted_at, q.error_code, q.error_message
+            """;
+
+    /** Only while still claimed: a row another worker took over after the lease and finished stays as it is. */
+    static final String FINISH = """
+            UPDATE wallet_schema.transfer_queue
+            SET status = ?, claimed_at = NULL, processed_at = ?, journal_entry_id = ?, posted_at = ?,
+                error_code = ?, error_message = ?
+            WHERE idempotency_key = ? AND status = 'PROCESSING'
+            """;
+
+    static final int[] FINISH_TYPES = {Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+
+    static final String DEPTH = """
+            SELECT COUNT(*) FILTER (WHERE status = 'PENDING'), COUNT(*) FILTER (WHERE status = 'PROCESSING'),
+                   MIN(enqueued_at)
+            FROM wallet_schema.transfer_queue
+            WHERE status IN ('PENDING', 'PROCESSING')
+            """;
+
+    static final String PURGE = """
+            DELETE FROM wallet_schema.transfer_queue
+            WHERE idempotency_key IN (SELECT idempotency_key
+                                      FROM wallet_schema.transfer_queue
+                                      WHERE processed_at IS NOT NULL AND processed_at < ?
+                                      LIMIT ?)
+            """;
+
+    static final RowMapper<QueuedTransfer> ROW = (rs, n) -> new QueuedTransfer(
+            new TransferCommand(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getString(5),
+                    rs.getString(6), rs.getString(7)),
+            QueuedTransferStatus.valueOf(rs.getString(8)),
+            rs.getInt(9),
+            rs.getTimestamp(10),
+            rs.getTimestamp(11),
+            rs.getObject(12, Long.class),
+            rs.getTimestamp(13),
+            rs.getString(14),
+            rs.getString(15));
+
+    JdbcTemplate jdbcTemplate;
+
+    public record QueuedTransfer(TransferCommand command,
+                                 QueuedTransferStatus status,
+                                 int attempts,
+                                 Timestamp enqueuedAt,
+                                 Timestamp processedAt,
+                                 Long journalEntryId,
+                                 Timestamp postedAt,
+                                 String errorCode,
+                                 String errorMessage) {}
+
+    /** New status of a claimed row; PENDING gives it back to the queue. */
+    public record Finish(String idempotencyKey,
+                         QueuedTransferStatus status,
+                         Timestamp processedAt,
+                         Long journalEntryId,
+                         Timestamp postedAt,
+                         String errorCode,
+                         String errorMessage) {}
+
+    public record Depth(long pending, long processing, Timestamp oldestEnqueuedAt) {}
+
+    /** Returns false when the key is queued already; the row is left as it is then. */
+    public boolean enqueue(TransferCommand cmd, Timestamp now) {
+        return jdbcTemplate.update(ENQUEUE, cmd.idempotencyKey(), cmd.fromAccountId(), cmd.toAccountId(),
+                cmd.amountMinor(), cmd.currency(), cmd.description(), cmd.externalRef(), now) == 1;
+    }
+
+    public Optional<QueuedTransfer> find(String idempotencyKey) {
+        return jdbcTemplate.query(FIND, ROW, idempotencyKey).stream().findFirst();
+    }
+
+    /** Claims up to {@code limit} rows for a worker, oldest first; rows claimed before {@code expiredBefore} count as open. */
+    public List<QueuedTransfer> claim(int limit, Timestamp now, Timestamp expiredBefore) {
+        return jdbcTemplate.query(CLAIM, ROW, now, expiredBefore, limit).stream()
+                .sorted(Comparator.comparing(QueuedTransfer::enqueuedAt))
+                .toList();
+    }
+
+    public void finish(List<Finish> finishes) {
+        jdbcTemplate.batchUpdate(FINISH, finishes.stream()
+                .map(f -> new Object[]{f.status().name(), f.processedAt(), f.journalEntryId(), f.postedAt(),
+                        f.errorCode(), f.errorMessage(), f.idempotencyKey()})
+                .toList(), FINISH_TYPES);
+    }
+
+    public Depth depth() {
+        return jdbcTemplate.queryForObject(DEPTH, (rs, n) -> new Depth(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3)));
+    }
+
+    /** Deletes up to {@code limit} rows finished before {@code processedBefore}; returns how many. */
+    public int purge(Timestamp processedBefore, int limit) {
+        return jdbcTemplate.update(PURGE, processedBefore, limit);
+    }
+}
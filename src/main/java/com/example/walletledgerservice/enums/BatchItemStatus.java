@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.enums;
+
+public enum BatchItemStatus {
+
+    POSTED,
+    REPLAYED,
+    FAILED,
+    /** Valid item that was not posted because another item of an ALL_OR_NOTHING batch failed. */
+    NOT_POSTED
+}
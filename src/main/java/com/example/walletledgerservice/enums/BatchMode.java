@@ -0,0 +1,9 @@
+package com.example.walletledgerservice.enums;
+
+public enum BatchMode {
+
+    /** Any failed item rolls the whole batch back. */
+    ALL_OR_NOTHING,
+    /** Failed items are reported, the rest are posted. */
+    PER_ITEM
+}
@@ -0,0 +1,8 @@
+package com.example.walletledgerservice.enums;
+
+/** Why the {@code post_transfer} database function answered INVALID. */
+public enum PostTransferReason {
+
+    CURRENCY_MISMATCH,
+    INSUFFICIENT_FUNDS
+}
@@ -0,0 +1,12 @@
+package com.example.walletledgerservice.enums;
+
+/** Outcome reported by the {@code post_transfer} database function. */
+public enum PostTransferStatus {
+
+    POSTED,
+    REPLAYED,
+    NOT_FOUND,
+    INVALID,
+    SHARDED,
+    RETIRED
+}
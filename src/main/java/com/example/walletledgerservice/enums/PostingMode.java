@@ -0,0 +1,8 @@
+package com.example.walletledgerservice.enums;
+
+public enum PostingMode {
+
+    JPA,
+    SQL_FUNCTION,
+    ENGINE
+}
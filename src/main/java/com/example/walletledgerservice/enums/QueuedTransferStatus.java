@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.enums;
+
+public enum QueuedTransferStatus {
+
+    PENDING,
+    /** Claimed by a worker; taken back by another one once its lease ran out. */
+    PROCESSING,
+    POSTED,
+    FAILED
+}
@@ -0,0 +1,9 @@
+package com.example.walletledgerservice.enums;
+
+public enum ReconciliationMode {
+
+    /** Every account. */
+    FULL,
+    /** Accounts with entries created since the last completed run started. */
+    INCREMENTAL
+}
@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.enums;
+
+public enum ReconciliationStatus {
+
+    RUNNING,
+    /** All ranges checked; drifts, if any, are recorded with the run. */
+    COMPLETED,
+    /** Stopped by an error; finished ranges are kept and a resume skips them. */
+    FAILED
+}
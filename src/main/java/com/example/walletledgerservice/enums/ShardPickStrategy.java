@@ -0,0 +1,7 @@
+package com.example.walletledgerservice.enums;
+
+public enum ShardPickStrategy {
+
+    HASH,
+    ROUND_ROBIN
+}
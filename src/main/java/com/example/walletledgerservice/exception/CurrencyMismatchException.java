@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.exception;
+
+import jakarta.validation.ValidationException;
+
+/** An account of the transfer holds another currency. Answered like any validation error. */
+public class CurrencyMismatchException extends ValidationException {
+
+    public CurrencyMismatchException(String message) { super(message); }
+
+}
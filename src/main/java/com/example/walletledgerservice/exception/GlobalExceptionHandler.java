@@ -1,7 +1,12 @@
 package com.example.walletledgerservice.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingRequestHeaderException;
@@ -11,30 +16,61 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.time.LocalDateTime;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class GlobalExceptionHandler {
 
+    MeterRegistry meterRegistry;
+
     @ExceptionHandler(ConflictException.class)
     public ResponseEntity<ApiError> handleConflict(ConflictException ex, HttpServletRequest req) {
-        return ResponseEntity.status(HttpStatus.CONFLICT)
+        return counted(ex, ResponseEntity.status(HttpStatus.CONFLICT)
                 .body(ApiError.builder()
                         .message("Conflict")
                         .code("CONFLICT")
                         .details(ex.getMessage())
                         .path(req.getRequestURI())
                         .timestamp(LocalDateTime.now())
-                        .build());
+                        .build()));
+    }
+
+    /**
+     * Deadlock / lock-timeout / stale version: nothing was posted, the client may retry with the same Idempotency-Key.
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ApiError> handleConcurrencyFailure(ConcurrencyFailureException ex, HttpServletRequest req) {
+        return counted(ex, ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiError.builder()
+                        .message("Concurrent update, retry the request")
+                        .code("CONCURRENT_UPDATE")
+                        .details(ex.getMostSpecificCause().getMessage())
+                        .path(req.getRequestURI())
+                        .timestamp(LocalDateTime.now())
+                        .build()));
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiError> handleServiceUnavailable(ServiceUnavailableException ex, HttpServletRequest req) {
+        return counted(ex, ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiError.builder()
+                        .message("Service unavailable, retry the request")
+                        .code("SERVICE_UNAVAILABLE")
+                        .details(ex.getMessage())
+                        .path(req.getRequestURI())
+                        .timestamp(LocalDateTime.now())
+                        .build()));
     }
 
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ApiError> handleNotFound(NotFoundException ex, HttpServletRequest req) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+        return counted(ex, ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(ApiError.builder()
                         .message("Not found")
                         .code("NOT_FOUND")
                         .details(ex.getMessage())
                         .path(req.getRequestURI())
                         .timestamp(LocalDateTime.now())
-                        .build());
+                        .build()));
     }
 
     @ExceptionHandler(jakarta.validation.ValidationException.class)
@@ -46,7 +82,7 @@ public class GlobalExceptionHandler {
                 .details(ex.getMessage())
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.badRequest().body(err);
+        return counted(ex, ResponseEntity.badRequest().body(err));
     }
 
     @ExceptionHandler(org.springframework.web.bind.MissingRequestHeaderException.class)
@@ -58,7 +94,7 @@ public class GlobalExceptionHandler {
                 .details("Missing header: " + ex.getHeaderName())
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.badRequest().body(err);
+        return counted(ex, ResponseEntity.badRequest().body(err));
     }
 
     @ExceptionHandler(jakarta.validation.ConstraintViolationException.class)
@@ -73,6 +109,15 @@ public class GlobalExceptionHandler {
                 .details(details)
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.badRequest().body(err);
+        return counted(ex, ResponseEntity.badRequest().body(err));
+    }
+
+    /** Counts every mapped exception by status, error code and exception type; all of them are bounded sets. */
+    private ResponseEntity<ApiError> counted(Exception ex, ResponseEntity<ApiError> response) {
+        meterRegistry.counter("ledger.api.errors",
+                "status", String.valueOf(response.getStatusCode().value()),
+                "code", response.getBody().getCode(),
+                "exception", ex.getClass().getSimpleName()).increment();
+        return response;
     }
 }
@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.exception;
+
+import jakarta.validation.ValidationException;
+
+/** The sender cannot cover the transfer. Answered like any validation error. */
+public class InsufficientFundsException extends ValidationException {
+
+    public InsufficientFundsException() { super("Insufficient funds"); }
+
+}
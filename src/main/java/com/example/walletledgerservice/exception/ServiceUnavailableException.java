@@ -0,0 +1,10 @@
+package com.example.walletledgerservice.exception;
+
+/** The request was not processed and can be retried later with the same Idempotency-Key. */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) { super(message); }
+
+    public ServiceUnavailableException(String message, Throwable cause) { super(message, cause); }
+
+}
@@ -0,0 +1,8 @@
+package com.example.walletledgerservice.service;
+
+/**
+ * Published inside a transaction that changed an account other than by posting a transfer
+ * (for example, splitting it into shards).
+ */
+public record AccountChangedEvent(long accountId) {
+}
@@ -0,0 +1,163 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.AccountDto;
+import com.example.walletledgerservice.config.AccountCacheProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Account id to the account as last read, with the {@code version} it was read at, so balance polling is
+ * answered without a transaction. Postings invalidate both accounts after commit.
+ * <p>
+ * An invalidation leaves a marker with a stamp and, when the poster knows it, the row version the posting
+ * committed. A read that started before the marker's stamp (see {@link #stamp}) is not cached: it may have
+ * read the balance from before the posting. Neither is a read of an older version, which a lagging replica
+ * can return long after the marker was left. Bounded by entry count and TTL; least recently used entries
+ * go first.
+ */
+@Component
+public class AccountReadCache {
+
+    private final AccountCacheProperties properties;
+    private final long ttlNanos;
+
+    /** Values are {@link Cached} or {@link Invalidated}. */
+    private final LinkedHashMap<Long, Object> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long clock;
+    /** Newest stamp of an evicted marker; reads started before it cannot be checked any more. */
+    private long evictedStamp;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AccountReadCache(AccountCacheProperties properties) {
+        this.properties = properties;
+        this.ttlNanos = properties.getTtl().toNanos();
+    }
+
+    /**
+     * An account and the version its balance was read at; the version is null for a sharded account, whose
+     * balance also lives in its shard rows, which is then neither cached nor given an ETag.
+     */
+    public record Versioned(AccountDto account, Long version) {
+
+        /** Strong ETag of the version, or null. */
+        public String etag() {
+            return version == null ? null : "\"" + version + "\"";
+        }
+    }
+
+    private record Cached(Versioned value, long expiresAtNanos) {}
+
+    /** {@code minVersion} is 0 when no posting since the last cached read reported its version. */
+    private record Invalidated(long stamp, long minVersion) {}
+
+    /** The cached account or null. */
+    public Versioned get(long id) {
+        if (!properties.isEnabled()) return null;
+        synchronized (this) {
+            if (entries.get(id) instanceof Cached c) {
+                if (c.expiresAtNanos - System.nanoTime() > 0) {
+                    hits.increment();
+                    return c.value;
+                }
+                entries.remove(id);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** To be taken before reading an account from the database, and given back to {@link #put}. */
+    public synchronized long stamp() {
+        return clock;
+    }
+
+    /**
+     * Caches an account read after {@code stamp}, unless it was invalidated since, is older than a posting's
+     * version or was replaced by a newer version.
+     */
+    public void put(Versioned account, long stamp) {
+        if (!properties.isEnabled() || account.version() == null) return;
+        long id = account.account().id();
+        synchronized (this) {
+            if (stamp < evictedStamp) return;
+            Object current = entries.get(id);
+            if (current instanceof Invalidated i && (i.stamp > stamp || account.version() < i.minVersion)) return;
+            if (current instanceof Cached c && c.value.version() > account.version()) return;
+            entries.put(id, new Cached(account, System.nanoTime() + ttlNanos));
+            evictOverflow();
+        }
+    }
+
+    public void invalidate(long id) {
+        invalidate(id, null);
+    }
+
+    /** {@code postedVersion}: the lowest version of the row that includes the change, or null if unknown. */
+    public void invalidate(long id, Long postedVersion) {
+        if (!properties.isEnabled()) return;
+        synchronized (this) {
+            long minVersion = postedVersion == null ? 0 : postedVersion;
+            if (entries.get(id) instanceof Invalidated i) minVersion = Math.max(minVersion, i.minVersion);
+            entries.put(id, new Invalidated(++clock, minVersion));
+            evictOverflow();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        if (event.replay()) return;
+        long from = event.response().fromAccountId();
+        long to = event.response().toAccountId();
+        invalidate(from, event.postedVersions().get(from));
+        invalidate(to, event.postedVersions().get(to));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEntryPosted(EntryPostedEvent event) {
+        if (event.replay()) return;
+        event.response().legs().forEach(l -> invalidate(l.accountId(), event.postedVersions().get(l.accountId())));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAccountChanged(AccountChangedEvent event) {
+        invalidate(event.accountId());
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Long, Object>> it = entries.entrySet().iterator();
+        while (entries.size() > properties.getMaxEntries() && it.hasNext()) {
+            if (it.next().getValue() instanceof Invalidated i) {
+                evictedStamp = Math.max(evictedStamp, i.stamp);
+            } else {
+                evictions.increment();
+            }
+            it.remove();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
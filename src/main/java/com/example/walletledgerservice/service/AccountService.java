@@ -2,14 +2,17 @@ package com.example.walletledgerservice.service;
 
 import com.example.walletledgerservice.api.dto.AccountDto;
 import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.api.dto.ShardAccountRequest;
 import com.example.walletledgerservice.domain.model.AccountEntity;
 import com.example.walletledgerservice.domain.repository.AccountRepository;
+import com.example.walletledgerservice.domain.repository.AccountShardRepository;
 import com.example.walletledgerservice.exception.ConflictException;
 import com.example.walletledgerservice.exception.NotFoundException;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +26,9 @@ import java.util.Locale;
 public class AccountService {
 
     AccountRepository accountRepository;
+    AccountShardRepository accountShardRepository;
+    AccountShardService accountShardService;
+    ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public AccountDto create(CreateAccountRequest request) {
@@ -59,15 +65,34 @@ public class AccountService {
 
     @Transactional(readOnly = true)
     public AccountDto get(Long id) {
+        return getVersioned(id).account();
+    }
+
+    /** The account with the version of the row its balance was read from, for the read cache and ETags. */
+    @Transactional(readOnly = true)
+    public AccountReadCache.Versioned getVersioned(Long id) {
         return accountRepository.findById(id)
                 .map(a -> {
                     log.debug("Loaded account id={}", id);
-                    return toDto(a);
+                    return new AccountReadCache.Versioned(toDto(a), a.isSharded() ? null : a.getVersion());
                 })
                 .orElseThrow(() -> new NotFoundException("Account not found: id=" + id));
     }
 
-    private static AccountDto toDto(AccountEntity e) {
-        return new AccountDto(e.getId(), e.getOwnerId(), e.getCurrency(), e.getBalanceMinor());
+    @Transactional
+    public AccountDto shard(Long id, ShardAccountRequest request) {
+        AccountEntity account = accountShardService.shard(id, request.shardCount());
+        eventPublisher.publishEvent(new AccountChangedEvent(id));
+        return toDto(account);
+    }
+
+    private AccountDto toDto(AccountEntity e) {
+        return new AccountDto(e.getId(), e.getOwnerId(), e.getCurrency(), balanceOf(e));
+    }
+
+    /** For a sharded account the balance is the sum of its shards. */
+    private long balanceOf(AccountEntity e) {
+        if (!e.isSharded()) return e.getBalanceMinor();
+        return e.getBalanceMinor() + accountShardRepository.sumBalance(e.getId());
     }
 }
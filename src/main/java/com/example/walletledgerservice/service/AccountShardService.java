@@ -0,0 +1,194 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.PostingProperties;
+import com.example.walletledgerservice.config.ShardingProperties;
+import com.example.walletledgerservice.domain.model.AccountEntity;
+import com.example.walletledgerservice.domain.model.AccountShardEntity;
+import com.example.walletledgerservice.domain.repository.AccountRepository;
+import com.example.walletledgerservice.domain.repository.AccountShardRepository;
+import com.example.walletledgerservice.enums.PostingMode;
+import com.example.walletledgerservice.enums.ShardPickStrategy;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ValidationException;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hot-account sharding: the balance of a sharded account is split across N {@link AccountShardEntity}
+ * rows, so a transfer locks one shard instead of the single account row.
+ * Sharding is one-way; an account is never un-sharded.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AccountShardService {
+
+    AccountRepository accountRepository;
+    AccountShardRepository accountShardRepository;
+    ShardingProperties properties;
+    PostingProperties postingProperties;
+    EntityManager entityManager;
+
+    /** Ids known to be sharded; lets the transfer path skip the account row lock entirely. */
+    Set<Long> knownSharded = ConcurrentHashMap.newKeySet();
+    AtomicInteger roundRobin = new AtomicInteger();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadShardedIds() {
+        knownSharded.addAll(accountRepository.findShardedIds());
+        log.info("Sharded accounts loaded: count={}", knownSharded.size());
+    }
+
+    public boolean isKnownSharded(Long accountId) {
+        return knownSharded.contains(accountId);
+    }
+
+    /**
+     * Splits the account balance into {@code shardCount} rows, spread evenly like {@link #creditAllShards},
+     * so a debit finds its picked shard funded instead of falling back to all shards.
+     */
+    @Transactional
+    public AccountEntity shard(Long accountId, int shardCount) {
+        if (postingProperties.getMode() == PostingMode.ENGINE) {
+            // the engine holds one in-memory balance per account and is its only writer
+            throw new ConflictException("Sharding is not available in engine mode");
+        }
+        if (shardCount < 2 || shardCount > properties.getMaxShards()) {
+            throw new ValidationException("shardCount must be between 2 and " + properties.getMaxShards());
+        }
+
+        AccountEntity account = accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new NotFoundException("Account not found: id=" + accountId));
+        if (account.isSharded()) {
+            throw new ConflictException("Account is already sharded: id=" + accountId
+                    + ", shardCount=" + account.getShardCount());
+        }
+
+        long part = account.getBalanceMinor() / shardCount;
+        long rest = account.getBalanceMinor() - part * shardCount;
+        List<AccountShardEntity> shards = new ArrayList<>(shardCount);
+        for (int no = 0; no < shardCount; no++) {
+            AccountShardEntity s = new AccountShardEntity();
+            s.setAccountId(accountId);
+            s.setShardNo(no);
+            s.setBalanceMinor(part + (no == 0 ? rest : 0));
+            shards.add(s);
+        }
+        accountShardRepository.saveAll(shards);
+
+        account.setShardCount(shardCount);
+        account.setBalanceMinor(0);
+        knownSharded.add(accountId);
+
+        log.info("Account sharded: id={}, shardCount={}", accountId, shardCount);
+        return account;
+    }
+
+    /**
+     * Locks one shard of a sharded account, picked by the configured strategy.
+     * If the picked shard cannot cover {@code debitAmount}, its lock is released (rolled back to a savepoint
+     * taken before it) and all shards are locked in shard order, so the debit can be combined from several
+     * of them. A lower shard is never waited for while a higher one is held, which keeps this path
+     * deadlock-free against other fallbacks and {@link #lockAllShards}.
+     * Called before the transaction writes anything.
+     */
+    LockedAccount lockShards(AccountEntity account, long debitAmount, String routingKey) {
+        Long id = account.getId();
+        knownSharded.add(id);
+
+        int preferredNo = pickShard(account.getShardCount(), routingKey);
+        if (debitAmount == 0) {
+            return LockedAccount.sharded(account, List.of(lockShard(id, preferredNo)));
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        AccountShardEntity preferred = lockShard(id, preferredNo);
+        if (preferred.getBalanceMinor() >= debitAmount) {
+            session.doWork(c -> c.releaseSavepoint(savepoint));
+            return LockedAccount.sharded(account, List.of(preferred));
+        }
+
+        log.debug("Shard short, combining shards: accountId={}, shardNo={}, shardBal={}, amount={}",
+                id, preferredNo, preferred.getBalanceMinor(), debitAmount);
+
+        session.doWork(c -> c.rollback(savepoint));
+        // re-read under the ordered lock; the balance read under the released one may be stale by now
+        entityManager.detach(preferred);
+        List<AccountShardEntity> all = accountShardRepository.findAllForUpdate(id);
+        List<AccountShardEntity> ordered = new ArrayList<>(all.size());
+        for (AccountShardEntity s : all) {
+            if (s.getShardNo() == preferredNo) ordered.add(0, s);
+            else ordered.add(s);
+        }
+        return LockedAccount.sharded(account, ordered);
+    }
+
+    private AccountShardEntity lockShard(Long accountId, int shardNo) {
+        return accountShardRepository.findForUpdate(accountId, shardNo)
+                .orElseThrow(() -> new IllegalStateException("Missing shard " + shardNo + " of account " + accountId));
+    }
+
+    /** Locks every shard of the account, for postings that touch it many times (batches). */
+    LockedAccount lockAllShards(AccountEntity account) {
+        knownSharded.add(account.getId());
+        return LockedAccount.sharded(account, accountShardRepository.findAllForUpdate(account.getId()));
+    }
+
+    /**
+     * Tops every shard up to at least {@code perShard}, so any picked shard covers a debit of that size on
+     * its own. Returns the total credited.
+     */
+    long topUpShards(AccountEntity account, long perShard) {
+        long total = 0;
+        for (AccountShardEntity s : accountShardRepository.findAllForUpdate(account.getId())) {
+            long missing = perShard - s.getBalanceMinor();
+            if (missing > 0) {
+                s.setBalanceMinor(perShard);
+                total += missing;
+            }
+        }
+        return total;
+    }
+
+    /** Spreads a credit evenly over all shards (used for bulk top-ups such as the dev mint). */
+    void creditAllShards(AccountEntity account, long amount) {
+        List<AccountShardEntity> all = accountShardRepository.findAllForUpdate(account.getId());
+        long part = amount / all.size();
+        long rest = amount - part * all.size();
+        for (AccountShardEntity s : all) {
+            s.setBalanceMinor(s.getBalanceMinor() + part + rest);
+            rest = 0;
+        }
+    }
+
+    public long totalBalance(AccountEntity account) {
+        if (!account.isSharded()) return account.getBalanceMinor();
+        return account.getBalanceMinor() + accountShardRepository.sumBalance(account.getId());
+    }
+
+    int pickShard(int shardCount, String routingKey) {
+        if (properties.getStrategy() == ShardPickStrategy.ROUND_ROBIN || routingKey == null) {
+            return Math.floorMod(roundRobin.getAndIncrement(), shardCount);
+        }
+        return Math.floorMod(routingKey.hashCode(), shardCount);
+    }
+}
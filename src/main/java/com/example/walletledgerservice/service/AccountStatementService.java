@@ -0,0 +1,105 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.AccountLineDto;
+import com.example.walletledgerservice.api.dto.AccountStatementPage;
+import com.example.walletledgerservice.domain.repository.AccountLineView;
+import com.example.walletledgerservice.domain.repository.AccountRepository;
+import com.example.walletledgerservice.domain.repository.JournalLineRepository;
+import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.exception.NotFoundException;
+import jakarta.validation.ValidationException;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Account movements, newest first, paged by keyset: the cursor is the last line id of the previous page,
+ * so no page skips over the ones before it. Pages continue into the archived months once the journal
+ * has no older lines; a month that is detached but not archived yet is skipped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AccountStatementService {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1_000;
+
+    /** Open date bounds are replaced by these, so the query keeps one shape and one plan. */
+    static final Timestamp MIN_TIME = Timestamp.from(Instant.parse("1970-01-01T00:00:00Z"));
+    static final Timestamp MAX_TIME = Timestamp.from(Instant.parse("9999-12-31T00:00:00Z"));
+
+    AccountRepository accountRepository;
+    JournalLineRepository journalLineRepository;
+    JournalArchive journalArchive;
+
+    /**
+     * @param cursor {@code nextCursor} of the previous page, null for the newest lines
+     * @param from   inclusive lower bound of the posting time, optional
+     * @param to     exclusive upper bound of the posting time, optional
+     * @param side   only CREDIT or only DEBIT lines, optional
+     */
+    @Transactional(readOnly = true)
+    public AccountStatementPage lines(Long accountId, Long cursor, OffsetDateTime from, OffsetDateTime to,
+                                      Side side, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException("from must be before to");
+        }
+        if (!accountRepository.existsById(accountId)) {
+            throw new NotFoundException("Account not found: id=" + accountId);
+        }
+
+        Set<Side> sides = side == null ? EnumSet.allOf(Side.class) : EnumSet.of(side);
+        long beforeId = cursor == null ? Long.MAX_VALUE : cursor;
+        Timestamp fromTime = from == null ? MIN_TIME : Timestamp.from(from.toInstant());
+        Timestamp toTime = to == null ? MAX_TIME : Timestamp.from(to.toInstant());
+        // one extra row tells whether an older page exists
+        List<AccountLineView> rows = journalLineRepository.findStatementPage(accountId, beforeId, sides,
+                fromTime, toTime, Limit.of(limit + 1));
+        if (rows.size() <= limit && !journalArchive.isEmpty()) {
+            rows = withArchived(rows, accountId, beforeId, sides, fromTime, toTime, limit + 1);
+        }
+
+        boolean more = rows.size() > limit;
+        List<AccountLineDto> lines = rows.stream().limit(limit).map(AccountStatementService::toDto).toList();
+        Long nextCursor = more ? lines.get(lines.size() - 1).lineId() : null;
+
+        log.debug("Statement page: accountId={}, cursor={}, lines={}, nextCursor={}",
+                accountId, cursor, lines.size(), nextCursor);
+        return new AccountStatementPage(accountId, lines, nextCursor);
+    }
+
+    /** The journal ran out before the page was full: older lines continue in the archive. */
+    private List<AccountLineView> withArchived(List<AccountLineView> rows, long accountId, long beforeId,
+                                               Set<Side> sides, Timestamp from, Timestamp to, int limit) {
+        List<AccountLineView> merged = new ArrayList<>(rows);
+        for (JournalSegment.Line l : journalArchive.accountLines(accountId, beforeId, sides, from, to, limit)) {
+            merged.add(new AccountLineView(l.id(), l.journalEntryId(), l.side(), l.amountMinor(), l.currency(),
+                    l.createdAt()));
+        }
+        merged.sort(Comparator.comparingLong(AccountLineView::id).reversed());
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private static AccountLineDto toDto(AccountLineView v) {
+        return new AccountLineDto(v.id(), v.journalEntryId(), v.side(), v.amountMinor(), v.currency(),
+                TransferService.toOffsetUtc(v.createdAt()));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.AdmissionProperties;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admits requests to the database by lane, each with its own fair semaphore: a burst of slow postings waiting
+ * on row locks uses up the posting lane only, reads and replays keep their own permits. A request that gets
+ * no permit within {@code maxWait} is answered with 503 and may be retried with the same Idempotency-Key.
+ * With virtual threads ({@code spring.threads.virtual.enabled}) the permits are the only bound on concurrency.
+ */
+@Component
+public class AdmissionControl {
+
+    public enum Lane { READ, REPLAY, POST }
+
+    private final AdmissionProperties properties;
+    private final Map<Lane, Semaphore> permits = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> rejected = new EnumMap<>(Lane.class);
+    private final Map<Lane, Timer> waits = new EnumMap<>(Lane.class);
+
+    public AdmissionControl(AdmissionProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        for (Lane lane : Lane.values()) {
+            String tag = lane.name().toLowerCase(Locale.ROOT);
+            int size = limit(lane);
+            Semaphore s = new Semaphore(size, true);
+            permits.put(lane, s);
+            Gauge.builder("ledger.admission.in.flight", s, x -> size - x.availablePermits())
+                    .tag("lane", tag).register(registry);
+            rejected.put(lane, Counter.builder("ledger.admission.rejected")
+                    .description("Requests answered with 503 because their lane stayed full")
+                    .tag("lane", tag).register(registry));
+            waits.put(lane, Timer.builder("ledger.admission.wait")
+                    .description("Time a request waited for a permit of its lane")
+                    .tag("lane", tag).register(registry));
+        }
+    }
+
+    public <T> T call(Lane lane, Supplier<T> work) {
+        if (!properties.isEnabled()) return work.get();
+
+        Semaphore semaphore = permits.get(lane);
+        long started = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = semaphore.tryAcquire(properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for admission");
+        }
+        waits.get(lane).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (!admitted) {
+            rejected.get(lane).increment();
+            throw new ServiceUnavailableException("Too many " + lane.name().toLowerCase(Locale.ROOT)
+                    + " requests in flight");
+        }
+
+        try {
+            return work.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private int limit(Lane lane) {
+        return switch (lane) {
+            case READ -> properties.getReadPermits();
+            case REPLAY -> properties.getReplayPermits();
+            case POST -> properties.getPostPermits();
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.AccountBalanceDto;
+import com.example.walletledgerservice.config.SnapshotProperties;
+import com.example.walletledgerservice.domain.repository.AccountRepository;
+import com.example.walletledgerservice.domain.repository.BalanceSnapshotJdbcRepository;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodic per-account balance snapshots, so a balance "as of" a past time sums only the lines
+ * after the nearest earlier snapshot instead of the whole history.
+ */
+@Slf4j
+@Service
+public class BalanceSnapshotService {
+
+    private final BalanceSnapshotJdbcRepository balanceSnapshotJdbcRepository;
+    private final AccountRepository accountRepository;
+    private final SnapshotProperties properties;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BalanceSnapshotService(BalanceSnapshotJdbcRepository balanceSnapshotJdbcRepository,
+                                  AccountRepository accountRepository, SnapshotProperties properties) {
+        this.balanceSnapshotJdbcRepository = balanceSnapshotJdbcRepository;
+        this.accountRepository = accountRepository;
+        this.properties = properties;
+    }
+
+    public record Round(OffsetDateTime asOf, int batches, long accountsSnapshotted, long tookMs) {}
+
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval:1h}", initialDelayString = "${ledger.snapshot.interval:1h}")
+    public void scheduledRound() {
+        if (!properties.isEnabled()) return;
+        try {
+            takeSnapshots();
+        } catch (ConflictException e) {
+            log.debug("Snapshot round skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Snapshots, as of now minus the lag, every account with lines since its last snapshot.
+     * Accounts go in id batches, one statement each; a batch commits on its own.
+     */
+    public Round takeSnapshots() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("A snapshot round is in progress");
+        }
+        try {
+            long started = System.nanoTime();
+            Timestamp asOf = Timestamp.from(Instant.now().minus(properties.getLag()).truncatedTo(ChronoUnit.MICROS));
+            int batchSize = Math.max(1, properties.getBatchSize());
+
+            int batches = 0;
+            long written = 0;
+            long afterId = Long.MIN_VALUE;
+            Long upToId;
+            while ((upToId = balanceSnapshotJdbcRepository.nextBatchUpperId(afterId, batchSize)) != null) {
+                written += balanceSnapshotJdbcRepository.snapshotBatch(asOf, afterId, upToId);
+                afterId = upToId;
+                batches++;
+            }
+
+            long tookMs = (System.nanoTime() - started) / 1_000_000;
+            log.info("Balance snapshot round done: asOf={}, batches={}, accounts={}, tookMs={}",
+                    asOf.toInstant(), batches, written, tookMs);
+            return new Round(TransferService.toOffsetUtc(asOf), batches, written, tookMs);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Balance from the lines created up to {@code asOf} (now when null). Once some of the account's lines
+     * are in detached partitions, only times from their {@code retiredBefore} on can be answered.
+     */
+    @Transactional(readOnly = true)
+    public AccountBalanceDto balanceAsOf(Long accountId, OffsetDateTime asOf) {
+        if (!accountRepository.existsById(accountId)) {
+            throw new NotFoundException("Account not found: id=" + accountId);
+        }
+        OffsetDateTime at = asOf != null ? asOf : OffsetDateTime.now(ZoneOffset.UTC);
+        Timestamp upTo = Timestamp.from(at.toInstant());
+
+        var retired = balanceSnapshotJdbcRepository.retiredBalance(accountId);
+        Timestamp retiredBefore = retired.map(BalanceSnapshotJdbcRepository.Retired::retiredBefore).orElse(null);
+        if (retiredBefore != null && upTo.before(retiredBefore)) {
+            throw new ValidationException("asOf must not be before " + TransferService.toOffsetUtc(retiredBefore)
+                    + ": older lines of the account have been detached");
+        }
+
+        var snapshot = balanceSnapshotJdbcRepository.latestSnapshot(accountId, retiredBefore, upTo);
+        Timestamp after = snapshot.map(BalanceSnapshotJdbcRepository.Snapshot::asOf).orElse(null);
+        long base = snapshot.map(BalanceSnapshotJdbcRepository.Snapshot::balanceMinor)
+                .orElse(retired.map(BalanceSnapshotJdbcRepository.Retired::balanceMinor).orElse(0L));
+        var tail = balanceSnapshotJdbcRepository.linesSum(accountId, after, upTo);
+
+        return new AccountBalanceDto(accountId, at, base + tail.amountMinor(),
+                TransferService.toOffsetUtc(after), tail.lines());
+    }
+}
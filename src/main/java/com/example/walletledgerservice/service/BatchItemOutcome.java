@@ -0,0 +1,48 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.enums.BatchItemStatus;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import org.springframework.dao.ConcurrencyFailureException;
+
+/**
+ * Result of one command of a batch. {@code error} is the exception the single-transfer path would have thrown.
+ */
+public record BatchItemOutcome(TransferCommand command,
+                               BatchItemStatus status,
+                               TransferResponse response,
+                               RuntimeException error) {
+
+    static BatchItemOutcome posted(TransferCommand cmd, TransferResponse response) {
+        return new BatchItemOutcome(cmd, BatchItemStatus.POSTED, response, null);
+    }
+
+    static BatchItemOutcome replayed(TransferCommand cmd, TransferResponse response) {
+        return new BatchItemOutcome(cmd, BatchItemStatus.REPLAYED, response, null);
+    }
+
+    static BatchItemOutcome failed(TransferCommand cmd, RuntimeException error) {
+        return new BatchItemOutcome(cmd, BatchItemStatus.FAILED, null, error);
+    }
+
+    static BatchItemOutcome notPosted(TransferCommand cmd) {
+        return new BatchItemOutcome(cmd, BatchItemStatus.NOT_POSTED, null, null);
+    }
+
+    public boolean isSuccess() {
+        return status == BatchItemStatus.POSTED || status == BatchItemStatus.REPLAYED;
+    }
+
+    /** Same codes GlobalExceptionHandler uses for the single-transfer endpoint; null without an error. */
+    public String errorCode() {
+        if (error == null) return null;
+        if (error instanceof NotFoundException) return "NOT_FOUND";
+        if (error instanceof ConflictException) return "CONFLICT";
+        if (error instanceof ConcurrencyFailureException) return "CONCURRENT_UPDATE";
+        if (error instanceof ServiceUnavailableException) return "SERVICE_UNAVAILABLE";
+        return "VALIDATION_ERROR";
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.domain.model.AccountEntity;
+import com.example.walletledgerservice.domain.model.JournalEntryEntity;
+import com.example.walletledgerservice.domain.model.JournalLineEntity;
+import com.example.walletledgerservice.domain.repository.AccountRepository;
+import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
+import com.example.walletledgerservice.domain.repository.JournalLineRepository;
+import com.example.walletledgerservice.enums.BatchItemStatus;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import jakarta.validation.ValidationException;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Posts many transfers in one transaction: one idempotency lookup, one ordered lock pass
+ * over every involved account, then all entries and lines are written together.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BatchTransferService {
+
+    AccountRepository accountRepository;
+    JournalEntryRepository journalEntryRepository;
+    JournalLineRepository journalLineRepository;
+    AccountShardService accountShardService;
+    ApplicationEventPublisher eventPublisher;
+    JournalArchive journalArchive;
+
+    /**
+     * Returns one outcome per command, in input order. In {@link BatchMode#ALL_OR_NOTHING} mode the first
+     * failed item marks the transaction rollback-only; replayed items keep their outcome and every other
+     * item is reported as not posted.
+     */
+    @Transactional
+    public List<BatchItemOutcome> createTransfers(List<TransferCommand> commands, BatchMode mode) {
+        int n = commands.size();
+        BatchItemOutcome[] outcomes = new BatchItemOutcome[n];
+
+        log.info("Batch transfer request: items={}, mode={}", n, mode);
+
+        validate(commands, outcomes);
+        resolveReplays(commands, outcomes);
+        if (mode == BatchMode.ALL_OR_NOTHING && anyFailed(outcomes)) {
+            return abort(commands, outcomes);
+        }
+
+        Map<Long, LockedAccount> locked = lockAccounts(commands, outcomes);
+
+        List<JournalEntryEntity> entries = new ArrayList<>();
+        List<JournalLineEntity> lines = new ArrayList<>();
+        Map<Integer, JournalEntryEntity> entryByIndex = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            if (outcomes[i] != null) continue;
+            TransferCommand cmd = commands.get(i);
+            try {
+                LockedAccount from = require(locked, cmd.fromAccountId());
+                LockedAccount to = require(locked, cmd.toAccountId());
+
+                TransferService.ensureCurrency(from.account(), cmd.currency(), "fromAccountId");
+                TransferService.ensureCurrency(to.account(), cmd.currency(), "toAccountId");
+                TransferService.ensureSufficientFunds(from, cmd.amountMinor());
+
+                from.debit(cmd.amountMinor());
+                to.credit(cmd.amountMinor());
+
+                JournalEntryEntity entry = TransferService.transferEntry(cmd);
+                entries.add(entry);
+                entryByIndex.put(i, entry);
+                lines.addAll(TransferService.transferLines(entry, entry.getCreatedAt(), from.account(), to.account(),
+                        cmd.amountMinor(), cmd.currency()));
+            } catch (ValidationException | NotFoundException e) {
+                outcomes[i] = BatchItemOutcome.failed(cmd, e);
+                if (mode == BatchMode.ALL_OR_NOTHING) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return abort(commands, outcomes);
+                }
+            }
+        }
+
+        persist(entries, lines);
+
+        entryByIndex.forEach((i, entry) ->
+                outcomes[i] = BatchItemOutcome.posted(commands.get(i), TransferService.mapEntryToResponse(entry)));
+
+        for (BatchItemOutcome o : outcomes) {
+            if (o.status() == BatchItemStatus.POSTED) {
+                TransferCommand cmd = o.command();
+                Map<Long, Long> versions = LockedAccount.postedVersions(
+                        List.of(locked.get(cmd.fromAccountId()), locked.get(cmd.toAccountId())));
+                eventPublisher.publishEvent(new TransferCompletedEvent(cmd.idempotencyKey(), o.response(), false, versions));
+            } else if (o.isSuccess()) {
+                eventPublisher.publishEvent(new TransferCompletedEvent(o.command().idempotencyKey(), o.response(), true));
+            }
+        }
+
+        log.info("Batch transfer posted: items={}, posted={}, mode={}", n, entries.size(), mode);
+        return List.of(outcomes);
+    }
+
+    private static void validate(List<TransferCommand> commands, BatchItemOutcome[] outcomes) {
+        Set<String> seenKeys = new HashSet<>();
+        for (int i = 0; i < commands.size(); i++) {
+            TransferCommand cmd = commands.get(i);
+            if (Objects.equals(cmd.fromAccountId(), cmd.toAccountId())) {
+                outcomes[i] = BatchItemOutcome.failed(cmd,
+                        new ValidationException("fromAccountId must differ from toAccountId"));
+            } else if (!seenKeys.add(cmd.idempotencyKey())) {
+                outcomes[i] = BatchItemOutcome.failed(cmd,
+                        new ValidationException("Duplicate idempotencyKey in batch: " + cmd.idempotencyKey()));
+            }
+        }
+    }
+
+    /** One IN (...) lookup for the whole batch instead of one select per item. */
+    private void resolveReplays(List<TransferCommand> commands, BatchItemOutcome[] outcomes) {
+        Set<String> keys = commands.stream().map(TransferCommand::idempotencyKey).collect(Collectors.toSet());
+        Map<String, JournalEntryEntity> existing = journalEntryRepository.findByIdempotencyKeyIn(keys).stream()
+                .collect(Collectors.toMap(JournalEntryEntity::getIdempotencyKey, Function.identity()));
+        keys.removeAll(existing.keySet());
+        Map<String, JournalSegment.Entry> archived = journalArchive.entriesByKeys(keys);
+        if (existing.isEmpty() && archived.isEmpty()) return;
+
+        for (int i = 0; i < commands.size(); i++) {
+            if (outcomes[i] != null) continue;
+            String key = commands.get(i).idempotencyKey();
+            JournalEntryEntity e = existing.get(key);
+            JournalSegment.Entry a = archived.get(key);
+            if ((e != null && !e.isTransfer()) || (a != null && !a.isTransfer())) {
+                outcomes[i] = BatchItemOutcome.failed(commands.get(i), TransferService.notATransfer(key));
+            } else if (e != null) {
+                log.info("Idempotent hit in batch: key={}, entryId={}", key, e.getId());
+                outcomes[i] = BatchItemOutcome.replayed(commands.get(i), TransferService.mapEntryToResponse(e));
+            } else if (a != null) {
+                log.info("Idempotent hit in batch from archive: key={}, entryId={}", key, a.id());
+                outcomes[i] = BatchItemOutcome.replayed(commands.get(i), TransferService.mapArchivedToResponse(a));
+            }
+        }
+    }
+
+    /** Locks every account of the pending items exactly once, see {@link #lockInOrder}. */
+    private Map<Long, LockedAccount> lockAccounts(List<TransferCommand> commands, BatchItemOutcome[] outcomes) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (int i = 0; i < commands.size(); i++) {
+            if (outcomes[i] != null) continue;
+            ids.add(commands.get(i).fromAccountId());
+            ids.add(commands.get(i).toAccountId());
+        }
+        return lockInOrder(ids);
+    }
+
+    /**
+     * Locks the accounts in ascending id order; missing ones are left out of the result.
+     * Runs of regular accounts are locked with one statement; a sharded account in between
+     * has all its shards locked at its place in the order, so the hot account row itself stays free.
+     * Also the lock pass of {@link JournalEntryService}.
+     */
+    Map<Long, LockedAccount> lockInOrder(SortedSet<Long> ids) {
+        Map<Long, LockedAccount> locked = new HashMap<>();
+        List<Long> run = new ArrayList<>();
+        for (Long id : ids) {
+            if (!accountShardService.isKnownSharded(id)) {
+                run.add(id);
+                continue;
+            }
+            lockRun(run, locked);
+            AccountEntity account = accountRepository.findById(id).orElse(null);
+            if (account != null && account.isSharded()) {
+                locked.put(id, accountShardService.lockAllShards(account));
+            } else if (account != null) {
+                run.add(id);
+            }
+        }
+        lockRun(run, locked);
+        return locked;
+    }
+
+    private void lockRun(List<Long> run, Map<Long, LockedAccount> locked) {
+        if (run.isEmpty()) return;
+        for (AccountEntity a : accountRepository.findAllByIdForUpdate(run)) {
+            locked.put(a.getId(), a.isSharded() ? accountShardService.lockAllShards(a) : LockedAccount.of(a));
+        }
+        run.clear();
+    }
+
+    private static LockedAccount require(Map<Long, LockedAccount> locked, Long id) {
+        LockedAccount a = locked.get(id);
+        if (a == null) throw new NotFoundException("Account not found: id=" + id);
+        return a;
+    }
+
+    private void persist(List<JournalEntryEntity> entries, List<JournalLineEntity> lines) {
+        if (entries.isEmpty()) return;
+        try {
+            journalEntryRepository.saveAll(entries);
+            journalLineRepository.saveAll(lines);
+            journalEntryRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request took one of the keys after our lookup; nothing of this batch is kept
+            throw new ConflictException("Idempotency key of the batch was posted concurrently, retry the batch", e);
+        }
+    }
+
+    private static boolean anyFailed(BatchItemOutcome[] outcomes) {
+        for (BatchItemOutcome o : outcomes) {
+            if (o != null && !o.isSuccess()) return true;
+        }
+        return false;
+    }
+
+    private static List<BatchItemOutcome> abort(List<TransferCommand> commands, BatchItemOutcome[] outcomes) {
+        List<BatchItemOutcome> result = new ArrayList<>(outcomes.length);
+        for (int i = 0; i < outcomes.length; i++) {
+            // failed and replayed items keep their outcome, nothing else gets posted
+            result.add(outcomes[i] != null ? outcomes[i] : BatchItemOutcome.notPosted(commands.get(i)));
+        }
+        log.info("Batch transfer aborted (ALL_OR_NOTHING): items={}", outcomes.length);
+        return result;
+    }
+}
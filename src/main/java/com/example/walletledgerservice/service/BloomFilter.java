@@ -0,0 +1,93 @@
+package com.example.walletledgerservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter over strings. {@link #mightContain} never answers false for a key that was put.
+ * Bit positions use double hashing (h1 + i * h2) of two 64-bit hashes.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder inserted = new LongAdder();
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) (bitCount >>> 6));
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /** Optimal size for {@code expectedKeys} at {@code falsePositiveRate}, but at most {@code maxBytes}. */
+    static BloomFilter create(long expectedKeys, double falsePositiveRate, long maxBytes) {
+        long n = Math.max(1, expectedKeys);
+        double optimalBits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long maxBits = Math.min(maxBytes * 8, (long) Integer.MAX_VALUE * 64);
+        long bits = Math.max(64, Math.min((long) Math.ceil(optimalBits), maxBits));
+        bits = (bits + 63) & ~63L;
+        int hashes = (int) Math.max(1, Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    void put(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        long h1 = hash(data, 0x9E3779B97F4A7C15L);
+        long h2 = hash(data, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        inserted.increment();
+    }
+
+    boolean mightContain(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        long h1 = hash(data, 0x9E3779B97F4A7C15L);
+        long h2 = hash(data, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    /** Number of put calls; repeated keys are counted again. */
+    long insertedCount() {
+        return inserted.sum();
+    }
+
+    /** (1 - e^(-k * n / m))^k for the keys put so far. */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertedCount() / bitCount), hashCount);
+    }
+
+    private static long hash(byte[] data, long seed) {
+        long h = seed ^ data.length;
+        for (byte b : data) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        // murmur3 fmix64: spreads the FNV state over all bits
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB2F85A3B6EB9L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.JournalEntryResponse;
+
+import java.util.Map;
+
+/**
+ * Published inside the posting transaction for every multi-leg entry the service answered,
+ * {@code replay} being true when the key had been posted before. {@code postedVersions} as in
+ * {@link TransferCompletedEvent}.
+ */
+public record EntryPostedEvent(String idempotencyKey, JournalEntryResponse response, boolean replay,
+                               Map<Long, Long> postedVersions) {
+
+    public EntryPostedEvent(String idempotencyKey, JournalEntryResponse response, boolean replay) {
+        this(idempotencyKey, response, replay, Map.of());
+    }
+}
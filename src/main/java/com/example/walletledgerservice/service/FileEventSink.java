@@ -0,0 +1,58 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.LedgerEventDto;
+import com.example.walletledgerservice.config.OutboxProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/** Appends events to {@code ledger.outbox.file-sink-path} as JSON lines, forced before the batch is acknowledged. */
+@Component
+@ConditionalOnProperty(prefix = "ledger.outbox", name = "file-sink-path")
+public class FileEventSink implements LedgerEventSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileEventSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        this.path = properties.getFileSinkPath();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void deliver(List<LedgerEventDto> events) {
+        StringBuilder lines = new StringBuilder();
+        try {
+            for (LedgerEventDto e : events) lines.append(objectMapper.writeValueAsString(e)).append('\n');
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize ledger event", e);
+        }
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer b = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (b.hasRemaining()) channel.write(b);
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append ledger events to " + path, e);
+        }
+    }
+}
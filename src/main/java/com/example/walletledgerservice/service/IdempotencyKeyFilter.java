@@ -0,0 +1,109 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.IdempotencyFilterProperties;
+import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.stream.Stream;
+
+/**
+ * In-process Bloom filter of posted idempotency keys. A definite miss lets the transfer path skip the
+ * idempotency SELECT; correctness still rests on the primary key of journal_entry_key (see
+ * {@link com.example.walletledgerservice.domain.repository.JournalEntryRepository#insertIfAbsent}),
+ * which also covers keys posted by other instances.
+ * Built by streaming {@code journal_entry_key.idempotency_key} at startup, then fed after every commit.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeyFilter {
+
+    private final IdempotencyFilterProperties properties;
+    private final JournalEntryRepository journalEntryRepository;
+
+    /**
+     * The filter answering lookups, null until the first build finished (every key "might" be present until then),
+     * and the filter being rebuilt, which commits go to as well. Swapped as one, so a put sees either both or
+     * only the new filter and no key is lost during the swap.
+     */
+    private volatile Filters filters = new Filters(null, null);
+
+    public IdempotencyKeyFilter(IdempotencyFilterProperties properties, JournalEntryRepository journalEntryRepository) {
+        this.properties = properties;
+        this.journalEntryRepository = journalEntryRepository;
+    }
+
+    private record Filters(BloomFilter current, BloomFilter next) {}
+
+    public record Stats(boolean ready, long bitCount, int hashCount, long insertedKeys,
+                        double expectedFalsePositiveRate) {}
+
+    public boolean mightContain(String key) {
+        BloomFilter f = filters.current();
+        return f == null || f.mightContain(key);
+    }
+
+    public boolean isReady() {
+        return filters.current() != null;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        put(event.idempotencyKey());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEntryPosted(EntryPostedEvent event) {
+        put(event.idempotencyKey());
+    }
+
+    void put(String key) {
+        Filters f = filters;
+        if (f.current() != null) f.current().put(key);
+        if (f.next() != null) f.next().put(key);
+    }
+
+    /**
+     * Builds a fresh filter from all stored keys and swaps it in. Also the way to resize it
+     * after changing the properties, or to shed keys that no longer exist. Reads the primary: a key
+     * missing from a lagging replica would be let through as never posted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public synchronized Stats rebuild() {
+        if (!properties.isEnabled()) {
+            filters = new Filters(null, null);
+            return stats();
+        }
+
+        long started = System.nanoTime();
+        BloomFilter building = BloomFilter.create(properties.getExpectedKeys(), properties.getFalsePositiveRate(),
+                properties.getMaxMemory().toBytes());
+        // set before the stream opens: keys committed after its snapshot arrive through put()
+        filters = new Filters(filters.current(), building);
+        try (Stream<String> keys = journalEntryRepository.streamAllIdempotencyKeys()) {
+            keys.forEach(building::put);
+        } catch (RuntimeException e) {
+            filters = new Filters(filters.current(), null);
+            throw e;
+        }
+        filters = new Filters(building, null);
+
+        Stats stats = stats();
+        log.info("Idempotency filter built: keys={}, bits={}, hashes={}, expectedFpp={}, tookMs={}",
+                stats.insertedKeys(), stats.bitCount(), stats.hashCount(),
+                String.format("%.5f", stats.expectedFalsePositiveRate()), (System.nanoTime() - started) / 1_000_000);
+        return stats;
+    }
+
+    public Stats stats() {
+        BloomFilter f = filters.current();
+        if (f == null) return new Stats(false, 0, 0, 0, 1.0);
+        return new Stats(true, f.bitCount(), f.hashCount(), f.insertedCount(), f.expectedFalsePositiveRate());
+    }
+}
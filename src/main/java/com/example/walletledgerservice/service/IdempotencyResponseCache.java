@@ -0,0 +1,125 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.IdempotencyCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Idempotency key to the response already given for it, so client retries are answered
+ * without a transaction or a pool connection. Bounded by entry count, estimated memory and TTL;
+ * least recently used keys go first. Filled only after the posting transaction committed.
+ */
+@Slf4j
+@Component
+public class IdempotencyResponseCache {
+
+    /** Map node, entry holder, the response record and its OffsetDateTime, without the strings. */
+    static final long ENTRY_OVERHEAD_BYTES = 240;
+
+    private final IdempotencyCacheProperties properties;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyResponseCache(IdempotencyCacheProperties properties) {
+        this.properties = properties;
+        this.maxBytes = properties.getMaxMemory().toBytes();
+        this.ttlNanos = properties.getTtl().toNanos();
+    }
+
+    private record Cached(TransferResponse response, long expiresAtNanos, long bytes) {}
+
+    /** The cached response or null. */
+    public TransferResponse get(String key) {
+        if (!properties.isEnabled()) return null;
+        synchronized (this) {
+            Cached c = entries.get(key);
+            if (c != null && c.expiresAtNanos - System.nanoTime() > 0) {
+                hits.increment();
+                return c.response;
+            }
+            if (c != null) {
+                remove(key, c);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, TransferResponse response) {
+        if (!properties.isEnabled()) return;
+        long bytes = estimateBytes(key, response);
+        if (bytes > maxBytes) return;
+
+        synchronized (this) {
+            Cached previous = entries.put(key, new Cached(response, System.nanoTime() + ttlNanos, bytes));
+            if (previous != null) usedBytes -= previous.bytes;
+            usedBytes += bytes;
+            evictOverflow();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        put(event.idempotencyKey(), event.response());
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Cached>> it = entries.entrySet().iterator();
+        while ((entries.size() > properties.getMaxEntries() || usedBytes > maxBytes) && it.hasNext()) {
+            usedBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key, Cached c) {
+        entries.remove(key);
+        usedBytes -= c.bytes;
+    }
+
+    static long estimateBytes(String key, TransferResponse r) {
+        return ENTRY_OVERHEAD_BYTES + stringBytes(key) + stringBytes(r.currency())
+                + stringBytes(r.description()) + stringBytes(r.externalRef());
+    }
+
+    private static long stringBytes(String s) {
+        // String object + byte[] header; Latin-1 content is one byte per char
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long estimatedBytes() {
+        return usedBytes;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.ArchiveProperties;
+import com.example.walletledgerservice.domain.repository.JournalArchiveJdbcRepository;
+import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.service.JournalSegment.Entry;
+import com.example.walletledgerservice.service.JournalSegment.Line;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the journal archive: the segment files in {@code ledger.archive.directory}, one per month,
+ * opened at startup and as the archiver writes them. Answers the lookups the database can no longer answer
+ * once a month is archived and its partition dropped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalArchive {
+
+    ArchiveProperties properties;
+    JournalArchiveJdbcRepository journalArchiveJdbcRepository;
+    ConcurrentNavigableMap<YearMonth, JournalSegment> segments = new ConcurrentSkipListMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void openSegments() {
+        Path directory = properties.getDirectory();
+        if (!Files.isDirectory(directory)) return;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(JournalSegment::isSegmentFile).sorted().toList()) {
+                register(JournalSegment.open(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal archive " + directory, e);
+        }
+        if (!segments.isEmpty()) {
+            log.info("Journal archive opened: directory={}, months={}", directory.toAbsolutePath(), segments.keySet());
+        }
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public Collection<JournalSegment> segments() {
+        return segments.values();
+    }
+
+    public Optional<JournalSegment> segment(YearMonth month) {
+        return Optional.ofNullable(segments.get(month));
+    }
+
+    void register(JournalSegment segment) {
+        segments.put(segment.month(), segment);
+    }
+
+    Path fileOf(YearMonth month) {
+        return JournalSegment.fileOf(properties.getDirectory(), month);
+    }
+
+    /** The archived entry of a key, found through journal_entry_key; empty if the key or its month is not here. */
+    public Optional<Entry> entryByKey(String idempotencyKey) {
+        return Optional.ofNullable(entriesByKeys(List.of(idempotencyKey)).get(idempotencyKey));
+    }
+
+    /** {@link #entryByKey} for many keys with one query; keys without an archived entry are left out. */
+    public Map<String, Entry> entriesByKeys(Collection<String> idempotencyKeys) {
+        if (segments.isEmpty() || idempotencyKeys.isEmpty()) return Map.of();
+        Map<String, Entry> entries = new HashMap<>();
+        for (JournalArchiveJdbcRepository.KeyRef k : journalArchiveJdbcRepository.findKeys(idempotencyKeys)) {
+            entry(k.entryId(), k.createdAt()).ifPresent(e -> entries.put(k.idempotencyKey(), e));
+        }
+        return entries;
+    }
+
+    public Optional<Entry> entry(long id, Timestamp createdAt) {
+        JournalSegment segment = segments.get(YearMonth.from(createdAt.toLocalDateTime()));
+        return segment == null ? Optional.empty() : segment.entry(id);
+    }
+
+    /**
+     * Archived lines of the account with id below {@code beforeId}, newest first, at most {@code limit};
+     * created in [from, to) and on one of {@code sides}. Months are read newest first, as far as needed plus
+     * one: a transaction open across a month end can give a line of the older month the higher id.
+     */
+    public List<Line> accountLines(long accountId, long beforeId, Set<Side> sides, Timestamp from, Timestamp to,
+                                   int limit) {
+        List<Line> lines = new ArrayList<>();
+        YearMonth first = YearMonth.from(from.toLocalDateTime());
+        YearMonth last = YearMonth.from(to.toLocalDateTime());
+        boolean full = false;
+        for (JournalSegment segment : segments.subMap(first, true, last, true).descendingMap().values()) {
+            lines.addAll(segment.accountLines(accountId, beforeId, limit, l ->
+                    sides.contains(l.side()) && !l.createdAt().before(from) && l.createdAt().before(to)));
+            if (full) break;
+            full = lines.size() >= limit;
+        }
+        lines.sort(Comparator.comparingLong(Line::id).reversed());
+        return lines.size() > limit ? lines.subList(0, limit) : lines;
+    }
+}
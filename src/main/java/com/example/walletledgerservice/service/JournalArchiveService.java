@@ -0,0 +1,169 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.ArchiveProperties;
+import com.example.walletledgerservice.domain.repository.JournalArchiveJdbcRepository;
+import com.example.walletledgerservice.service.JournalSegment.Entry;
+import com.example.walletledgerservice.service.JournalSegment.Line;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+
+/**
+ * Moves detached journal months (see {@link JournalPartitionService}) out of Postgres into segment files:
+ * write to a temporary file, rename it into place, check its row counts against the tables, then drop the
+ * tables. A crash at any step leaves either the tables or a complete segment, and the next run finishes the
+ * month. A segment is never rewritten; a month whose segment disagrees with its tables is left alone and
+ * reported.
+ */
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalArchiveService {
+
+    JournalArchiveJdbcRepository journalArchiveJdbcRepository;
+    JournalArchive journalArchive;
+    ArchiveProperties properties;
+    TransactionTemplate readOnlyTx;
+    ReentrantLock running = new ReentrantLock();
+
+    public JournalArchiveService(JournalArchiveJdbcRepository journalArchiveJdbcRepository,
+                                 JournalArchive journalArchive,
+                                 ArchiveProperties properties,
+                                 PlatformTransactionManager transactionManager) {
+        this.journalArchiveJdbcRepository = journalArchiveJdbcRepository;
+        this.journalArchive = journalArchive;
+        this.properties = properties;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public record ArchivedMonth(YearMonth month, String file, long entries, long lines, long sizeBytes) {}
+
+    @Scheduled(fixedDelayString = "${ledger.archive.interval:6h}")
+    public void scheduledArchive() {
+        if (!properties.isEnabled()) return;
+        try {
+            archiveDetached();
+        } catch (RuntimeException e) {
+            log.error("Journal archiving failed", e);
+        }
+    }
+
+    /** Archives every detached month; returns the months archived by this call. One run at a time per instance. */
+    public List<ArchivedMonth> archiveDetached() {
+        if (!running.tryLock()) return List.of();
+        try {
+            Map<YearMonth, MonthTables> months = new TreeMap<>();
+            for (String table : journalArchiveJdbcRepository.detachedTables()) {
+                Matcher m = JournalArchiveJdbcRepository.DETACHED_TABLE.matcher(table);
+                if (!m.matches()) continue;
+                MonthTables tables = months.computeIfAbsent(
+                        YearMonth.of(Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3))), k -> new MonthTables());
+                if (m.group(1).equals("entry")) tables.entryTable = table;
+                else tables.lineTable = table;
+            }
+            List<ArchivedMonth> archived = new ArrayList<>();
+            months.forEach((month, tables) -> archived.add(archiveMonth(month, tables)));
+            return archived;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    public List<ArchivedMonth> segments() {
+        return journalArchive.segments().stream().map(JournalArchiveService::describe).toList();
+    }
+
+    private ArchivedMonth archiveMonth(YearMonth month, MonthTables tables) {
+        long started = System.nanoTime();
+        long entries = tables.entryTable == null ? 0 : journalArchiveJdbcRepository.countRows(tables.entryTable);
+        long lines = tables.lineTable == null ? 0 : journalArchiveJdbcRepository.countRows(tables.lineTable);
+
+        Path file = journalArchive.fileOf(month);
+        try {
+            if (!Files.exists(file)) write(month, tables, file);
+            JournalSegment segment = JournalSegment.open(file);
+            if (segment.entryCount() != entries || segment.lineCount() != lines) {
+                throw new IllegalStateException("Segment " + file + " holds " + segment.entryCount() + " entries and "
+                        + segment.lineCount() + " lines, the tables " + entries + " and " + lines
+                        + "; the tables are kept");
+            }
+            journalArchive.register(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot archive journal month " + month, e);
+        }
+
+        if (tables.lineTable != null) journalArchiveJdbcRepository.dropTable(tables.lineTable);
+        if (tables.entryTable != null) journalArchiveJdbcRepository.dropTable(tables.entryTable);
+        ArchivedMonth archived = describe(journalArchive.segment(month).orElseThrow());
+        log.info("Journal month archived: month={}, entries={}, lines={}, bytes={}, tookMs={}",
+                month, entries, lines, archived.sizeBytes(), (System.nanoTime() - started) / 1_000_000);
+        return archived;
+    }
+
+    /** Streams both tables into a temporary file in the archive directory, then renames it into place. */
+    private void write(YearMonth month, MonthTables tables, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        try {
+            try (JournalSegmentWriter writer = JournalSegmentWriter.create(tmp, month, properties.getBlockRows())) {
+                readOnlyTx.executeWithoutResult(status -> {
+                    if (tables.entryTable != null) {
+                        journalArchiveJdbcRepository.forEachEntry(tables.entryTable, properties.getFetchSize(), r ->
+                                unchecked(() -> writer.entry(new Entry(r.id(), r.idempotencyKey(), r.description(),
+                                        r.externalRef(), r.createdAt(), r.fromAccountId(), r.toAccountId(),
+                                        r.amountMinor(), r.currency()))));
+                    }
+                    if (tables.lineTable != null) {
+                        journalArchiveJdbcRepository.forEachLine(tables.lineTable, properties.getFetchSize(), r ->
+                                unchecked(() -> writer.line(new Line(r.id(), r.journalEntryId(), r.accountId(),
+                                        r.side(), r.amountMinor(), r.currency(), r.createdAt()))));
+                    }
+                });
+                writer.finish();
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static ArchivedMonth describe(JournalSegment s) {
+        return new ArchivedMonth(s.month(), s.path().toString(), s.entryCount(), s.lineCount(), s.sizeBytes());
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static void unchecked(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class MonthTables {
+        String entryTable;
+        String lineTable;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.EntryLeg;
+import com.example.walletledgerservice.api.dto.JournalEntryCommand;
+import com.example.walletledgerservice.api.dto.JournalEntryResponse;
+import com.example.walletledgerservice.config.PostingProperties;
+import com.example.walletledgerservice.domain.model.JournalEntryEntity;
+import com.example.walletledgerservice.domain.model.JournalLineEntity;
+import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
+import com.example.walletledgerservice.domain.repository.JournalLineRepository;
+import com.example.walletledgerservice.enums.PostingMode;
+import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.InsufficientFundsException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import jakarta.validation.ValidationException;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Posts multi-leg journal entries: any number of DEBIT/CREDIT lines that balance per currency, e.g. a payment
+ * split into merchant, fee and tax legs. One idempotency key covers the whole entry. Every account is locked
+ * once, in id order, and all lines are written with one batch.
+ * <p>
+ * The entry row has no transfer columns; a replay reads the entry's lines back instead.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalEntryService {
+
+    JournalEntryRepository journalEntryRepository;
+    JournalLineRepository journalLineRepository;
+    BatchTransferService batchTransferService;
+    PostingProperties postingProperties;
+    ApplicationEventPublisher eventPublisher;
+    IdempotencyKeyFilter idempotencyKeyFilter;
+    JournalArchive journalArchive;
+
+    @Transactional
+    public JournalEntryResponse postEntry(@NotNull JournalEntryCommand cmd) {
+        final String key = cmd.idempotencyKey();
+        ensureBalanced(cmd.legs());
+        if (postingProperties.getMode() == PostingMode.ENGINE) {
+            // the engine keeps balances in memory and posts transfers only
+            throw new ValidationException("Multi-leg entries are not supported in engine mode");
+        }
+
+        log.info("Entry request: key={}, legs={}, extRef={}", key, cmd.legs().size(), cmd.externalRef());
+
+        boolean lookedUp = idempotencyKeyFilter.mightContain(key);
+        if (lookedUp) {
+            JournalEntryResponse idempotent = findIdempotentIfAny(key);
+            if (idempotent != null) return completed(key, idempotent, true);
+        }
+
+        Map<Long, LockedAccount> locked;
+        Map<Long, Long> outflows;
+        try {
+            locked = lockAccounts(cmd.legs());
+            outflows = ensureFunds(cmd.legs(), locked);
+        } catch (ValidationException | NotFoundException e) {
+            // a retry of a key posted elsewhere must replay, even if the funds are gone by now
+            JournalEntryResponse idempotent = lookedUp ? null : findIdempotentIfAny(key);
+            if (idempotent != null) return completed(key, idempotent, true);
+            throw e;
+        }
+
+        JournalEntryEntity entry = new JournalEntryEntity();
+        entry.setCreatedAt(TransferService.postingTime());
+        entry.setIdempotencyKey(key);
+        entry.setDescription(TransferService.trim(cmd.description(), 255));
+        entry.setExternalRef(TransferService.trim(cmd.externalRef(), 120));
+        Long id = journalEntryRepository.insertIfAbsent(key, entry.getDescription(), entry.getExternalRef(),
+                entry.getCreatedAt(), null, null, null, null);
+        if (id == null) {
+            JournalEntryResponse raced = findIdempotentIfAny(key);
+            if (raced == null) throw archived(key);
+            log.info("Idempotent raced and resolved: key={}, entryId={}", key, raced.journalEntryId());
+            return completed(key, raced, true);
+        }
+        entry.setId(id);
+
+        JournalEntryEntity ref = journalEntryRepository.getReferenceById(id);
+        journalLineRepository.saveAll(lines(ref, entry.getCreatedAt(), cmd.legs(), locked));
+        outflows.forEach((accountId, outflow) -> {
+            if (outflow > 0) locked.get(accountId).debit(outflow);
+            else if (outflow < 0) locked.get(accountId).credit(-outflow);
+        });
+
+        log.info("Entry posted: entryId={}, legs={}, accounts={}", id, cmd.legs().size(), outflows.keySet());
+
+        // an account whose legs net out is not written, and keeps its version
+        Map<Long, Long> postedVersions = new HashMap<>();
+        outflows.forEach((accountId, outflow) -> {
+            Long version = outflow == 0 ? null : locked.get(accountId).postedVersion();
+            if (version != null) postedVersions.put(accountId, version);
+        });
+        JournalEntryResponse response = new JournalEntryResponse(id, cmd.legs(),
+                TransferService.toOffsetUtc(entry.getCreatedAt()), entry.getDescription(), entry.getExternalRef());
+        eventPublisher.publishEvent(new EntryPostedEvent(key, response, false, postedVersions));
+        return response;
+    }
+
+    /**
+     * Sum of DEBIT legs equals sum of CREDIT legs in every currency. A transfer's two lines balance by
+     * construction; an entry of arbitrary legs has to be checked.
+     */
+    static void ensureBalanced(List<EntryLeg> legs) {
+        Map<String, Long> net = new TreeMap<>();
+        try {
+            for (EntryLeg l : legs) {
+                long signed = l.side() == Side.DEBIT ? l.amountMinor() : -l.amountMinor();
+                net.merge(l.currency(), signed, Math::addExact);
+            }
+        } catch (ArithmeticException e) {
+            throw new ValidationException("Entry amounts are out of range");
+        }
+        net.forEach((currency, sum) -> {
+            if (sum != 0) {
+                throw new ValidationException("Entry does not balance in " + currency + ": debits - credits = " + sum);
+            }
+        });
+    }
+
+    private JournalEntryResponse completed(String key, JournalEntryResponse response, boolean replay) {
+        eventPublisher.publishEvent(new EntryPostedEvent(key, response, replay));
+        return response;
+    }
+
+    private Map<Long, LockedAccount> lockAccounts(List<EntryLeg> legs) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (EntryLeg l : legs) ids.add(l.accountId());
+        Map<Long, LockedAccount> locked = batchTransferService.lockInOrder(ids);
+        for (Long id : ids) {
+            if (!locked.containsKey(id)) throw new NotFoundException("Account not found: id=" + id);
+        }
+        return locked;
+    }
+
+    /**
+     * Checks every leg's currency against its account and returns the net outflow of every account, in leg
+     * order: CREDIT legs minus DEBIT legs. An account only needs the funds for its net outflow.
+     */
+    private static Map<Long, Long> ensureFunds(List<EntryLeg> legs, Map<Long, LockedAccount> locked) {
+        Map<Long, Long> outflows = new LinkedHashMap<>();
+        for (int i = 0; i < legs.size(); i++) {
+            EntryLeg l = legs.get(i);
+            TransferService.ensureCurrency(locked.get(l.accountId()).account(), l.currency(), "legs[" + i + "].accountId");
+            outflows.merge(l.accountId(), l.side() == Side.CREDIT ? l.amountMinor() : -l.amountMinor(), Long::sum);
+        }
+        outflows.forEach((accountId, outflow) -> {
+            if (outflow > 0 && locked.get(accountId).available() < outflow) throw new InsufficientFundsException();
+        });
+        return outflows;
+    }
+
+    /** Lines in leg order, so their ids replay the legs in the order they were posted. */
+    private static List<JournalLineEntity> lines(JournalEntryEntity entry, Timestamp createdAt, List<EntryLeg> legs,
+                                                 Map<Long, LockedAccount> locked) {
+        List<JournalLineEntity> lines = new ArrayList<>(legs.size());
+        for (EntryLeg l : legs) {
+            JournalLineEntity line = new JournalLineEntity();
+            line.setEntry(entry);
+            line.setAccount(locked.get(l.accountId()).account());
+            line.setSide(l.side());
+            line.setAmountMinor(l.amountMinor());
+            line.setCurrency(l.currency());
+            line.setCreatedAt(createdAt);
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /** The key's entry, with its legs read from its lines; a transfer's key is a conflict. */
+    private JournalEntryResponse findIdempotentIfAny(String key) {
+        return journalEntryRepository.findByIdempotencyKey(key)
+                .map(e -> {
+                    if (e.isTransfer()) throw new ConflictException("Idempotency key was used by a transfer: " + key);
+                    log.info("Idempotent hit: key={}, entryId={}", key, e.getId());
+                    List<EntryLeg> legs = journalLineRepository.findByEntryIdWithAccount(e.getId(), e.getCreatedAt()).stream()
+                            .sorted(Comparator.comparing(JournalLineEntity::getId))
+                            .map(l -> new EntryLeg(l.getAccount().getId(), l.getSide(), l.getAmountMinor(), l.getCurrency()))
+                            .toList();
+                    return new JournalEntryResponse(e.getId(), legs, TransferService.toOffsetUtc(e.getCreatedAt()),
+                            e.getDescription(), e.getExternalRef());
+                })
+                .orElse(null);
+    }
+
+    /** The key is taken, but its entry is no longer in the journal; archived segments do not index lines by entry. */
+    private ConflictException archived(String key) {
+        return journalArchive.entryByKey(key)
+                .filter(JournalSegment.Entry::isTransfer)
+                .map(a -> new ConflictException("Idempotency key was used by a transfer: " + key))
+                .orElseGet(() -> new ConflictException(
+                        "Idempotency key was used by an entry that is no longer in the journal: " + key));
+    }
+}
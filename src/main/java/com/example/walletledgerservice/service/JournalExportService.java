@@ -0,0 +1,115 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.ExportProperties;
+import com.example.walletledgerservice.domain.repository.JournalExportRepository;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes journal entries with their lines as NDJSON, one JSON object per line, straight from
+ * a database cursor to the output stream. Heap use does not depend on the size of the range.
+ */
+@Slf4j
+@Service
+public class JournalExportService {
+
+    private final JournalExportRepository journalExportRepository;
+    private final ExportProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final Semaphore permits;
+
+    public JournalExportService(JournalExportRepository journalExportRepository, ExportProperties properties,
+                                ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.journalExportRepository = journalExportRepository;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.permits = new Semaphore(Math.max(1, properties.getMaxConcurrent()));
+    }
+
+    /** Opens the response stream only once the request is accepted, so errors before it still get a JSON body. */
+    @FunctionalInterface
+    public interface OutputOpener {
+        OutputStream open() throws IOException;
+    }
+
+    /** Returns the number of entries written. */
+    public long export(OffsetDateTime from, OffsetDateTime to, OutputOpener opener) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("from must be before to");
+        }
+        if (!permits.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many journal exports running, retry later");
+        }
+        long started = System.nanoTime();
+        try {
+            long entries = readOnlyTx.execute(status -> {
+                try (JsonGenerator gen = objectMapper.getFactory().createGenerator(opener.open())) {
+                    gen.setRootValueSeparator(null);
+                    long[] count = {0};
+                    journalExportRepository.forEachEntry(Timestamp.from(from.toInstant()),
+                            Timestamp.from(to.toInstant()), properties.getFetchSize(), e -> {
+                                write(gen, e);
+                                count[0]++;
+                            });
+                    return count[0];
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("Journal export done: from={}, to={}, entries={}, tookMs={}",
+                    from, to, entries, (System.nanoTime() - started) / 1_000_000);
+            return entries;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void write(JsonGenerator gen, JournalExportRepository.EntryRow e) {
+        try {
+            gen.writeStartObject();
+            gen.writeNumberField("id", e.id());
+            gen.writeStringField("idempotencyKey", e.idempotencyKey());
+            gen.writeStringField("createdAt", TransferService.toOffsetUtc(e.createdAt()).toString());
+            gen.writeStringField("description", e.description());
+            gen.writeStringField("externalRef", e.externalRef());
+            if (e.fromAccountId() != null) {
+                // a multi-leg entry is its lines only
+                gen.writeNumberField("fromAccountId", e.fromAccountId());
+                gen.writeNumberField("toAccountId", e.toAccountId());
+                gen.writeNumberField("amountMinor", e.amountMinor());
+                gen.writeStringField("currency", e.currency());
+            }
+            gen.writeArrayFieldStart("lines");
+            for (JournalExportRepository.LineRow l : e.lines()) {
+                gen.writeStartObject();
+                gen.writeNumberField("id", l.id());
+                gen.writeNumberField("accountId", l.accountId());
+                gen.writeStringField("side", l.side());
+                gen.writeNumberField("amountMinor", l.amountMinor());
+                gen.writeStringField("currency", l.currency());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
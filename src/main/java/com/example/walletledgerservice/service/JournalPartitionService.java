@@ -0,0 +1,77 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.PartitionProperties;
+import com.example.walletledgerservice.domain.repository.JournalPartitionJdbcRepository;
+import com.example.walletledgerservice.domain.repository.JournalPartitionJdbcRepository.Partition;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Keeps the monthly journal partitions ahead of the posting time: a row whose month has no partition
+ * cannot be inserted. With a retention set, months older than it are detached from the journal; their
+ * tables stay in the schema until archived or dropped.
+ * Months follow created_at, which is stored in the service's time zone.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalPartitionService {
+
+    JournalPartitionJdbcRepository journalPartitionJdbcRepository;
+    PartitionProperties properties;
+
+    @Scheduled(fixedDelayString = "${ledger.partitions.interval:6h}")
+    public void scheduledMaintenance() {
+        if (!properties.isEnabled()) return;
+        try {
+            ensurePartitions();
+            if (properties.getRetentionMonths() > 0) detach(retentionCutoff());
+        } catch (RuntimeException e) {
+            log.error("Journal partition maintenance failed", e);
+        }
+    }
+
+    /** Partitions for the current month and the next {@code monthsAhead}. */
+    public int ensurePartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        int created = journalPartitionJdbcRepository.createPartitions(Timestamp.valueOf(now),
+                Timestamp.valueOf(now.plusMonths(properties.getMonthsAhead())));
+        if (created > 0) {
+            log.info("Journal partitions created: count={}, monthsAhead={}", created, properties.getMonthsAhead());
+        }
+        return created;
+    }
+
+    /** Detaches every month that ends on or before {@code before}; returns the detached tables. */
+    public List<String> detachBefore(OffsetDateTime before) {
+        return detach(Timestamp.from(before.toInstant()));
+    }
+
+    public List<Partition> partitions() {
+        return journalPartitionJdbcRepository.attachedPartitions();
+    }
+
+    private List<String> detach(Timestamp before) {
+        List<String> detached = journalPartitionJdbcRepository.detachPartitions(before);
+        if (!detached.isEmpty()) {
+            log.info("Journal partitions detached: before={}, tables={}", before, detached);
+        }
+        return detached;
+    }
+
+    private Timestamp retentionCutoff() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1).minusMonths(properties.getRetentionMonths());
+        return Timestamp.valueOf(month.atStartOfDay());
+    }
+}
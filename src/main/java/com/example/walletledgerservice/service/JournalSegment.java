@@ -0,0 +1,322 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.enums.Side;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * One archived month of the journal in an immutable file, memory-mapped for reading.
+ * <p>
+ * Layout: header, deflated blocks of up to {@code blockRows} rows, index, trailer. A block stores its
+ * rows column by column as primitive arrays. Entry blocks hold entries in id order; line blocks hold lines
+ * in (account id, id) order, so the lines of one account are adjacent. The index is sparse: the first and
+ * last key of every block, so a lookup binary-searches the index and inflates one block. Each block
+ * carries the CRC of its raw bytes.
+ * <p>
+ * Reads use absolute positions on the mapped buffer only, so one instance serves any number of threads.
+ */
+public final class JournalSegment {
+
+    static final int MAGIC = 0x4A534731;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 4;
+    static final int TRAILER_BYTES = 8 + 4;
+    /** first id, last id, offset, compressed length, raw length, rows, crc */
+    static final int ENTRY_INDEX_BYTES = 3 * 8 + 4 * 4;
+    /** first (account id, id), last (account id, id), offset, compressed length, raw length, rows, crc */
+    static final int LINE_INDEX_BYTES = 5 * 8 + 4 * 4;
+
+    /** A multi-leg entry has no transfer columns: a null currency, stored as three zero bytes, and zeros. */
+    public record Entry(long id, String idempotencyKey, String description, String externalRef, Timestamp createdAt,
+                        long fromAccountId, long toAccountId, long amountMinor, String currency) {
+
+        public boolean isTransfer() {
+            return currency != null;
+        }
+    }
+
+    public record Line(long id, long journalEntryId, long accountId, Side side, long amountMinor, String currency,
+                       Timestamp createdAt) {}
+
+    private final Path path;
+    private final YearMonth month;
+    private final ByteBuffer data;
+    private final long entryCount;
+    private final long lineCount;
+
+    private final long[] entryFirstId;
+    private final long[] entryLastId;
+    private final BlockRef[] entryBlocks;
+
+    private final long[] lineFirstAccountId;
+    private final long[] lineFirstId;
+    private final long[] lineLastAccountId;
+    private final BlockRef[] lineBlocks;
+
+    private record BlockRef(int offset, int length, int rawLength, int rows, int crc) {}
+
+    private JournalSegment(Path path, ByteBuffer data) {
+        this.path = path;
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES + TRAILER_BYTES
+                || data.getInt(0) != MAGIC || data.getInt(data.capacity() - 4) != MAGIC) {
+            throw corrupt("missing header or trailer");
+        }
+        if (data.getShort(4) != VERSION) throw corrupt("unknown version " + data.getShort(4));
+        int yearMonth = data.getInt(6);
+        this.month = YearMonth.of(yearMonth / 100, yearMonth % 100);
+
+        int pos = (int) data.getLong(data.capacity() - TRAILER_BYTES);
+        int entryBlockCount = data.getInt(pos);
+        pos += 4;
+        entryFirstId = new long[entryBlockCount];
+        entryLastId = new long[entryBlockCount];
+        entryBlocks = new BlockRef[entryBlockCount];
+        for (int b = 0; b < entryBlockCount; b++, pos += ENTRY_INDEX_BYTES) {
+            entryFirstId[b] = data.getLong(pos);
+            entryLastId[b] = data.getLong(pos + 8);
+            entryBlocks[b] = blockRef(pos + 16);
+        }
+        int lineBlockCount = data.getInt(pos);
+        pos += 4;
+        lineFirstAccountId = new long[lineBlockCount];
+        lineFirstId = new long[lineBlockCount];
+        lineLastAccountId = new long[lineBlockCount];
+        lineBlocks = new BlockRef[lineBlockCount];
+        for (int b = 0; b < lineBlockCount; b++, pos += LINE_INDEX_BYTES) {
+            lineFirstAccountId[b] = data.getLong(pos);
+            lineFirstId[b] = data.getLong(pos + 8);
+            lineLastAccountId[b] = data.getLong(pos + 16);
+            lineBlocks[b] = blockRef(pos + 32);
+        }
+        entryCount = data.getLong(pos);
+        lineCount = data.getLong(pos + 8);
+    }
+
+    /** Maps the whole file; it stays mapped until the instance is garbage collected. */
+    public static JournalSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Segment exceeds 2 GiB: " + path);
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new JournalSegment(path, data);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public YearMonth month() {
+        return month;
+    }
+
+    public long entryCount() {
+        return entryCount;
+    }
+
+    public long lineCount() {
+        return lineCount;
+    }
+
+    public long sizeBytes() {
+        return data.capacity();
+    }
+
+    public Optional<Entry> entry(long id) {
+        int b = lastAtOrBelow(entryFirstId, id);
+        if (b < 0 || id > entryLastId[b]) return Optional.empty();
+        BlockRef ref = entryBlocks[b];
+        ByteBuffer raw = inflate(ref);
+        int n = ref.rows();
+        int lo = 0;
+        int hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = raw.getLong(mid * 8);
+            if (midId < id) lo = mid + 1;
+            else if (midId > id) hi = mid - 1;
+            else return Optional.of(entryAt(raw, n, mid));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Lines of the account with id below {@code beforeId} that pass {@code filter}, newest first, at most
+     * {@code limit}. Walks the line blocks backwards from the one holding (accountId, beforeId).
+     */
+    public List<Line> accountLines(long accountId, long beforeId, int limit, Predicate<Line> filter) {
+        List<Line> lines = new ArrayList<>();
+        int b = lastLineBlockBelow(accountId, beforeId);
+        for (; b >= 0 && lines.size() < limit; b--) {
+            if (lineLastAccountId[b] < accountId) break;
+            BlockRef ref = lineBlocks[b];
+            ByteBuffer raw = inflate(ref);
+            int n = ref.rows();
+            for (int i = lowerBound(raw, n, accountId, beforeId) - 1; i >= 0; i--) {
+                if (raw.getLong((2 * n + i) * 8) != accountId) return lines;
+                Line line = lineAt(raw, n, i);
+                if (filter.test(line)) {
+                    lines.add(line);
+                    if (lines.size() == limit) return lines;
+                }
+            }
+        }
+        return lines;
+    }
+
+    static int compare(long accountA, long idA, long accountB, long idB) {
+        int c = Long.compare(accountA, accountB);
+        return c != 0 ? c : Long.compare(idA, idB);
+    }
+
+    /** created_at is a zone-less TIMESTAMP; it is kept as its wall-clock value in microseconds. */
+    static long toMicros(Timestamp ts) {
+        LocalDateTime t = ts.toLocalDateTime();
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + t.getNano() / 1_000;
+    }
+
+    static Timestamp fromMicros(long micros) {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC));
+    }
+
+    /** Entry columns: id, created_at, from, to, amount (8 bytes each), currency (3), then the three strings. */
+    private static Entry entryAt(ByteBuffer raw, int n, int i) {
+        int strings = n * (5 * 8 + 3);
+        String key = stringAt(raw, n, strings, i);
+        strings = skipStringColumn(raw, n, strings);
+        String description = stringAt(raw, n, strings, i);
+        strings = skipStringColumn(raw, n, strings);
+        String externalRef = stringAt(raw, n, strings, i);
+        return new Entry(raw.getLong(i * 8), key, description, externalRef,
+                fromMicros(raw.getLong((n + i) * 8)),
+                raw.getLong((2 * n + i) * 8), raw.getLong((3 * n + i) * 8), raw.getLong((4 * n + i) * 8),
+                raw.get(n * 5 * 8 + i * 3) == 0 ? null : ascii(raw, n * 5 * 8 + i * 3, 3));
+    }
+
+    /** Line columns: id, entry id, account id, amount, created_at (8 bytes each), side (1), currency (3). */
+    private static Line lineAt(ByteBuffer raw, int n, int i) {
+        return new Line(raw.getLong(i * 8), raw.getLong((n + i) * 8), raw.getLong((2 * n + i) * 8),
+                raw.get(n * 5 * 8 + i) == 1 ? Side.DEBIT : Side.CREDIT,
+                raw.getLong((3 * n + i) * 8), ascii(raw, n * (5 * 8 + 1) + i * 3, 3),
+                fromMicros(raw.getLong((4 * n + i) * 8)));
+    }
+
+    /** A string column is n lengths (-1 for null) followed by the UTF-8 bytes of the non-null values. */
+    private static String stringAt(ByteBuffer raw, int n, int column, int i) {
+        int length = raw.getInt(column + i * 4);
+        if (length < 0) return null;
+        int offset = column + n * 4;
+        for (int j = 0; j < i; j++) offset += Math.max(0, raw.getInt(column + j * 4));
+        byte[] bytes = new byte[length];
+        raw.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int skipStringColumn(ByteBuffer raw, int n, int column) {
+        int end = column + n * 4;
+        for (int j = 0; j < n; j++) end += Math.max(0, raw.getInt(column + j * 4));
+        return end;
+    }
+
+    private static String ascii(ByteBuffer raw, int offset, int length) {
+        byte[] bytes = new byte[length];
+        raw.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /** First row at or after (accountId, id) in a line block. */
+    private static int lowerBound(ByteBuffer raw, int n, long accountId, long id) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(raw.getLong((2 * n + mid) * 8), raw.getLong(mid * 8), accountId, id) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Last block whose first row is below (accountId, id), or -1. */
+    private int lastLineBlockBelow(long accountId, long id) {
+        int lo = 0;
+        int hi = lineBlocks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(lineFirstAccountId[mid], lineFirstId[mid], accountId, id) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    private static int lastAtOrBelow(long[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    private BlockRef blockRef(int pos) {
+        return new BlockRef((int) data.getLong(pos), data.getInt(pos + 8), data.getInt(pos + 12),
+                data.getInt(pos + 16), data.getInt(pos + 20));
+    }
+
+    private ByteBuffer inflate(BlockRef ref) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice(ref.offset(), ref.length()));
+            byte[] raw = new byte[ref.rawLength()];
+            int n = 0;
+            while (n < raw.length) {
+                int read = inflater.inflate(raw, n, raw.length - n);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) break;
+                n += read;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, n);
+            if (n != raw.length || (int) crc.getValue() != ref.crc()) {
+                throw corrupt("block at " + ref.offset() + " fails its checksum");
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw corrupt("block at " + ref.offset() + " does not inflate: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private IllegalStateException corrupt(String detail) {
+        return new IllegalStateException("Corrupt journal segment " + path + ": " + detail);
+    }
+
+    /** Segment files are named journal-YYYY_MM.seg after the partitions they replace. */
+    static Path fileOf(Path directory, YearMonth month) {
+        return directory.resolve(String.format("journal-%04d_%02d.seg", month.getYear(), month.getMonthValue()));
+    }
+
+    static boolean isSegmentFile(Path file) {
+        return Files.isRegularFile(file) && file.getFileName().toString().matches("journal-\\d{4}_\\d{2}\\.seg");
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.service.JournalSegment.Entry;
+import com.example.walletledgerservice.service.JournalSegment.Line;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes one {@link JournalSegment} file: all entries in id order, then all lines in (account id, id) order.
+ * Rows are buffered one block at a time; each full block is deflated and appended, so a month of any size
+ * is written in constant memory. The index and trailer are written by {@link #finish()}; a file without
+ * them does not open, so a failed write leaves nothing readable behind.
+ */
+public final class JournalSegmentWriter implements AutoCloseable {
+
+    /** Currency of a multi-leg entry, which has none; no currency code starts with a zero byte. */
+    private static final byte[] NO_CURRENCY = new byte[3];
+
+    private final FileChannel channel;
+    private final YearMonth month;
+    private final int blockRows;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    private final List<Entry> entryBuffer = new ArrayList<>();
+    private final List<Line> lineBuffer = new ArrayList<>();
+    private final List<long[]> entryIndex = new ArrayList<>();
+    private final List<long[]> lineIndex = new ArrayList<>();
+    private long entryCount;
+    private long lineCount;
+    private Entry lastEntry;
+    private Line lastLine;
+
+    private JournalSegmentWriter(FileChannel channel, YearMonth month, int blockRows) {
+        this.channel = channel;
+        this.month = month;
+        this.blockRows = blockRows;
+    }
+
+    /** Creates {@code path}; an existing file is never overwritten. */
+    public static JournalSegmentWriter create(Path path, YearMonth month, int blockRows) throws IOException {
+        if (blockRows < 1) throw new IllegalArgumentException("blockRows must be positive");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        JournalSegmentWriter writer = new JournalSegmentWriter(channel, month, blockRows);
+        ByteBuffer header = ByteBuffer.allocate(JournalSegment.HEADER_BYTES);
+        header.putInt(JournalSegment.MAGIC).putShort(JournalSegment.VERSION)
+                .putInt(month.getYear() * 100 + month.getMonthValue());
+        writer.write(header.flip());
+        return writer;
+    }
+
+    public void entry(Entry e) throws IOException {
+        if (!lineBuffer.isEmpty() || lineCount > 0) throw new IllegalStateException("entries must precede lines");
+        if (lastEntry != null && e.id() <= lastEntry.id()) {
+            throw new IllegalArgumentException("entries out of id order: " + lastEntry.id() + ", " + e.id());
+        }
+        lastEntry = e;
+        entryBuffer.add(e);
+        if (entryBuffer.size() == blockRows) flushEntries();
+    }
+
+    public void line(Line l) throws IOException {
+        if (lastLine != null && JournalSegment.compare(l.accountId(), l.id(), lastLine.accountId(), lastLine.id()) <= 0) {
+            throw new IllegalArgumentException("lines out of (account id, id) order at line " + l.id());
+        }
+        if (!entryBuffer.isEmpty()) flushEntries();
+        lastLine = l;
+        lineBuffer.add(l);
+        if (lineBuffer.size() == blockRows) flushLines();
+    }
+
+    /** Writes the last blocks, the index and the trailer, and forces the file to disk. */
+    public void finish() throws IOException {
+        flushEntries();
+        flushLines();
+        long indexOffset = channel.position();
+        ByteBuffer index = ByteBuffer.allocate(4 + entryIndex.size() * JournalSegment.ENTRY_INDEX_BYTES
+                + 4 + lineIndex.size() * JournalSegment.LINE_INDEX_BYTES + 16);
+        index.putInt(entryIndex.size());
+        for (long[] b : entryIndex) putIndex(index, b);
+        index.putInt(lineIndex.size());
+        for (long[] b : lineIndex) putIndex(index, b);
+        index.putLong(entryCount).putLong(lineCount);
+        write(index.flip());
+
+        ByteBuffer trailer = ByteBuffer.allocate(JournalSegment.TRAILER_BYTES);
+        trailer.putLong(indexOffset).putInt(JournalSegment.MAGIC);
+        write(trailer.flip());
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Segment of " + month + " exceeds 2 GiB and cannot be mapped");
+        }
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        channel.close();
+    }
+
+    /** Columns: id, created_at, from, to, amount, currency, then key, description and external ref. */
+    private void flushEntries() throws IOException {
+        if (entryBuffer.isEmpty()) return;
+        int n = entryBuffer.size();
+        byte[][] keys = new byte[n][];
+        byte[][] descriptions = new byte[n][];
+        byte[][] refs = new byte[n][];
+        int stringBytes = 0;
+        for (int i = 0; i < n; i++) {
+            Entry e = entryBuffer.get(i);
+            keys[i] = utf8(e.idempotencyKey());
+            descriptions[i] = utf8(e.description());
+            refs[i] = utf8(e.externalRef());
+            stringBytes += length(keys[i]) + length(descriptions[i]) + length(refs[i]);
+        }
+        ByteBuffer raw = ByteBuffer.allocate(n * (5 * 8 + 3 + 3 * 4) + stringBytes);
+        for (Entry e : entryBuffer) raw.putLong(e.id());
+        for (Entry e : entryBuffer) raw.putLong(JournalSegment.toMicros(e.createdAt()));
+        for (Entry e : entryBuffer) raw.putLong(e.fromAccountId());
+        for (Entry e : entryBuffer) raw.putLong(e.toAccountId());
+        for (Entry e : entryBuffer) raw.putLong(e.amountMinor());
+        for (Entry e : entryBuffer) raw.put(e.isTransfer() ? currency(e.currency()) : NO_CURRENCY);
+        for (byte[][] column : new byte[][][]{keys, descriptions, refs}) {
+            for (byte[] s : column) raw.putInt(s == null ? -1 : s.length);
+            for (byte[] s : column) if (s != null) raw.put(s);
+        }
+        long[] block = writeBlock(raw);
+        entryIndex.add(new long[]{entryBuffer.get(0).id(), lastEntry.id(), block[0], block[1], block[2], n, block[3]});
+        entryCount += n;
+        entryBuffer.clear();
+    }
+
+    /** Columns: id, entry id, account id, amount, created_at, side, currency. */
+    private void flushLines() throws IOException {
+        if (lineBuffer.isEmpty()) return;
+        int n = lineBuffer.size();
+        ByteBuffer raw = ByteBuffer.allocate(n * (5 * 8 + 1 + 3));
+        for (Line l : lineBuffer) raw.putLong(l.id());
+        for (Line l : lineBuffer) raw.putLong(l.journalEntryId());
+        for (Line l : lineBuffer) raw.putLong(l.accountId());
+        for (Line l : lineBuffer) raw.putLong(l.amountMinor());
+        for (Line l : lineBuffer) raw.putLong(JournalSegment.toMicros(l.createdAt()));
+        for (Line l : lineBuffer) raw.put((byte) (l.side() == Side.DEBIT ? 1 : 0));
+        for (Line l : lineBuffer) raw.put(currency(l.currency()));
+        long[] block = writeBlock(raw);
+        Line first = lineBuffer.get(0);
+        lineIndex.add(new long[]{first.accountId(), first.id(), lastLine.accountId(), lastLine.id(),
+                block[0], block[1], block[2], n, block[3]});
+        lineCount += n;
+        lineBuffer.clear();
+    }
+
+    /** Deflates and appends one block; returns its offset, compressed and raw length, and CRC of the raw bytes. */
+    private long[] writeBlock(ByteBuffer raw) throws IOException {
+        byte[] bytes = raw.array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, raw.position());
+        deflater.reset();
+        deflater.setInput(bytes, 0, raw.position());
+        deflater.finish();
+        byte[] out = new byte[Math.max(64, raw.position() / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        long offset = channel.position();
+        write(ByteBuffer.wrap(out, 0, length));
+        return new long[]{offset, length, raw.position(), crc.getValue()};
+    }
+
+    private static void putIndex(ByteBuffer index, long[] b) {
+        // key columns, offset, compressed length, raw length, rows, crc
+        int keys = b.length - 5;
+        for (int i = 0; i < keys; i++) index.putLong(b[i]);
+        index.putLong(b[keys]);
+        index.putInt((int) b[keys + 1]);
+        index.putInt((int) b[keys + 2]);
+        index.putInt((int) b[keys + 3]);
+        index.putInt((int) b[keys + 4]);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] s) {
+        return s == null ? 0 : s.length;
+    }
+
+    private static byte[] currency(String currency) {
+        byte[] bytes = currency.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != 3) throw new IllegalArgumentException("currency must have 3 letters: " + currency);
+        return bytes;
+    }
+}
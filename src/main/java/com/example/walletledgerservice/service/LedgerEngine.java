@@ -0,0 +1,816 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.EngineProperties;
+import com.example.walletledgerservice.config.PostingProperties;
+import com.example.walletledgerservice.config.WalProperties;
+import com.example.walletledgerservice.domain.model.JournalEntryEntity;
+import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
+import com.example.walletledgerservice.domain.repository.LedgerJdbcRepository;
+import com.example.walletledgerservice.domain.repository.LedgerJdbcRepository.TransferRow;
+import com.example.walletledgerservice.enums.PostingMode;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.CurrencyMismatchException;
+import com.example.walletledgerservice.exception.InsufficientFundsException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory ledger engine for {@code ledger.posting.mode=engine}.
+ * <p>
+ * Balances live in memory, each account owned by one single-threaded sequencer ({@code id mod partitions}).
+ * A transfer enters the ring of its sender's sequencer, which checks funds and debits; the receiver's
+ * sequencer credits and hands the posting to the committer. The committer writes postings in groups
+ * (entries, lines, summed balance deltas) and replies to every client of a group once it is committed.
+ * <p>
+ * The engine must be the only writer of the balances it holds. A failed group commit stops the world:
+ * every posting not yet durable is failed with 503 and the state is reloaded from the {@code account} table.
+ * <p>
+ * With {@code ledger.wal.enabled} the committer appends each group to the local {@link WriteAheadLog} instead,
+ * forces it and replies; a flusher writes the log to Postgres in larger batches, retrying until it succeeds.
+ * Balances read from Postgres then trail the replies by the flush. At start the records the log still holds
+ * are written before the balances are loaded, skipping keys already posted, so a crash loses no reply.
+ * The keys of a group are claimed in journal_entry_key before it is logged, so a key that is already taken
+ * (posted by another writer, or archived) is replayed instead of acknowledged, whatever the key filter says.
+ */
+@Slf4j
+@Service
+public class LedgerEngine {
+
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final EngineProperties properties;
+    private final PostingProperties postingProperties;
+    private final WalProperties walProperties;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final JournalEntryRepository journalEntryRepository;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
+    private final JournalArchive journalArchive;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Requests by idempotency key until their posting is durable; concurrent retries share the reply. */
+    private final ConcurrentHashMap<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Posting> committerQueue = new ConcurrentLinkedQueue<>();
+    /** WAL mode: postings acknowledged from the log, waiting for the flusher. */
+    private final ConcurrentLinkedQueue<Logged> flusherQueue = new ConcurrentLinkedQueue<>();
+    /** WAL mode: replies by idempotency key from acknowledgement until the flush commits. */
+    private final ConcurrentHashMap<String, TransferResponse> unflushed = new ConcurrentHashMap<>();
+
+    private volatile State state;
+    private volatile Status status = Status.STOPPED;
+    private Sequencer[] sequencers;
+    private Thread committer;
+    private Thread flusher;
+    private WriteAheadLog wal;
+    /** Entry ids reserved for WAL postings; committer thread only. */
+    private long[] entryIds = new long[0];
+    private int nextEntryId;
+
+    public LedgerEngine(EngineProperties properties,
+                        PostingProperties postingProperties,
+                        WalProperties walProperties,
+                        LedgerJdbcRepository ledgerJdbcRepository,
+                        JournalEntryRepository journalEntryRepository,
+                        IdempotencyKeyFilter idempotencyKeyFilter,
+                        JournalArchive journalArchive,
+                        ApplicationEventPublisher eventPublisher,
+                        PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.postingProperties = postingProperties;
+        this.walProperties = walProperties;
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.journalEntryRepository = journalEntryRepository;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
+        this.journalArchive = journalArchive;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private enum Status { STOPPED, RUNNING, RECOVERING, STOPPING }
+
+    /** Reply of the engine; {@code replay} is true when the key had been posted before. */
+    public record Result(TransferResponse response, boolean replay) {}
+
+    /** The accounts of one engine life; replaced as a whole on recovery, so stale postings are recognisable. */
+    private record State(long epoch, ConcurrentHashMap<Long, EngineAccount> accounts) {}
+
+    private static final class EngineAccount {
+        final long id;
+        final String currency;
+        final int partition;
+        final boolean sharded;
+        /** Owner sequencer only. */
+        long balance;
+        /** Postings applied to {@link #balance} that are not durable yet. */
+        final AtomicLong pending = new AtomicLong();
+
+        EngineAccount(LedgerJdbcRepository.AccountRow row, int partition) {
+            this.id = row.id();
+            this.currency = row.currency();
+            this.partition = partition;
+            this.sharded = row.sharded();
+            this.balance = row.balanceMinor();
+        }
+    }
+
+    private record Posting(TransferCommand cmd, long epoch, EngineAccount from, EngineAccount to,
+                           CompletableFuture<Result> reply) {}
+
+    private record Credit(Posting posting) {}
+
+    private record Logged(Posting posting, long sequence, TransferRow row, TransferResponse response) {}
+
+    private record Resync(EngineAccount account, CompletableFuture<Void> done) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (postingProperties.getMode() != PostingMode.ENGINE || status != Status.STOPPED) return;
+
+        if (walProperties.isEnabled()) openWal();
+        state = loadState(0);
+        int partitions = properties.getPartitions();
+        sequencers = new Sequencer[partitions];
+        for (int p = 0; p < partitions; p++) {
+            sequencers[p] = new Sequencer(p, properties.getRingSize());
+        }
+        status = Status.RUNNING;
+        for (Sequencer s : sequencers) s.thread.start();
+        committer = new Thread(this::runCommitter, "ledger-committer");
+        committer.setDaemon(true);
+        committer.start();
+        if (wal != null) {
+            flusher = new Thread(this::runFlusher, "ledger-wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+
+        log.info("Ledger engine started: partitions={}, accounts={}, ringSize={}, groupMax={}, groupDelay={}, wal={}",
+                partitions, state.accounts.size(), sequencers[0].submissions.capacity(),
+                properties.getGroupCommitMaxSize(), properties.getGroupCommitMaxDelay(),
+                wal == null ? "off" : wal.directory().toAbsolutePath());
+    }
+
+    /** Stops taking transfers, lets the pipeline drain and fails what is left. */
+    @PreDestroy
+    public synchronized void stop() {
+        if (status == Status.STOPPED) return;
+        status = Status.STOPPING;
+        for (Sequencer s : sequencers) join(s.thread);
+        join(committer);
+        if (wal != null) {
+            // what the flusher could not write in time stays in the log for the next start
+            join(flusher);
+            wal.close();
+            flusherQueue.clear();
+            unflushed.clear();
+        }
+        ServiceUnavailableException stopped = new ServiceUnavailableException("Ledger engine stopped");
+        inFlight.values().forEach(f -> f.completeExceptionally(stopped));
+        inFlight.clear();
+        status = Status.STOPPED;
+        log.info("Ledger engine stopped");
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    /**
+     * Validates the transfer in the calling thread and queues it to the sender's sequencer.
+     * The future completes once the posting is durable, or with the exception the JPA path would throw.
+     */
+    public CompletableFuture<Result> submit(TransferCommand cmd) {
+        if (status != Status.RUNNING) {
+            throw new ServiceUnavailableException("Ledger engine is " + status.name().toLowerCase());
+        }
+
+        CompletableFuture<Result> reply = new CompletableFuture<>();
+        CompletableFuture<Result> existing = inFlight.putIfAbsent(cmd.idempotencyKey(), reply);
+        if (existing != null) return existing;
+
+        try {
+            TransferResponse logged = unflushed.get(cmd.idempotencyKey());
+            if (logged != null) {
+                log.info("Idempotent hit: key={}, entryId={}, flushed=false", cmd.idempotencyKey(), logged.journalEntryId());
+                complete(cmd.idempotencyKey(), reply, new Result(logged, true));
+                return reply;
+            }
+            if (idempotencyKeyFilter.mightContain(cmd.idempotencyKey())) {
+                var stored = journalEntryRepository.findByIdempotencyKey(cmd.idempotencyKey());
+                if (stored.isPresent()) {
+                    log.info("Idempotent hit: key={}, entryId={}", cmd.idempotencyKey(), stored.get().getId());
+                    complete(cmd.idempotencyKey(), reply, new Result(TransferService.mapEntryToResponse(stored.get()), true));
+                    return reply;
+                }
+            }
+
+            State st = state;
+            EngineAccount from = resolve(st, cmd.fromAccountId());
+            EngineAccount to = resolve(st, cmd.toAccountId());
+            if (from.sharded || to.sharded) {
+                throw new ValidationException("Sharded accounts are not supported in engine mode");
+            }
+            ensureCurrency(from, cmd.currency(), "fromAccountId");
+            ensureCurrency(to, cmd.currency(), "toAccountId");
+
+            if (!sequencers[from.partition].submissions.offer(new Posting(cmd, st.epoch, from, to, reply))) {
+                throw new ServiceUnavailableException("Ledger engine is overloaded");
+            }
+        } catch (RuntimeException e) {
+            fail(cmd.idempotencyKey(), reply, e);
+        }
+        return reply;
+    }
+
+    /**
+     * Re-reads the balance of an account that was changed outside the engine (dev mint).
+     * Waits until every engine posting on the account is durable, so nothing is counted twice.
+     */
+    public CompletableFuture<Void> resync(long accountId) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        State st = state;
+        EngineAccount account = st == null ? null : st.accounts.get(accountId);
+        if (status != Status.RUNNING || account == null) {
+            done.complete(null);
+            return done;
+        }
+        sequencers[account.partition].internal.add(new Resync(account, done));
+        return done;
+    }
+
+    private EngineAccount resolve(State st, long id) {
+        EngineAccount known = st.accounts.get(id);
+        if (known != null) return known;
+
+        // created after the engine started: nothing of it is in flight yet, the stored balance is current
+        LedgerJdbcRepository.AccountRow row = ledgerJdbcRepository.findAccount(id)
+                .orElseThrow(() -> new NotFoundException("Account not found: id=" + id));
+        EngineAccount loaded = new EngineAccount(row, partitionOf(id));
+        EngineAccount raced = st.accounts.putIfAbsent(id, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    private static void ensureCurrency(EngineAccount a, String expected, String field) {
+        if (!expected.equalsIgnoreCase(a.currency)) {
+            throw new CurrencyMismatchException(field + " has currency " + a.currency + ", expected " + expected);
+        }
+    }
+
+    private int partitionOf(long accountId) {
+        return (int) Math.floorMod(accountId, (long) properties.getPartitions());
+    }
+
+    /** Read-write on purpose: read-only transactions may be served by a lagging replica. */
+    private State loadState(long epoch) {
+        ConcurrentHashMap<Long, EngineAccount> accounts = new ConcurrentHashMap<>();
+        transactionTemplate.executeWithoutResult(s -> ledgerJdbcRepository.forEachAccount(
+                row -> accounts.put(row.id(), new EngineAccount(row, partitionOf(row.id())))));
+        return new State(epoch, accounts);
+    }
+
+    private final class Sequencer implements Runnable {
+
+        final int partition;
+        /** Transfers whose sender this sequencer owns; bounded, so a full ring pushes back on clients. */
+        final MpscRingBuffer<Posting> submissions;
+        /** Credits forwarded by other sequencers and resync requests; never refused, so sequencers cannot deadlock. */
+        final ConcurrentLinkedQueue<Object> internal = new ConcurrentLinkedQueue<>();
+        final Thread thread;
+
+        Sequencer(int partition, int ringSize) {
+            this.partition = partition;
+            this.submissions = new MpscRingBuffer<>(ringSize);
+            this.thread = new Thread(this, "ledger-sequencer-" + partition);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                Object message = internal.poll();
+                if (message == null) message = submissions.poll();
+                if (message == null) {
+                    // credits from other sequencers may still be on their way while stopping
+                    if (status == Status.STOPPING && allSequencersIdle()) return;
+                    idle = idle(idle);
+                    continue;
+                }
+                idle = 0;
+                try {
+                    handle(message);
+                } catch (RuntimeException e) {
+                    log.error("Sequencer {} failed on {}", partition, message.getClass().getSimpleName(), e);
+                }
+            }
+        }
+
+        private void handle(Object message) {
+            if (message instanceof Posting p) {
+                debit(p);
+            } else if (message instanceof Credit c) {
+                credit(c.posting());
+            } else if (message instanceof Resync r) {
+                resync(r);
+            }
+        }
+
+        private void debit(Posting p) {
+            if (p.epoch != state.epoch) {
+                fail(p.cmd.idempotencyKey(), p.reply, restarted());
+                return;
+            }
+            long amount = p.cmd.amountMinor();
+            if (p.from.balance < amount) {
+                fail(p.cmd.idempotencyKey(), p.reply, new InsufficientFundsException());
+                return;
+            }
+            p.from.balance -= amount;
+            p.from.pending.incrementAndGet();
+
+            if (p.to.partition == partition) {
+                credit(p);
+            } else {
+                sequencers[p.to.partition].internal.add(new Credit(p));
+            }
+        }
+
+        private void credit(Posting p) {
+            if (p.epoch != state.epoch) {
+                fail(p.cmd.idempotencyKey(), p.reply, restarted());
+                return;
+            }
+            p.to.balance += p.cmd.amountMinor();
+            p.to.pending.incrementAndGet();
+            committerQueue.add(p);
+        }
+
+        private void resync(Resync r) {
+            if (state.accounts.get(r.account.id) != r.account) {
+                // the engine reloaded since; the fresh state already has the stored balance
+                r.done.complete(null);
+                return;
+            }
+            if (r.account.pending.get() > 0) {
+                // retried after the other messages; the committer drains the pending postings meanwhile
+                internal.add(r);
+                Thread.onSpinWait();
+                return;
+            }
+            try {
+                ledgerJdbcRepository.findAccount(r.account.id).ifPresent(row -> r.account.balance = row.balanceMinor());
+                r.done.complete(null);
+            } catch (RuntimeException e) {
+                r.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private boolean allSequencersIdle() {
+        for (Sequencer s : sequencers) {
+            if (!s.internal.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private void runCommitter() {
+        List<Posting> group = new ArrayList<>(properties.getGroupCommitMaxSize());
+        // forcing the log takes long enough to gather the next group; the delay would only add latency
+        long maxDelayNanos = wal != null ? 0 : properties.getGroupCommitMaxDelay().toNanos();
+        int idle = 0;
+        while (true) {
+            Posting first = committerQueue.poll();
+            if (first == null) {
+                if (status == Status.STOPPING && !anySequencerAlive()) return;
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            group.add(first);
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (group.size() < properties.getGroupCommitMaxSize()) {
+                Posting next = committerQueue.poll();
+                if (next != null) {
+                    group.add(next);
+                } else if (System.nanoTime() - deadline >= 0) {
+                    break;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+            if (wal != null) append(group);
+            else commit(group);
+            group.clear();
+        }
+    }
+
+    private boolean anySequencerAlive() {
+        for (Sequencer s : sequencers) {
+            if (s.thread.isAlive()) return true;
+        }
+        return !committerQueue.isEmpty();
+    }
+
+    private void commit(List<Posting> group) {
+        long epoch = state.epoch;
+        List<Posting> live = new ArrayList<>(group.size());
+        for (Posting p : group) {
+            if (p.epoch == epoch) live.add(p);
+            else fail(p.cmd.idempotencyKey(), p.reply, restarted());
+        }
+        if (live.isEmpty()) return;
+
+        Timestamp createdAt = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        Result[] results = new Result[live.size()];
+        RuntimeException[] rejections = new RuntimeException[live.size()];
+        try {
+            transactionTemplate.executeWithoutResult(s -> {
+                // submit skips the lookup on a key-filter miss; a key posted meanwhile by another instance, the
+                // queue or an earlier commit is found here and replayed instead of failing the whole group
+                Map<String, Long> posted = ledgerJdbcRepository.existingKeys(
+                        live.stream().map(p -> p.cmd.idempotencyKey()).toList());
+                long[] ids = ledgerJdbcRepository.allocateIds("journal_entry_seq", live.size() - posted.size());
+                List<TransferRow> rows = new ArrayList<>(ids.length);
+                for (int i = 0; i < live.size(); i++) {
+                    TransferCommand cmd = live.get(i).cmd;
+                    if (posted.containsKey(cmd.idempotencyKey())) {
+                        try {
+                            results[i] = collided(cmd.idempotencyKey());
+                        } catch (RuntimeException e) {
+                            rejections[i] = e;
+                        }
+                        continue;
+                    }
+                    TransferRow row = row(ids[rows.size()], cmd, createdAt);
+                    rows.add(row);
+                    TransferResponse response = response(row);
+                    results[i] = new Result(response, false);
+                    // delivered to the response cache and the key filter after commit
+                    eventPublisher.publishEvent(new TransferCompletedEvent(cmd.idempotencyKey(), response, false));
+                }
+                ledgerJdbcRepository.writeTransfers(rows);
+            });
+        } catch (RuntimeException e) {
+            recover(live, e);
+            return;
+        }
+
+        int collided = 0;
+        for (int i = 0; i < live.size(); i++) {
+            Posting p = live.get(i);
+            p.from.pending.decrementAndGet();
+            p.to.pending.decrementAndGet();
+            if (results[i] != null && !results[i].replay()) {
+                complete(p.cmd.idempotencyKey(), p.reply, results[i]);
+                continue;
+            }
+            // applied in memory but never written: the stored balances are the truth
+            collided++;
+            resync(p.from.id);
+            resync(p.to.id);
+            if (rejections[i] != null) fail(p.cmd.idempotencyKey(), p.reply, rejections[i]);
+            else complete(p.cmd.idempotencyKey(), p.reply, results[i]);
+        }
+        log.debug("Group committed: postings={}, collided={}", live.size(), collided);
+    }
+
+    /**
+     * The reply to a posting whose key turned out to be taken at commit: the stored transfer, replayed from the
+     * journal or the archive, or a conflict while its month is detached and not archived yet.
+     */
+    private Result collided(String key) {
+        var stored = journalEntryRepository.findByIdempotencyKey(key);
+        if (stored.isPresent()) {
+            log.info("Idempotent hit at commit: key={}, entryId={}", key, stored.get().getId());
+            return new Result(TransferService.mapEntryToResponse(stored.get()), true);
+        }
+        JournalSegment.Entry archived = journalArchive.entryByKey(key).orElseThrow(() -> new ConflictException(
+                "Idempotency key was used by an entry whose partition has been detached: " + key));
+        log.info("Idempotent hit in archive at commit: key={}, entryId={}", key, archived.id());
+        return new Result(TransferService.mapArchivedToResponse(archived), true);
+    }
+
+    /**
+     * The group may or may not be durable, but its postings are already in the in-memory balances, and later
+     * postings may have built on them. Everything of the current epoch is dropped and the balances are reloaded.
+     */
+    private void recover(List<Posting> failedGroup, RuntimeException cause) {
+        log.error("Group commit failed, reloading engine state: postings={}", failedGroup.size(), cause);
+        status = Status.RECOVERING;
+        // the commit may have gone through with only its acknowledgement lost; a retry under the key replays it
+        ServiceUnavailableException notConfirmed = new ServiceUnavailableException(
+                "Transfer is not confirmed, retry with the same Idempotency-Key", cause);
+        for (Posting p : failedGroup) fail(p.cmd.idempotencyKey(), p.reply, notConfirmed);
+        reload();
+    }
+
+    private void reload() {
+        long nextEpoch = state.epoch + 1;
+        while (true) {
+            try {
+                state = loadState(nextEpoch);
+                break;
+            } catch (RuntimeException e) {
+                log.error("Engine state reload failed, retrying", e);
+                LockSupport.parkNanos(1_000_000_000L);
+            }
+        }
+        status = Status.RUNNING;
+        log.info("Ledger engine recovered: epoch={}, accounts={}", nextEpoch, state.accounts.size());
+    }
+
+    /**
+     * WAL mode: claims the group's keys with entry ids from the reserved block, appends the claimed postings to the
+     * log, forces it, then replies and queues them for the flusher. A posting whose key is taken is replayed.
+     */
+    private void append(List<Posting> group) {
+        long epoch = state.epoch;
+        List<Posting> live = new ArrayList<>(group.size());
+        for (Posting p : group) {
+            if (p.epoch == epoch) live.add(p);
+            else fail(p.cmd.idempotencyKey(), p.reply, restarted());
+        }
+        if (live.isEmpty()) return;
+
+        Timestamp createdAt = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        List<TransferRow> rows = new ArrayList<>(live.size());
+        List<Logged> logged = new ArrayList<>(live.size());
+        List<Posting> taken = new ArrayList<>();
+        try {
+            for (Posting p : live) rows.add(row(nextEntryId(), p.cmd, createdAt));
+            Set<String> claimed = transactionTemplate.execute(s -> ledgerJdbcRepository.claimKeys(rows));
+            for (int i = 0; i < live.size(); i++) {
+                Posting p = live.get(i);
+                TransferRow row = rows.get(i);
+                if (claimed == null || !claimed.contains(row.idempotencyKey())) {
+                    taken.add(p);
+                    continue;
+                }
+                logged.add(new Logged(p, wal.append(row), row, response(row)));
+            }
+            wal.force();
+        } catch (RuntimeException e) {
+            walFailed(live, rows, e);
+            return;
+        }
+
+        for (Logged l : logged) {
+            String key = l.posting.cmd.idempotencyKey();
+            // visible to retries before the in-flight reply is gone
+            unflushed.put(key, l.response);
+            complete(key, l.posting.reply, new Result(l.response, false));
+        }
+        flusherQueue.addAll(logged);
+        for (Posting p : taken) {
+            // applied in memory but never logged: the stored balances are the truth
+            p.from.pending.decrementAndGet();
+            p.to.pending.decrementAndGet();
+            resync(p.from.id);
+            resync(p.to.id);
+            try {
+                complete(p.cmd.idempotencyKey(), p.reply, collided(p.cmd.idempotencyKey()));
+            } catch (RuntimeException e) {
+                fail(p.cmd.idempotencyKey(), p.reply, e);
+            }
+        }
+        log.debug("Group logged: postings={}, taken={}", logged.size(), taken.size());
+    }
+
+    private long nextEntryId() {
+        if (nextEntryId == entryIds.length) {
+            entryIds = ledgerJdbcRepository.allocateIds("journal_entry_seq", walProperties.getIdBlockSize());
+            nextEntryId = 0;
+        }
+        return entryIds[nextEntryId++];
+    }
+
+    /**
+     * The group may be partly in the log, so its clients cannot be told it was not posted: they retry with
+     * the same key. Its claims are given back, so the retry can claim the key again; a record that did reach the
+     * log is written at the next start, its key claimed then. The balances are reloaded once everything
+     * acknowledged before it is flushed.
+     */
+    private void walFailed(List<Posting> failedGroup, List<TransferRow> rows, RuntimeException cause) {
+        log.error("WAL append failed, reloading engine state: postings={}", failedGroup.size(), cause);
+        status = Status.RECOVERING;
+        ServiceUnavailableException notConfirmed = new ServiceUnavailableException(
+                "Transfer is not confirmed, retry with the same Idempotency-Key", cause);
+        for (Posting p : failedGroup) fail(p.cmd.idempotencyKey(), p.reply, notConfirmed);
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(s -> ledgerJdbcRepository.releaseKeys(rows));
+                break;
+            } catch (RuntimeException e) {
+                log.error("Releasing the keys of a failed WAL append failed, retrying", e);
+                LockSupport.parkNanos(1_000_000_000L);
+            }
+        }
+        while (!unflushed.isEmpty()) LockSupport.parkNanos(1_000_000L);
+        reload();
+    }
+
+    private void runFlusher() {
+        List<Logged> batch = new ArrayList<>(walProperties.getFlushMaxSize());
+        long maxDelayNanos = walProperties.getFlushMaxDelay().toNanos();
+        int idle = 0;
+        while (true) {
+            Logged first = flusherQueue.poll();
+            if (first == null) {
+                if (status == Status.STOPPING && !committer.isAlive() && flusherQueue.isEmpty()) return;
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            batch.add(first);
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < walProperties.getFlushMaxSize()) {
+                Logged next = flusherQueue.poll();
+                if (next != null) {
+                    batch.add(next);
+                } else if (System.nanoTime() - deadline >= 0 || status == Status.STOPPING) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+            if (!flush(batch)) return;
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch of logged postings, retrying until it commits; false if the engine stopped meanwhile.
+     * Every key was claimed under its posting's entry id before it was logged. Entries already in the journal are
+     * skipped, so a retry always converges: a commit whose acknowledgement was lost is not written twice.
+     * A key held under another id means its claim was removed meanwhile, see {@link #dropTaken}.
+     */
+    private boolean flush(List<Logged> batch) {
+        List<String> keys = batch.stream().map(l -> l.row.idempotencyKey()).toList();
+        List<Logged> taken = new ArrayList<>();
+        long backoffNanos = 10_000_000L;
+        while (true) {
+            try {
+                taken.clear();
+                transactionTemplate.executeWithoutResult(s -> {
+                    Map<String, Long> claims = ledgerJdbcRepository.existingKeys(keys);
+                    Set<String> written = ledgerJdbcRepository.writtenKeys(keys);
+                    List<TransferRow> missing = new ArrayList<>(batch.size());
+                    for (Logged l : batch) {
+                        Long entryId = claims.get(l.row.idempotencyKey());
+                        if (entryId != null && entryId != l.row.entryId()) {
+                            taken.add(l);
+                        } else if (!written.contains(l.row.idempotencyKey())) {
+                            eventPublisher.publishEvent(new TransferCompletedEvent(l.row.idempotencyKey(), l.response, false));
+                            missing.add(l.row);
+                        }
+                    }
+                    ledgerJdbcRepository.writeTransfers(missing);
+                });
+                break;
+            } catch (RuntimeException e) {
+                log.error("WAL flush failed, retrying: postings={}", batch.size(), e);
+                if (status == Status.STOPPING) return false;
+                LockSupport.parkNanos(backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, 1_000_000_000L);
+            }
+        }
+
+        for (Logged l : batch) {
+            l.posting.from.pending.decrementAndGet();
+            l.posting.to.pending.decrementAndGet();
+            unflushed.remove(l.row.idempotencyKey(), l.response);
+        }
+        for (Logged l : taken) dropTaken(l);
+        wal.release(batch.get(batch.size() - 1).sequence);
+        log.debug("WAL flushed: postings={}, taken={}", batch.size(), taken.size());
+        return true;
+    }
+
+    /**
+     * An acknowledged posting whose key belongs to another entry: it is never written, although its client has
+     * its 201. The claim taken before logging rules this out unless the key row was removed by hand; the posting
+     * is logged at ERROR for reconciliation and the balances it moved in memory are read back from Postgres.
+     */
+    private void dropTaken(Logged l) {
+        log.error("WAL posting dropped, its idempotency key was posted by another entry: key={}, entryId={}, from={}, "
+                        + "to={}, amount={}", l.row.idempotencyKey(), l.row.entryId(), l.row.fromAccountId(),
+                l.row.toAccountId(), l.row.amountMinor());
+        resync(l.row.fromAccountId());
+        resync(l.row.toAccountId());
+    }
+
+    /**
+     * Opens the log and writes what it still holds. A key logged twice (a retry after a failed append) keeps
+     * its last record, the one that was acknowledged; entries already in the journal and keys held by another
+     * entry are skipped.
+     */
+    private void openWal() {
+        try {
+            wal = WriteAheadLog.open(walProperties.getDirectory(), walProperties.getSegmentSize().toBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the ledger WAL in " + walProperties.getDirectory(), e);
+        }
+        entryIds = new long[0];
+        nextEntryId = 0;
+        List<WriteAheadLog.Record> records = wal.recovered();
+        if (records.isEmpty()) return;
+
+        Map<String, TransferRow> byKey = new LinkedHashMap<>();
+        for (WriteAheadLog.Record r : records) {
+            byKey.remove(r.row().idempotencyKey());
+            byKey.put(r.row().idempotencyKey(), r.row());
+        }
+        List<TransferRow> rows = new ArrayList<>(byKey.values());
+        int written = 0;
+        for (int from = 0; from < rows.size(); from += walProperties.getFlushMaxSize()) {
+            List<TransferRow> batch = rows.subList(from, Math.min(rows.size(), from + walProperties.getFlushMaxSize()));
+            Integer n = transactionTemplate.execute(s -> {
+                List<String> keys = batch.stream().map(TransferRow::idempotencyKey).toList();
+                Map<String, Long> claims = ledgerJdbcRepository.existingKeys(keys);
+                Set<String> stored = ledgerJdbcRepository.writtenKeys(keys);
+                List<TransferRow> missing = batch.stream()
+                        .filter(r -> claims.getOrDefault(r.idempotencyKey(), r.entryId()) == r.entryId())
+                        .filter(r -> !stored.contains(r.idempotencyKey()))
+                        .toList();
+                for (TransferRow r : missing) {
+                    eventPublisher.publishEvent(new TransferCompletedEvent(r.idempotencyKey(), response(r), false));
+                }
+                ledgerJdbcRepository.writeTransfers(missing);
+                return missing.size();
+            });
+            written += n == null ? 0 : n;
+        }
+        wal.release(wal.nextSequence() - 1);
+        log.info("Ledger WAL replayed: records={}, written={}", records.size(), written);
+    }
+
+    private static TransferRow row(long entryId, TransferCommand cmd, Timestamp createdAt) {
+        return new TransferRow(entryId, cmd.idempotencyKey(),
+                TransferService.trim(cmd.description(), 255), TransferService.trim(cmd.externalRef(), 120),
+                createdAt, cmd.fromAccountId(), cmd.toAccountId(), cmd.amountMinor(), cmd.currency());
+    }
+
+    private static TransferResponse response(TransferRow row) {
+        return new TransferResponse(row.entryId(), row.fromAccountId(), row.toAccountId(), row.amountMinor(),
+                row.currency(), TransferService.toOffsetUtc(row.createdAt()), row.description(), row.externalRef());
+    }
+
+    private void complete(String key, CompletableFuture<Result> reply, Result result) {
+        inFlight.remove(key, reply);
+        reply.complete(result);
+    }
+
+    private void fail(String key, CompletableFuture<Result> reply, RuntimeException e) {
+        inFlight.remove(key, reply);
+        reply.completeExceptionally(e);
+    }
+
+    private static ServiceUnavailableException restarted() {
+        return new ServiceUnavailableException("Ledger engine restarted, transfer was not posted, retry");
+    }
+
+    private static int idle(int idle) {
+        if (idle < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    private static void join(Thread t) {
+        try {
+            t.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.LedgerEventDto;
+import com.example.walletledgerservice.config.OutboxProperties;
+import com.example.walletledgerservice.domain.repository.LedgerOutboxJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Relays the outbox. Each round first numbers the committed rows without a position (one instance at a time,
+ * under an advisory lock), then feeds every {@link LedgerEventSink} the events after its saved position.
+ * A sink's batch is delivered and its position saved in one transaction that locks the sink's consumer row,
+ * so only one instance feeds a sink and a failed save means a redelivery, never a gap.
+ * <p>
+ * Two transfers touching the same account commit one after the other, the second one's outbox row getting
+ * the higher id; numbering in id order keeps them in that order on the stream.
+ */
+@Slf4j
+@Service
+public class LedgerEventRelay {
+
+    private static final int PURGE_BATCH = 10_000;
+
+    private final LedgerOutboxJdbcRepository ledgerOutboxJdbcRepository;
+    private final List<LedgerEventSink> sinks;
+    private final OutboxProperties properties;
+    private final TransactionTemplate tx;
+    private final MeterRegistry registry;
+
+    private final Counter sequenced;
+    private final Map<String, Counter> delivered = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lag = new ConcurrentHashMap<>();
+    private volatile long unsequenced;
+
+    public LedgerEventRelay(LedgerOutboxJdbcRepository ledgerOutboxJdbcRepository, List<LedgerEventSink> sinks,
+                            OutboxProperties properties, PlatformTransactionManager transactionManager,
+                            MeterRegistry registry) {
+        this.ledgerOutboxJdbcRepository = ledgerOutboxJdbcRepository;
+        this.sinks = sinks;
+        this.properties = properties;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.sequenced = Counter.builder("ledger.outbox.sequenced")
+                .description("Outbox rows numbered into the event stream by this instance")
+                .register(registry);
+        Gauge.builder("ledger.outbox.unsequenced", this, r -> r.unsequenced)
+                .description("Committed outbox rows without a position, as of the last relay round")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.outbox.relay-interval:200ms}")
+    public void relay() {
+        if (!properties.isEnabled()) return;
+        try {
+            sequence();
+            for (LedgerEventSink sink : sinks) deliver(sink);
+            unsequenced = ledgerOutboxJdbcRepository.unsequenced();
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay round failed, retrying next round: {}", e.toString());
+        }
+    }
+
+    /** Numbers committed rows in id order, a batch per transaction; 0 when another instance holds the lock. */
+    public int sequence() {
+        int batch = Math.max(1, properties.getBatchSize());
+        int total = 0;
+        while (true) {
+            Integer n = tx.execute(s -> ledgerOutboxJdbcRepository.tryLockSequencer()
+                    ? ledgerOutboxJdbcRepository.sequence(batch, now()) : 0);
+            if (n == null || n == 0) break;
+            total += n;
+            sequenced.increment(n);
+            if (n < batch) break;
+        }
+        return total;
+    }
+
+    /** Feeds the sink until it is caught up; returns how many events it got. */
+    public int deliver(LedgerEventSink sink) {
+        int batch = Math.max(1, properties.getBatchSize());
+        int total = 0;
+        while (true) {
+            Integer n = tx.execute(s -> {
+                Timestamp now = now();
+                Long position = ledgerOutboxJdbcRepository.lockConsumer(sink.name(), now);
+                if (position == null) return 0;
+                List<LedgerEventDto> events = ledgerOutboxJdbcRepository.events(position, batch);
+                if (events.isEmpty()) return 0;
+                sink.deliver(events);
+                LedgerEventDto last = events.get(events.size() - 1);
+                ledgerOutboxJdbcRepository.saveConsumer(sink.name(), last.position(), now);
+                recordLag(sink.name(), last);
+                return events.size();
+            });
+            if (n == null || n == 0) break;
+            total += n;
+            if (n < batch) break;
+        }
+        if (total > 0) delivered(sink.name(), total);
+        return total;
+    }
+
+    /**
+     * Deletes rows numbered before the retention that every sink has got; the event API cannot
+     * serve them after that.
+     */
+    @Scheduled(fixedDelayString = "${ledger.outbox.cleanup-interval:1h}",
+            initialDelayString = "${ledger.outbox.cleanup-interval:1h}")
+    public void purgeDelivered() {
+        if (!properties.isEnabled()) return;
+        long upTo = sinks.isEmpty() ? ledgerOutboxJdbcRepository.lastPosition()
+                : sinks.stream().mapToLong(s -> ledgerOutboxJdbcRepository.consumerPosition(s.name())).min().orElse(0);
+        Timestamp before = Timestamp.from(Instant.now().minus(properties.getRetention()));
+        long purged = 0;
+        int n;
+        while ((n = ledgerOutboxJdbcRepository.purge(upTo, before, PURGE_BATCH)) > 0) purged += n;
+        if (purged > 0) log.info("Outbox rows purged: rows={}, upToPosition={}", purged, upTo);
+    }
+
+    private void delivered(String sink, int events) {
+        delivered.computeIfAbsent(sink, name -> Counter.builder("ledger.outbox.delivered")
+                .description("Events delivered to the sink by this instance")
+                .tag("sink", name).register(registry)).increment(events);
+    }
+
+    /** Time from posting to delivery of the newest event of a batch. */
+    private void recordLag(String sink, LedgerEventDto newest) {
+        lag.computeIfAbsent(sink, name -> Timer.builder("ledger.outbox.delivery.lag")
+                .description("Time from posting a transfer to delivering its event")
+                .tag("sink", name).register(registry))
+                .record(Duration.between(newest.createdAt().toInstant(), Instant.now()));
+    }
+
+    private static Timestamp now() {
+        return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.LedgerEventDto;
+
+import java.util.List;
+
+/**
+ * Destination the {@link LedgerEventRelay} feeds; every bean of this type gets the whole stream.
+ * Delivery is at-least-once: a batch whose position could not be saved after {@link #deliver} is delivered
+ * again, so a sink must tolerate repeats, e.g. by skipping positions it has seen.
+ */
+public interface LedgerEventSink {
+
+    /** Key of the sink's position in ledger_event_consumer; keep it stable across releases. */
+    String name();
+
+    /** Events in position order; returning normally acknowledges all of them. */
+    void deliver(List<LedgerEventDto> events);
+}
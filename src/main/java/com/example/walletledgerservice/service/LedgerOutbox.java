@@ -0,0 +1,86 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.LedgerEventPage;
+import com.example.walletledgerservice.config.OutboxProperties;
+import com.example.walletledgerservice.domain.repository.LedgerOutboxJdbcRepository;
+import com.example.walletledgerservice.domain.repository.LedgerOutboxJdbcRepository.OutboxRow;
+import jakarta.validation.ValidationException;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an outbox row for every transfer posted, in its posting transaction: every posting path publishes
+ * {@link TransferCompletedEvent} inside it, and {@link EntryPostedEvent} for a multi-leg entry. The rows of a transaction are gathered and inserted with one
+ * batch just before it commits, so an engine group commit adds one statement, not one per transfer.
+ * <p>
+ * Also reads the event stream the relay numbered, for {@code GET /api/v1/events}.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LedgerOutbox {
+
+    public static final int MAX_PAGE = 1_000;
+
+    LedgerOutboxJdbcRepository ledgerOutboxJdbcRepository;
+    OutboxProperties properties;
+
+    @EventListener
+    public void onTransferCompleted(TransferCompletedEvent event) {
+        if (!properties.isEnabled() || event.replay()) return;
+        add(OutboxRow.of(event.idempotencyKey(), event.response()));
+    }
+
+    @EventListener
+    public void onEntryPosted(EntryPostedEvent event) {
+        if (!properties.isEnabled() || event.replay()) return;
+        add(OutboxRow.of(event.idempotencyKey(), event.response()));
+    }
+
+    private void add(OutboxRow row) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ledgerOutboxJdbcRepository.insert(List.of(row));
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.rows.add(row);
+    }
+
+    /** Events with a position above {@code after}, in position order; read-only, so a replica can serve it. */
+    @Transactional(readOnly = true)
+    public LedgerEventPage events(long after, int limit) {
+        if (after < 0) throw new ValidationException("after must not be negative");
+        if (limit < 1 || limit > MAX_PAGE) throw new ValidationException("limit must be between 1 and " + MAX_PAGE);
+        var events = ledgerOutboxJdbcRepository.events(after, limit);
+        return new LedgerEventPage(events, events.isEmpty() ? after : events.get(events.size() - 1).position());
+    }
+
+    private final class Pending implements TransactionSynchronization {
+
+        final List<OutboxRow> rows = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            ledgerOutboxJdbcRepository.insert(rows);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LedgerOutbox.this);
+        }
+    }
+}
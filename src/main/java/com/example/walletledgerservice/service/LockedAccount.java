@@ -0,0 +1,96 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.domain.model.AccountEntity;
+import com.example.walletledgerservice.domain.model.AccountShardEntity;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An account locked for posting: either the account row itself or, for a sharded account,
+ * the shard rows this transaction holds (the preferred shard first).
+ */
+final class LockedAccount {
+
+    private final AccountEntity account;
+    private final List<AccountShardEntity> shards;
+
+    private LockedAccount(AccountEntity account, List<AccountShardEntity> shards) {
+        this.account = account;
+        this.shards = shards;
+    }
+
+    static LockedAccount of(AccountEntity account) {
+        return new LockedAccount(account, List.of());
+    }
+
+    static LockedAccount sharded(AccountEntity account, List<AccountShardEntity> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Sharded account " + account.getId() + " has no locked shards");
+        }
+        return new LockedAccount(account, shards);
+    }
+
+    AccountEntity account() {
+        return account;
+    }
+
+    Long id() {
+        return account.getId();
+    }
+
+    /**
+     * The lowest version the account row has once this transaction commits a change to it: Hibernate bumps
+     * the version read under the lock when it flushes. Null for a sharded account, whose row is not written.
+     */
+    Long postedVersion() {
+        return shards.isEmpty() ? account.getVersion() + 1 : null;
+    }
+
+    /** {@link #postedVersion} by account id, for the accounts that have one. */
+    static Map<Long, Long> postedVersions(Collection<LockedAccount> accounts) {
+        Map<Long, Long> versions = new HashMap<>();
+        for (LockedAccount a : accounts) {
+            Long v = a.postedVersion();
+            if (v != null) versions.put(a.id(), v);
+        }
+        return versions;
+    }
+
+    /** Funds visible to this transaction: the account balance or the sum of the locked shards. */
+    long available() {
+        if (shards.isEmpty()) return account.getBalanceMinor();
+        long sum = 0;
+        for (AccountShardEntity s : shards) sum += s.getBalanceMinor();
+        return sum;
+    }
+
+    /** Takes the amount from the preferred shard first, then from the others in lock order. */
+    void debit(long amount) {
+        if (shards.isEmpty()) {
+            account.setBalanceMinor(account.getBalanceMinor() - amount);
+            return;
+        }
+        long remaining = amount;
+        for (AccountShardEntity s : shards) {
+            if (remaining == 0) break;
+            long take = Math.min(s.getBalanceMinor(), remaining);
+            s.setBalanceMinor(s.getBalanceMinor() - take);
+            remaining -= take;
+        }
+        if (remaining > 0) {
+            throw new IllegalStateException("Locked shards of account " + account.getId() + " cannot cover " + amount);
+        }
+    }
+
+    void credit(long amount) {
+        if (shards.isEmpty()) {
+            account.setBalanceMinor(account.getBalanceMinor() + amount);
+            return;
+        }
+        AccountShardEntity preferred = shards.get(0);
+        preferred.setBalanceMinor(preferred.getBalanceMinor() + amount);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.walletledgerservice.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring for many producers and one consumer (Vyukov's sequence-per-slot queue).
+ * Producers claim a slot with one CAS on the tail; the consumer reads without any atomic read-modify-write.
+ */
+final class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    /** Per slot: position the next producer expects (free) or position + 1 (published). */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /** Consumer thread only. */
+    private long head;
+
+    MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    /** False when the ring is full. */
+    boolean offer(E e) {
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(idx, e);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** Consumer thread only; null when nothing is published yet. */
+    E poll() {
+        int idx = (int) (head & mask);
+        if (sequences.get(idx) != head + 1) return null;
+        E e = slots.get(idx);
+        slots.lazySet(idx, null);
+        sequences.set(idx, head + mask + 1);
+        head++;
+        return e;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.ReconciliationDriftDto;
+import com.example.walletledgerservice.api.dto.ReconciliationRunDto;
+import com.example.walletledgerservice.config.ReconciliationProperties;
+import com.example.walletledgerservice.domain.model.ReconciliationRunEntity;
+import com.example.walletledgerservice.domain.repository.ReconciliationJdbcRepository;
+import com.example.walletledgerservice.domain.repository.ReconciliationJdbcRepository.AccountCheck;
+import com.example.walletledgerservice.domain.repository.ReconciliationRunRepository;
+import com.example.walletledgerservice.enums.ReconciliationMode;
+import com.example.walletledgerservice.enums.ReconciliationStatus;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks that every account balance equals the signed sum of its journal lines.
+ * The account id space is cut into aligned ranges that a fork-join pool checks in parallel, one aggregate
+ * query per range. Each finished range is checkpointed together with its drifts, so a failed run resumes
+ * where it stopped.
+ */
+@Slf4j
+@Service
+public class ReconciliationService {
+
+    /** {@link #activeRunId} while a run is being created. */
+    private static final long STARTING = -1L;
+
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationJdbcRepository reconciliationJdbcRepository;
+    private final ReconciliationProperties properties;
+    private final TransactionTemplate tx;
+    private final ForkJoinPool pool;
+
+    /** Run executing on this instance, 0 when idle. */
+    private final AtomicLong activeRunId = new AtomicLong();
+
+    private final LongAdder runsCompleted = new LongAdder();
+    private final LongAdder runsFailed = new LongAdder();
+    private final LongAdder accountsChecked = new LongAdder();
+    private final LongAdder driftsFound = new LongAdder();
+    private volatile ReconciliationRunDto lastCompleted;
+
+    public ReconciliationService(ReconciliationRunRepository runRepository,
+                                 ReconciliationJdbcRepository reconciliationJdbcRepository,
+                                 ReconciliationProperties properties,
+                                 PlatformTransactionManager transactionManager) {
+        this.runRepository = runRepository;
+        this.reconciliationJdbcRepository = reconciliationJdbcRepository;
+        this.properties = properties;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.pool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+    }
+
+    /** A slice of the id space; {@code accountIds} limits it to the touched accounts of an incremental run. */
+    record Range(long start, long end, long[] accountIds) {}
+
+    public record Stats(Long activeRunId,
+                        long runsCompleted,
+                        long runsFailed,
+                        long accountsChecked,
+                        long driftsFound,
+                        ReconciliationRunDto lastCompleted) {}
+
+    /** Creates the run and starts it in the background. One run at a time per instance. */
+    public ReconciliationRunDto start(ReconciliationMode mode) {
+        claim();
+        try {
+            ReconciliationRunEntity run = tx.execute(s -> runRepository.save(newRun(mode)));
+            activeRunId.set(run.getId());
+            log.info("Reconciliation run started: runId={}, mode={}, since={}", run.getId(), run.getMode(), run.getSinceAt());
+            pool.execute(() -> execute(run.getId()));
+            return toDto(run);
+        } catch (RuntimeException e) {
+            activeRunId.set(0);
+            throw e;
+        }
+    }
+
+    /** Continues a failed (or interrupted) run; ranges checkpointed before are skipped. */
+    public ReconciliationRunDto resume(long runId) {
+        claim();
+        try {
+            ReconciliationRunEntity run = tx.execute(s -> {
+                ReconciliationRunEntity r = runRepository.findById(runId)
+                        .orElseThrow(() -> new NotFoundException("Reconciliation run not found: id=" + runId));
+                if (r.getStatus() == ReconciliationStatus.COMPLETED) {
+                    throw new ConflictException("Reconciliation run " + runId + " is already completed");
+                }
+                r.setStatus(ReconciliationStatus.RUNNING);
+                r.setError(null);
+                r.setFinishedAt(null);
+                return r;
+            });
+            activeRunId.set(runId);
+            log.info("Reconciliation run resumed: runId={}, mode={}", runId, run.getMode());
+            pool.execute(() -> execute(runId));
+            return toDto(run);
+        } catch (RuntimeException e) {
+            activeRunId.set(0);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.reconciliation.incremental-interval:5m}",
+            initialDelayString = "${ledger.reconciliation.incremental-interval:5m}")
+    public void scheduledIncremental() {
+        if (!properties.isScheduleEnabled() || activeRunId.get() != 0) return;
+        try {
+            start(ReconciliationMode.INCREMENTAL);
+        } catch (ConflictException e) {
+            log.debug("Scheduled reconciliation skipped: {}", e.getMessage());
+        }
+    }
+
+    public ReconciliationRunDto get(long runId) {
+        return runRepository.findById(runId).map(this::toDto)
+                .orElseThrow(() -> new NotFoundException("Reconciliation run not found: id=" + runId));
+    }
+
+    public List<ReconciliationRunDto> recent(int limit) {
+        return runRepository.findAllByOrderByIdDesc(Limit.of(limit)).stream().map(this::toDto).toList();
+    }
+
+    public List<ReconciliationDriftDto> drifts(long runId, int limit) {
+        get(runId);
+        return reconciliationJdbcRepository.drifts(runId, limit).stream()
+                .map(d -> new ReconciliationDriftDto(d.accountId(), d.balanceMinor(), d.ledgerMinor(),
+                        d.balanceMinor() - d.ledgerMinor(), TransferService.toOffsetUtc(d.detectedAt())))
+                .toList();
+    }
+
+    public Stats stats() {
+        long active = activeRunId.get();
+        return new Stats(active > 0 ? active : null, runsCompleted.sum(), runsFailed.sum(),
+                accountsChecked.sum(), driftsFound.sum(), lastCompleted);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // a run cut short stays RUNNING with its checkpoints and can be resumed
+        pool.shutdownNow();
+    }
+
+    private void claim() {
+        long active = activeRunId.get();
+        if (active != 0 || !activeRunId.compareAndSet(0, STARTING)) {
+            throw new ConflictException("A reconciliation run is in progress"
+                    + (active > 0 ? ": runId=" + active : ""));
+        }
+    }
+
+    /**
+     * An incremental run starts from the previous completed run, whatever its mode. Without one
+     * there is nothing to be incremental to, and the run checks everything.
+     */
+    private ReconciliationRunEntity newRun(ReconciliationMode mode) {
+        ReconciliationRunEntity run = new ReconciliationRunEntity();
+        run.setMode(mode);
+        if (mode == ReconciliationMode.INCREMENTAL) {
+            var previous = runRepository.findFirstByStatusOrderByStartedAtDesc(ReconciliationStatus.COMPLETED);
+            if (previous.isPresent()) {
+                Instant since = previous.get().getStartedAt().toInstant().minus(properties.getIncrementalLag());
+                run.setSinceAt(Timestamp.from(since));
+            } else {
+                log.info("No completed reconciliation yet, incremental run checks every account");
+                run.setMode(ReconciliationMode.FULL);
+            }
+        }
+        run.setStatus(ReconciliationStatus.RUNNING);
+        run.setRangeSize(Math.max(1, properties.getRangeSize()));
+        run.setStartedAt(Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS)));
+        return run;
+    }
+
+    private void execute(long runId) {
+        long started = System.nanoTime();
+        try {
+            ReconciliationRunEntity run = runRepository.findById(runId).orElseThrow();
+            List<Range> ranges = plan(run);
+            tx.executeWithoutResult(s -> runRepository.findById(runId).ifPresent(r -> r.setRangesTotal(ranges.size())));
+
+            Set<Long> done = reconciliationJdbcRepository.completedRangeStarts(runId);
+            List<Range> todo = ranges.stream().filter(r -> !done.contains(r.start())).toList();
+            new RangeTask(runId, todo, 0, todo.size()).invoke();
+
+            ReconciliationJdbcRepository.RangeTotals totals = reconciliationJdbcRepository.totals(runId);
+            finish(runId, ReconciliationStatus.COMPLETED, totals, null);
+            runsCompleted.increment();
+            log.info("Reconciliation run completed: runId={}, ranges={}, accounts={}, drifts={}, tookMs={}",
+                    runId, totals.ranges(), totals.accountsChecked(), totals.driftCount(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Reconciliation run failed: runId={}", runId, e);
+            runsFailed.increment();
+            try {
+                finish(runId, ReconciliationStatus.FAILED, reconciliationJdbcRepository.totals(runId), e.toString());
+            } catch (RuntimeException ex) {
+                log.error("Could not mark reconciliation run failed: runId={}", runId, ex);
+            }
+        } finally {
+            activeRunId.set(0);
+        }
+    }
+
+    /** Ranges start at multiples of the run's range size, so a resume plans the same ones. */
+    List<Range> plan(ReconciliationRunEntity run) {
+        long size = run.getRangeSize();
+        List<Range> ranges = new ArrayList<>();
+
+        if (run.getMode() == ReconciliationMode.FULL) {
+            long[] bounds = reconciliationJdbcRepository.accountIdBounds();
+            if (bounds == null) return ranges;
+            for (long start = Math.floorDiv(bounds[0], size) * size; start <= bounds[1]; start += size) {
+                ranges.add(new Range(start, start + size, null));
+            }
+            return ranges;
+        }
+
+        long[] touched = reconciliationJdbcRepository.accountsTouchedSince(run.getSinceAt());
+        int i = 0;
+        while (i < touched.length) {
+            long start = Math.floorDiv(touched[i], size) * size;
+            int j = i;
+            while (j < touched.length && touched[j] < start + size) j++;
+            ranges.add(new Range(start, start + size, Arrays.copyOfRange(touched, i, j)));
+            i = j;
+        }
+        return ranges;
+    }
+
+    /** Checks one range and stores its drifts with its checkpoint in one transaction. */
+    private void checkRange(long runId, Range range) {
+        int checked = tx.execute(s -> {
+            List<AccountCheck> rows = range.accountIds() == null
+                    ? reconciliationJdbcRepository.checkRange(range.start(), range.end())
+                    : reconciliationJdbcRepository.checkAccounts(range.accountIds());
+            List<AccountCheck> drifts = rows.stream().filter(AccountCheck::drifted).toList();
+            for (AccountCheck d : drifts) {
+                log.warn("Balance drift: runId={}, accountId={}, balance={}, ledger={}",
+                        runId, d.accountId(), d.balanceMinor(), d.ledgerMinor());
+            }
+            reconciliationJdbcRepository.saveRange(runId, range.start(), rows.size(), drifts);
+            driftsFound.add(drifts.size());
+            return rows.size();
+        });
+        accountsChecked.add(checked);
+    }
+
+    private void finish(long runId, ReconciliationStatus status, ReconciliationJdbcRepository.RangeTotals totals,
+                        String error) {
+        ReconciliationRunEntity run = tx.execute(s -> {
+            ReconciliationRunEntity r = runRepository.findById(runId).orElseThrow();
+            r.setStatus(status);
+            r.setAccountsChecked(totals.accountsChecked());
+            r.setDriftCount(totals.driftCount());
+            r.setFinishedAt(Timestamp.from(Instant.now()));
+            r.setError(error == null ? null : TransferService.trim(error, 500));
+            return r;
+        });
+        if (status == ReconciliationStatus.COMPLETED) lastCompleted = toDto(run);
+    }
+
+    private ReconciliationRunDto toDto(ReconciliationRunEntity r) {
+        int rangesDone;
+        long checked;
+        long drifts;
+        if (r.getStatus() == ReconciliationStatus.COMPLETED) {
+            rangesDone = r.getRangesTotal() == null ? 0 : r.getRangesTotal();
+            checked = r.getAccountsChecked();
+            drifts = r.getDriftCount();
+        } else {
+            ReconciliationJdbcRepository.RangeTotals totals = reconciliationJdbcRepository.totals(r.getId());
+            rangesDone = totals.ranges();
+            checked = totals.accountsChecked();
+            drifts = totals.driftCount();
+        }
+        return new ReconciliationRunDto(r.getId(), r.getMode(), r.getStatus(), offset(r.getSinceAt()),
+                r.getRangeSize(), r.getRangesTotal(), rangesDone, checked, drifts,
+                offset(r.getStartedAt()), offset(r.getFinishedAt()), r.getError());
+    }
+
+    private static OffsetDateTime offset(Timestamp ts) {
+        return TransferService.toOffsetUtc(ts);
+    }
+
+    /** Splits its slice of ranges in halves until one range is left, which it checks. */
+    private final class RangeTask extends RecursiveAction {
+
+        private final long runId;
+        private final List<Range> ranges;
+        private final int from;
+        private final int to;
+
+        RangeTask(long runId, List<Range> ranges, int from, int to) {
+            this.runId = runId;
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) checkRange(runId, ranges.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(runId, ranges, from, mid), new RangeTask(runId, ranges, mid, to));
+        }
+    }
+}
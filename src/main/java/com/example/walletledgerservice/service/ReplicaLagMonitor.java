@@ -0,0 +1,127 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.config.ReplicaProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how far the read replica is behind the primary. Every check samples the primary's WAL position and
+ * the replica's replay position; the lag is the age of the oldest sampled primary position the replica has
+ * not replayed yet, so an idle primary does not look like a lagging replica.
+ * <p>
+ * A replica URL that points at a server not in recovery (a stand-in for tests) is taken as caught up.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final int MAX_SAMPLES = 10_000;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final ReplicaProperties properties;
+    /** {nanoTime, primary position} of the checks, oldest first; check thread only. */
+    private final ArrayDeque<long[]> samples = new ArrayDeque<>();
+
+    private volatile long replayedPosition = -1;
+    private volatile long lagNanos = Long.MAX_VALUE;
+    private volatile long lagBytes;
+    private volatile long checkedAt;
+    private volatile boolean standInWarned;
+
+    public ReplicaLagMonitor(JdbcTemplate primary, JdbcTemplate replica, ReplicaProperties properties,
+                             MeterRegistry registry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+        Gauge.builder("ledger.replica.lag.seconds", this, m -> m.lagNanos == Long.MAX_VALUE
+                        ? Double.NaN : m.lagNanos / 1e9)
+                .description("Age of the oldest primary WAL position the replica has not replayed")
+                .register(registry);
+        Gauge.builder("ledger.replica.lag.bytes", this, m -> m.lagBytes)
+                .description("WAL bytes between the primary's position and the replica's replay position")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.replica.check-interval:500ms}")
+    public void check() {
+        try {
+            long now = System.nanoTime();
+            long primaryPosition = primaryPosition();
+            ReplicaState state = replica.queryForObject(
+                    "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::text",
+                    (rs, n) -> new ReplicaState(rs.getBoolean(1), rs.getString(2)));
+            long replayed;
+            if (state != null && state.inRecovery() && state.replayLsn() != null) {
+                replayed = parsePosition(state.replayLsn());
+            } else {
+                if (!standInWarned) {
+                    standInWarned = true;
+                    log.warn("Replica is not in recovery, its lag cannot be measured; treating it as caught up");
+                }
+                replayed = primaryPosition;
+            }
+
+            samples.addLast(new long[]{now, primaryPosition});
+            while (!samples.isEmpty() && (samples.peekFirst()[1] <= replayed || samples.size() > MAX_SAMPLES)) {
+                samples.pollFirst();
+            }
+            replayedPosition = replayed;
+            lagBytes = Math.max(0, primaryPosition - replayed);
+            lagNanos = samples.isEmpty() ? 0 : now - samples.peekFirst()[0];
+            checkedAt = now;
+        } catch (RuntimeException e) {
+            log.warn("Replica lag check failed, reads go to the primary: {}", e.getMessage());
+            checkedAt = 0;
+        }
+    }
+
+    /**
+     * Whether the replica has replayed {@code requiredPosition} and lags within {@code maxLag}, as of a check
+     * no older than {@code maxLag}.
+     */
+    public boolean canServe(long requiredPosition) {
+        long checked = checkedAt;
+        long maxLag = properties.getMaxLag().toNanos();
+        return checked != 0
+                && System.nanoTime() - checked <= maxLag
+                && lagNanos <= maxLag
+                && replayedPosition >= requiredPosition;
+    }
+
+    /** Current WAL insert position of the primary; every transaction committed before the call is below it. */
+    public long primaryPosition() {
+        return parsePosition(primary.queryForObject("SELECT pg_current_wal_lsn()::text", String.class));
+    }
+
+    public long replayedPosition() {
+        return replayedPosition;
+    }
+
+    public long lagMillis() {
+        return lagNanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(lagNanos);
+    }
+
+    /** Postgres {@code pg_lsn} text, two hex halves as in {@code 16/B374D848}. */
+    public static long parsePosition(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash <= 0 || slash == lsn.length() - 1) throw new IllegalArgumentException("Not a WAL position: " + lsn);
+        try {
+            return Long.parseUnsignedLong(lsn.substring(0, slash), 16) << 32
+                    | Long.parseUnsignedLong(lsn.substring(slash + 1), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a WAL position: " + lsn, e);
+        }
+    }
+
+    public static String formatPosition(long position) {
+        return Long.toHexString(position >>> 32).toUpperCase() + "/" + Long.toHexString(position & 0xFFFFFFFFL).toUpperCase();
+    }
+
+    private record ReplicaState(boolean inRecovery, String replayLsn) {}
+}
@@ -0,0 +1,256 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.CoalescerProperties;
+import com.example.walletledgerservice.config.PostingProperties;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.enums.PostingMode;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers single transfers that arrive close together and posts each group with one
+ * {@link BatchTransferService} transaction, so concurrent requests share one commit.
+ * An item failing validation fails alone; a group whose transaction fails as a whole
+ * is retried item by item through {@link TransferService}.
+ * <p>
+ * JPA posting mode only: the groups are posted with JPA, so in {@code sql_function} mode the coalescer does not
+ * start. A transfer on a sharded account is posted on its own, since a group locks all shards of an account
+ * and concurrent groups on it would queue behind each other.
+ * <p>
+ * Batch sizes and commit latencies are recorded as {@code ledger.coalescer.batch.size} and
+ * {@code ledger.coalescer.commit}, with histogram buckets for the scrape.
+ */
+@Slf4j
+@Component
+public class TransferCoalescer {
+
+    private final BatchTransferService batchTransferService;
+    private final TransferService transferService;
+    private final PostingProperties postingProperties;
+    private final CoalescerProperties properties;
+    private final TransferMetrics transferMetrics;
+    private final AccountShardService accountShardService;
+
+    private final BlockingQueue<Pending> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final DistributionSummary batchSizes;
+    private final Timer commits;
+    private final Counter fallbacks;
+    private final Counter bypassed;
+
+    public TransferCoalescer(BatchTransferService batchTransferService, TransferService transferService,
+                             PostingProperties postingProperties, CoalescerProperties properties,
+                             TransferMetrics transferMetrics, AccountShardService accountShardService,
+                             MeterRegistry registry) {
+        this.batchTransferService = batchTransferService;
+        this.transferService = transferService;
+        this.postingProperties = postingProperties;
+        this.properties = properties;
+        this.transferMetrics = transferMetrics;
+        this.accountShardService = accountShardService;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.batchSizes = DistributionSummary.builder("ledger.coalescer.batch.size")
+                .description("Transfers posted by one coalesced transaction")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) Math.max(1, properties.getMaxBatchSize()))
+                .register(registry);
+        this.commits = Timer.builder("ledger.coalescer.commit")
+                .description("Time to post one coalesced group, commit included")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.fallbacks = Counter.builder("ledger.coalescer.fallbacks")
+                .description("Groups that failed as a whole and were posted one by one")
+                .register(registry);
+        this.bypassed = Counter.builder("ledger.coalescer.bypassed")
+                .description("Transfers posted directly: the coalescer was stopped or full, or an account is sharded")
+                .register(registry);
+        Gauge.builder("ledger.coalescer.queued", queue, BlockingQueue::size)
+                .register(registry);
+    }
+
+    private record Pending(TransferCommand command, CompletableFuture<TransferResponse> reply, long enqueuedNanos) {}
+
+    public record Stats(boolean running,
+                        int queued,
+                        long batches,
+                        long transfers,
+                        long fallbacks,
+                        long bypassed,
+                        double meanBatchSize,
+                        double meanCommitMillis,
+                        double maxCommitMillis) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running || !properties.isEnabled()) return;
+        if (postingProperties.getMode() != PostingMode.JPA) {
+            log.warn("Transfer coalescer not started: posting mode {} posts transfers without it",
+                    postingProperties.getMode());
+            return;
+        }
+        running = true;
+        for (int i = 0; i < Math.max(1, properties.getWorkers()); i++) {
+            Thread t = new Thread(this::runWorker, "transfer-coalescer-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        log.info("Transfer coalescer started: workers={}, window={}, maxBatchSize={}, maxQueueDelay={}",
+                workers.size(), properties.getWindow(), properties.getMaxBatchSize(), properties.getMaxQueueDelay());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread t : workers) {
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.reply.completeExceptionally(new ServiceUnavailableException("Transfer coalescer stopped"));
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Posts the transfer with the next group and waits for its commit. Without a running worker, with a full
+     * queue or on a sharded account, the caller posts it on its own.
+     */
+    public TransferResponse createTransfer(TransferCommand cmd) {
+        CompletableFuture<TransferResponse> reply = new CompletableFuture<>();
+        if (!running || touchesKnownShard(cmd) || !queue.offer(new Pending(cmd, reply, System.nanoTime()))) {
+            bypassed.increment();
+            return transferService.createTransfer(cmd);
+        }
+        return TransferDispatcher.await(reply, properties.getReplyTimeout());
+    }
+
+    /** TransferService picks one shard of a sharded account; a group would lock them all. */
+    private boolean touchesKnownShard(TransferCommand cmd) {
+        return accountShardService.isKnownSharded(cmd.fromAccountId())
+                || accountShardService.isKnownSharded(cmd.toAccountId());
+    }
+
+    private void runWorker() {
+        ArrayDeque<Pending> carried = new ArrayDeque<>();
+        while (running) {
+            try {
+                List<Pending> group = gather(carried);
+                if (!group.isEmpty()) post(group);
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.error("Transfer coalescer worker error", e);
+            }
+        }
+        carried.forEach(p -> p.reply.completeExceptionally(new ServiceUnavailableException("Transfer coalescer stopped")));
+    }
+
+    /**
+     * Takes requests until the group is full, the window closed or the oldest request reached the latency cap.
+     * A second request with a key already in the group waits for the next group, where it replays.
+     */
+    private List<Pending> gather(ArrayDeque<Pending> carried) throws InterruptedException {
+        int max = Math.max(1, properties.getMaxBatchSize());
+        List<Pending> group = new ArrayList<>(max);
+        Set<String> keys = new HashSet<>();
+        ArrayDeque<Pending> deferred = new ArrayDeque<>();
+
+        while (!carried.isEmpty() && group.size() < max) {
+            add(carried.poll(), group, keys, deferred);
+        }
+        if (group.isEmpty()) {
+            Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) return group;
+            add(first, group, keys, deferred);
+        }
+
+        long deadline = Math.min(System.nanoTime() + properties.getWindow().toNanos(),
+                group.get(0).enqueuedNanos + properties.getMaxQueueDelay().toNanos());
+        while (group.size() < max) {
+            long left = deadline - System.nanoTime();
+            Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) break;
+            add(next, group, keys, deferred);
+        }
+        carried.addAll(deferred);
+        return group;
+    }
+
+    private static void add(Pending p, List<Pending> group, Set<String> keys, ArrayDeque<Pending> deferred) {
+        if (keys.add(p.command.idempotencyKey())) group.add(p);
+        else deferred.add(p);
+    }
+
+    private void post(List<Pending> group) {
+        List<TransferCommand> commands = group.stream().map(Pending::command).toList();
+        long started = System.nanoTime();
+        List<BatchItemOutcome> outcomes;
+        try {
+            outcomes = batchTransferService.createTransfers(commands, BatchMode.PER_ITEM);
+        } catch (RuntimeException e) {
+            log.warn("Coalesced group failed, posting one by one: size={}, cause={}", group.size(), e.toString());
+            fallbacks.increment();
+            group.forEach(this::postAlone);
+            return;
+        }
+        batchSizes.record(group.size());
+        commits.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        transferMetrics.rejected(outcomes);
+
+        for (int i = 0; i < group.size(); i++) {
+            BatchItemOutcome o = outcomes.get(i);
+            if (o.isSuccess()) group.get(i).reply.complete(o.response());
+            else group.get(i).reply.completeExceptionally(o.error());
+        }
+    }
+
+    private void postAlone(Pending p) {
+        try {
+            p.reply.complete(transferService.createTransfer(p.command));
+        } catch (RuntimeException e) {
+            p.reply.completeExceptionally(e);
+        }
+    }
+
+    /** Totals of the coalescer's meters since start; the distributions are scraped from the registry. */
+    public Stats stats() {
+        return new Stats(running, queue.size(), batchSizes.count(), (long) batchSizes.totalAmount(),
+                (long) fallbacks.count(), (long) bypassed.count(), batchSizes.mean(),
+                commits.mean(TimeUnit.MILLISECONDS), commits.max(TimeUnit.MILLISECONDS));
+    }
+}
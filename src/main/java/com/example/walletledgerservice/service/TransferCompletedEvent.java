@@ -0,0 +1,18 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferResponse;
+
+import java.util.Map;
+
+/**
+ * Published inside the posting transaction for every transfer the service answered,
+ * {@code replay} being true when the key had been posted before. {@code postedVersions} maps an account id
+ * to the lowest row version that includes the posting, for the accounts whose poster knows it.
+ */
+public record TransferCompletedEvent(String idempotencyKey, TransferResponse response, boolean replay,
+                                     Map<Long, Long> postedVersions) {
+
+    public TransferCompletedEvent(String idempotencyKey, TransferResponse response, boolean replay) {
+        this(idempotencyKey, response, replay, Map.of());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.EngineProperties;
+import com.example.walletledgerservice.config.PostingProperties;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.enums.PostingMode;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import jakarta.validation.ValidationException;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Entry point of the transfer endpoints: the in-memory {@link LedgerEngine} in engine mode, the transactional
+ * {@link TransferService} / {@link BatchTransferService} otherwise, with single transfers going through the
+ * {@link TransferCoalescer} when it is enabled. Not transactional itself, so a request holds no connection
+ * while it waits for its group commit.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TransferDispatcher {
+
+    TransferService transferService;
+    BatchTransferService batchTransferService;
+    LedgerEngine ledgerEngine;
+    TransferCoalescer transferCoalescer;
+    PostingProperties postingProperties;
+    EngineProperties engineProperties;
+    TransferMetrics transferMetrics;
+
+    public TransferResponse createTransfer(TransferCommand cmd) {
+        if (!engineMode()) {
+            return transferCoalescer.isRunning() ? transferCoalescer.createTransfer(cmd)
+                    : transferService.createTransfer(cmd);
+        }
+
+        try {
+            if (Objects.equals(cmd.fromAccountId(), cmd.toAccountId())) {
+                throw new ValidationException("fromAccountId must differ from toAccountId");
+            }
+            return await(ledgerEngine.submit(cmd), engineProperties.getReplyTimeout()).response();
+        } catch (RuntimeException e) {
+            transferMetrics.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * In engine mode the items are submitted one by one and all wait for their group commits together;
+     * an all-or-nothing batch cannot be guaranteed there and is refused.
+     */
+    public List<BatchItemOutcome> createTransfers(List<TransferCommand> commands, BatchMode mode) {
+        if (!engineMode()) {
+            List<BatchItemOutcome> outcomes = batchTransferService.createTransfers(commands, mode);
+            transferMetrics.rejected(outcomes);
+            return outcomes;
+        }
+
+        if (mode == BatchMode.ALL_OR_NOTHING) {
+            throw new ValidationException("ALL_OR_NOTHING batches are not supported in engine mode");
+        }
+
+        List<CompletableFuture<LedgerEngine.Result>> replies = new ArrayList<>(commands.size());
+        List<BatchItemOutcome> outcomes = new ArrayList<>(commands.size());
+        Set<String> seenKeys = new HashSet<>();
+        for (TransferCommand cmd : commands) {
+            if (Objects.equals(cmd.fromAccountId(), cmd.toAccountId())) {
+                replies.add(CompletableFuture.failedFuture(
+                        new ValidationException("fromAccountId must differ from toAccountId")));
+            } else if (!seenKeys.add(cmd.idempotencyKey())) {
+                replies.add(CompletableFuture.failedFuture(
+                        new ValidationException("Duplicate idempotencyKey in batch: " + cmd.idempotencyKey())));
+            } else {
+                replies.add(submitQuietly(cmd));
+            }
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            TransferCommand cmd = commands.get(i);
+            try {
+                LedgerEngine.Result r = await(replies.get(i), engineProperties.getReplyTimeout());
+                outcomes.add(r.replay() ? BatchItemOutcome.replayed(cmd, r.response())
+                        : BatchItemOutcome.posted(cmd, r.response()));
+            } catch (RuntimeException e) {
+                outcomes.add(BatchItemOutcome.failed(cmd, e));
+            }
+        }
+        transferMetrics.rejected(outcomes);
+        return outcomes;
+    }
+
+    /** Tells the engine an account balance was changed outside of it (dev mint). No-op in the other modes. */
+    public void refreshAccount(long accountId) {
+        if (engineMode()) await(ledgerEngine.resync(accountId), engineProperties.getReplyTimeout());
+    }
+
+    private boolean engineMode() {
+        return postingProperties.getMode() == PostingMode.ENGINE;
+    }
+
+    private CompletableFuture<LedgerEngine.Result> submitQuietly(TransferCommand cmd) {
+        try {
+            return ledgerEngine.submit(cmd);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Waits for a group commit; the caller may retry with the same key after a timeout. */
+    static <T> T await(CompletableFuture<T> reply, Duration timeout) {
+        try {
+            return reply.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Transfer is not confirmed yet, retry with the same Idempotency-Key");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the group commit");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.CurrencyMismatchException;
+import com.example.walletledgerservice.exception.InsufficientFundsException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ValidationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of {@link TransferService#createTransfer}: a timer per posting phase, idempotent hits by the path that
+ * found them and rejections by reason. Rejections are also counted for transfers posted through batches, the
+ * coalescer and the engine. Tags are fixed enums, never account ids or keys.
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Phase {
+        /** Reading the entry of an Idempotency-Key the filter could not rule out. */
+        IDEMPOTENCY_LOOKUP,
+        /** The whole posting through the post_transfer function. */
+        POST_FUNCTION,
+        /** Locking both account rows (or their shards), including any wait for other transfers. */
+        LOCK_ACCOUNTS,
+        INSERT_ENTRY,
+        /** Writing both lines, flushed as one batched insert. */
+        INSERT_LINES,
+        /** Flushing the balance updates, and committing. */
+        COMMIT
+    }
+
+    public enum HitPath {
+        /** Found by the lookup before posting. */
+        LOOKUP,
+        /** Answered by the post_transfer function. */
+        FUNCTION,
+        /** Another request took the key while this one was posting; its entry was returned. */
+        RACED,
+        /** The key's entry was in an archived month and was read from its segment. */
+        ARCHIVE
+    }
+
+    public enum Rejection { INSUFFICIENT_FUNDS, CURRENCY_MISMATCH, ACCOUNT_NOT_FOUND, INVALID }
+
+    private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+    private final Map<HitPath, Counter> hits = new EnumMap<>(HitPath.class);
+    private final Map<Rejection, Counter> rejections = new EnumMap<>(Rejection.class);
+
+    public TransferMetrics(MeterRegistry registry) {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, Timer.builder("ledger.transfer.phase")
+                    .description("Time spent in one phase of posting a transfer")
+                    .tag("phase", tag(phase))
+                    .register(registry));
+        }
+        for (HitPath path : HitPath.values()) {
+            hits.put(path, Counter.builder("ledger.transfer.idempotent.hits")
+                    .description("Transfers answered with an already posted entry")
+                    .tag("path", tag(path))
+                    .register(registry));
+        }
+        for (Rejection reason : Rejection.values()) {
+            rejections.put(reason, Counter.builder("ledger.transfer.rejections")
+                    .description("Transfers refused before anything was posted")
+                    .tag("reason", tag(reason))
+                    .register(registry));
+        }
+    }
+
+    public <T> T time(Phase phase, Supplier<T> step) {
+        return phases.get(phase).record(step);
+    }
+
+    public void time(Phase phase, Runnable step) {
+        phases.get(phase).record(step);
+    }
+
+    /** Times the commit of the current transaction; called once a transfer is posted, so replays are not counted. */
+    public void timeCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        Timer timer = phases.get(Phase.COMMIT);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            long started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                started = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                if (started != 0) timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public void idempotentHit(HitPath path) {
+        hits.get(path).increment();
+    }
+
+    /** Counts the failed items of a batch that were refused; see {@link #failed}. */
+    public void rejected(List<BatchItemOutcome> outcomes) {
+        for (BatchItemOutcome o : outcomes) {
+            if (o.error() != null) failed(o.error());
+        }
+    }
+
+    /** Counts a failure as a rejection unless the transfer was not refused but could not be posted right now. */
+    public void failed(RuntimeException e) {
+        if (e instanceof ValidationException || e instanceof NotFoundException || e instanceof ConflictException) {
+            rejected(e);
+        }
+    }
+
+    public void rejected(RuntimeException e) {
+        Rejection reason;
+        if (e instanceof InsufficientFundsException) reason = Rejection.INSUFFICIENT_FUNDS;
+        else if (e instanceof CurrencyMismatchException) reason = Rejection.CURRENCY_MISMATCH;
+        else if (e instanceof NotFoundException) reason = Rejection.ACCOUNT_NOT_FOUND;
+        else reason = Rejection.INVALID;
+        rejections.get(reason).increment();
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.api.dto.QueuedTransferDto;
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.TransferQueueProperties;
+import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
+import com.example.walletledgerservice.domain.repository.TransferQueueJdbcRepository;
+import com.example.walletledgerservice.domain.repository.TransferQueueJdbcRepository.Depth;
+import com.example.walletledgerservice.domain.repository.TransferQueueJdbcRepository.Finish;
+import com.example.walletledgerservice.domain.repository.TransferQueueJdbcRepository.QueuedTransfer;
+import com.example.walletledgerservice.enums.BatchItemStatus;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.enums.QueuedTransferStatus;
+import com.example.walletledgerservice.exception.NotFoundException;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous transfers: the request is only validated and written to transfer_queue, so accepting it never
+ * waits for an account row lock. Worker threads claim the oldest queued transfers in batches and post each
+ * batch through {@link TransferDispatcher} like the batch endpoint does (PER_ITEM); a batch failing as a whole
+ * is posted item by item. Every queued transfer keeps its idempotency key, so a transfer claimed twice, after
+ * a worker died holding it, replays instead of posting again.
+ * <p>
+ * Retryable errors (timeouts, deadlocks, an overloaded or restarting ledger engine) put the transfer back in the
+ * queue, up to {@code maxAttempts}; any other error fails it with the code the synchronous endpoint would have
+ * answered.
+ */
+@Slf4j
+@Service
+public class TransferQueueService {
+
+    private static final int PURGE_BATCH = 10_000;
+
+    private final TransferQueueJdbcRepository transferQueueJdbcRepository;
+    private final JournalEntryRepository journalEntryRepository;
+    private final JournalArchive journalArchive;
+    private final TransferDispatcher transferDispatcher;
+    private final TransferQueueProperties properties;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private volatile Depth depth = new Depth(0, 0, null);
+
+    private final Map<BatchItemStatus, Counter> processed = new EnumMap<>(BatchItemStatus.class);
+    private final Counter retried;
+    private final Counter fallbacks;
+    private final Timer lag;
+    private final Timer batches;
+
+    public TransferQueueService(TransferQueueJdbcRepository transferQueueJdbcRepository,
+                                JournalEntryRepository journalEntryRepository, JournalArchive journalArchive,
+                                TransferDispatcher transferDispatcher, TransferQueueProperties properties,
+                                MeterRegistry registry) {
+        this.transferQueueJdbcRepository = transferQueueJdbcRepository;
+        this.journalEntryRepository = journalEntryRepository;
+        this.journalArchive = journalArchive;
+        this.transferDispatcher = transferDispatcher;
+        this.properties = properties;
+
+        for (BatchItemStatus s : List.of(BatchItemStatus.POSTED, BatchItemStatus.REPLAYED, BatchItemStatus.FAILED)) {
+            processed.put(s, Counter.builder("ledger.transfer.queue.processed")
+                    .description("Queued transfers finished by the workers of this instance")
+                    .tag("outcome", s.name().toLowerCase(Locale.ROOT)).register(registry));
+        }
+        retried = Counter.builder("ledger.transfer.queue.retried")
+                .description("Queued transfers put back after a retryable error")
+                .register(registry);
+        fallbacks = Counter.builder("ledger.transfer.queue.batch.fallbacks")
+                .description("Claimed batches that failed as a whole and were posted one by one")
+                .register(registry);
+        lag = Timer.builder("ledger.transfer.queue.lag")
+                .description("Time from enqueueing a transfer to its final status")
+                .register(registry);
+        batches = Timer.builder("ledger.transfer.queue.batch")
+                .description("Time a worker took to post a claimed batch")
+                .register(registry);
+        Gauge.builder("ledger.transfer.queue.depth", this, q -> q.depth.pending())
+                .description("Queued transfers not claimed yet, as of the last sample")
+                .tag("status", "pending").register(registry);
+        Gauge.builder("ledger.transfer.queue.depth", this, q -> q.depth.processing())
+                .description("Queued transfers claimed by a worker, as of the last sample")
+                .tag("status", "processing").register(registry);
+        Gauge.builder("ledger.transfer.queue.oldest.age.seconds", this, TransferQueueService::oldestAgeSeconds)
+                .description("Age of the oldest unfinished queued transfer, as of the last sample")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running || !properties.isEnabled() || properties.getWorkers() <= 0) return;
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            Thread t = new Thread(this::runWorker, "transfer-queue-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        log.info("Transfer queue workers started: workers={}, batchSize={}, pollInterval={}, lease={}",
+                workers.size(), properties.getBatchSize(), properties.getPollInterval(), properties.getLease());
+    }
+
+    /** Claimed transfers a stopped worker did not finish are claimed again once their lease runs out. */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread t : workers) {
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+    }
+
+    /**
+     * Queues the transfer and returns its state. A key queued before is not queued again: its current
+     * state is returned, whatever the new request carries.
+     */
+    @Transactional
+    public QueuedTransferDto enqueue(TransferCommand cmd) {
+        if (!properties.isEnabled()) {
+            throw new ServiceUnavailableException("Asynchronous transfers are disabled");
+        }
+        if (Objects.equals(cmd.fromAccountId(), cmd.toAccountId())) {
+            throw new ValidationException("fromAccountId must differ from toAccountId");
+        }
+        if (transferQueueJdbcRepository.enqueue(cmd, now())) {
+            log.info("Transfer queued: key={}, from={}, to={}, amount={}, ccy={}",
+                    cmd.idempotencyKey(), cmd.fromAccountId(), cmd.toAccountId(), cmd.amountMinor(), cmd.currency());
+        }
+        return status(cmd.idempotencyKey());
+    }
+
+    /** Read from the primary: a replica may not have replayed the status a worker just wrote. */
+    @Transactional
+    public QueuedTransferDto status(String idempotencyKey) {
+        return transferQueueJdbcRepository.find(idempotencyKey)
+                .map(this::toDto)
+                .orElseThrow(() -> new NotFoundException("Queued transfer not found: key=" + idempotencyKey));
+    }
+
+    /**
+     * Claims one batch and posts it; returns how many transfers it claimed. The workers call it in a loop;
+     * it is public so a test can drain the queue without them.
+     */
+    public int drainOnce() {
+        Timestamp now = now();
+        List<QueuedTransfer> claimed = transferQueueJdbcRepository.claim(Math.max(1, properties.getBatchSize()), now,
+                Timestamp.from(now.toInstant().minus(properties.getLease())));
+        if (claimed.isEmpty()) return 0;
+
+        long started = System.nanoTime();
+        List<TransferCommand> commands = claimed.stream().map(QueuedTransfer::command).toList();
+        List<BatchItemOutcome> outcomes;
+        try {
+            outcomes = transferDispatcher.createTransfers(commands, BatchMode.PER_ITEM);
+        } catch (RuntimeException e) {
+            log.warn("Queued batch failed, posting one by one: size={}, cause={}", claimed.size(), e.toString());
+            fallbacks.increment();
+            outcomes = commands.stream().map(this::postAlone).toList();
+        }
+        batches.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        List<Finish> finishes = new ArrayList<>(claimed.size());
+        Timestamp done = now();
+        for (int i = 0; i < claimed.size(); i++) {
+            finishes.add(finish(claimed.get(i), outcomes.get(i), done));
+        }
+        transferQueueJdbcRepository.finish(finishes);
+        return claimed.size();
+    }
+
+    /** Samples the gauges; one count over the open rows, served by idx_transfer_queue_open. */
+    @Scheduled(fixedDelayString = "${ledger.transfer-queue.depth-interval:5s}")
+    public void sampleDepth() {
+        if (!properties.isEnabled()) return;
+        try {
+            depth = transferQueueJdbcRepository.depth();
+        } catch (RuntimeException e) {
+            log.warn("Transfer queue depth sample failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.transfer-queue.cleanup-interval:1h}",
+            initialDelayString = "${ledger.transfer-queue.cleanup-interval:1h}")
+    public void purgeFinished() {
+        if (!properties.isEnabled()) return;
+        Timestamp before = Timestamp.from(Instant.now().minus(properties.getRetention()));
+        long purged = 0;
+        int n;
+        while ((n = transferQueueJdbcRepository.purge(before, PURGE_BATCH)) > 0) purged += n;
+        if (purged > 0) log.info("Finished queued transfers purged: rows={}, processedBefore={}", purged, before.toInstant());
+    }
+
+    public Depth depth() {
+        return depth;
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) Thread.sleep(properties.getPollInterval().toMillis());
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.error("Transfer queue worker error", e);
+                try {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private BatchItemOutcome postAlone(TransferCommand cmd) {
+        try {
+            return BatchItemOutcome.posted(cmd, transferDispatcher.createTransfer(cmd));
+        } catch (RuntimeException e) {
+            return BatchItemOutcome.failed(cmd, e);
+        }
+    }
+
+    private Finish finish(QueuedTransfer q, BatchItemOutcome o, Timestamp now) {
+        String key = q.command().idempotencyKey();
+        if (o.isSuccess()) {
+            TransferResponse r = o.response();
+            processed(q, o.status(), now);
+            return new Finish(key, QueuedTransferStatus.POSTED, now, r.journalEntryId(),
+                    r.createdAt() == null ? null : Timestamp.from(r.createdAt().toInstant()), null, null);
+        }
+        RuntimeException e = o.error();
+        String message = e == null ? null : trim(e.getMessage(), 500);
+        if (retryable(e) && q.attempts() < properties.getMaxAttempts()) {
+            retried.increment();
+            log.info("Queued transfer will be retried: key={}, attempt={}, cause={}", key, q.attempts(), e.toString());
+            return new Finish(key, QueuedTransferStatus.PENDING, null, null, null, o.errorCode(), message);
+        }
+        processed(q, BatchItemStatus.FAILED, now);
+        log.info("Queued transfer failed: key={}, attempts={}, code={}, cause={}", key, q.attempts(), o.errorCode(), message);
+        return new Finish(key, QueuedTransferStatus.FAILED, now, null, null, o.errorCode(), message);
+    }
+
+    private void processed(QueuedTransfer q, BatchItemStatus outcome, Timestamp now) {
+        processed.get(outcome).increment();
+        lag.record(Math.max(0, now.getTime() - q.enqueuedAt().getTime()), TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean retryable(RuntimeException e) {
+        return e instanceof ServiceUnavailableException || e instanceof TransientDataAccessException;
+    }
+
+    private double oldestAgeSeconds() {
+        Timestamp oldest = depth.oldestEnqueuedAt();
+        return oldest == null ? 0 : Math.max(0, System.currentTimeMillis() - oldest.getTime()) / 1_000.0;
+    }
+
+    private QueuedTransferDto toDto(QueuedTransfer q) {
+        TransferCommand c = q.command();
+        TransferResponse transfer = q.journalEntryId() == null ? null : postedTransfer(c.idempotencyKey(), q.journalEntryId());
+        return new QueuedTransferDto(c.idempotencyKey(), q.status(), q.attempts(),
+                TransferService.toOffsetUtc(q.enqueuedAt()), TransferService.toOffsetUtc(q.processedAt()),
+                transfer, q.errorCode(), q.errorMessage());
+    }
+
+    /**
+     * The journal entry the transfer was posted or replayed as, not the queued command: a replay answers the
+     * transfer first posted under the key. The key leads to the one partition holding the entry. Null while
+     * the entry is not in Postgres yet: an engine posting acknowledged from its log and not flushed.
+     */
+    private TransferResponse postedTransfer(String key, long entryId) {
+        return journalEntryRepository.findByIdempotencyKey(key)
+                .filter(e -> e.getId() == entryId)
+                .map(TransferService::mapEntryToResponse)
+                .or(() -> journalArchive.entryByKey(key)
+                        .filter(e -> e.id() == entryId)
+                        .map(TransferService::mapArchivedToResponse))
+                .orElse(null);
+    }
+
+    private static Timestamp now() {
+        return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private static String trim(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+}
@@ -2,27 +2,40 @@ package com.example.walletledgerservice.service;
 
 import com.example.walletledgerservice.api.dto.TransferCommand;
 import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.PostingProperties;
 import com.example.walletledgerservice.domain.model.AccountEntity;
 import com.example.walletledgerservice.domain.model.JournalEntryEntity;
 import com.example.walletledgerservice.domain.model.JournalLineEntity;
 import com.example.walletledgerservice.domain.repository.AccountRepository;
 import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
 import com.example.walletledgerservice.domain.repository.JournalLineRepository;
+import com.example.walletledgerservice.domain.repository.TransferFunctionRepository;
+import com.example.walletledgerservice.enums.PostTransferReason;
+import com.example.walletledgerservice.enums.PostingMode;
 import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.CurrencyMismatchException;
+import com.example.walletledgerservice.exception.InsufficientFundsException;
 import com.example.walletledgerservice.exception.NotFoundException;
+import com.example.walletledgerservice.service.TransferMetrics.HitPath;
+import com.example.walletledgerservice.service.TransferMetrics.Phase;
 import jakarta.validation.ValidationException;
 import jakarta.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -35,6 +48,13 @@ public class TransferService {
     AccountRepository accountRepository;
     JournalEntryRepository journalEntryRepository;
     JournalLineRepository journalLineRepository;
+    AccountShardService accountShardService;
+    TransferFunctionRepository transferFunctionRepository;
+    PostingProperties postingProperties;
+    ApplicationEventPublisher eventPublisher;
+    IdempotencyKeyFilter idempotencyKeyFilter;
+    TransferMetrics transferMetrics;
+    JournalArchive journalArchive;
 
     @Transactional
     public TransferResponse createTransfer(@NotNull TransferCommand cmd) {
@@ -49,35 +69,129 @@ public class TransferService {
         log.info("Transfer request: key={}, from={}, to={}, amount={}, ccy={}, extRef={}",
                 key, cmd.fromAccountId(), cmd.toAccountId(), amount, currency, cmd.externalRef());
 
-        TransferResponse idempotent = findIdempotentIfAny(key);
-        if (idempotent != null) return idempotent;
+        if (postingProperties.getMode() == PostingMode.SQL_FUNCTION && !touchesKnownShard(cmd)) {
+            TransferResponse posted = postViaFunction(cmd);
+            if (posted != null) return posted;
+        }
 
-        Accounts pair = loadAccountsForUpdate(cmd.fromAccountId(), cmd.toAccountId());
+        // a definite filter miss skips the lookup; the insert below still catches a taken key
+        boolean lookedUp = idempotencyKeyFilter.mightContain(key);
+        if (lookedUp) {
+            TransferResponse idempotent = findIdempotentIfAny(key);
+            if (idempotent != null) return replayed(key, idempotent, HitPath.LOOKUP);
+        }
 
-        ensureCurrency(pair.from, currency, "fromAccountId");
-        ensureCurrency(pair.to, currency, "toAccountId");
-        ensureSufficientFunds(pair.from, amount);
+        Accounts pair;
+        try {
+            pair = transferMetrics.time(Phase.LOCK_ACCOUNTS, () -> loadAccountsForUpdate(cmd));
+            ensureCurrency(pair.from.account(), currency, "fromAccountId");
+            ensureCurrency(pair.to.account(), currency, "toAccountId");
+            ensureSufficientFunds(pair.from, amount);
+        } catch (ValidationException | NotFoundException e) {
+            // a retry of a key posted elsewhere must replay, even if the funds are gone by now
+            TransferResponse idempotent = lookedUp ? null : findIdempotentIfAny(key);
+            if (idempotent != null) return replayed(key, idempotent, HitPath.LOOKUP);
+            transferMetrics.rejected(e);
+            throw e;
+        }
 
-        JournalEntryEntity entry = persistEntryIdempotently(
-                key,
-                trim(cmd.description(), 255),
-                trim(cmd.externalRef(), 120)
-        );
+        JournalEntryEntity entry = transferEntry(cmd);
+        if (!transferMetrics.time(Phase.INSERT_ENTRY, () -> insertEntryIfAbsent(entry))) {
+            TransferResponse raced = findIdempotentIfAny(key);
+            if (raced == null) return archivedReplay(key);
+            log.info("Idempotent raced and resolved: key={}, entryId={}", key, raced.journalEntryId());
+            return replayed(key, raced, HitPath.RACED);
+        }
 
-        persistLines(entry, pair, amount, currency);
+        transferMetrics.time(Phase.INSERT_LINES, () -> persistLines(entry, pair, amount, currency));
+        transferMetrics.timeCommit();
 
-        pair.from.setBalanceMinor(pair.from.getBalanceMinor() - amount);
-        pair.to.setBalanceMinor(pair.to.getBalanceMinor() + amount);
+        pair.from.debit(amount);
+        pair.to.credit(amount);
 
         log.info("Transfer posted: entryId={}, from={} (newBal={}), to={} (newBal={}), amount={}, ccy={}",
-                entry.getId(), pair.from.getId(), pair.from.getBalanceMinor(),
-                pair.to.getId(), pair.to.getBalanceMinor(), amount, currency);
+                entry.getId(), pair.from.id(), pair.from.available(),
+                pair.to.id(), pair.to.available(), amount, currency);
+
+        return completed(key, mapEntryToResponse(entry), LockedAccount.postedVersions(List.of(pair.from, pair.to)));
+    }
+
+    private TransferResponse completed(String key, TransferResponse response, Map<Long, Long> postedVersions) {
+        eventPublisher.publishEvent(new TransferCompletedEvent(key, response, false, postedVersions));
+        return response;
+    }
+
+    private TransferResponse replayed(String key, TransferResponse response, HitPath path) {
+        transferMetrics.idempotentHit(path);
+        eventPublisher.publishEvent(new TransferCompletedEvent(key, response, true));
+        return response;
+    }
+
+    private boolean touchesKnownShard(TransferCommand cmd) {
+        return accountShardService.isKnownSharded(cmd.fromAccountId())
+                || accountShardService.isKnownSharded(cmd.toAccountId());
+    }
 
-        return mapEntryToResponse(entry);
+    /**
+     * Posts the whole transfer with one call to the {@code post_transfer} function.
+     * Returns null when an account turned out to be sharded; the function has written nothing then
+     * and the JPA path takes over in the same transaction.
+     */
+    private TransferResponse postViaFunction(TransferCommand cmd) {
+        TransferFunctionRepository.Result result = transferMetrics.time(Phase.POST_FUNCTION, () ->
+                transferFunctionRepository.postTransfer(
+                        cmd.idempotencyKey(), cmd.fromAccountId(), cmd.toAccountId(), cmd.amountMinor(), cmd.currency(),
+                        trim(cmd.description(), 255), trim(cmd.externalRef(), 120)));
+
+        return switch (result.status()) {
+            case POSTED -> {
+                transferMetrics.timeCommit();
+                log.info("Transfer posted (sql function): entryId={}, from={}, to={}, amount={}, ccy={}",
+                        result.response().journalEntryId(), cmd.fromAccountId(), cmd.toAccountId(),
+                        cmd.amountMinor(), cmd.currency());
+                yield completed(cmd.idempotencyKey(), result.response(), result.postedVersions());
+            }
+            case REPLAYED -> {
+                if (result.response() == null) throw rejected(notATransfer(cmd.idempotencyKey()));
+                log.info("Idempotent hit: key={}, entryId={}", cmd.idempotencyKey(), result.response().journalEntryId());
+                yield replayed(cmd.idempotencyKey(), result.response(), HitPath.FUNCTION);
+            }
+            case NOT_FOUND -> throw rejected(new NotFoundException(result.detail()));
+            case INVALID -> throw rejected(functionRejection(result.reason(), result.detail()));
+            case SHARDED -> {
+                log.debug("Sharded account in transfer, falling back to JPA posting: key={}", cmd.idempotencyKey());
+                yield null;
+            }
+            case RETIRED -> archivedReplay(cmd.idempotencyKey());
+        };
+    }
+
+    /**
+     * The key is in journal_entry_key, but its entry is no longer in the journal: replays it from the archive,
+     * or rejects the key while its month is detached and not archived yet.
+     */
+    private TransferResponse archivedReplay(String key) {
+        JournalSegment.Entry archived = journalArchive.entryByKey(key).orElseThrow(() -> rejected(new ConflictException(
+                "Idempotency key was used by an entry whose partition has been detached: " + key)));
+        log.info("Idempotent hit in archive: key={}, entryId={}", key, archived.id());
+        return replayed(key, mapArchivedToResponse(archived), HitPath.ARCHIVE);
+    }
+
+    private RuntimeException rejected(RuntimeException e) {
+        transferMetrics.rejected(e);
+        return e;
+    }
+
+    /** The exception {@link #ensureCurrency} or {@link #ensureSufficientFunds} throws for the same check. */
+    static ValidationException functionRejection(PostTransferReason reason, String detail) {
+        return switch (reason) {
+            case CURRENCY_MISMATCH -> new CurrencyMismatchException(detail);
+            case INSUFFICIENT_FUNDS -> new InsufficientFundsException();
+        };
     }
 
     private TransferResponse findIdempotentIfAny(String key) {
-        return journalEntryRepository.findByIdempotencyKey(key)
+        return transferMetrics.time(Phase.IDEMPOTENCY_LOOKUP, () -> journalEntryRepository.findByIdempotencyKey(key))
                 .map(e -> {
                     log.info("Idempotent hit: key={}, entryId={}", key, e.getId());
                     return mapEntryToResponse(e);
@@ -85,110 +199,164 @@ public class TransferService {
                 .orElse(null);
     }
 
-    private Accounts loadAccountsForUpdate(Long fromId, Long toId) {
-        List<Long> sorted = Stream.of(fromId, toId).sorted().toList();
+    private Accounts loadAccountsForUpdate(TransferCommand cmd) {
+        Long fromId = cmd.fromAccountId();
+        List<Long> sorted = Stream.of(fromId, cmd.toAccountId()).sorted().toList();
 
-        AccountEntity first = loadForUpdate(sorted.get(0));
-        AccountEntity second = loadForUpdate(sorted.get(1));
+        LockedAccount first = lockForPosting(sorted.get(0), cmd);
+        LockedAccount second = lockForPosting(sorted.get(1), cmd);
 
-        AccountEntity from = first.getId().equals(fromId) ? first : second;
-        AccountEntity to = (from == first) ? second : first;
+        LockedAccount from = first.id().equals(fromId) ? first : second;
+        LockedAccount to = (from == first) ? second : first;
 
         return new Accounts(from, to);
     }
 
+    /**
+     * Regular accounts are locked by their row. Sharded accounts are read without a lock and only
+     * one of their shard rows is locked, so concurrent transfers on a hot account do not queue on one row.
+     * A debit that the picked shard cannot cover locks the remaining shards right here, before
+     * the next account, to keep the global (account id, shard no) lock order.
+     */
+    private LockedAccount lockForPosting(Long id, TransferCommand cmd) {
+        long debit = id.equals(cmd.fromAccountId()) ? cmd.amountMinor() : 0L;
+
+        if (accountShardService.isKnownSharded(id)) {
+            AccountEntity account = accountRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Account not found: id=" + id));
+            if (account.isSharded()) {
+                return accountShardService.lockShards(account, debit, cmd.idempotencyKey());
+            }
+        }
+
+        AccountEntity account = loadForUpdate(id);
+        if (account.isSharded()) {
+            // sharded after this instance started; the row lock we hold is harmless
+            return accountShardService.lockShards(account, debit, cmd.idempotencyKey());
+        }
+        return LockedAccount.of(account);
+    }
+
     private AccountEntity loadForUpdate(Long id) {
         return accountRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new NotFoundException("Account not found: id=" + id));
     }
 
-    private static void ensureCurrency(AccountEntity a, String expected, String field) {
+    static void ensureCurrency(AccountEntity a, String expected, String field) {
         if (!expected.equalsIgnoreCase(a.getCurrency())) {
-            throw new ValidationException(field + " has currency " + a.getCurrency() + ", expected " + expected);
+            throw new CurrencyMismatchException(field + " has currency " + a.getCurrency() + ", expected " + expected);
         }
     }
 
-    private static void ensureSufficientFunds(AccountEntity from, long amount) {
-        if (from.getBalanceMinor() < amount) {
-            throw new ValidationException("Insufficient funds");
+    static void ensureSufficientFunds(LockedAccount from, long amount) {
+        if (from.available() < amount) {
+            throw new InsufficientFundsException();
         }
     }
 
-    private JournalEntryEntity persistEntryIdempotently(String key, String description, String externalRef) {
+    /** Entry row of a transfer; it carries everything the response needs. */
+    static JournalEntryEntity transferEntry(TransferCommand cmd) {
         JournalEntryEntity entry = new JournalEntryEntity();
-        entry.setIdempotencyKey(key);
-        entry.setDescription(description);
-        entry.setExternalRef(externalRef);
+        entry.setCreatedAt(postingTime());
+        entry.setIdempotencyKey(cmd.idempotencyKey());
+        entry.setDescription(trim(cmd.description(), 255));
+        entry.setExternalRef(trim(cmd.externalRef(), 120));
+        entry.setFromAccountId(cmd.fromAccountId());
+        entry.setToAccountId(cmd.toAccountId());
+        entry.setAmountMinor(cmd.amountMinor());
+        entry.setCurrency(cmd.currency());
+        return entry;
+    }
 
-        try {
-            return journalEntryRepository.saveAndFlush(entry);
-        } catch (DataIntegrityViolationException e) {
-            JournalEntryEntity again = journalEntryRepository.findByIdempotencyKey(key)
-                    .orElseThrow(() -> e);
-            log.info("Idempotent raced and resolved: key={}, entryId={}", key, again.getId());
-            return again;
-        }
+    /**
+     * Inserts the entry with ON CONFLICT DO NOTHING and sets its id. Returns false when the key is taken:
+     * committed by another request, or in flight, in which case Postgres waits for that transaction first.
+     */
+    private boolean insertEntryIfAbsent(JournalEntryEntity entry) {
+        Long id = journalEntryRepository.insertIfAbsent(entry.getIdempotencyKey(), entry.getDescription(),
+                entry.getExternalRef(), entry.getCreatedAt(), entry.getFromAccountId(), entry.getToAccountId(),
+                entry.getAmountMinor(), entry.getCurrency());
+        if (id == null) return false;
+        entry.setId(id);
+        return true;
     }
 
+    /**
+     * The entry was inserted natively, so the lines point at it through a reference. Both lines are flushed as
+     * one batched insert here, so the INSERT_LINES phase times the rows and not only handing them to JPA.
+     */
     private void persistLines(JournalEntryEntity entry, Accounts pair, long amount, String currency) {
+        JournalEntryEntity ref = journalEntryRepository.getReferenceById(entry.getId());
+        journalLineRepository.saveAllAndFlush(transferLines(ref, entry.getCreatedAt(), pair.from.account(), pair.to.account(),
+                amount, currency));
+    }
+
+    /**
+     * CREDIT line on the sender (balance goes down), DEBIT line on the receiver (balance goes up).
+     * {@code createdAt} is the entry's; it is passed separately because {@code entry} may be an uninitialized reference.
+     */
+    static List<JournalLineEntity> transferLines(JournalEntryEntity entry, Timestamp createdAt, AccountEntity from,
+                                                 AccountEntity to, long amount, String currency) {
         JournalLineEntity credit = new JournalLineEntity();
         credit.setEntry(entry);
-        credit.setAccount(pair.from);
+        credit.setAccount(from);
         credit.setSide(Side.CREDIT);
         credit.setAmountMinor(amount);
         credit.setCurrency(currency);
+        credit.setCreatedAt(createdAt);
 
         JournalLineEntity debit = new JournalLineEntity();
         debit.setEntry(entry);
-        debit.setAccount(pair.to);
+        debit.setAccount(to);
         debit.setSide(Side.DEBIT);
         debit.setAmountMinor(amount);
         debit.setCurrency(currency);
+        debit.setCreatedAt(createdAt);
 
-        journalLineRepository.saveAll(List.of(credit, debit));
+        return List.of(credit, debit);
     }
 
-    private static String trim(String s, int max) {
+    /** Microseconds, as stored: a replay returns exactly the createdAt the posting answered with. */
+    static Timestamp postingTime() {
+        return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    static String trim(String s, int max) {
         if (s == null) return null;
         return s.length() <= max ? s : s.substring(0, max);
     }
 
-    private record Accounts(AccountEntity from, AccountEntity to) {}
-
-    private TransferResponse mapEntryToResponse(JournalEntryEntity e) {
-        var lines = journalLineRepository.findByEntryIdWithAccount(e.getId());
-        if (lines.size() < 2) {
-            throw new IllegalStateException("Journal entry " + e.getId() + " has unexpected lines count=" + lines.size());
-        }
-
-        JournalLineEntity debit  = lines.stream().filter(l -> l.getSide() == Side.DEBIT).findFirst()
-                .orElseThrow(() -> new IllegalStateException("No DEBIT line for entry " + e.getId()));
-        JournalLineEntity credit = lines.stream().filter(l -> l.getSide() == Side.CREDIT).findFirst()
-                .orElseThrow(() -> new IllegalStateException("No CREDIT line for entry " + e.getId()));
-
-        if (debit.getAmountMinor() != credit.getAmountMinor()) {
-            throw new IllegalStateException("Lines amount mismatch for entry " + e.getId());
-        }
-        if (!debit.getCurrency().equalsIgnoreCase(credit.getCurrency())) {
-            throw new IllegalStateException("Lines currency mismatch for entry " + e.getId());
-        }
-
-        long amount = debit.getAmountMinor();
-        String ccy = debit.getCurrency();
+    private record Accounts(LockedAccount from, LockedAccount to) {}
 
+    /**
+     * The entry row holds everything the response needs; no line is read. A multi-leg entry has no
+     * transfer to answer with, so a transfer retried under its key is a conflict.
+     */
+    static TransferResponse mapEntryToResponse(JournalEntryEntity e) {
+        if (!e.isTransfer()) throw notATransfer(e.getIdempotencyKey());
         return new TransferResponse(
                 e.getId(),
-                credit.getAccount().getId(),
-                debit.getAccount().getId(),
-                amount,
-                ccy,
+                e.getFromAccountId(),
+                e.getToAccountId(),
+                e.getAmountMinor(),
+                e.getCurrency(),
                 toOffsetUtc(e.getCreatedAt()),
                 e.getDescription(),
                 e.getExternalRef()
         );
     }
 
-    private static OffsetDateTime toOffsetUtc(java.sql.Timestamp ts) {
+    static TransferResponse mapArchivedToResponse(JournalSegment.Entry e) {
+        if (!e.isTransfer()) throw notATransfer(e.idempotencyKey());
+        return new TransferResponse(e.id(), e.fromAccountId(), e.toAccountId(), e.amountMinor(), e.currency(),
+                toOffsetUtc(e.createdAt()), e.description(), e.externalRef());
+    }
+
+    static ConflictException notATransfer(String key) {
+        return new ConflictException("Idempotency key was used by a multi-leg entry: " + key);
+    }
+
+    static OffsetDateTime toOffsetUtc(java.sql.Timestamp ts) {
         if (ts == null) return null;
         return ts.toInstant().atOffset(ZoneOffset.UTC);
     }
@@ -1,5 +1,6 @@
 package com.example.walletledgerservice.service;
 
+import com.example.walletledgerservice.config.ShardingProperties;
 import com.example.walletledgerservice.domain.model.AccountEntity;
 import com.example.walletledgerservice.domain.model.JournalEntryEntity;
 import com.example.walletledgerservice.domain.model.JournalLineEntity;
@@ -30,6 +31,8 @@ public class TreasuryDevService {
     AccountRepository accountRepository;
     JournalEntryRepository journalEntryRepository;
     JournalLineRepository journalLineRepository;
+    AccountShardService accountShardService;
+    ShardingProperties shardingProperties;
 
     static long TREASURY_OWNER = 0L;
     static long ISSUER_OWNER   = -1L;
@@ -37,25 +40,35 @@ public class TreasuryDevService {
 
     /**
      * Guarantees that the treasury has enough USD for the next transfer.
-     * If it doesn't, it will "mint" (double-write) the amount of the deficit.
+     * If it doesn't, it will "mint" (double-write) the amount of the deficit. A sharded treasury is topped up
+     * shard by shard, so whichever shard the transfer picks can cover it.
      * Returns the id of the treasury account.
      */
     @Transactional
     public long ensureUsdTreasuryWithFunds(long requiredAmountMinor) {
         AccountEntity treasury = findOrCreate(TREASURY_OWNER, USD);
+        if (shardingProperties.getTreasuryShards() > 0 && !treasury.isSharded()) {
+            treasury = accountShardService.shard(treasury.getId(), shardingProperties.getTreasuryShards());
+        }
 
-        if (treasury.getBalanceMinor() >= requiredAmountMinor) {
+        long deficit;
+        if (treasury.isSharded()) {
+            // every shard covers the transfer alone, so the mint's debit never has to combine shards
+            deficit = accountShardService.topUpShards(treasury, requiredAmountMinor);
+        } else {
+            deficit = Math.max(0, requiredAmountMinor - treasury.getBalanceMinor());
+            treasury.setBalanceMinor(treasury.getBalanceMinor() + deficit);
+        }
+        if (deficit == 0) {
             return treasury.getId();
         }
 
-        long deficit = requiredAmountMinor - treasury.getBalanceMinor();
         AccountEntity issuer = findOrCreate(ISSUER_OWNER, USD);
 
-        var entry = createJournalEntry("DEV-MINT-USD-" + UUID.randomUUID(), "Dev/Test mint USD to treasury");
+        var entry = createJournalEntry("DEV-MINT-USD-" + UUID.randomUUID(), "Dev/Test mint USD to treasury",
+                issuer, treasury, deficit);
 
         persistLines(entry, treasury, issuer, deficit);
-
-        treasury.setBalanceMinor(treasury.getBalanceMinor() + deficit);
         issuer.setBalanceMinor(issuer.getBalanceMinor() - deficit);
 
         log.info("Minted {} {} to treasury (treasuryId={}), issuerId={}", deficit, USD, treasury.getId(), issuer.getId());
@@ -77,10 +90,16 @@ public class TreasuryDevService {
         }
     }
 
-    private JournalEntryEntity createJournalEntry(String idempotencyKey, String description) {
+    private JournalEntryEntity createJournalEntry(String idempotencyKey, String description,
+                                                  AccountEntity from, AccountEntity to, long amount) {
         JournalEntryEntity entry = new JournalEntryEntity();
         entry.setIdempotencyKey(idempotencyKey);
         entry.setDescription(description);
+        entry.setFromAccountId(from.getId());
+        entry.setToAccountId(to.getId());
+        entry.setAmountMinor(amount);
+        entry.setCurrency(USD);
+        entry.setCreatedAt(TransferService.postingTime());
         return journalEntryRepository.saveAndFlush(entry);
     }
 
@@ -91,6 +110,7 @@ public class TreasuryDevService {
         debitTreasury.setSide(Side.DEBIT);
         debitTreasury.setAmountMinor(amount);
         debitTreasury.setCurrency(USD);
+        debitTreasury.setCreatedAt(entry.getCreatedAt());
 
         JournalLineEntity creditIssuer = new JournalLineEntity();
         creditIssuer.setEntry(entry);
@@ -98,6 +118,7 @@ public class TreasuryDevService {
         creditIssuer.setSide(Side.CREDIT);
         creditIssuer.setAmountMinor(amount);
         creditIssuer.setCurrency(USD);
+        creditIssuer.setCreatedAt(entry.getCreatedAt());
 
         journalLineRepository.saveAll(List.of(debitTreasury, creditIssuer));
     }
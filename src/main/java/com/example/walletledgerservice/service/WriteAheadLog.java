@@ -0,0 +1,322 @@
+package com.example.walletledgerservice.service;
+
+import com.example.walletledgerservice.domain.repository.LedgerJdbcRepository.TransferRow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local write-ahead log of the ledger engine: postings appended to pre-allocated, memory-mapped segment files
+ * and forced to disk before their clients get a reply.
+ * <p>
+ * A segment is {@code wal-<first sequence>.log}, a 16-byte header (magic, version, first sequence) followed by
+ * records {@code [int payload length][int crc32][long sequence][payload]}; the CRC covers the sequence and the
+ * payload. Records of a segment are numbered from its first sequence without gaps, so reading stops at the
+ * first record whose length, CRC or sequence is off: the tail a crash tore, or what is left of the segment's
+ * previous life. Segments released as flushed are kept as a spare and reused instead of allocating a new file.
+ * <p>
+ * One thread appends and forces; {@link #release} may be called from another.
+ */
+public final class WriteAheadLog implements AutoCloseable {
+
+    static final int MAGIC = 0x4C57414C;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 4 + 4 + 8;
+    static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private static final Pattern FILE = Pattern.compile("wal-(\\d{20})\\.log");
+    private static final String SPARE = "wal-spare.tmp";
+    private static final byte[] ZEROS = new byte[1 << 20];
+
+    public record Record(long sequence, TransferRow row) {}
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final List<Record> recovered;
+    /** Guarded by {@code this}: segments not released yet, oldest first; the last one is {@link #current}. */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private Segment current;
+    private long nextSequence;
+
+    private static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        int position = HEADER_BYTES;
+        int forcedTo;
+        long lastSequence;
+
+        Segment(Path path, MappedByteBuffer buffer, long firstSequence) {
+            this.path = path;
+            this.buffer = buffer;
+            this.lastSequence = firstSequence - 1;
+        }
+    }
+
+    private WriteAheadLog(Path directory, int segmentBytes, List<Record> recovered) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.recovered = recovered;
+    }
+
+    /**
+     * Opens the log in {@code directory}: reads the valid records of every existing segment (see
+     * {@link #recovered}) and starts a new segment after them. The old segments stay until released.
+     */
+    public static WriteAheadLog open(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes < MIN_SEGMENT_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("WAL segment size must be between 64KB and 2GB: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(f -> FILE.matcher(f.getFileName().toString()).matches()).sorted().toList();
+        }
+
+        List<Record> recovered = new ArrayList<>();
+        WriteAheadLog wal = new WriteAheadLog(directory, (int) segmentBytes, Collections.unmodifiableList(recovered));
+        long next = 1;
+        for (Path file : files) {
+            Matcher m = FILE.matcher(file.getFileName().toString());
+            if (!m.matches()) continue;
+            long first = Long.parseLong(m.group(1));
+            Segment segment = wal.read(file, first, recovered);
+            next = Math.max(next, Math.max(first, segment.lastSequence + 1));
+            if (segment.lastSequence < first) {
+                Files.delete(file);
+            } else {
+                wal.segments.add(segment);
+            }
+        }
+        wal.nextSequence = next;
+        wal.roll();
+        return wal;
+    }
+
+    /** Records found in the segments at {@link #open}, in sequence order; they are not in Postgres for sure. */
+    public List<Record> recovered() {
+        return recovered;
+    }
+
+    /** Writes a record into the mapped segment; it is durable after the next {@link #force}. */
+    public long append(TransferRow row) {
+        byte[] payload = encode(row);
+        int size = RECORD_HEADER_BYTES + payload.length;
+        if (size > segmentBytes - HEADER_BYTES) {
+            throw new IllegalArgumentException("WAL record of " + size + " bytes does not fit a segment");
+        }
+        if (current.position + size > segmentBytes) {
+            force();
+            roll();
+        }
+        long sequence = nextSequence++;
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, sequence));
+        crc.update(payload);
+
+        MappedByteBuffer b = current.buffer;
+        int at = current.position;
+        b.putInt(at, payload.length);
+        b.putInt(at + 4, (int) crc.getValue());
+        b.putLong(at + 8, sequence);
+        b.put(at + RECORD_HEADER_BYTES, payload);
+        current.position = at + size;
+        current.lastSequence = sequence;
+        return sequence;
+    }
+
+    /** Forces everything appended since the last call to disk. */
+    public void force() {
+        Segment s = current;
+        if (s.position == s.forcedTo) return;
+        s.buffer.force(s.forcedTo, s.position - s.forcedTo);
+        s.forcedTo = s.position;
+    }
+
+    /**
+     * Gives up the segments whose records all have a sequence up to {@code flushedSequence}: the newest
+     * becomes the spare for the next roll, the others are deleted. The current segment is never released.
+     */
+    public synchronized void release(long flushedSequence) {
+        Iterator<Segment> it = segments.iterator();
+        while (it.hasNext()) {
+            Segment s = it.next();
+            if (s == current || s.lastSequence > flushedSequence) break;
+            it.remove();
+            try {
+                Files.move(s.path, directory.resolve(SPARE), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot release WAL segment " + s.path, e);
+            }
+        }
+    }
+
+    /** Sequence the next record will get. */
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    /** Starts a segment at {@link #nextSequence}, from the spare if there is one, and makes its name durable. */
+    private synchronized void roll() {
+        Path path = directory.resolve("wal-%020d.log".formatted(nextSequence));
+        Path spare = directory.resolve(SPARE);
+        try {
+            if (Files.exists(spare) && Files.size(spare) == segmentBytes) {
+                Files.move(spare, path, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                allocate(path);
+            }
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            }
+            buffer.putInt(0, MAGIC).putShort(4, VERSION).putShort(6, (short) 0).putLong(8, nextSequence);
+            // a reused segment still holds records of its previous life; the first one must not look valid
+            buffer.putInt(HEADER_BYTES, 0);
+            buffer.force(0, HEADER_BYTES + 4);
+            syncDirectory();
+            current = new Segment(path, buffer, nextSequence);
+            segments.add(current);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start WAL segment " + path, e);
+        }
+    }
+
+    /** Writes the whole file with zeros, so appends never extend it and forcing a record forces no metadata. */
+    private void allocate(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long written = 0; written < segmentBytes; ) {
+                written += channel.write(ByteBuffer.wrap(ZEROS, 0, (int) Math.min(ZEROS.length, segmentBytes - written)));
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // not every platform can open a directory; the segment name is then as durable as the OS makes it
+        }
+    }
+
+    private Segment read(Path file, long firstSequence, List<Record> into) throws IOException {
+        ByteBuffer b;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Segment segment = new Segment(file, null, firstSequence);
+        if (b.capacity() < HEADER_BYTES || b.getInt(0) != MAGIC || b.getShort(4) != VERSION
+                || b.getLong(8) != firstSequence) {
+            return segment;
+        }
+        int at = HEADER_BYTES;
+        long expected = firstSequence;
+        while (at + RECORD_HEADER_BYTES <= b.capacity()) {
+            int length = b.getInt(at);
+            if (length <= 0 || at + RECORD_HEADER_BYTES + length > b.capacity()) break;
+            long sequence = b.getLong(at + 8);
+            if (sequence != expected) break;
+            byte[] payload = new byte[length];
+            b.get(at + RECORD_HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(ByteBuffer.allocate(8).putLong(0, sequence));
+            crc.update(payload);
+            if ((int) crc.getValue() != b.getInt(at + 4)) break;
+
+            into.add(new Record(sequence, decode(payload)));
+            segment.lastSequence = sequence;
+            expected++;
+            at += RECORD_HEADER_BYTES + length;
+        }
+        return segment;
+    }
+
+    static byte[] encode(TransferRow r) {
+        byte[] key = bytes(r.idempotencyKey());
+        byte[] description = bytes(r.description());
+        byte[] externalRef = bytes(r.externalRef());
+        byte[] currency = r.currency().getBytes(StandardCharsets.US_ASCII);
+        if (currency.length != 3) throw new IllegalArgumentException("currency must have 3 letters: " + r.currency());
+        ByteBuffer b = ByteBuffer.allocate(5 * 8 + 3 + 3 * 4 + length(key) + length(description) + length(externalRef));
+        b.putLong(r.entryId())
+                .putLong(JournalSegment.toMicros(r.createdAt()))
+                .putLong(r.fromAccountId())
+                .putLong(r.toAccountId())
+                .putLong(r.amountMinor())
+                .put(currency);
+        putString(b, key);
+        putString(b, description);
+        putString(b, externalRef);
+        return b.array();
+    }
+
+    static TransferRow decode(byte[] payload) {
+        ByteBuffer b = ByteBuffer.wrap(payload);
+        long entryId = b.getLong();
+        long createdAt = b.getLong();
+        long from = b.getLong();
+        long to = b.getLong();
+        long amount = b.getLong();
+        byte[] currency = new byte[3];
+        b.get(currency);
+        String key = getString(b);
+        String description = getString(b);
+        String externalRef = getString(b);
+        return new TransferRow(entryId, key, description, externalRef, JournalSegment.fromMicros(createdAt),
+                from, to, amount, new String(currency, StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer b, byte[] bytes) {
+        if (bytes == null) {
+            b.putInt(-1);
+        } else {
+            b.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer b) {
+        int length = b.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
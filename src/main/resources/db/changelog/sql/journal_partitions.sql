@@ -0,0 +1,138 @@
+-- Monthly range partitions of journal_entry and journal_line by created_at, named <table>_YYYY_MM (changeset 011).
+-- A line carries the created_at of its entry, so an entry and its lines always live in the same month.
+
+-- Creates the missing partitions of both tables for every month overlapping [p_from, p_to); returns how many.
+CREATE OR REPLACE FUNCTION wallet_schema.create_journal_partitions(p_from TIMESTAMP, p_to TIMESTAMP)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+    SET search_path = wallet_schema
+AS
+$$
+DECLARE
+    v_month   TIMESTAMP := date_trunc('month', p_from);
+    v_table   TEXT;
+    v_created INTEGER := 0;
+BEGIN
+    -- instances run this concurrently at startup
+    PERFORM pg_advisory_xact_lock(hashtext('wallet_schema.journal_partitions'));
+    WHILE v_month < p_to LOOP
+        FOREACH v_table IN ARRAY ARRAY ['journal_entry', 'journal_line'] LOOP
+            IF to_regclass(v_table || '_' || to_char(v_month, 'YYYY_MM')) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                               v_table || '_' || to_char(v_month, 'YYYY_MM'), v_table,
+                               v_month, v_month + INTERVAL '1 month');
+                v_created := v_created + 1;
+            END IF;
+        END LOOP;
+        v_month := v_month + INTERVAL '1 month';
+    END LOOP;
+    RETURN v_created;
+END;
+$$;
+
+-- Attached partitions of p_table whose month ends on or before p_before, oldest first.
+CREATE OR REPLACE FUNCTION wallet_schema.journal_partitions_before(p_table TEXT, p_before TIMESTAMP)
+    RETURNS TABLE (name TEXT, upper_bound TIMESTAMP)
+    LANGUAGE sql
+    STABLE
+    SET search_path = wallet_schema
+AS
+$$
+SELECT p.name, p.upper_bound
+FROM (SELECT c.relname::TEXT AS name,
+             to_timestamp(right(c.relname, 7), 'YYYY_MM')::TIMESTAMP + INTERVAL '1 month' AS upper_bound
+      FROM pg_inherits i
+      JOIN pg_class c ON c.oid = i.inhrelid
+      WHERE i.inhparent = p_table::regclass) p
+WHERE p.upper_bound <= p_before
+ORDER BY p.name;
+$$;
+
+-- Detaches every partition of both tables whose month ends on or before p_before, in one transaction,
+-- and returns their names. They stay behind as plain tables, to be archived or dropped.
+-- First the signed sum of the lines per account in those partitions is added to journal_retired_balance,
+-- so reconciliation and balance snapshots still account for the whole history; only then are the
+-- partitions detached, so postings wait for the exclusive lock on the parents only briefly.
+CREATE OR REPLACE FUNCTION wallet_schema.detach_journal_partitions(p_before TIMESTAMP)
+    RETURNS SETOF TEXT
+    LANGUAGE plpgsql
+    SET search_path = wallet_schema
+AS
+$$
+DECLARE
+    v_table     TEXT;
+    v_partition RECORD;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('wallet_schema.journal_partitions'));
+    FOR v_partition IN SELECT * FROM journal_partitions_before('journal_line', p_before) LOOP
+        EXECUTE format($sql$
+            INSERT INTO journal_retired_balance (account_id, balance_minor, retired_before)
+            SELECT account_id, SUM(CASE side WHEN 'DEBIT' THEN amount_minor ELSE -amount_minor END), %L
+            FROM %I
+            GROUP BY account_id
+            ON CONFLICT (account_id) DO UPDATE
+                SET balance_minor  = journal_retired_balance.balance_minor + EXCLUDED.balance_minor,
+                    retired_before = GREATEST(journal_retired_balance.retired_before, EXCLUDED.retired_before)
+            $sql$, v_partition.upper_bound, v_partition.name);
+    END LOOP;
+
+    FOREACH v_table IN ARRAY ARRAY ['journal_line', 'journal_entry'] LOOP
+        FOR v_partition IN SELECT * FROM journal_partitions_before(v_table, p_before) LOOP
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', v_table, v_partition.name);
+            RETURN NEXT v_partition.name;
+        END LOOP;
+    END LOOP;
+END;
+$$;
+
+-- Every writer of journal_entry gets its key into journal_entry_key through this trigger; a taken key fails
+-- the insert with a unique violation. insert_journal_entry_if_absent claims the key itself, then inserts.
+CREATE OR REPLACE FUNCTION wallet_schema.journal_entry_claim_key()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    PERFORM 1 FROM wallet_schema.journal_entry_key
+    WHERE idempotency_key = NEW.idempotency_key AND entry_id = NEW.id;
+    IF NOT FOUND THEN
+        INSERT INTO wallet_schema.journal_entry_key (idempotency_key, entry_id, created_at)
+        VALUES (NEW.idempotency_key, NEW.id, NEW.created_at);
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+-- Inserts an entry unless its idempotency key is taken; returns the new id or null.
+-- ON CONFLICT on the key table waits for a concurrent claim of the same key and leaves the transaction usable.
+CREATE OR REPLACE FUNCTION wallet_schema.insert_journal_entry_if_absent(
+    p_key          VARCHAR,
+    p_description  VARCHAR,
+    p_external_ref VARCHAR,
+    p_created_at   TIMESTAMP,
+    p_from         BIGINT,
+    p_to           BIGINT,
+    p_amount       BIGINT,
+    p_currency     VARCHAR)
+    RETURNS BIGINT
+    LANGUAGE plpgsql
+    SET search_path = wallet_schema
+AS
+$$
+DECLARE
+    v_id BIGINT;
+BEGIN
+    INSERT INTO journal_entry_key (idempotency_key, entry_id, created_at)
+    VALUES (p_key, nextval('journal_entry_seq'), p_created_at)
+    ON CONFLICT (idempotency_key) DO NOTHING
+    RETURNING entry_id INTO v_id;
+    IF v_id IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    INSERT INTO journal_entry (id, idempotency_key, description, external_ref, created_at,
+                               from_account_id, to_account_id, amount_minor, currency)
+    VALUES (v_id, p_key, p_description, p_external_ref, p_created_at, p_from, p_to, p_amount, p_currency);
+    RETURN v_id;
+END;
+$$;
@@ -0,0 +1,127 @@
+-- Posts one transfer in a single call: idempotency check, ordered account locks, currency and funds checks,
+-- entry + lines insert and both balance updates. Mirrors TransferService's JPA path.
+-- o_status: POSTED, REPLAYED, NOT_FOUND, INVALID (o_reason holds the check that failed, CURRENCY_MISMATCH or
+-- INSUFFICIENT_FUNDS, and o_detail the message), SHARDED
+-- (nothing written, the caller posts through the shard-aware JPA path) or RETIRED (the key belongs to an entry
+-- whose partition has been detached). o_from_version and o_to_version are the account row versions a POSTED
+-- transfer committed.
+-- Dropped first: CREATE OR REPLACE cannot change the OUT columns of an existing function.
+DROP FUNCTION IF EXISTS wallet_schema.post_transfer(VARCHAR, BIGINT, BIGINT, BIGINT, VARCHAR, VARCHAR, VARCHAR);
+
+CREATE FUNCTION wallet_schema.post_transfer(
+    p_key          VARCHAR,
+    p_from         BIGINT,
+    p_to           BIGINT,
+    p_amount       BIGINT,
+    p_currency     VARCHAR,
+    p_description  VARCHAR,
+    p_external_ref VARCHAR,
+    OUT o_status       TEXT,
+    OUT o_detail       TEXT,
+    OUT o_reason       TEXT,
+    OUT o_entry_id     BIGINT,
+    OUT o_from         BIGINT,
+    OUT o_to           BIGINT,
+    OUT o_amount       BIGINT,
+    OUT o_currency     VARCHAR,
+    OUT o_created_at   TIMESTAMP,
+    OUT o_description  VARCHAR,
+    OUT o_external_ref VARCHAR,
+    OUT o_from_version BIGINT,
+    OUT o_to_version   BIGINT)
+    LANGUAGE plpgsql
+    SET search_path = wallet_schema
+AS
+$$
+DECLARE
+    v_from account%ROWTYPE;
+    v_to   account%ROWTYPE;
+BEGIN
+    SELECT 'REPLAYED', e.id, e.from_account_id, e.to_account_id, e.amount_minor, e.currency,
+           e.created_at, e.description, e.external_ref
+    INTO o_status, o_entry_id, o_from, o_to, o_amount, o_currency, o_created_at, o_description, o_external_ref
+    FROM journal_entry_key k
+    JOIN journal_entry e ON e.id = k.entry_id AND e.created_at = k.created_at
+    WHERE k.idempotency_key = p_key;
+    IF FOUND THEN
+        RETURN;
+    END IF;
+
+    -- same lock order as the JPA path: ascending account id
+    IF p_from < p_to THEN
+        SELECT * INTO v_from FROM account WHERE id = p_from FOR UPDATE;
+        SELECT * INTO v_to FROM account WHERE id = p_to FOR UPDATE;
+    ELSE
+        SELECT * INTO v_to FROM account WHERE id = p_to FOR UPDATE;
+        SELECT * INTO v_from FROM account WHERE id = p_from FOR UPDATE;
+    END IF;
+
+    IF v_from.id IS NULL OR v_to.id IS NULL THEN
+        o_status := 'NOT_FOUND';
+        o_detail := 'Account not found: id=' || CASE WHEN v_from.id IS NULL THEN p_from ELSE p_to END;
+        RETURN;
+    END IF;
+
+    IF v_from.shard_count > 0 OR v_to.shard_count > 0 THEN
+        o_status := 'SHARDED';
+        RETURN;
+    END IF;
+
+    IF upper(v_from.currency) <> upper(p_currency) THEN
+        o_status := 'INVALID';
+        o_reason := 'CURRENCY_MISMATCH';
+        o_detail := format('fromAccountId has currency %s, expected %s', v_from.currency, p_currency);
+        RETURN;
+    END IF;
+    IF upper(v_to.currency) <> upper(p_currency) THEN
+        o_status := 'INVALID';
+        o_reason := 'CURRENCY_MISMATCH';
+        o_detail := format('toAccountId has currency %s, expected %s', v_to.currency, p_currency);
+        RETURN;
+    END IF;
+    IF v_from.balance_minor < p_amount THEN
+        o_status := 'INVALID';
+        o_reason := 'INSUFFICIENT_FUNDS';
+        o_detail := 'Insufficient funds';
+        RETURN;
+    END IF;
+
+    o_created_at := LOCALTIMESTAMP;
+    o_entry_id := insert_journal_entry_if_absent(p_key, p_description, p_external_ref, o_created_at,
+                                                 p_from, p_to, p_amount, p_currency);
+
+    IF o_entry_id IS NULL THEN
+        -- the key was posted by a concurrent call after our first lookup
+        SELECT 'REPLAYED', e.id, e.from_account_id, e.to_account_id, e.amount_minor, e.currency,
+               e.created_at, e.description, e.external_ref
+        INTO o_status, o_entry_id, o_from, o_to, o_amount, o_currency, o_created_at, o_description, o_external_ref
+        FROM journal_entry_key k
+        JOIN journal_entry e ON e.id = k.entry_id AND e.created_at = k.created_at
+        WHERE k.idempotency_key = p_key;
+        IF NOT FOUND THEN
+            -- the key is taken by an entry in a detached partition
+            o_status := 'RETIRED';
+        END IF;
+        RETURN;
+    END IF;
+
+    -- CREDIT line on the sender (balance goes down), DEBIT line on the receiver (balance goes up)
+    INSERT INTO journal_line (journal_entry_id, account_id, amount_minor, side, currency, created_at)
+    VALUES (o_entry_id, p_from, p_amount, 'CREDIT', p_currency, o_created_at),
+           (o_entry_id, p_to, p_amount, 'DEBIT', p_currency, o_created_at);
+
+    -- version is bumped like Hibernate's @Version update would
+    UPDATE account SET balance_minor = balance_minor - p_amount, version = version + 1 WHERE id = p_from
+    RETURNING version INTO o_from_version;
+    UPDATE account SET balance_minor = balance_minor + p_amount, version = version + 1 WHERE id = p_to
+    RETURNING version INTO o_to_version;
+
+    o_status := 'POSTED';
+    o_from := p_from;
+    o_to := p_to;
+    o_amount := p_amount;
+    o_currency := p_currency;
+    o_description := p_description;
+    o_external_ref := p_external_ref;
+END;
+$$;
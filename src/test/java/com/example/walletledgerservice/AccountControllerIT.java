@@ -1,17 +1,31 @@
 package com.example.walletledgerservice;
 
 import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.service.AccountReadCache;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 public class AccountControllerIT extends IntegrationTestBase {
 
-    static final String ACCOUNT_URL = "/api/v1/accounts";
     static final Long OWNER_ID = 42L;
     static final String USD_CURRENCY = "USD";
 
+    @Autowired
+    AccountReadCache accountReadCache;
+
     @Test
     void create_returns201_andBody() throws Exception {
         var body = new CreateAccountRequest(OWNER_ID, "usd");
@@ -56,11 +70,94 @@ public class AccountControllerIT extends IntegrationTestBase {
                 .andExpect(jsonPath("$.code").value("NOT_FOUND"));
     }
 
-    private long createAccount(Long ownerId, String currency) throws Exception {
-        var body = new CreateAccountRequest(ownerId, currency);
-        var res = postJson(ACCOUNT_URL, body)
-                .andExpect(status().isCreated())
+    @Test
+    void get_unchangedVersion_returns304_andPostingChangesTheETag() throws Exception {
+        long id = createAccount(OWNER_ID, USD_CURRENCY);
+        long other = createAccount(OWNER_ID + 1, USD_CURRENCY);
+        mintUsd(id, 500L);
+
+        String etag = getJson(ACCOUNT_URL + "/{id}", id)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balanceMinor").value(500))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotBlank();
+
+        getJson(ACCOUNT_URL + "/" + id, Map.of("If-None-Match", etag), null)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        // the posting invalidates the cached account after commit
+        transfer(id, other, 200L);
+        String posted = getJson(ACCOUNT_URL + "/" + id, Map.of("If-None-Match", etag), null)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balanceMinor").value(300))
+                .andExpect(header().string("ETag", not(etag)))
+                .andReturn().getResponse().getHeader("ETag");
+        // that read has the version the posting reported, so it is cached again
+        assertThat(accountReadCache.get(id).etag()).isEqualTo(posted);
+    }
+
+    @Test
+    void lines_pageByCursor_newestFirst_withoutGapsOrRepeats() throws Exception {
+        long id = createAccount(OWNER_ID, USD_CURRENCY);
+        long other = createAccount(OWNER_ID + 1, USD_CURRENCY);
+        mintUsd(id, 1_000L);
+        for (int i = 1; i <= 4; i++) {
+            transfer(id, other, i);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            JsonNode page = statement(id, cursor == null ? "" : "cursor=" + cursor, "limit=2");
+            page.get("lines").forEach(l -> seen.add(l.get("lineId").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asLong();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void lines_filterBySideAndDate() throws Exception {
+        long id = createAccount(OWNER_ID, USD_CURRENCY);
+        long other = createAccount(OWNER_ID + 1, USD_CURRENCY);
+        mintUsd(id, 1_000L);
+        transfer(id, other, 300L);
+
+        JsonNode debits = statement(id, "side=DEBIT");
+        assertThat(debits.get("lines")).hasSize(1);
+        assertThat(debits.get("lines").get(0).get("amountMinor").asLong()).isEqualTo(1_000L);
+
+        JsonNode credits = statement(id, "side=CREDIT");
+        assertThat(credits.get("lines")).hasSize(1);
+        assertThat(credits.get("lines").get(0).get("amountMinor").asLong()).isEqualTo(300L);
+        assertThat(credits.get("lines").get(0).get("createdAt").isNull()).isFalse();
+
+        String hourAgo = OffsetDateTime.now(ZoneOffset.UTC).minusHours(1).toString();
+        String inHour = OffsetDateTime.now(ZoneOffset.UTC).plusHours(1).toString();
+        assertThat(statement(id, "from=" + hourAgo, "to=" + inHour).get("lines")).hasSize(2);
+        assertThat(statement(id, "from=" + inHour).get("lines")).isEmpty();
+    }
+
+    @Test
+    void lines_unknownAccount_returns404_badLimit_returns400() throws Exception {
+        long id = createAccount(OWNER_ID, USD_CURRENCY);
+
+        getJson(ACCOUNT_URL + "/{id}/lines", Long.MAX_VALUE)
+                .andExpect(status().isNotFound());
+        getJson(ACCOUNT_URL + "/{id}/lines?limit=0", id)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"));
+    }
+
+    private JsonNode statement(long accountId, String... query) throws Exception {
+        var res = getJson(ACCOUNT_URL + "/" + accountId + "/lines?" + String.join("&", query))
+                .andExpect(status().isOk())
                 .andReturn();
-        return objectMapper.readTree(res.getResponse().getContentAsString()).get("id").asLong();
+        return objectMapper.readTree(res.getResponse().getContentAsString());
     }
 }
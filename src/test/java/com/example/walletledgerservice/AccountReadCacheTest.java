@@ -0,0 +1,109 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.AccountDto;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.AccountCacheProperties;
+import com.example.walletledgerservice.service.AccountReadCache;
+import com.example.walletledgerservice.service.AccountReadCache.Versioned;
+import com.example.walletledgerservice.service.TransferCompletedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountReadCacheTest {
+
+    @Test
+    void get_afterPut_hits_andPostingInvalidatesBothAccounts() {
+        var cache = new AccountReadCache(new AccountCacheProperties());
+        cache.put(account(1L, 100L, 3L), cache.stamp());
+        cache.put(account(2L, 0L, 1L), cache.stamp());
+
+        assertThat(cache.get(1L)).isEqualTo(account(1L, 100L, 3L));
+        assertThat(cache.get(1L).etag()).isEqualTo("\"3\"");
+        cache.onTransferCompleted(new TransferCompletedEvent("k", transfer(1L, 2L), false));
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void replay_keepsTheAccounts() {
+        var cache = new AccountReadCache(new AccountCacheProperties());
+        cache.put(account(1L, 100L, 3L), cache.stamp());
+
+        cache.onTransferCompleted(new TransferCompletedEvent("k", transfer(1L, 2L), true));
+
+        assertThat(cache.get(1L)).isNotNull();
+    }
+
+    @Test
+    void readStartedBeforeAnInvalidation_isNotCached() {
+        var cache = new AccountReadCache(new AccountCacheProperties());
+        long stamp = cache.stamp();
+        // a posting commits while the read is in flight; the read may hold the old balance
+        cache.invalidate(1L);
+
+        cache.put(account(1L, 100L, 3L), stamp);
+        assertThat(cache.get(1L)).isNull();
+
+        cache.put(account(1L, 90L, 4L), cache.stamp());
+        assertThat(cache.get(1L)).isEqualTo(account(1L, 90L, 4L));
+    }
+
+    @Test
+    void readOlderThanThePostedVersion_isNotCached() {
+        var cache = new AccountReadCache(new AccountCacheProperties());
+        cache.onTransferCompleted(new TransferCompletedEvent("k", transfer(1L, 2L), false, Map.of(1L, 4L)));
+
+        // started after the invalidation, but served by a replica that has not replayed the posting yet
+        cache.put(account(1L, 100L, 3L), cache.stamp());
+        assertThat(cache.get(1L)).isNull();
+        // a later posting without a version keeps the floor
+        cache.invalidate(1L);
+        cache.put(account(1L, 100L, 3L), cache.stamp());
+        assertThat(cache.get(1L)).isNull();
+
+        cache.put(account(1L, 90L, 4L), cache.stamp());
+        assertThat(cache.get(1L)).isEqualTo(account(1L, 90L, 4L));
+    }
+
+    @Test
+    void olderVersion_doesNotReplaceANewerOne_andShardedAccountsAreNotCached() {
+        var cache = new AccountReadCache(new AccountCacheProperties());
+        cache.put(account(1L, 90L, 4L), cache.stamp());
+        cache.put(account(1L, 100L, 3L), cache.stamp());
+        cache.put(new Versioned(new AccountDto(5L, 1L, "USD", 10L), null), cache.stamp());
+
+        assertThat(cache.get(1L).version()).isEqualTo(4L);
+        assertThat(cache.get(5L)).isNull();
+    }
+
+    @Test
+    void put_overMaxEntries_evictsLeastRecentlyUsed() {
+        var props = new AccountCacheProperties();
+        props.setMaxEntries(2);
+        var cache = new AccountReadCache(props);
+
+        cache.put(account(1L, 0L, 1L), cache.stamp());
+        cache.put(account(2L, 0L, 1L), cache.stamp());
+        cache.get(1L);
+        cache.put(account(3L, 0L, 1L), cache.stamp());
+
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(1L)).isNotNull();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    private static Versioned account(long id, long balance, long version) {
+        return new Versioned(new AccountDto(id, 100 + id, "USD", balance), version);
+    }
+
+    private static TransferResponse transfer(long from, long to) {
+        return new TransferResponse(1L, from, to, 10L, "USD", OffsetDateTime.now(), null, null);
+    }
+}
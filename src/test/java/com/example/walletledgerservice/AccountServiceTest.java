@@ -4,6 +4,7 @@ import com.example.walletledgerservice.api.dto.AccountDto;
 import com.example.walletledgerservice.api.dto.CreateAccountRequest;
 import com.example.walletledgerservice.domain.model.AccountEntity;
 import com.example.walletledgerservice.domain.repository.AccountRepository;
+import com.example.walletledgerservice.domain.repository.AccountShardRepository;
 import com.example.walletledgerservice.exception.ConflictException;
 import com.example.walletledgerservice.exception.NotFoundException;
 import com.example.walletledgerservice.service.AccountService;
@@ -27,6 +28,9 @@ public class AccountServiceTest {
     @Mock
     AccountRepository accountRepository;
 
+    @Mock
+    AccountShardRepository accountShardRepository;
+
     @InjectMocks
     AccountService accountService;
 
@@ -106,6 +110,22 @@ public class AccountServiceTest {
         assertThat(dto.balanceMinor()).isEqualTo(123);
     }
 
+    @Test
+    void get_sharded_returnsSumOfShards() {
+        var e = new AccountEntity();
+        e.setId(ACCOUNT_ID);
+        e.setOwnerId(OWNER_ID);
+        e.setCurrency(USD_CURRENCY);
+        e.setShardCount(4);
+
+        when(accountRepository.findById(ACCOUNT_ID)).thenReturn(Optional.of(e));
+        when(accountShardRepository.sumBalance(ACCOUNT_ID)).thenReturn(1_000L);
+
+        AccountDto dto = accountService.get(ACCOUNT_ID);
+
+        assertThat(dto.balanceMinor()).isEqualTo(1_000L);
+    }
+
     @Test
     void get_notFound_throwsNoSuchElement() {
         when(accountRepository.findById(Long.MAX_VALUE)).thenReturn(Optional.empty());
@@ -0,0 +1,93 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.config.AdmissionProperties;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import com.example.walletledgerservice.service.AdmissionControl;
+import com.example.walletledgerservice.service.AdmissionControl.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdmissionControlTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void disabled_runsEverything() {
+        var props = properties();
+        props.setEnabled(false);
+        props.setPostPermits(0);
+        var admission = new AdmissionControl(props, registry);
+
+        assertThat(admission.call(Lane.POST, () -> "done")).isEqualTo("done");
+    }
+
+    @Test
+    void fullLane_answers503_whileOtherLanesStillAdmit() throws Exception {
+        var admission = new AdmissionControl(properties(), registry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slowPost = CompletableFuture.supplyAsync(() -> admission.call(Lane.POST, () -> {
+            holding.countDown();
+            await(release);
+            return "posted";
+        }), executor);
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> admission.call(Lane.POST, () -> "second post"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("post");
+        assertThat(admission.call(Lane.REPLAY, () -> "replayed")).isEqualTo("replayed");
+        assertThat(admission.call(Lane.READ, () -> "read")).isEqualTo("read");
+
+        release.countDown();
+        assertThat(slowPost.get(5, TimeUnit.SECONDS)).isEqualTo("posted");
+        assertThat(registry.get("ledger.admission.rejected").tag("lane", "post").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void permit_isReleased_whenWorkThrows() {
+        var admission = new AdmissionControl(properties(), registry);
+
+        assertThatThrownBy(() -> admission.call(Lane.POST, () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(admission.call(Lane.POST, () -> "next")).isEqualTo("next");
+        assertThat(registry.get("ledger.admission.in.flight").tag("lane", "post").gauge().value()).isZero();
+    }
+
+    private static AdmissionProperties properties() {
+        var props = new AdmissionProperties();
+        props.setEnabled(true);
+        props.setReadPermits(1);
+        props.setReplayPermits(1);
+        props.setPostPermits(1);
+        props.setMaxWait(Duration.ofMillis(50));
+        return props;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
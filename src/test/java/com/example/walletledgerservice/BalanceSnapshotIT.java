@@ -0,0 +1,87 @@
+package com.example.walletledgerservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = "ledger.snapshot.lag=0s")
+public class BalanceSnapshotIT extends IntegrationTestBase {
+
+    static final String SNAPSHOT_URL = "/api/v1/admin/balance-snapshots";
+
+    @Test
+    void balanceAsOf_combinesNearestSnapshotWithLaterLines() throws Exception {
+        long a = createAccount(6101L);
+        long b = createAccount(6102L);
+        mintUsd(a, 1_000L);
+        transfer(a, b, 300L);
+        String beforeSnapshot = OffsetDateTime.now(ZoneOffset.UTC).toString();
+
+        JsonNode round = takeSnapshots();
+        // both accounts, the treasury and the issuer
+        assertThat(round.get("accountsSnapshotted").asLong()).isEqualTo(4L);
+
+        transfer(a, b, 100L);
+
+        JsonNode past = balance(a, beforeSnapshot);
+        assertThat(past.get("balanceMinor").asLong()).isEqualTo(700L);
+        assertThat(past.get("snapshotAsOf").isNull()).isTrue();
+
+        JsonNode now = balance(a, null);
+        assertThat(now.get("balanceMinor").asLong()).isEqualTo(600L);
+        assertThat(now.get("snapshotAsOf").isNull()).isFalse();
+        assertThat(now.get("linesAfterSnapshot").asLong()).isEqualTo(1L);
+        assertThat(balance(b, null).get("balanceMinor").asLong()).isEqualTo(400L);
+    }
+
+    @Test
+    void nextRound_snapshotsOnlyAccountsWithNewLines_fromTheirLastSnapshot() throws Exception {
+        long a = createAccount(6201L);
+        long b = createAccount(6202L);
+        long idle = createAccount(6203L);
+        mintUsd(a, 1_000L);
+        mintUsd(idle, 50L);
+        takeSnapshots();
+
+        transfer(a, b, 250L);
+        JsonNode round = takeSnapshots();
+        assertThat(round.get("accountsSnapshotted").asLong()).isEqualTo(2L);
+
+        Long snapshotted = jdbc.queryForObject("""
+                SELECT balance_minor FROM wallet_schema.account_balance_snapshot
+                WHERE account_id = ? ORDER BY as_of DESC LIMIT 1
+                """, Long.class, a);
+        assertThat(snapshotted).isEqualTo(750L);
+
+        JsonNode current = balance(a, null);
+        assertThat(current.get("balanceMinor").asLong()).isEqualTo(750L);
+        assertThat(current.get("linesAfterSnapshot").asLong()).isZero();
+        assertThat(balance(idle, null).get("balanceMinor").asLong()).isEqualTo(50L);
+    }
+
+    @Test
+    void balance_unknownAccount_returns404() throws Exception {
+        getJson(ACCOUNT_URL + "/{id}/balance", Long.MAX_VALUE)
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode takeSnapshots() throws Exception {
+        return readJson(postJson(SNAPSHOT_URL, Map.of())
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
+    private JsonNode balance(long accountId, String asOf) throws Exception {
+        return readJson(getJson(ACCOUNT_URL + "/" + accountId + "/balance", null,
+                asOf == null ? Map.of() : Map.of("asOf", asOf))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Single transfers grouped into shared transactions by the transfer coalescer.
+ */
+@TestPropertySource(properties = {
+        "ledger.coalescer.enabled=true",
+        "ledger.coalescer.window=20ms",
+        "ledger.coalescer.workers=2"
+})
+public class CoalescedTransferIT extends IntegrationTestBase {
+
+    static final String STATS_URL = "/api/v1/admin/transfer-coalescer";
+
+    @Test
+    void concurrentTransfers_areGrouped_andKeepTotals() throws Exception {
+        long a = createAccount(3101L);
+        long b = createAccount(3102L);
+        mintUsd(a, 10_000L);
+        mintUsd(b, 10_000L);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Integer>> codes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long from = i % 2 == 0 ? a : b;
+            long to = from == a ? b : a;
+            codes.add(pool.submit(() -> postJson(TRANSFER_URL,
+                    new TransferRequest(from, to, 7L, USED_CURRENCY, null, null), idemHeader())
+                    .andReturn().getResponse().getStatus()));
+        }
+        for (Future<Integer> c : codes) assertThat(c.get()).isEqualTo(201);
+        pool.shutdown();
+
+        assertThat(getBalance(a) + getBalance(b)).isEqualTo(20_000L);
+        assertThat(getBalance(a)).isEqualTo(10_000L);
+
+        MvcResult stats = getJson(STATS_URL).andExpect(status().isOk()).andReturn();
+        JsonNode json = objectMapper.readTree(stats.getResponse().getContentAsString());
+        assertThat(json.get("running").asBoolean()).isTrue();
+        assertThat(json.get("transfers").asLong()).isGreaterThanOrEqualTo(200L);
+        assertThat(json.get("batches").asLong()).isLessThan(json.get("transfers").asLong());
+    }
+
+    @Test
+    void insufficientFunds_failsAlone_andReplayReturnsSameEntry() throws Exception {
+        long from = createAccount(3201L);
+        long to = createAccount(3202L);
+        mintUsd(from, 100L);
+
+        Map<String, String> key = idemHeader();
+        MvcResult first = postJson(TRANSFER_URL, new TransferRequest(from, to, 60L, USED_CURRENCY, null, null), key)
+                .andExpect(status().isCreated())
+                .andReturn();
+        long entryId = objectMapper.readTree(first.getResponse().getContentAsString()).get("journalEntryId").asLong();
+
+        postJson(TRANSFER_URL, new TransferRequest(from, to, 60L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("Insufficient funds"));
+
+        postJson(TRANSFER_URL, new TransferRequest(from, to, 60L, USED_CURRENCY, null, null), key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId));
+
+        assertThat(getBalance(from)).isEqualTo(40L);
+    }
+}
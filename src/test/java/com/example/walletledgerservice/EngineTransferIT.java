@@ -0,0 +1,195 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.BatchTransferItem;
+import com.example.walletledgerservice.api.dto.BatchTransferRequest;
+import com.example.walletledgerservice.api.dto.ShardAccountRequest;
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.service.TransferDispatcher;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Transfers posted by the in-memory ledger engine.
+ */
+@TestPropertySource(properties = "ledger.posting.mode=engine")
+public class EngineTransferIT extends IntegrationTestBase {
+
+    static final String BATCH_URL = "/api/v1/transfers/batch";
+
+    @Autowired
+    TransferDispatcher transferDispatcher;
+
+    @Test
+    void transfer_ok_isDurableOnReply_andReplaysSameEntry() throws Exception {
+        long fromId = createAccount(2101L, USED_CURRENCY);
+        long toId = createAccount(2102L, USED_CURRENCY);
+        mintUsd(fromId, 1_000L);
+        mintUsd(fromId, 500L);
+
+        TransferRequest body = new TransferRequest(fromId, toId, 1_200L, USED_CURRENCY, "engine", null);
+        Map<String, String> key = idemHeader();
+
+        MvcResult first = postJson(TRANSFER_URL, body, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.fromAccountId").value(fromId))
+                .andExpect(jsonPath("$.amountMinor").value(1_200L))
+                .andReturn();
+        long entryId = objectMapper.readTree(first.getResponse().getContentAsString()).get("journalEntryId").asLong();
+
+        // balances are read from the database: the reply came after the group commit
+        assertThat(getBalance(fromId)).isEqualTo(300L);
+        assertThat(getBalance(toId)).isEqualTo(1_200L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_line WHERE journal_entry_id = ?",
+                Long.class, entryId)).isEqualTo(2L);
+
+        postJson(TRANSFER_URL, body, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId));
+        assertThat(getBalance(fromId)).isEqualTo(300L);
+    }
+
+    @Test
+    void transfer_insufficientFunds_returns400() throws Exception {
+        long fromId = createAccount(2201L, USED_CURRENCY);
+        long toId = createAccount(2202L, USED_CURRENCY);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 1L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("Insufficient funds"));
+    }
+
+    @Test
+    void transfer_unknownAccount_returns404() throws Exception {
+        long fromId = createAccount(2301L, USED_CURRENCY);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, 999_999L, 1L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void concurrentTransfers_keepTotal_andNeverOverdraw() throws Exception {
+        int accounts = 6;
+        long[] ids = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = createAccount(2400L + i, USED_CURRENCY);
+            mintUsd(ids[i], 1_000L);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(12);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int n = 0; n < 600; n++) {
+            results.add(pool.submit(() -> {
+                int from = ThreadLocalRandom.current().nextInt(accounts);
+                int to = (from + 1 + ThreadLocalRandom.current().nextInt(accounts - 1)) % accounts;
+                try {
+                    transferDispatcher.createTransfer(new TransferCommand(UUID.randomUUID().toString(),
+                            ids[from], ids[to], 1L + ThreadLocalRandom.current().nextInt(300), USED_CURRENCY,
+                            null, null));
+                    return true;
+                } catch (ValidationException insufficientFunds) {
+                    return false;
+                }
+            }));
+        }
+        long posted = 0;
+        for (Future<Boolean> f : results) {
+            if (f.get()) posted++;
+        }
+        pool.shutdown();
+
+        long total = 0;
+        for (long id : ids) {
+            long balance = getBalance(id);
+            assertThat(balance).isNotNegative();
+            total += balance;
+        }
+        assertThat(total).isEqualTo(accounts * 1_000L);
+        assertThat(posted).isPositive();
+    }
+
+    @Test
+    void batch_perItem_isPosted_allOrNothing_isRefused() throws Exception {
+        long fromId = createAccount(2501L, USED_CURRENCY);
+        long toId = createAccount(2502L, USED_CURRENCY);
+        mintUsd(fromId, 100L);
+
+        var items = List.of(
+                new BatchTransferItem(UUID.randomUUID().toString(),
+                        new TransferRequest(fromId, toId, 60L, USED_CURRENCY, null, null)),
+                new BatchTransferItem(UUID.randomUUID().toString(),
+                        new TransferRequest(fromId, toId, 60L, USED_CURRENCY, null, null)));
+
+        postJson(BATCH_URL, new BatchTransferRequest(BatchMode.PER_ITEM, items))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posted").value(1))
+                .andExpect(jsonPath("$.failed").value(1));
+
+        postJson(BATCH_URL, new BatchTransferRequest(BatchMode.ALL_OR_NOTHING, items))
+                .andExpect(status().isBadRequest());
+
+        assertThat(getBalance(fromId)).isEqualTo(40L);
+    }
+
+    @Test
+    void keyPostedOutsideTheEngine_isReplayedAtCommit() throws Exception {
+        long fromId = createAccount(2701L, USED_CURRENCY);
+        long toId = createAccount(2702L, USED_CURRENCY);
+        mintUsd(fromId, 1_000L);
+
+        // posted by another instance: this instance's key filter has never seen the key
+        String key = UUID.randomUUID().toString();
+        Long storedId = jdbc.queryForObject("SELECT nextval('wallet_schema.journal_entry_seq')", Long.class);
+        jdbc.update("""
+                INSERT INTO wallet_schema.journal_entry (id, idempotency_key, description, created_at, from_account_id,
+                                                         to_account_id, amount_minor, currency)
+                VALUES (?, ?, 'elsewhere', LOCALTIMESTAMP, ?, ?, 400, ?)
+                """, storedId, key, fromId, toId, USED_CURRENCY);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 400L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(storedId))
+                .andExpect(jsonPath("$.description").value("elsewhere"));
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_entry WHERE idempotency_key = ?",
+                Long.class, key)).isEqualTo(1L);
+
+        // the posting the engine applied in memory was undone: all of the stored balance is spendable
+        long deadline = System.currentTimeMillis() + 5_000;
+        int status;
+        do {
+            status = postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 1_000L, USED_CURRENCY, null, null),
+                    idemHeader())
+                    .andReturn().getResponse().getStatus();
+            if (status != 201) Thread.sleep(10);
+        } while (status != 201 && System.currentTimeMillis() < deadline);
+        assertThat(status).isEqualTo(201);
+        assertThat(getBalance(fromId)).isZero();
+        assertThat(getBalance(toId)).isEqualTo(1_000L);
+    }
+
+    @Test
+    void shard_isRefusedInEngineMode() throws Exception {
+        long id = createAccount(2601L, USED_CURRENCY);
+
+        postJson(ACCOUNT_URL + "/" + id + "/shards", new ShardAccountRequest(4))
+                .andExpect(status().isConflict());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.domain.repository.LedgerJdbcRepository.TransferRow;
+import com.example.walletledgerservice.service.LedgerEngine;
+import com.example.walletledgerservice.service.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Engine transfers acknowledged from the local write-ahead log and flushed to Postgres behind the reply.
+ */
+@TestPropertySource(properties = {"ledger.posting.mode=engine", "ledger.wal.enabled=true", "ledger.wal.segment-size=1MB"})
+public class EngineWalIT extends IntegrationTestBase {
+
+    static Path walDirectory;
+
+    @Autowired
+    LedgerEngine ledgerEngine;
+
+    @DynamicPropertySource
+    static void walDirectory(DynamicPropertyRegistry registry) throws Exception {
+        walDirectory = Files.createTempDirectory("ledger-wal-it");
+        registry.add("ledger.wal.directory", walDirectory::toString);
+    }
+
+    @Test
+    void transfer_isAcknowledgedFromTheLog_flushed_andReplayed() throws Exception {
+        long fromId = createAccount(8101L);
+        long toId = createAccount(8102L);
+        mintUsd(fromId, 1_000L);
+
+        TransferRequest body = new TransferRequest(fromId, toId, 400L, USED_CURRENCY, "wal", null);
+        String key = UUID.randomUUID().toString();
+        MvcResult first = postJson(TRANSFER_URL, body, Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andReturn();
+        long entryId = readJson(first).get("journalEntryId").asLong();
+
+        postJson(TRANSFER_URL, body, Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId));
+
+        awaitBalance(toId, 400L);
+        assertThat(getBalance(fromId)).isEqualTo(600L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_line WHERE journal_entry_id = ?",
+                Long.class, entryId)).isEqualTo(2L);
+
+        // the engine's projection kept the debit: the rest of the balance is still spendable, no more
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 601L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, UUID.randomUUID().toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void restart_writesWhatTheLogHolds_once() throws Exception {
+        long fromId = createAccount(8201L);
+        long toId = createAccount(8202L);
+        mintUsd(fromId, 1_000L);
+        String flushedKey = UUID.randomUUID().toString();
+        long flushedId = readJson(postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 100L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, flushedKey))
+                .andExpect(status().isCreated())
+                .andReturn()).get("journalEntryId").asLong();
+        awaitBalance(toId, 100L);
+
+        // as a crash would leave it: one record already flushed, one acknowledged but never written
+        ledgerEngine.stop();
+        // everything logged so far is flushed; records of earlier tests would name truncated accounts
+        try (var files = Files.list(walDirectory)) {
+            for (Path f : files.toList()) Files.delete(f);
+        }
+        String lostKey = UUID.randomUUID().toString();
+        Long lostId = jdbc.queryForObject("SELECT nextval('wallet_schema.journal_entry_seq')", Long.class);
+        Timestamp now = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+        try (WriteAheadLog wal = WriteAheadLog.open(walDirectory, 1024 * 1024)) {
+            wal.append(new TransferRow(flushedId, flushedKey, null, null, now, fromId, toId, 100L, USED_CURRENCY));
+            wal.append(new TransferRow(lostId, lostKey, "recovered", null, now, fromId, toId, 250L, USED_CURRENCY));
+            wal.force();
+        }
+        ledgerEngine.start();
+
+        assertThat(getBalance(fromId)).isEqualTo(650L);
+        assertThat(getBalance(toId)).isEqualTo(350L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_entry WHERE idempotency_key IN (?, ?)",
+                Long.class, flushedKey, lostKey)).isEqualTo(2L);
+        // one outbox row each: the flushed record was skipped on replay, the lost one written with its posting
+        assertThat(jdbc.queryForList("SELECT idempotency_key FROM wallet_schema.ledger_outbox WHERE idempotency_key IN (?, ?)",
+                String.class, flushedKey, lostKey)).containsExactlyInAnyOrder(flushedKey, lostKey);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 250L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, lostKey))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(lostId))
+                .andExpect(jsonPath("$.description").value("recovered"));
+        try (var files = Files.list(walDirectory)) {
+            assertThat(files.filter(f -> f.getFileName().toString().endsWith(".log"))).hasSize(1);
+        }
+    }
+
+    @Test
+    void keyPostedElsewhere_isReplayed_notAcknowledged() throws Exception {
+        long fromId = createAccount(8301L);
+        long toId = createAccount(8302L);
+        mintUsd(fromId, 1_000L);
+
+        // posted by another instance: this instance's key filter has never seen the key
+        String key = UUID.randomUUID().toString();
+        Long otherId = jdbc.queryForObject("SELECT nextval('wallet_schema.journal_entry_seq')", Long.class);
+        jdbc.update("""
+                INSERT INTO wallet_schema.journal_entry (id, idempotency_key, created_at, from_account_id, to_account_id,
+                                                         amount_minor, currency)
+                VALUES (?, ?, LOCALTIMESTAMP, ?, ?, 1, ?)
+                """, otherId, key, toId, fromId, USED_CURRENCY);
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 400L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(otherId))
+                .andExpect(jsonPath("$.amountMinor").value(1));
+
+        // the debit the engine applied before the claim failed is given back
+        long deadline = System.currentTimeMillis() + 5_000;
+        int status;
+        do {
+            status = postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 1_000L, USED_CURRENCY, null, null),
+                    Map.of(HEADER_NAME, UUID.randomUUID().toString()))
+                    .andReturn().getResponse().getStatus();
+            if (status != 201) Thread.sleep(10);
+        } while (status != 201 && System.currentTimeMillis() < deadline);
+        assertThat(status).isEqualTo(201);
+
+        awaitBalance(toId, 1_000L);
+        assertThat(getBalance(fromId)).isZero();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_entry WHERE idempotency_key = ?",
+                Long.class, key)).isEqualTo(1L);
+    }
+
+    @Test
+    void keyOfADetachedEntry_isAConflict_notAcknowledged() throws Exception {
+        long fromId = createAccount(8401L);
+        long toId = createAccount(8402L);
+        mintUsd(fromId, 1_000L);
+
+        // the key outlives its partition: its entry is neither in the journal nor in an archived segment
+        String key = UUID.randomUUID().toString();
+        jdbc.update("""
+                INSERT INTO wallet_schema.journal_entry_key (idempotency_key, entry_id, created_at)
+                VALUES (?, nextval('wallet_schema.journal_entry_seq'), LOCALTIMESTAMP - INTERVAL '2 years')
+                """, key);
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 400L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isConflict());
+
+        awaitBalance(fromId, 1_000L);
+        assertThat(getBalance(toId)).isZero();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_entry WHERE idempotency_key = ?",
+                Long.class, key)).isZero();
+    }
+
+    private void awaitBalance(long accountId, long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (getBalance(accountId) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(getBalance(accountId)).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.config.IdempotencyFilterProperties;
+import com.example.walletledgerservice.domain.repository.JournalEntryRepository;
+import com.example.walletledgerservice.service.IdempotencyKeyFilter;
+import com.example.walletledgerservice.service.TransferCompletedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyKeyFilterTest {
+
+    @Mock
+    JournalEntryRepository journalEntryRepository;
+
+    @Test
+    void mightContain_beforeBuild_isAlwaysTrue() {
+        var filter = new IdempotencyKeyFilter(new IdempotencyFilterProperties(), journalEntryRepository);
+
+        assertThat(filter.mightContain("never-posted")).isTrue();
+        assertThat(filter.stats().ready()).isFalse();
+    }
+
+    @Test
+    void rebuild_containsStoredKeys_andRejectsMostUnknown() {
+        var props = new IdempotencyFilterProperties();
+        props.setExpectedKeys(10_000);
+        var filter = new IdempotencyKeyFilter(props, journalEntryRepository);
+        when(journalEntryRepository.streamAllIdempotencyKeys())
+                .thenReturn(IntStream.range(0, 10_000).mapToObj(i -> "stored-" + i));
+
+        var stats = filter.rebuild();
+
+        assertThat(stats.ready()).isTrue();
+        assertThat(stats.insertedKeys()).isEqualTo(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("stored-" + i)).isTrue();
+        }
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("new-" + i)).count();
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    void onTransferCompleted_addsKeyAfterBuild() {
+        var filter = new IdempotencyKeyFilter(new IdempotencyFilterProperties(), journalEntryRepository);
+        when(journalEntryRepository.streamAllIdempotencyKeys()).thenReturn(Stream.empty());
+        filter.rebuild();
+
+        assertThat(filter.mightContain("k1")).isFalse();
+        filter.onTransferCompleted(new TransferCompletedEvent("k1", null, false));
+
+        assertThat(filter.mightContain("k1")).isTrue();
+    }
+
+    @Test
+    void keyCommittedWhileRebuilding_isInTheNewFilter() {
+        var filter = new IdempotencyKeyFilter(new IdempotencyFilterProperties(), journalEntryRepository);
+        // committed after the stream's snapshot, its event arriving as the build finishes, before the swap
+        when(journalEntryRepository.streamAllIdempotencyKeys()).thenAnswer(inv -> Stream.of("stored")
+                .onClose(() -> filter.onTransferCompleted(new TransferCompletedEvent("late-1", null, false))));
+        filter.rebuild();
+
+        assertThat(filter.mightContain("stored")).isTrue();
+        assertThat(filter.mightContain("late-1")).isTrue();
+
+        // and on a rebuild, while the old filter still answers
+        when(journalEntryRepository.streamAllIdempotencyKeys()).thenAnswer(inv -> Stream.of("stored")
+                .onClose(() -> filter.onTransferCompleted(new TransferCompletedEvent("late-2", null, false))));
+        filter.rebuild();
+
+        assertThat(filter.mightContain("late-2")).isTrue();
+    }
+
+    @Test
+    void rebuild_disabled_keepsLookingUpEveryKey() {
+        var props = new IdempotencyFilterProperties();
+        props.setEnabled(false);
+        var filter = new IdempotencyKeyFilter(props, journalEntryRepository);
+
+        filter.rebuild();
+
+        assertThat(filter.mightContain("anything")).isTrue();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.IdempotencyCacheProperties;
+import com.example.walletledgerservice.service.IdempotencyResponseCache;
+import com.example.walletledgerservice.service.TransferCompletedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyResponseCacheTest {
+
+    @Test
+    void get_afterCommitEvent_hits_andCountsMisses() {
+        var cache = new IdempotencyResponseCache(new IdempotencyCacheProperties());
+
+        assertThat(cache.get("k1")).isNull();
+        cache.onTransferCompleted(new TransferCompletedEvent("k1", response(1L), false));
+
+        assertThat(cache.get("k1")).isEqualTo(response(1L));
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void put_overMaxEntries_evictsLeastRecentlyUsed() {
+        var props = new IdempotencyCacheProperties();
+        props.setMaxEntries(2);
+        var cache = new IdempotencyResponseCache(props);
+
+        cache.put("k1", response(1L));
+        cache.put("k2", response(2L));
+        cache.get("k1");
+        cache.put("k3", response(3L));
+
+        assertThat(cache.get("k2")).isNull();
+        assertThat(cache.get("k1")).isNotNull();
+        assertThat(cache.get("k3")).isNotNull();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void put_overMemoryBudget_keepsEstimatedBytesWithinBudget() {
+        var props = new IdempotencyCacheProperties();
+        props.setMaxMemory(DataSize.ofKilobytes(4));
+        var cache = new IdempotencyResponseCache(props);
+
+        for (long i = 0; i < 100; i++) {
+            cache.put("key-" + i, response(i));
+        }
+
+        assertThat(cache.estimatedBytes()).isLessThanOrEqualTo(4 * 1024);
+        assertThat(cache.size()).isBetween(1, 99);
+        assertThat(cache.get("key-99")).isNotNull();
+    }
+
+    @Test
+    void get_afterTtl_missesAndEvicts() throws InterruptedException {
+        var props = new IdempotencyCacheProperties();
+        props.setTtl(Duration.ofMillis(10));
+        var cache = new IdempotencyResponseCache(props);
+
+        cache.put("k1", response(1L));
+        Thread.sleep(30);
+
+        assertThat(cache.get("k1")).isNull();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void disabled_neverCaches() {
+        var props = new IdempotencyCacheProperties();
+        props.setEnabled(false);
+        var cache = new IdempotencyResponseCache(props);
+
+        cache.put("k1", response(1L));
+
+        assertThat(cache.get("k1")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    private static TransferResponse response(long entryId) {
+        return new TransferResponse(entryId, 1L, 2L, 100L, "USD",
+                OffsetDateTime.parse("2025-01-01T00:00:00Z"), "test transfer", null);
+    }
+}
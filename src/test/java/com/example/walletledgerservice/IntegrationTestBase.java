@@ -1,5 +1,8 @@
 package com.example.walletledgerservice;
 
+import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.TestInstance;
@@ -12,16 +15,19 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Testcontainers
 @SpringBootTest
@@ -39,6 +45,12 @@ public abstract class IntegrationTestBase {
 
     protected static final String SCHEMA = "wallet_schema";
 
+    static final String ACCOUNT_URL = "/api/v1/accounts";
+    static final String TRANSFER_URL = "/api/v1/transfers";
+    static final String DEV_MINT_URL = "/api/v1/dev/treasury/mint/usd";
+    static final String HEADER_NAME = "Idempotency-Key";
+    static final String USED_CURRENCY = "USD";
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -52,6 +64,9 @@ public abstract class IntegrationTestBase {
         registry.add("spring.datasource.username", POSTGRES::getUsername);
         registry.add("spring.datasource.password", POSTGRES::getPassword);
         registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        // cached contexts keep their pools; idle ones shrink so that together they stay under max_connections
+        registry.add("spring.datasource.hikari.minimum-idle", () -> "1");
+        registry.add("spring.datasource.hikari.idle-timeout", () -> "10000");
 
         registry.add("spring.liquibase.default-schema", () -> SCHEMA);
         registry.add("spring.liquibase.liquibase-schema", () -> "public");
@@ -75,7 +90,8 @@ public abstract class IntegrationTestBase {
         if (tables.isEmpty()) return;
 
         String joined = tables.stream().map(t -> SCHEMA + "." + t).collect(Collectors.joining(","));
-        jdbc.execute("TRUNCATE TABLE " + joined + " RESTART IDENTITY CASCADE");
+        // sequences are not restarted: Hibernate keeps pooled id blocks in memory across tests
+        jdbc.execute("TRUNCATE TABLE " + joined + " CASCADE");
     }
 
     protected ResultActions postJson(String url, Object body) throws Exception {
@@ -113,4 +129,57 @@ public abstract class IntegrationTestBase {
                         .accept(MediaType.APPLICATION_JSON)
         );
     }
-}
\ No newline at end of file
+
+    ResultActions getText(String url) throws Exception {
+        return mockMvc.perform(get(url).accept(MediaType.TEXT_PLAIN));
+    }
+
+    ResultActions getJson(String url, Map<String, String> headers, Map<String, String> param) throws Exception {
+        var request = get(url)
+                .accept(MediaType.APPLICATION_JSON);
+
+        if (headers != null) headers.forEach(request::header);
+        if (param != null) param.forEach(request::param);
+
+        return mockMvc.perform(request);
+    }
+
+    JsonNode readJson(MvcResult res) throws Exception {
+        return objectMapper.readTree(res.getResponse().getContentAsString());
+    }
+
+    long createAccount(long ownerId) throws Exception {
+        return createAccount(ownerId, USED_CURRENCY);
+    }
+
+    long createAccount(long ownerId, String currency) throws Exception {
+        MvcResult res = postJson(ACCOUNT_URL, new CreateAccountRequest(ownerId, currency))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return readJson(res).get("id").asLong();
+    }
+
+    long getBalance(long accountId) throws Exception {
+        MvcResult res = getJson(ACCOUNT_URL + "/{id}", accountId)
+                .andExpect(status().isOk())
+                .andReturn();
+        return readJson(res).get("balanceMinor").asLong();
+    }
+
+    /** Credits the account from the USD treasury through the dev endpoint. */
+    void mintUsd(long toId, long amountMinor) throws Exception {
+        postJson(DEV_MINT_URL, idemHeader(),
+                Map.of("toAccountId", String.valueOf(toId), "amountMinor", String.valueOf(amountMinor)))
+                .andExpect(status().isCreated());
+    }
+
+    /** A USD transfer under a fresh key that must be posted. */
+    void transfer(long from, long to, long amountMinor) throws Exception {
+        postJson(TRANSFER_URL, new TransferRequest(from, to, amountMinor, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isCreated());
+    }
+
+    Map<String, String> idemHeader() {
+        return Map.of(HEADER_NAME, UUID.randomUUID().toString());
+    }
+}
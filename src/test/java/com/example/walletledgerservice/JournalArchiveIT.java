@@ -0,0 +1,114 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.BatchTransferItem;
+import com.example.walletledgerservice.api.dto.BatchTransferRequest;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class JournalArchiveIT extends IntegrationTestBase {
+
+    static final String BATCH_URL = "/api/v1/transfers/batch";
+    static final String PARTITIONS_URL = "/api/v1/admin/journal-partitions";
+    static final String ARCHIVE_URL = "/api/v1/admin/journal-archive";
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("journal-archive-it");
+        registry.add("ledger.archive.directory", dir::toString);
+    }
+
+    @Test
+    void archivedMonth_servesStatementsAndReplays() throws Exception {
+        long a = createAccount(7301L);
+        long b = createAccount(7302L);
+
+        // two transfers of May 2002, written as the posting path would, then detached
+        jdbc.queryForObject("SELECT wallet_schema.create_journal_partitions('2002-05-01', '2002-06-01')", Integer.class);
+        String firstKey = "archive-it-" + UUID.randomUUID();
+        String secondKey = "archive-it-" + UUID.randomUUID();
+        long firstId = oldTransfer(firstKey, a, b, 150L, "2002-05-10 09:00");
+        long secondId = oldTransfer(secondKey, a, b, 50L, "2002-05-20 09:00");
+        mintUsd(a, 1_000L);
+        postJson(PARTITIONS_URL + "/detach", Map.of(), Map.of("before", "2002-07-01T00:00:00Z"))
+                .andExpect(status().isOk());
+
+        JsonNode archived = readJson(postJson(ARCHIVE_URL + "/run", Map.of())
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(archived).hasSize(1);
+        assertThat(archived.get(0).get("month").asText()).isEqualTo("2002-05");
+        assertThat(archived.get(0).get("entries").asLong()).isEqualTo(2L);
+        assertThat(archived.get(0).get("lines").asLong()).isEqualTo(4L);
+        assertThat(jdbc.queryForObject("SELECT to_regclass('wallet_schema.journal_line_2002_05')::text", String.class))
+                .isNull();
+
+        // newest page from the journal, the older ones from the segment
+        JsonNode page = statement(a, null, 2);
+        assertThat(page.get("lines")).hasSize(2);
+        assertThat(page.get("lines").get(0).get("side").asText()).isEqualTo("DEBIT");
+        assertThat(page.get("lines").get(1).get("journalEntryId").asLong()).isEqualTo(secondId);
+        JsonNode older = statement(a, page.get("nextCursor").asLong(), 2);
+        assertThat(older.get("lines")).hasSize(1);
+        assertThat(older.get("lines").get(0).get("journalEntryId").asLong()).isEqualTo(firstId);
+        assertThat(older.get("lines").get(0).get("amountMinor").asLong()).isEqualTo(150L);
+        assertThat(older.get("nextCursor").isNull()).isTrue();
+
+        // the retry of an archived transfer replays it
+        MvcResult replay = postJson(TRANSFER_URL, new TransferRequest(a, b, 150L, USED_CURRENCY, null, null),
+                Map.of("Idempotency-Key", firstKey))
+                .andExpect(status().isCreated())
+                .andReturn();
+        assertThat(readJson(replay).get("journalEntryId").asLong()).isEqualTo(firstId);
+        assertThat(readJson(replay).get("amountMinor").asLong()).isEqualTo(150L);
+
+        JsonNode batch = readJson(postJson(BATCH_URL, new BatchTransferRequest(BatchMode.PER_ITEM, List.of(
+                new BatchTransferItem(secondKey, new TransferRequest(a, b, 50L, USED_CURRENCY, null, null)),
+                new BatchTransferItem(UUID.randomUUID().toString(),
+                        new TransferRequest(a, b, 10L, USED_CURRENCY, null, null)))))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(batch.get("items").get(0).get("status").asText()).isEqualTo("REPLAYED");
+        assertThat(batch.get("items").get(0).get("transfer").get("journalEntryId").asLong()).isEqualTo(secondId);
+        assertThat(batch.get("items").get(1).get("status").asText()).isEqualTo("POSTED");
+
+        JsonNode segments = readJson(getJson(ARCHIVE_URL).andExpect(status().isOk()).andReturn());
+        assertThat(segments).anySatisfy(s -> assertThat(s.get("month").asText()).isEqualTo("2002-05"));
+    }
+
+    private long oldTransfer(String key, long from, long to, long amountMinor, String createdAt) {
+        Long id = jdbc.queryForObject("""
+                INSERT INTO wallet_schema.journal_entry
+                    (idempotency_key, created_at, from_account_id, to_account_id, amount_minor, currency)
+                VALUES (?, ?::timestamp, ?, ?, ?, 'USD') RETURNING id
+                """, Long.class, key, createdAt, from, to, amountMinor);
+        jdbc.update("""
+                INSERT INTO wallet_schema.journal_line (journal_entry_id, account_id, amount_minor, side, currency, created_at)
+                VALUES (?, ?, ?, 'CREDIT', 'USD', ?::timestamp), (?, ?, ?, 'DEBIT', 'USD', ?::timestamp)
+                """, id, from, amountMinor, createdAt, id, to, amountMinor, createdAt);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor - ? WHERE id = ?", amountMinor, from);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor + ? WHERE id = ?", amountMinor, to);
+        return id;
+    }
+
+    private JsonNode statement(long accountId, Long cursor, int limit) throws Exception {
+        return readJson(getJson(ACCOUNT_URL + "/" + accountId + "/lines", null, cursor == null
+                ? Map.of("limit", String.valueOf(limit))
+                : Map.of("limit", String.valueOf(limit), "cursor", String.valueOf(cursor)))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+}
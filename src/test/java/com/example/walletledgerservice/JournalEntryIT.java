@@ -0,0 +1,130 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.EntryLeg;
+import com.example.walletledgerservice.api.dto.JournalEntryRequest;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.enums.Side;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Multi-leg entries: posted atomically with one line per leg, replayed from their lines under their key,
+ * and kept apart from transfer keys.
+ */
+public class JournalEntryIT extends IntegrationTestBase {
+
+    static final String ENTRY_URL = "/api/v1/entries";
+
+    @Test
+    void splitPayment_isPostedOnce_andReplayedFromItsLines() throws Exception {
+        long payer = createAccount(9301L, USED_CURRENCY);
+        long merchant = createAccount(9302L, USED_CURRENCY);
+        long fees = createAccount(9303L, USED_CURRENCY);
+        long tax = createAccount(9304L, USED_CURRENCY);
+        mintUsd(payer, 1_000L);
+
+        JournalEntryRequest split = new JournalEntryRequest(List.of(
+                leg(payer, Side.CREDIT, 1_000L),
+                leg(merchant, Side.DEBIT, 900L),
+                leg(fees, Side.DEBIT, 80L),
+                leg(tax, Side.DEBIT, 20L)), "order 42", "ord-42");
+        String key = UUID.randomUUID().toString();
+        JsonNode posted = readJson(postEntry(split, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.legs.length()").value(4))
+                .andExpect(jsonPath("$.externalRef").value("ord-42"))
+                .andReturn());
+        long entryId = posted.get("journalEntryId").asLong();
+
+        assertThat(getBalance(payer)).isZero();
+        assertThat(getBalance(merchant)).isEqualTo(900L);
+        assertThat(getBalance(fees)).isEqualTo(80L);
+        assertThat(getBalance(tax)).isEqualTo(20L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_line WHERE journal_entry_id = ?",
+                Long.class, entryId)).isEqualTo(4L);
+        assertThat(jdbc.queryForObject("SELECT from_account_id FROM wallet_schema.journal_entry WHERE id = ?",
+                Long.class, entryId)).isNull();
+        Map<String, Object> event = jdbc.queryForMap(
+                "SELECT event_type, legs, from_account_id FROM wallet_schema.ledger_outbox WHERE idempotency_key = ?", key);
+        assertThat(event.get("event_type")).isEqualTo("ENTRY_POSTED");
+        assertThat(event.get("from_account_id")).isNull();
+        assertThat(objectMapper.readTree((String) event.get("legs"))).isEqualTo(posted.get("legs"));
+
+        JsonNode replayed = readJson(postEntry(split, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId))
+                .andReturn());
+        assertThat(replayed.get("legs")).isEqualTo(posted.get("legs"));
+        assertThat(replayed.get("createdAt")).isEqualTo(posted.get("createdAt"));
+        assertThat(getBalance(merchant)).isEqualTo(900L);
+
+        // the key is taken by an entry that is no transfer, and the other way round
+        postJson(TRANSFER_URL, new TransferRequest(merchant, payer, 10L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isConflict());
+        String transferKey = UUID.randomUUID().toString();
+        postJson(TRANSFER_URL, new TransferRequest(merchant, payer, 10L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, transferKey))
+                .andExpect(status().isCreated());
+        postEntry(new JournalEntryRequest(List.of(leg(merchant, Side.CREDIT, 10L), leg(payer, Side.DEBIT, 10L)),
+                null, null), transferKey)
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void rejectedEntries_writeNothing() throws Exception {
+        long a = createAccount(9401L, USED_CURRENCY);
+        long b = createAccount(9402L, USED_CURRENCY);
+        long eur = createAccount(9403L, "EUR");
+        mintUsd(a, 100L);
+
+        // unbalanced
+        postEntry(new JournalEntryRequest(List.of(leg(a, Side.CREDIT, 50L), leg(b, Side.DEBIT, 40L)), null, null),
+                UUID.randomUUID().toString())
+                .andExpect(status().isBadRequest());
+        // balanced, but a's net outflow is more than it holds
+        postEntry(new JournalEntryRequest(List.of(leg(a, Side.CREDIT, 150L), leg(b, Side.DEBIT, 150L)), null, null),
+                UUID.randomUUID().toString())
+                .andExpect(status().isBadRequest());
+        // a leg in the wrong currency for its account
+        postEntry(new JournalEntryRequest(List.of(leg(a, Side.CREDIT, 10L), leg(eur, Side.DEBIT, 10L)), null, null),
+                UUID.randomUUID().toString())
+                .andExpect(status().isBadRequest());
+        postEntry(new JournalEntryRequest(List.of(leg(a, Side.CREDIT, 10L), leg(a + 1_000, Side.DEBIT, 10L)), null, null),
+                UUID.randomUUID().toString())
+                .andExpect(status().isNotFound());
+        postEntry(new JournalEntryRequest(List.of(leg(a, Side.CREDIT, 10L)), null, null), UUID.randomUUID().toString())
+                .andExpect(status().isBadRequest());
+
+        assertThat(getBalance(a)).isEqualTo(100L);
+        assertThat(getBalance(b)).isZero();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.journal_entry WHERE from_account_id IS NULL",
+                Long.class)).isZero();
+
+        // only the net outflow has to be covered: a pays 150 and gets 100 back
+        postEntry(new JournalEntryRequest(List.of(
+                leg(a, Side.CREDIT, 150L),
+                leg(a, Side.DEBIT, 100L),
+                leg(b, Side.DEBIT, 50L)), null, null), UUID.randomUUID().toString())
+                .andExpect(status().isCreated());
+        assertThat(getBalance(a)).isEqualTo(50L);
+        assertThat(getBalance(b)).isEqualTo(50L);
+    }
+
+    private static EntryLeg leg(long accountId, Side side, long amountMinor) {
+        return new EntryLeg(accountId, side, amountMinor, USED_CURRENCY);
+    }
+
+    private ResultActions postEntry(JournalEntryRequest body, String key) throws Exception {
+        return postJson(ENTRY_URL, body, Map.of(HEADER_NAME, key));
+    }
+}
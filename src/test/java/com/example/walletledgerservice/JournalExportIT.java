@@ -0,0 +1,92 @@
+package com.example.walletledgerservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class JournalExportIT extends IntegrationTestBase {
+
+    static final String EXPORT_URL = "/api/v1/journal/export";
+
+    @Test
+    void export_streamsEveryEntryOfRange_withItsLines() throws Exception {
+        long from = createAccount(4101L);
+        long to = createAccount(4102L);
+        mintUsd(from, 1_000L);
+        transfer(from, to, 100L);
+        transfer(from, to, 200L);
+
+        MvcResult res = getJson(EXPORT_URL, null, range(-1, 1))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                .andReturn();
+
+        List<JsonNode> entries = parse(res.getResponse().getContentAsString(StandardCharsets.UTF_8));
+        // the dev mint funds the treasury with an entry of its own, then transfers from it
+        assertThat(entries).hasSize(4);
+        JsonNode last = entries.get(3);
+        assertThat(last.get("fromAccountId").asLong()).isEqualTo(from);
+        assertThat(last.get("amountMinor").asLong()).isEqualTo(200L);
+        assertThat(last.get("lines")).hasSize(2);
+        assertThat(last.get("lines").get(0).get("side").asText()).isEqualTo("CREDIT");
+        assertThat(last.get("lines").get(0).get("accountId").asLong()).isEqualTo(from);
+        assertThat(last.get("lines").get(1).get("side").asText()).isEqualTo("DEBIT");
+        assertThat(last.get("lines").get(1).get("accountId").asLong()).isEqualTo(to);
+
+        String outOfRange = getJson(EXPORT_URL, null, range(1, 2))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(outOfRange).isEmpty();
+    }
+
+    @Test
+    void export_isGzipped_whenAccepted() throws Exception {
+        long from = createAccount(4201L);
+        mintUsd(from, 500L);
+
+        MvcResult res = getJson(EXPORT_URL, Map.of("Accept-Encoding", "gzip, deflate"), range(-1, 1))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        byte[] body;
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(res.getResponse().getContentAsByteArray()))) {
+            body = in.readAllBytes();
+        }
+        List<JsonNode> entries = parse(new String(body, StandardCharsets.UTF_8));
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(1).get("toAccountId").asLong()).isEqualTo(from);
+    }
+
+    @Test
+    void export_emptyRange_returns400() throws Exception {
+        getJson(EXPORT_URL, null, range(1, -1))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Map<String, String> range(int fromHours, int toHours) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        return Map.of("from", now.plusHours(fromHours).toString(), "to", now.plusHours(toHours).toString());
+    }
+
+    private List<JsonNode> parse(String ndjson) throws Exception {
+        List<JsonNode> out = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            if (!line.isBlank()) out.add(objectMapper.readTree(line));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class JournalPartitionIT extends IntegrationTestBase {
+
+    static final String PARTITIONS_URL = "/api/v1/admin/journal-partitions";
+    static final String RECONCILIATION_URL = "/api/v1/admin/reconciliation/runs";
+
+    @Test
+    void partitions_existForTheCurrentMonthAndAhead() throws Exception {
+        JsonNode partitions = readJson(getJson(PARTITIONS_URL)
+                .andExpect(status().isOk())
+                .andReturn());
+
+        List<String> names = new ArrayList<>();
+        partitions.forEach(p -> names.add(p.get("name").asText()));
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= 3; i++) {
+            String suffix = month.plusMonths(i).format(DateTimeFormatter.ofPattern("yyyy_MM"));
+            assertThat(names).contains("journal_entry_" + suffix, "journal_line_" + suffix);
+        }
+    }
+
+    @Test
+    void transfer_linesLandInTheMonthOfTheirEntry() throws Exception {
+        long a = createAccount(7101L);
+        long b = createAccount(7102L);
+        mintUsd(a, 500L);
+        String key = UUID.randomUUID().toString();
+        long entryId = transfer(a, b, 200L, key);
+
+        List<String> tables = jdbc.queryForList("""
+                SELECT c.relname FROM wallet_schema.journal_line l
+                JOIN pg_class c ON c.oid = l.tableoid
+                JOIN wallet_schema.journal_entry e ON e.id = l.journal_entry_id AND e.created_at = l.created_at
+                WHERE e.id = ?
+                """, String.class, entryId);
+        String month = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy_MM"));
+        assertThat(tables).containsExactly("journal_line_" + month, "journal_line_" + month);
+
+        // the replay finds the entry through journal_entry_key
+        assertThat(transfer(a, b, 200L, key)).isEqualTo(entryId);
+    }
+
+    @Test
+    void detach_retiresOldMonth_keepingBalancesAndKeys() throws Exception {
+        long a = createAccount(7201L);
+        long b = createAccount(7202L);
+        mintUsd(a, 1_000L);
+
+        // a transfer of 200 posted in January 2001, written as the posting path would
+        String oldKey = "partition-it-" + UUID.randomUUID();
+        jdbc.queryForObject("SELECT wallet_schema.create_journal_partitions('2001-01-01', '2001-02-01')", Integer.class);
+        Long oldEntryId = jdbc.queryForObject("""
+                INSERT INTO wallet_schema.journal_entry
+                    (idempotency_key, created_at, from_account_id, to_account_id, amount_minor, currency)
+                VALUES (?, '2001-01-15 10:00', ?, ?, 200, 'USD') RETURNING id
+                """, Long.class, oldKey, a, b);
+        jdbc.update("""
+                INSERT INTO wallet_schema.journal_line (journal_entry_id, account_id, amount_minor, side, currency, created_at)
+                VALUES (?, ?, 200, 'CREDIT', 'USD', '2001-01-15 10:00'), (?, ?, 200, 'DEBIT', 'USD', '2001-01-15 10:00')
+                """, oldEntryId, a, oldEntryId, b);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor - 200 WHERE id = ?", a);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor + 200 WHERE id = ?", b);
+
+        JsonNode detached = readJson(postJson(PARTITIONS_URL + "/detach", Map.of(),
+                Map.of("before", "2001-03-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(detached).hasSize(2);
+        assertThat(detached.get(0).asText()).isEqualTo("journal_line_2001_01");
+        assertThat(detached.get(1).asText()).isEqualTo("journal_entry_2001_01");
+
+        try {
+            Integer lines = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM wallet_schema.journal_line WHERE journal_entry_id = ?", Integer.class, oldEntryId);
+            assertThat(lines).isZero();
+            assertThat(retired(a)).isEqualTo(-200L);
+            assertThat(retired(b)).isEqualTo(200L);
+
+            // stored balances still equal the retired sums plus the attached lines
+            long runId = readJson(postJson(RECONCILIATION_URL, Map.of(), Map.of("mode", "FULL"))
+                    .andExpect(status().isAccepted())
+                    .andReturn()).get("id").asLong();
+            assertThat(awaitFinished(runId).get("status").asText()).isEqualTo("COMPLETED");
+            JsonNode drifts = readJson(getJson(RECONCILIATION_URL + "/{id}/drifts", runId)
+                    .andExpect(status().isOk())
+                    .andReturn());
+            List<Long> driftedAccounts = new ArrayList<>();
+            drifts.forEach(d -> driftedAccounts.add(d.get("accountId").asLong()));
+            assertThat(driftedAccounts).doesNotContain(a, b);
+
+            JsonNode balance = readJson(getJson(ACCOUNT_URL + "/{id}/balance", a)
+                    .andExpect(status().isOk())
+                    .andReturn());
+            assertThat(balance.get("balanceMinor").asLong()).isEqualTo(800L);
+
+            // the key stays taken although its entry is gone
+            postJson(TRANSFER_URL, new TransferRequest(a, b, 200L, USED_CURRENCY, null, null),
+                    Map.of("Idempotency-Key", oldKey))
+                    .andExpect(status().isConflict());
+        } finally {
+            jdbc.execute("DROP TABLE wallet_schema.journal_line_2001_01, wallet_schema.journal_entry_2001_01");
+        }
+    }
+
+    private Long retired(long accountId) {
+        return jdbc.queryForObject(
+                "SELECT balance_minor FROM wallet_schema.journal_retired_balance WHERE account_id = ?", Long.class, accountId);
+    }
+
+    private JsonNode awaitFinished(long runId) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            JsonNode run = readJson(getJson(RECONCILIATION_URL + "/{id}", runId).andExpect(status().isOk()).andReturn());
+            if (!"RUNNING".equals(run.get("status").asText())) return run;
+            assertThat(System.currentTimeMillis()).as("run %d still running", runId).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private long transfer(long from, long to, long amountMinor, String key) throws Exception {
+        MvcResult res = postJson(TRANSFER_URL, new TransferRequest(from, to, amountMinor, USED_CURRENCY, null, null),
+                Map.of("Idempotency-Key", key))
+                .andReturn();
+        assertThat(res.getResponse().getStatus()).isIn(200, 201);
+        return readJson(res).get("journalEntryId").asLong();
+    }
+}
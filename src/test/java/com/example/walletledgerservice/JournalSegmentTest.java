@@ -0,0 +1,163 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.enums.Side;
+import com.example.walletledgerservice.service.JournalSegment;
+import com.example.walletledgerservice.service.JournalSegment.Entry;
+import com.example.walletledgerservice.service.JournalSegment.Line;
+import com.example.walletledgerservice.service.JournalSegmentWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JournalSegmentTest {
+
+    static final YearMonth MONTH = YearMonth.of(2019, 3);
+    static final int ACCOUNTS = 7;
+    static final int ENTRIES = 1_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entry_isFoundInItsBlock_withEveryColumn() throws IOException {
+        JournalSegment segment = JournalSegment.open(writeSample(dir.resolve("s.seg"), 64));
+
+        assertThat(segment.month()).isEqualTo(MONTH);
+        assertThat(segment.entryCount()).isEqualTo(ENTRIES);
+        assertThat(segment.lineCount()).isEqualTo(2L * ENTRIES);
+        for (int i = 0; i < ENTRIES; i += 37) {
+            assertThat(segment.entry(entryId(i))).contains(entry(i));
+        }
+        assertThat(segment.entry(entryId(0) - 1)).isEmpty();
+        assertThat(segment.entry(entryId(ENTRIES))).isEmpty();
+        // ids are spaced by 3, so an id between two entries of one block is absent too
+        assertThat(segment.entry(entryId(500) + 1)).isEmpty();
+    }
+
+    @Test
+    void accountLines_newestFirst_belowTheCursor_acrossBlocks() throws IOException {
+        JournalSegment segment = JournalSegment.open(writeSample(dir.resolve("s.seg"), 64));
+        long account = 3;
+        List<Long> expected = sampleLines().stream()
+                .filter(l -> l.accountId() == account)
+                .map(Line::id)
+                .sorted((a, b) -> Long.compare(b, a))
+                .toList();
+
+        List<Line> first = segment.accountLines(account, Long.MAX_VALUE, 100, l -> true);
+        assertThat(first).extracting(Line::id).containsExactlyElementsOf(expected.subList(0, 100));
+        assertThat(first).allMatch(l -> l.accountId() == account);
+
+        long cursor = first.get(99).id();
+        List<Line> rest = segment.accountLines(account, cursor, 10_000, l -> true);
+        assertThat(rest).extracting(Line::id).containsExactlyElementsOf(expected.subList(100, expected.size()));
+
+        List<Line> debits = segment.accountLines(account, Long.MAX_VALUE, 10_000, l -> l.side() == Side.DEBIT);
+        assertThat(debits).isNotEmpty().allMatch(l -> l.side() == Side.DEBIT);
+        assertThat(segment.accountLines(ACCOUNTS + 1, Long.MAX_VALUE, 10, l -> true)).isEmpty();
+    }
+
+    @Test
+    void line_keepsAllColumns() throws IOException {
+        JournalSegment segment = JournalSegment.open(writeSample(dir.resolve("s.seg"), 4_096));
+        Line line = sampleLines().get(10);
+
+        List<Line> found = segment.accountLines(line.accountId(), line.id() + 1, 1, l -> true);
+
+        assertThat(found).containsExactly(line);
+    }
+
+    @Test
+    void multiLegEntry_comesBackWithoutTransferColumns() throws IOException {
+        Path file = dir.resolve("s.seg");
+        Entry multiLeg = new Entry(entryId(1), "split-1", "split", null, createdAt(1), 0, 0, 0, null);
+        try (JournalSegmentWriter writer = JournalSegmentWriter.create(file, MONTH, 16)) {
+            writer.entry(entry(0));
+            writer.entry(multiLeg);
+            writer.finish();
+        }
+        JournalSegment segment = JournalSegment.open(file);
+
+        assertThat(segment.entry(entryId(0))).contains(entry(0));
+        assertThat(segment.entry(entryId(1))).contains(multiLeg);
+        assertThat(segment.entry(entryId(1)).orElseThrow().isTransfer()).isFalse();
+    }
+
+    @Test
+    void corruptBlock_failsItsChecksum() throws IOException {
+        Path file = writeSample(dir.resolve("s.seg"), 64);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // a byte inside the first entry block, right after the header
+            channel.write(ByteBuffer.wrap(new byte[]{0x55, 0x55, 0x55, 0x55}), 20);
+        }
+        JournalSegment segment = JournalSegment.open(file);
+
+        assertThatThrownBy(() -> segment.entry(entryId(0))).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Corrupt journal segment");
+    }
+
+    @Test
+    void writer_refusesUnorderedRows_andExistingFiles() throws IOException {
+        Path file = dir.resolve("s.seg");
+        try (JournalSegmentWriter writer = JournalSegmentWriter.create(file, MONTH, 16)) {
+            writer.entry(entry(1));
+            assertThatThrownBy(() -> writer.entry(entry(0))).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> JournalSegmentWriter.create(file, MONTH, 16))
+                .isInstanceOf(FileAlreadyExistsException.class);
+        // no trailer was written
+        assertThatThrownBy(() -> JournalSegment.open(file)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static Path writeSample(Path file, int blockRows) throws IOException {
+        try (JournalSegmentWriter writer = JournalSegmentWriter.create(file, MONTH, blockRows)) {
+            for (int i = 0; i < ENTRIES; i++) writer.entry(entry(i));
+            for (Line line : sampleLines()) writer.line(line);
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static long entryId(int i) {
+        return 10_000 + 3L * i;
+    }
+
+    private static Timestamp createdAt(int i) {
+        return Timestamp.valueOf(MONTH.atDay(1).atStartOfDay().plusSeconds(i * 613L).plusNanos(i * 1_000L));
+    }
+
+    private static Entry entry(int i) {
+        long from = i % ACCOUNTS;
+        return new Entry(entryId(i), "key-" + i, i % 3 == 0 ? null : "payment nº " + i,
+                i % 5 == 0 ? "ext-" + i : null, createdAt(i),
+                from, (from + 1) % ACCOUNTS, 100 + i, "USD");
+    }
+
+    /** Two lines per entry, in (account id, id) order. */
+    private static List<Line> sampleLines() {
+        return IntStream.range(0, ENTRIES).boxed()
+                .flatMap(i -> {
+                    Entry e = entry(i);
+                    return Stream.of(
+                            new Line(2L * i, e.id(), e.fromAccountId(), Side.CREDIT, e.amountMinor(), "USD", e.createdAt()),
+                            new Line(2L * i + 1, e.id(), e.toAccountId(), Side.DEBIT, e.amountMinor(), "USD", e.createdAt()));
+                })
+                .sorted((a, b) -> a.accountId() != b.accountId()
+                        ? Long.compare(a.accountId(), b.accountId()) : Long.compare(a.id(), b.id()))
+                .toList();
+    }
+}
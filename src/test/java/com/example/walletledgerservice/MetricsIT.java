@@ -0,0 +1,78 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Transfer meters on the Prometheus endpoint. The response cache is off, so a retry reaches the service.
+ */
+@AutoConfigureObservability(tracing = false)
+@TestPropertySource(properties = "ledger.idempotency-cache.enabled=false")
+public class MetricsIT extends IntegrationTestBase {
+
+    static final String PROMETHEUS_URL = "/actuator/prometheus";
+    static final String USD = "USD";
+
+    @Test
+    void prometheus_exposesPhaseTimers_hits_rejections_andPoolGauges() throws Exception {
+        long fromId = createAccount(1301L, USD);
+        long toId = createAccount(1302L, USD);
+        long eurId = createAccount(1303L, "EUR");
+        mintUsd(fromId, 1_000L);
+
+        String before = scrape();
+
+        Map<String, String> key = Map.of("Idempotency-Key", UUID.randomUUID().toString());
+        TransferRequest ok = new TransferRequest(fromId, toId, 100L, USD, null, null);
+        postJson(TRANSFER_URL, ok, key).andExpect(status().isCreated());
+        postJson(TRANSFER_URL, ok, key).andExpect(status().isCreated());
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 5_000L, USD, null, null),
+                Map.of("Idempotency-Key", UUID.randomUUID().toString()))
+                .andExpect(status().isBadRequest());
+        postJson(TRANSFER_URL, new TransferRequest(fromId, eurId, 10L, USD, null, null),
+                Map.of("Idempotency-Key", UUID.randomUUID().toString()))
+                .andExpect(status().isBadRequest());
+
+        String after = scrape();
+
+        assertThat(delta(before, after, "ledger_transfer_phase_seconds_count{phase=\"lock_accounts\"}")).isEqualTo(3);
+        assertThat(delta(before, after, "ledger_transfer_phase_seconds_count{phase=\"insert_entry\"}")).isEqualTo(1);
+        assertThat(delta(before, after, "ledger_transfer_phase_seconds_count{phase=\"commit\"}")).isEqualTo(1);
+        assertThat(delta(before, after, "ledger_transfer_idempotent_hits_total{path=\"lookup\"}")).isEqualTo(1);
+        assertThat(delta(before, after, "ledger_transfer_rejections_total{reason=\"insufficient_funds\"}")).isEqualTo(1);
+        assertThat(delta(before, after, "ledger_transfer_rejections_total{reason=\"currency_mismatch\"}")).isEqualTo(1);
+        assertThat(delta(before, after,
+                "ledger_api_errors_total{code=\"VALIDATION_ERROR\",exception=\"InsufficientFundsException\",status=\"400\"}"))
+                .isEqualTo(1);
+        assertThat(after).contains("hikaricp_connections_active").contains("ledger_idempotency_cache_requests_total");
+        assertThat(after).doesNotContain("account_id");
+    }
+
+    private String scrape() throws Exception {
+        return getText(PROMETHEUS_URL)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /** Increase of one sample between two scrapes; a sample not yet present counts as 0. */
+    private static double delta(String before, String after, String sample) {
+        return value(after, sample) - value(before, sample);
+    }
+
+    private static double value(String scrape, String sample) {
+        return scrape.lines()
+                .filter(l -> l.startsWith(sample + " "))
+                .mapToDouble(l -> Double.parseDouble(l.substring(sample.length() + 1).trim()))
+                .findFirst()
+                .orElse(0);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.BatchTransferItem;
+import com.example.walletledgerservice.api.dto.BatchTransferRequest;
+import com.example.walletledgerservice.api.dto.LedgerEventDto;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.service.LedgerEventRelay;
+import com.example.walletledgerservice.service.LedgerEventSink;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Outbox rows written with the postings, numbered by the relay, read through the event API and fed to an
+ * in-process sink and the file sink. The relay rounds are driven by the tests.
+ */
+@TestPropertySource(properties = {"ledger.outbox.relay-interval=1h"})
+public class OutboxIT extends IntegrationTestBase {
+
+    static final String BATCH_URL = "/api/v1/transfers/batch";
+    static final String EVENTS_URL = "/api/v1/events";
+
+    static Path eventFile;
+
+    @Autowired
+    LedgerEventRelay ledgerEventRelay;
+
+    @Autowired
+    RecordingSink recordingSink;
+
+    @TestConfiguration
+    static class Sinks {
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+
+    static class RecordingSink implements LedgerEventSink {
+        final List<LedgerEventDto> events = Collections.synchronizedList(new ArrayList<>());
+        final AtomicBoolean failNext = new AtomicBoolean();
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public void deliver(List<LedgerEventDto> batch) {
+            if (failNext.getAndSet(false)) throw new IllegalStateException("sink down");
+            events.addAll(batch);
+        }
+    }
+
+    @DynamicPropertySource
+    static void eventFile(DynamicPropertyRegistry registry) throws Exception {
+        eventFile = Files.createTempDirectory("ledger-events-it").resolve("events.jsonl");
+        registry.add("ledger.outbox.file-sink-path", eventFile::toString);
+    }
+
+    @BeforeEach
+    void resetSinks() throws Exception {
+        recordingSink.events.clear();
+        Files.deleteIfExists(eventFile);
+    }
+
+    @Test
+    void postedTransfers_areStreamedOnce_inGaplessPositions() throws Exception {
+        long a = createAccount(9801L);
+        long b = createAccount(9802L);
+        mintUsd(a, 1_000L);
+
+        String first = UUID.randomUUID().toString();
+        transfer(a, b, 100L, first).andExpect(status().isCreated());
+        transfer(a, b, 100L, first).andExpect(status().isCreated());
+        transfer(a, b, 5_000L, UUID.randomUUID().toString()).andExpect(status().isBadRequest());
+        String second = UUID.randomUUID().toString();
+        String third = UUID.randomUUID().toString();
+        postJson(BATCH_URL, new BatchTransferRequest(BatchMode.PER_ITEM, List.of(
+                new BatchTransferItem(second, new TransferRequest(b, a, 30L, USED_CURRENCY, null, null)),
+                new BatchTransferItem(third, new TransferRequest(a, b, 20L, USED_CURRENCY, "batch", "x-1")))))
+                .andExpect(status().isOk());
+
+        relayUntil(4);
+
+        List<JsonNode> stream = readStream(0);
+        // the mint is posted as a transfer too; the replay and the rejected transfer are not
+        assertThat(stream).hasSize(4);
+        assertThat(stream).extracting(e -> e.get("position").asLong())
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 4).boxed().toList());
+        List<JsonNode> ours = stream.stream()
+                .filter(e -> Set.of(first, second, third).contains(e.get("idempotencyKey").asText())).toList();
+        assertThat(ours).extracting(e -> e.get("idempotencyKey").asText()).containsExactly(first, second, third);
+        assertThat(ours.get(2).get("type").asText()).isEqualTo("TRANSFER_POSTED");
+        assertThat(ours.get(2).get("amountMinor").asLong()).isEqualTo(20L);
+        assertThat(ours.get(2).get("externalRef").asText()).isEqualTo("x-1");
+
+        assertThat(recordingSink.events).extracting(LedgerEventDto::position).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(Files.readAllLines(eventFile)).hasSize(4);
+        assertThat(jdbc.queryForList("SELECT position FROM wallet_schema.ledger_event_consumer", Long.class))
+                .containsOnly(4L);
+
+        // caught up: the next round delivers nothing again
+        ledgerEventRelay.relay();
+        assertThat(recordingSink.events).hasSize(4);
+    }
+
+    @Test
+    void pages_followNextAfter_andAFailedDeliveryIsRetried() throws Exception {
+        long a = createAccount(9901L);
+        long b = createAccount(9902L);
+        mintUsd(a, 1_000L);
+        for (int i = 0; i < 3; i++) transfer(a, b, 10L, UUID.randomUUID().toString()).andExpect(status().isCreated());
+
+        recordingSink.failNext.set(true);
+        ledgerEventRelay.relay();
+        assertThat(recordingSink.events).isEmpty();
+
+        relayUntil(4);
+        assertThat(recordingSink.failNext).isFalse();
+        assertThat(recordingSink.events).extracting(LedgerEventDto::position).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(Files.readAllLines(eventFile)).hasSize(4);
+
+        long after = 0;
+        List<Long> seen = new ArrayList<>();
+        while (true) {
+            JsonNode page = readJson(getJson(EVENTS_URL, null, Map.of("after", String.valueOf(after), "limit", "3"))
+                    .andExpect(status().isOk()).andReturn());
+            if (page.get("events").isEmpty()) {
+                assertThat(page.get("nextAfter").asLong()).isEqualTo(after);
+                break;
+            }
+            page.get("events").forEach(e -> seen.add(e.get("position").asLong()));
+            after = page.get("nextAfter").asLong();
+        }
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L);
+
+        getJson(EVENTS_URL, null, Map.of("limit", "0")).andExpect(status().isBadRequest());
+    }
+
+    /** Other test contexts run relays too and may be numbering the rows at the same moment. */
+    private void relayUntil(int events) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        ledgerEventRelay.relay();
+        while (recordingSink.events.size() < events && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            ledgerEventRelay.relay();
+        }
+    }
+
+    private List<JsonNode> readStream(long after) throws Exception {
+        JsonNode page = readJson(getJson(EVENTS_URL, null, Map.of("after", String.valueOf(after)))
+                .andExpect(status().isOk()).andReturn());
+        List<JsonNode> events = new ArrayList<>();
+        page.get("events").forEach(events::add);
+        return events;
+    }
+
+    private ResultActions transfer(long from, long to, long amount, String key)
+            throws Exception {
+        return postJson(TRANSFER_URL, new TransferRequest(from, to, amount, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.walletledgerservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "ledger.reconciliation.range-size=2",
+        "ledger.reconciliation.incremental-lag=0s"
+})
+public class ReconciliationIT extends IntegrationTestBase {
+
+    static final String RUNS_URL = "/api/v1/admin/reconciliation/runs";
+
+    @Test
+    void fullRun_consistentLedger_reportsNoDrift() throws Exception {
+        long a = createAccount(5101L);
+        long b = createAccount(5102L);
+        mintUsd(a, 1_000L);
+        transfer(a, b, 250L);
+
+        JsonNode run = awaitFinished(startRun("FULL"));
+
+        assertThat(run.get("status").asText()).isEqualTo("COMPLETED");
+        // two accounts, the treasury and the issuer
+        assertThat(run.get("accountsChecked").asLong()).isEqualTo(4L);
+        assertThat(run.get("driftCount").asLong()).isZero();
+        assertThat(run.get("rangesDone").asInt()).isEqualTo(run.get("rangesTotal").asInt());
+    }
+
+    @Test
+    void fullRun_reportsTamperedBalance() throws Exception {
+        long a = createAccount(5201L);
+        long b = createAccount(5202L);
+        mintUsd(a, 1_000L);
+        transfer(a, b, 250L);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor + 7 WHERE id = ?", b);
+
+        JsonNode run = awaitFinished(startRun("FULL"));
+        assertThat(run.get("driftCount").asLong()).isEqualTo(1L);
+
+        JsonNode drifts = readJson(getJson(RUNS_URL + "/{id}/drifts", run.get("id").asLong())
+                .andExpect(status().isOk()).andReturn());
+        assertThat(drifts).hasSize(1);
+        assertThat(drifts.get(0).get("accountId").asLong()).isEqualTo(b);
+        assertThat(drifts.get(0).get("balanceMinor").asLong()).isEqualTo(257L);
+        assertThat(drifts.get(0).get("ledgerMinor").asLong()).isEqualTo(250L);
+        assertThat(drifts.get(0).get("driftMinor").asLong()).isEqualTo(7L);
+    }
+
+    @Test
+    void incrementalRun_checksOnlyAccountsTouchedSinceLastRun() throws Exception {
+        long a = createAccount(5301L);
+        long b = createAccount(5302L);
+        long untouched = createAccount(5303L);
+        mintUsd(a, 1_000L);
+        mintUsd(untouched, 1_000L);
+        awaitFinished(startRun("FULL"));
+
+        transfer(a, b, 100L);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor - 1 WHERE id IN (?, ?)",
+                a, untouched);
+
+        JsonNode run = awaitFinished(startRun("INCREMENTAL"));
+
+        assertThat(run.get("mode").asText()).isEqualTo("INCREMENTAL");
+        assertThat(run.get("accountsChecked").asLong()).isEqualTo(2L);
+        assertThat(run.get("driftCount").asLong()).isEqualTo(1L);
+        JsonNode drifts = readJson(getJson(RUNS_URL + "/{id}/drifts", run.get("id").asLong()).andReturn());
+        assertThat(drifts.get(0).get("accountId").asLong()).isEqualTo(a);
+    }
+
+    @Test
+    void resume_skipsCheckpointedRanges() throws Exception {
+        long a = createAccount(5401L);
+        mintUsd(a, 500L);
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = balance_minor + 1 WHERE id = ?", a);
+
+        long runId = jdbc.queryForObject("""
+                INSERT INTO wallet_schema.reconciliation_run (mode, status, range_size, started_at, error)
+                VALUES ('FULL', 'FAILED', 2, now(), 'interrupted') RETURNING id
+                """, Long.class);
+        // the range holding the tampered account was already checked before the failure
+        jdbc.update("""
+                INSERT INTO wallet_schema.reconciliation_range (run_id, range_start, accounts_checked, drift_count)
+                VALUES (?, ?, 1, 0)
+                """, runId, Math.floorDiv(a, 2) * 2);
+
+        MvcResult res = postJson(RUNS_URL + "/" + runId + "/resume", Map.of())
+                .andExpect(status().isAccepted())
+                .andReturn();
+        JsonNode run = awaitFinished(readJson(res).get("id").asLong());
+
+        assertThat(run.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(run.get("error").isNull()).isTrue();
+        assertThat(run.get("driftCount").asLong()).isZero();
+
+        postJson(RUNS_URL + "/" + runId + "/resume", Map.of())
+                .andExpect(status().isConflict());
+    }
+
+    private long startRun(String mode) throws Exception {
+        MvcResult res = postJson(RUNS_URL, Map.of(), Map.of("mode", mode))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        return readJson(res).get("id").asLong();
+    }
+
+    private JsonNode awaitFinished(long runId) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            JsonNode run = readJson(getJson(RUNS_URL + "/{id}", runId).andExpect(status().isOk()).andReturn());
+            if (!"RUNNING".equals(run.get("status").asText())) return run;
+            assertThat(System.currentTimeMillis()).as("run %d still running", runId).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.config.ReadYourWritesFilter;
+import com.example.walletledgerservice.service.ReplicaLagMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Read-only transactions on the replica pool. The replica here is the test database itself, which is not in
+ * recovery and so always counts as caught up as of the last lag check. Small pools: the cached contexts of
+ * the other tests hold their connections to the same server.
+ */
+@TestPropertySource(properties = {
+        "ledger.replica.enabled=true",
+        "ledger.replica.url=${spring.datasource.url}",
+        "ledger.replica.username=${spring.datasource.username}",
+        "ledger.replica.password=${spring.datasource.password}",
+        "ledger.replica.maximum-pool-size=2",
+        "ledger.replica.check-interval=1h",
+        "spring.datasource.hikari.maximum-pool-size=3"})
+public class ReplicaRoutingIT extends IntegrationTestBase {
+
+    @Autowired
+    ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void readOnlyRead_goesToTheReplica_writesReturnTheirPosition() throws Exception {
+        MvcResult created = postJson(ACCOUNT_URL, new CreateAccountRequest(9101L, USED_CURRENCY))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String position = created.getResponse().getHeader(ReadYourWritesFilter.POSITION_HEADER);
+        assertThat(position).isNotNull();
+        long id = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asLong();
+
+        replicaLagMonitor.check();
+        assertThat(replicaLagMonitor.replayedPosition()).isGreaterThanOrEqualTo(ReplicaLagMonitor.parsePosition(position));
+        double replicaReads = reads("replica");
+
+        getJson(ACCOUNT_URL + "/{id}", id)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ownerId").value(9101L));
+        getJson(ACCOUNT_URL + "/" + id, Map.of(ReadYourWritesFilter.POSITION_HEADER, position), null)
+                .andExpect(status().isOk());
+
+        assertThat(reads("replica")).isEqualTo(replicaReads + 2);
+    }
+
+    @Test
+    void positionAheadOfTheReplica_readsThePrimary() throws Exception {
+        long id = objectMapper.readTree(postJson(ACCOUNT_URL, new CreateAccountRequest(9201L, USED_CURRENCY))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        replicaLagMonitor.check();
+        double primaryReads = reads("primary");
+        String ahead = ReplicaLagMonitor.formatPosition(replicaLagMonitor.replayedPosition() + 1);
+
+        getJson(ACCOUNT_URL + "/" + id, Map.of(ReadYourWritesFilter.POSITION_HEADER, ahead), null)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ownerId").value(9201L));
+
+        assertThat(reads("primary")).isEqualTo(primaryReads + 1);
+    }
+
+    @Test
+    void cachedAccount_isSkippedByARequestThatCarriesItsPosition() throws Exception {
+        long id = objectMapper.readTree(postJson(ACCOUNT_URL, new CreateAccountRequest(9301L, USED_CURRENCY))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        getJson(ACCOUNT_URL + "/{id}", id)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balanceMinor").value(0));
+
+        // written through another instance: this instance's cache is not invalidated; the position of a later
+        // write here stands in for the one the other instance would have returned
+        jdbc.update("UPDATE wallet_schema.account SET balance_minor = 500, version = version + 1 WHERE id = ?", id);
+        String position = postJson(ACCOUNT_URL, new CreateAccountRequest(9302L, USED_CURRENCY))
+                .andReturn().getResponse().getHeader(ReadYourWritesFilter.POSITION_HEADER);
+        replicaLagMonitor.check();
+
+        getJson(ACCOUNT_URL + "/{id}", id)
+                .andExpect(jsonPath("$.balanceMinor").value(0));
+        getJson(ACCOUNT_URL + "/" + id, Map.of(ReadYourWritesFilter.POSITION_HEADER, position), null)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balanceMinor").value(500));
+    }
+
+    @Test
+    void positions_roundTripThroughTheirTextForm() {
+        assertThat(ReplicaLagMonitor.parsePosition("16/B374D848")).isEqualTo(0x16_B374D848L);
+        assertThat(ReplicaLagMonitor.formatPosition(0x16_B374D848L)).isEqualTo("16/B374D848");
+        assertThat(ReplicaLagMonitor.formatPosition(ReplicaLagMonitor.parsePosition("0/0"))).isEqualTo("0/0");
+    }
+
+    private double reads(String target) {
+        return meterRegistry.counter("ledger.replica.reads", "target", target).count();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.ShardAccountRequest;
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.service.AccountReadCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Transfers posted through the {@code post_transfer} database function.
+ */
+@TestPropertySource(properties = "ledger.posting.mode=sql_function")
+public class SqlFunctionTransferIT extends IntegrationTestBase {
+
+    @Autowired
+    AccountReadCache accountReadCache;
+
+    @Test
+    void transfer_ok_postsOnce_andReplaysSameEntry() throws Exception {
+        long fromId = createAccount(1101L, USED_CURRENCY);
+        long toId = createAccount(1102L, USED_CURRENCY);
+        mintUsd(fromId, 1_000L);
+
+        TransferRequest body = new TransferRequest(fromId, toId, 400L, USED_CURRENCY, "via function", "ext-1");
+        Map<String, String> key = Map.of(HEADER_NAME, UUID.randomUUID().toString());
+
+        MvcResult first = postJson(TRANSFER_URL, body, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.fromAccountId").value(fromId))
+                .andExpect(jsonPath("$.toAccountId").value(toId))
+                .andExpect(jsonPath("$.amountMinor").value(400L))
+                .andExpect(jsonPath("$.description").value("via function"))
+                .andExpect(jsonPath("$.externalRef").value("ext-1"))
+                .andReturn();
+        long entryId = objectMapper.readTree(first.getResponse().getContentAsString()).get("journalEntryId").asLong();
+
+        postJson(TRANSFER_URL, body, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId))
+                .andExpect(jsonPath("$.fromAccountId").value(fromId))
+                .andExpect(jsonPath("$.toAccountId").value(toId));
+
+        assertThat(getBalance(fromId)).isEqualTo(600L);
+        assertThat(getBalance(toId)).isEqualTo(400L);
+        // the function reports the versions it wrote, so the reads after the posting are cached again
+        assertThat(accountReadCache.get(fromId)).isNotNull();
+        assertThat(accountReadCache.get(toId)).isNotNull();
+    }
+
+    @Test
+    void transfer_insufficientFunds_returns400() throws Exception {
+        long fromId = createAccount(1201L, USED_CURRENCY);
+        long toId = createAccount(1202L, USED_CURRENCY);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 1L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.details").value("Insufficient funds"));
+    }
+
+    @Test
+    void transfer_currencyMismatch_returns400() throws Exception {
+        long fromId = createAccount(1301L, USED_CURRENCY);
+        long toId = createAccount(1302L, "EUR");
+        mintUsd(fromId, 100L);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 50L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("toAccountId has currency EUR, expected USD"));
+
+        assertThat(getBalance(fromId)).isEqualTo(100L);
+    }
+
+    @Test
+    void transfer_unknownAccount_returns404() throws Exception {
+        long fromId = createAccount(1401L, USED_CURRENCY);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, 999_999L, 1L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.details").value("Account not found: id=999999"));
+    }
+
+    @Test
+    void transfer_shardedAccount_fallsBackToJpaPath() throws Exception {
+        long hotId = createAccount(1501L, USED_CURRENCY);
+        long toId = createAccount(1502L, USED_CURRENCY);
+        mintUsd(hotId, 1_000L);
+
+        postJson(ACCOUNT_URL + "/" + hotId + "/shards", new ShardAccountRequest(4))
+                .andExpect(status().isOk());
+
+        postJson(TRANSFER_URL, new TransferRequest(hotId, toId, 700L, USED_CURRENCY, null, null), idemHeader())
+                .andExpect(status().isCreated());
+
+        assertThat(getBalance(hotId)).isEqualTo(300L);
+        assertThat(getBalance(toId)).isEqualTo(700L);
+    }
+}
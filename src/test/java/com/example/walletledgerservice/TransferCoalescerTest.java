@@ -0,0 +1,180 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.api.dto.TransferResponse;
+import com.example.walletledgerservice.config.CoalescerProperties;
+import com.example.walletledgerservice.config.PostingProperties;
+import com.example.walletledgerservice.enums.BatchItemStatus;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.enums.PostingMode;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.service.BatchItemOutcome;
+import com.example.walletledgerservice.service.AccountShardService;
+import com.example.walletledgerservice.service.BatchTransferService;
+import com.example.walletledgerservice.service.TransferCoalescer;
+import com.example.walletledgerservice.service.TransferMetrics;
+import com.example.walletledgerservice.service.TransferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferCoalescerTest {
+
+    @Mock
+    BatchTransferService batchTransferService;
+
+    @Mock
+    TransferService transferService;
+
+    @Mock
+    AccountShardService accountShardService;
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    TransferCoalescer coalescer;
+    final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) coalescer.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentRequests_shareOneTransaction_andFailOnTheirOwn() throws Exception {
+        coalescer = started(Duration.ofMillis(300));
+        when(batchTransferService.createTransfers(anyList(), eq(BatchMode.PER_ITEM))).thenAnswer(inv -> {
+            List<TransferCommand> commands = inv.getArgument(0);
+            return commands.stream().map(c -> c.amountMinor() > 100
+                    ? new BatchItemOutcome(c, BatchItemStatus.FAILED, null, new ValidationException("Insufficient funds"))
+                    : new BatchItemOutcome(c, BatchItemStatus.POSTED, response(c), null)).toList();
+        });
+
+        List<CompletableFuture<TransferResponse>> replies = new ArrayList<>();
+        for (long amount : new long[]{10, 20, 500, 30}) {
+            replies.add(CompletableFuture.supplyAsync(() -> coalescer.createTransfer(command("k" + amount, amount)), callers));
+        }
+
+        assertThat(replies.get(0).get().amountMinor()).isEqualTo(10L);
+        assertThat(replies.get(1).get().amountMinor()).isEqualTo(20L);
+        assertThat(replies.get(3).get().amountMinor()).isEqualTo(30L);
+        assertThat(replies.get(2)).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(Exception.class)
+                .withRootCauseInstanceOf(ValidationException.class);
+
+        var stats = coalescer.stats();
+        assertThat(stats.batches()).isEqualTo(1);
+        assertThat(stats.transfers()).isEqualTo(4);
+        assertThat(registry.get("ledger.coalescer.batch.size").summary().max()).isEqualTo(4.0);
+        assertThat(registry.get("ledger.coalescer.commit").timer().count()).isEqualTo(1);
+        assertThat(registry.get("ledger.transfer.rejections").tag("reason", "invalid").counter().count()).isEqualTo(1);
+        verify(transferService, never()).createTransfer(any());
+    }
+
+    @Test
+    void failedGroup_isPostedOneByOne() {
+        coalescer = started(Duration.ZERO);
+        when(batchTransferService.createTransfers(anyList(), eq(BatchMode.PER_ITEM)))
+                .thenThrow(new ConflictException("Idempotency key of the batch was posted concurrently, retry the batch"));
+        TransferCommand cmd = command("k1", 10);
+        when(transferService.createTransfer(cmd)).thenReturn(response(cmd));
+
+        assertThat(coalescer.createTransfer(cmd).amountMinor()).isEqualTo(10L);
+        assertThat(coalescer.stats().fallbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void validationError_ofSingleItem_isRethrownToCaller() {
+        coalescer = started(Duration.ZERO);
+        when(batchTransferService.createTransfers(anyList(), eq(BatchMode.PER_ITEM))).thenAnswer(inv -> {
+            List<TransferCommand> commands = inv.getArgument(0);
+            return commands.stream().map(c -> new BatchItemOutcome(c, BatchItemStatus.FAILED, null,
+                    new ValidationException("Insufficient funds"))).toList();
+        });
+
+        assertThatThrownBy(() -> coalescer.createTransfer(command("k1", 10)))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Insufficient funds");
+    }
+
+    @Test
+    void notStarted_postsDirectly() {
+        coalescer = new TransferCoalescer(batchTransferService, transferService, new PostingProperties(),
+                new CoalescerProperties(), new TransferMetrics(registry), accountShardService, registry);
+        coalescer.start();
+        TransferCommand cmd = command("k1", 10);
+        when(transferService.createTransfer(cmd)).thenReturn(response(cmd));
+
+        assertThat(coalescer.isRunning()).isFalse();
+        assertThat(coalescer.createTransfer(cmd).amountMinor()).isEqualTo(10L);
+        assertThat(coalescer.stats().bypassed()).isEqualTo(1);
+        verify(batchTransferService, times(0)).createTransfers(anyList(), any());
+    }
+
+    @Test
+    void shardedAccount_isPostedOnItsOwn() {
+        coalescer = started(Duration.ZERO);
+        TransferCommand cmd = command("k1", 10);
+        when(accountShardService.isKnownSharded(1L)).thenReturn(true);
+        when(transferService.createTransfer(cmd)).thenReturn(response(cmd));
+
+        assertThat(coalescer.createTransfer(cmd).amountMinor()).isEqualTo(10L);
+        assertThat(coalescer.stats().bypassed()).isEqualTo(1);
+        verify(batchTransferService, never()).createTransfers(anyList(), any());
+    }
+
+    @Test
+    void sqlFunctionMode_doesNotStart() {
+        var props = new CoalescerProperties();
+        props.setEnabled(true);
+        var posting = new PostingProperties();
+        posting.setMode(PostingMode.SQL_FUNCTION);
+        coalescer = new TransferCoalescer(batchTransferService, transferService, posting, props,
+                new TransferMetrics(registry), accountShardService, registry);
+        coalescer.start();
+
+        assertThat(coalescer.isRunning()).isFalse();
+    }
+
+    private TransferCoalescer started(Duration window) {
+        var props = new CoalescerProperties();
+        props.setEnabled(true);
+        props.setWorkers(1);
+        props.setWindow(window);
+        props.setMaxQueueDelay(Duration.ofSeconds(1));
+        var c = new TransferCoalescer(batchTransferService, transferService, new PostingProperties(), props,
+                new TransferMetrics(registry), accountShardService, registry);
+        c.start();
+        return c;
+    }
+
+    private static TransferCommand command(String key, long amount) {
+        return new TransferCommand(key, 1L, 2L, amount, "USD", null, null);
+    }
+
+    private static TransferResponse response(TransferCommand c) {
+        return new TransferResponse(1L, c.fromAccountId(), c.toAccountId(), c.amountMinor(), c.currency(),
+                null, null, null);
+    }
+}
@@ -1,28 +1,34 @@
 package com.example.walletledgerservice;
 
-import com.example.walletledgerservice.api.dto.CreateAccountRequest;
+import com.example.walletledgerservice.api.dto.BatchTransferItem;
+import com.example.walletledgerservice.api.dto.BatchTransferRequest;
+import com.example.walletledgerservice.api.dto.ShardAccountRequest;
 import com.example.walletledgerservice.api.dto.TransferRequest;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.walletledgerservice.enums.BatchMode;
+import com.example.walletledgerservice.service.IdempotencyResponseCache;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
-import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 public class TransferControllerIT extends IntegrationTestBase {
 
-    static final String ACCOUNT_URL = "/api/v1/accounts";
-    static final String TRANSFER_URL = "/api/v1/transfers";
-    static final String DEV_MINT_URL  = "/api/v1/dev/treasury/mint/usd";
+    static final String BATCH_URL = "/api/v1/transfers/batch";
 
-    static final String HEADER_NAME = "Idempotency-Key";
-    static final String USED_CURRENCY = "USD";
+    @Autowired
+    IdempotencyResponseCache idempotencyResponseCache;
 
     @Test
     void transfer_ok_returns201_andUpdatesBalances() throws Exception {
@@ -72,6 +78,63 @@ public class TransferControllerIT extends IntegrationTestBase {
         assertThat(t2).isEqualTo(t1);
     }
 
+    @Test
+    void transfer_retry_isServedFromResponseCache() throws Exception {
+        long fromId = createAccount(121L, USED_CURRENCY);
+        long toId   = createAccount(232L, USED_CURRENCY);
+        mintUsd(fromId, 1_000L);
+
+        TransferRequest body = new TransferRequest(fromId, toId, 300L, USED_CURRENCY, "test transfer", null);
+        Map<String, String> key = idemHeader();
+
+        MvcResult first = postJson(TRANSFER_URL, body, key)
+                .andExpect(status().isCreated())
+                .andReturn();
+        long entryId = objectMapper.readTree(first.getResponse().getContentAsString()).get("journalEntryId").asLong();
+
+        long hitsBefore = idempotencyResponseCache.hitCount();
+        postJson(TRANSFER_URL, body, key)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId))
+                .andExpect(jsonPath("$.amountMinor").value(300L));
+
+        assertThat(idempotencyResponseCache.hitCount()).isEqualTo(hitsBefore + 1);
+        assertThat(getBalance(fromId)).isEqualTo(700L);
+    }
+
+    @Test
+    void transfer_keyPostedElsewhere_isReplayed_notPostedTwice() throws Exception {
+        long fromId = createAccount(131L, USED_CURRENCY);
+        long toId   = createAccount(242L, USED_CURRENCY);
+        mintUsd(fromId, 1_000L);
+
+        // posted by another instance: neither the response cache nor the key filter knows it
+        String key = UUID.randomUUID().toString();
+        long entryId = insertEntryDirectly(key, fromId, toId, 200L);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 200L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId));
+
+        assertThat(getBalance(fromId)).isEqualTo(1_000L);
+        assertThat(getBalance(toId)).isZero();
+    }
+
+    @Test
+    void transfer_keyPostedElsewhere_replaysEvenWhenFundsAreGone() throws Exception {
+        long fromId = createAccount(141L, USED_CURRENCY);
+        long toId   = createAccount(252L, USED_CURRENCY);
+
+        String key = UUID.randomUUID().toString();
+        long entryId = insertEntryDirectly(key, fromId, toId, 500L);
+
+        postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 500L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.journalEntryId").value(entryId));
+    }
+
     @Test
     void transfer_insufficientFunds_returns400() throws Exception {
         long fromId = createAccount(333L, USED_CURRENCY);
@@ -114,38 +177,126 @@ public class TransferControllerIT extends IntegrationTestBase {
                 .andExpect(jsonPath("$.code").value("BAD_REQUEST"));
     }
 
-    private long createAccount(long ownerId, String currencyUpperOrLower) throws Exception {
-        var body = new CreateAccountRequest(ownerId, currencyUpperOrLower);
-        MvcResult res = postJson(ACCOUNT_URL, body)
-                .andExpect(status().isCreated())
-                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
-                .andReturn();
+    @Test
+    void transfer_fromShardedAccount_combinesShards_andKeepsTotals() throws Exception {
+        long hotId = createAccount(901L, USED_CURRENCY);
+        long aId   = createAccount(902L, USED_CURRENCY);
+        long bId   = createAccount(903L, USED_CURRENCY);
 
-        JsonNode json = objectMapper.readTree(res.getResponse().getContentAsString());
-        return json.get("id").asLong();
-    }
+        mintUsd(hotId, 1_000L);
 
-    private long getBalance(long accountId) throws Exception {
-        MvcResult res = getJson(ACCOUNT_URL + "/{id}", accountId)
+        postJson(ACCOUNT_URL + "/" + hotId + "/shards", new ShardAccountRequest(4))
                 .andExpect(status().isOk())
-                .andReturn();
+                .andExpect(jsonPath("$.balanceMinor").value(1_000L));
+
+        assertThat(jdbc.queryForList("SELECT balance_minor FROM wallet_schema.account_shard WHERE account_id = ? ORDER BY shard_no",
+                Long.class, hotId)).isEqualTo(List.of(250L, 250L, 250L, 250L));
+
+        // no single shard holds 600, so the picked shard has to fall back to combining shards
+        postJson(TRANSFER_URL, new TransferRequest(hotId, aId, 600L, USED_CURRENCY, "from hot", null), idemHeader())
+                .andExpect(status().isCreated());
+        postJson(TRANSFER_URL, new TransferRequest(aId, hotId, 100L, USED_CURRENCY, "to hot", null), idemHeader())
+                .andExpect(status().isCreated());
+        postJson(TRANSFER_URL, new TransferRequest(hotId, bId, 500L, USED_CURRENCY, "from hot", null), idemHeader())
+                .andExpect(status().isCreated());
 
-        JsonNode json = objectMapper.readTree(res.getResponse().getContentAsString());
-        return json.get("balanceMinor").asLong();
+        assertThat(getBalance(hotId)).isZero();
+        assertThat(getBalance(aId)).isEqualTo(500L);
+        assertThat(getBalance(bId)).isEqualTo(500L);
+
+        postJson(TRANSFER_URL, new TransferRequest(hotId, bId, 1L, USED_CURRENCY, "overdraft", null), idemHeader())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("Insufficient funds"));
     }
 
-    private void mintUsd(long fromId, long amountMinor) throws Exception {
-        Map<String, String> param = new HashMap<>();
-        param.put("toAccountId", String.valueOf(fromId));
-        param.put("amountMinor", String.valueOf(amountMinor));
+    @Test
+    void concurrentDebits_fromShardedAccount_combineShards_withoutDeadlocks() throws Exception {
+        long hotId  = createAccount(951L, USED_CURRENCY);
+        long sinkId = createAccount(952L, USED_CURRENCY);
+        mintUsd(hotId, 1_000L);
+        postJson(ACCOUNT_URL + "/" + hotId + "/shards", new ShardAccountRequest(4))
+                .andExpect(status().isOk());
+
+        // 250 per shard: every fifth debit on a shard finds it short and locks all shards
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int n = 0; n < 20; n++) {
+            results.add(pool.submit(() -> postJson(TRANSFER_URL,
+                    new TransferRequest(hotId, sinkId, 60L, USED_CURRENCY, null, null), idemHeader())
+                    .andReturn().getResponse().getStatus()));
+        }
+        Map<Integer, Integer> statuses = new HashMap<>();
+        for (Future<Integer> r : results) statuses.merge(r.get(), 1, Integer::sum);
+        pool.shutdown();
+
+        assertThat(statuses).isEqualTo(Map.of(201, 16, 400, 4));
+        assertThat(getBalance(hotId)).isEqualTo(40L);
+        assertThat(getBalance(sinkId)).isEqualTo(960L);
+    }
 
-        postJson(DEV_MINT_URL, idemHeader(), param)
-                .andExpect(MockMvcResultMatchers.status().isCreated())
-                .andReturn();
+    @Test
+    void batch_perItem_postsValidItems_andReportsFailures() throws Exception {
+        long aId = createAccount(1001L, USED_CURRENCY);
+        long bId = createAccount(1002L, USED_CURRENCY);
+        long cId = createAccount(1003L, USED_CURRENCY);
+        mintUsd(aId, 1_000L);
+
+        String replayKey = UUID.randomUUID().toString();
+        postJson(TRANSFER_URL, new TransferRequest(aId, bId, 100L, USED_CURRENCY, "single", null),
+                Map.of(HEADER_NAME, replayKey))
+                .andExpect(status().isCreated());
+
+        var batch = new BatchTransferRequest(BatchMode.PER_ITEM, List.of(
+                new BatchTransferItem(replayKey, new TransferRequest(aId, bId, 100L, USED_CURRENCY, "single", null)),
+                new BatchTransferItem(UUID.randomUUID().toString(), new TransferRequest(aId, cId, 300L, USED_CURRENCY, null, null)),
+                new BatchTransferItem(UUID.randomUUID().toString(), new TransferRequest(bId, cId, 5_000L, USED_CURRENCY, null, null)),
+                new BatchTransferItem(UUID.randomUUID().toString(), new TransferRequest(cId, bId, 50L, USED_CURRENCY, null, null))
+        ));
+
+        postJson(BATCH_URL, batch)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.committed").value(true))
+                .andExpect(jsonPath("$.posted").value(2))
+                .andExpect(jsonPath("$.replayed").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("REPLAYED"))
+                .andExpect(jsonPath("$.items[1].status").value("POSTED"))
+                .andExpect(jsonPath("$.items[2].status").value("FAILED"))
+                .andExpect(jsonPath("$.items[2].errorDetails").value("Insufficient funds"))
+                .andExpect(jsonPath("$.items[3].status").value("POSTED"));
+
+        assertThat(getBalance(aId)).isEqualTo(600L);
+        assertThat(getBalance(bId)).isEqualTo(150L);
+        assertThat(getBalance(cId)).isEqualTo(250L);
+    }
 
+    @Test
+    void batch_allOrNothing_rollsBackOnFailure() throws Exception {
+        long aId = createAccount(1101L, USED_CURRENCY);
+        long bId = createAccount(1102L, USED_CURRENCY);
+        mintUsd(aId, 1_000L);
+
+        var batch = new BatchTransferRequest(BatchMode.ALL_OR_NOTHING, List.of(
+                new BatchTransferItem(UUID.randomUUID().toString(), new TransferRequest(aId, bId, 400L, USED_CURRENCY, null, null)),
+                new BatchTransferItem(UUID.randomUUID().toString(), new TransferRequest(aId, bId, 700L, USED_CURRENCY, null, null))
+        ));
+
+        postJson(BATCH_URL, batch)
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.committed").value(false))
+                .andExpect(jsonPath("$.items[0].status").value("NOT_POSTED"))
+                .andExpect(jsonPath("$.items[1].status").value("FAILED"));
+
+        assertThat(getBalance(aId)).isEqualTo(1_000L);
+        assertThat(getBalance(bId)).isZero();
     }
 
-    private Map<String,String> idemHeader() {
-        return Map.of(HEADER_NAME, UUID.randomUUID().toString());
+    private long insertEntryDirectly(String key, long fromId, long toId, long amount) {
+        return jdbc.queryForObject("""
+                INSERT INTO wallet_schema.journal_entry
+                    (idempotency_key, created_at, from_account_id, to_account_id, amount_minor, currency)
+                VALUES (?, now(), ?, ?, ?, 'USD')
+                RETURNING id
+                """, Long.class, key, fromId, toId, amount);
     }
 }
@@ -0,0 +1,104 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferCommand;
+import com.example.walletledgerservice.enums.BatchItemStatus;
+import com.example.walletledgerservice.exception.ConflictException;
+import com.example.walletledgerservice.exception.CurrencyMismatchException;
+import com.example.walletledgerservice.exception.InsufficientFundsException;
+import com.example.walletledgerservice.exception.NotFoundException;
+import com.example.walletledgerservice.exception.ServiceUnavailableException;
+import com.example.walletledgerservice.service.BatchItemOutcome;
+import com.example.walletledgerservice.service.TransferMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferMetricsTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final TransferMetrics metrics = new TransferMetrics(registry);
+
+    @Test
+    void rejected_countsByReason() {
+        metrics.rejected(new InsufficientFundsException());
+        metrics.rejected(new InsufficientFundsException());
+        metrics.rejected(new CurrencyMismatchException("toAccountId has currency EUR, expected USD"));
+        metrics.rejected(new NotFoundException("Account not found: id=1"));
+        metrics.rejected(new ValidationException("something else"));
+
+        assertThat(rejections("insufficient_funds")).isEqualTo(2);
+        assertThat(rejections("currency_mismatch")).isEqualTo(1);
+        assertThat(rejections("account_not_found")).isEqualTo(1);
+        assertThat(rejections("invalid")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedItems_ofABatch_areCounted_butNotUnavailableOnes() {
+        TransferCommand cmd = new TransferCommand("k1", 1L, 2L, 10L, "USD", null, null);
+        metrics.rejected(List.of(
+                new BatchItemOutcome(cmd, BatchItemStatus.POSTED, null, null),
+                new BatchItemOutcome(cmd, BatchItemStatus.FAILED, null, new InsufficientFundsException()),
+                new BatchItemOutcome(cmd, BatchItemStatus.FAILED, null, new ConflictException("Idempotency key was used")),
+                new BatchItemOutcome(cmd, BatchItemStatus.FAILED, null, new ServiceUnavailableException("not confirmed")),
+                new BatchItemOutcome(cmd, BatchItemStatus.NOT_POSTED, null, null)));
+
+        assertThat(rejections("insufficient_funds")).isEqualTo(1);
+        assertThat(rejections("invalid")).isEqualTo(1);
+    }
+
+    @Test
+    void time_recordsPhase_evenWhenStepThrows() {
+        assertThat(metrics.time(TransferMetrics.Phase.LOCK_ACCOUNTS, () -> 42)).isEqualTo(42);
+        try {
+            metrics.time(TransferMetrics.Phase.LOCK_ACCOUNTS, (Runnable) () -> {
+                throw new NotFoundException("gone");
+            });
+        } catch (NotFoundException ignored) {
+            // recorded anyway
+        }
+
+        assertThat(phaseCount("lock_accounts")).isEqualTo(2);
+        assertThat(phaseCount("insert_entry")).isZero();
+    }
+
+    @Test
+    void timeCommit_recordsTheCommit_andIsNoOpOutsideTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.timeCommit();
+            var syncs = TransactionSynchronizationManager.getSynchronizations();
+            syncs.forEach(s -> s.beforeCommit(false));
+            syncs.forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        // outside a transaction there is nothing to time
+        metrics.timeCommit();
+
+        assertThat(phaseCount("commit")).isEqualTo(1);
+    }
+
+    @Test
+    void idempotentHit_countsByPath() {
+        metrics.idempotentHit(TransferMetrics.HitPath.RACED);
+
+        assertThat(registry.get("ledger.transfer.idempotent.hits").tag("path", "raced").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("ledger.transfer.idempotent.hits").tag("path", "lookup").counter().count())
+                .isZero();
+    }
+
+    private double rejections(String reason) {
+        return registry.get("ledger.transfer.rejections").tag("reason", reason).counter().count();
+    }
+
+    private long phaseCount(String phase) {
+        return registry.get("ledger.transfer.phase").tag("phase", phase).timer().count();
+    }
+}
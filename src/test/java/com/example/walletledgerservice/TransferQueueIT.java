@@ -0,0 +1,209 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.api.dto.TransferRequest;
+import com.example.walletledgerservice.config.TransferQueueProperties;
+import com.example.walletledgerservice.service.TransferQueueService;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Transfers queued by the async endpoint. No worker threads run here, so each test drains the queue itself,
+ * except the one that starts them.
+ */
+@TestPropertySource(properties = {
+        "ledger.transfer-queue.enabled=true",
+        "ledger.transfer-queue.workers=0",
+        "ledger.transfer-queue.poll-interval=20ms",
+        "ledger.transfer-queue.lease=1m"})
+public class TransferQueueIT extends IntegrationTestBase {
+
+    static final String ASYNC_URL = "/api/v1/transfers/async";
+
+    @Autowired
+    TransferQueueService transferQueueService;
+
+    @Autowired
+    TransferQueueProperties transferQueueProperties;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void queuedTransfers_arePostedOnDrain_andFailuresKeepTheirCode() throws Exception {
+        long fromId = createAccount(9301L);
+        long toId = createAccount(9302L);
+        mintUsd(fromId, 1_000L);
+        double posted = processed("posted");
+
+        String key = UUID.randomUUID().toString();
+        postJson(ASYNC_URL, new TransferRequest(fromId, toId, 300L, USED_CURRENCY, "bulk", "ref-1"), Map.of(HEADER_NAME, key))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", ASYNC_URL + "/" + key))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.attempts").value(0));
+        String tooMuch = UUID.randomUUID().toString();
+        postJson(ASYNC_URL, new TransferRequest(fromId, toId, 5_000L, USED_CURRENCY, null, null), Map.of(HEADER_NAME, tooMuch))
+                .andExpect(status().isAccepted());
+        // nothing is posted at enqueue time
+        assertThat(getBalance(fromId)).isEqualTo(1_000L);
+
+        assertThat(transferQueueService.drainOnce()).isEqualTo(2);
+        assertThat(transferQueueService.drainOnce()).isZero();
+
+        JsonNode done = readJson(getJson(ASYNC_URL + "/{key}", key).andExpect(status().isOk()).andReturn());
+        assertThat(done.get("status").asText()).isEqualTo("POSTED");
+        assertThat(done.get("attempts").asInt()).isEqualTo(1);
+        assertThat(done.get("transfer").get("amountMinor").asLong()).isEqualTo(300L);
+        assertThat(done.get("transfer").get("externalRef").asText()).isEqualTo("ref-1");
+        long entryId = done.get("transfer").get("journalEntryId").asLong();
+        assertThat(jdbc.queryForObject("SELECT idempotency_key FROM wallet_schema.journal_entry WHERE id = ?",
+                String.class, entryId)).isEqualTo(key);
+
+        getJson(ASYNC_URL + "/{key}", tooMuch)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.transfer").doesNotExist());
+
+        assertThat(getBalance(fromId)).isEqualTo(700L);
+        assertThat(getBalance(toId)).isEqualTo(300L);
+        assertThat(processed("posted")).isEqualTo(posted + 1);
+        assertThat(meterRegistry.timer("ledger.transfer.queue.lag").count()).isGreaterThanOrEqualTo(2L);
+    }
+
+    @Test
+    void sameKey_isQueuedOnce_andUnknownKeysAreNotFound() throws Exception {
+        long fromId = createAccount(9401L);
+        long toId = createAccount(9402L);
+        String key = UUID.randomUUID().toString();
+
+        postJson(ASYNC_URL, new TransferRequest(fromId, toId, 10L, USED_CURRENCY, null, null), Map.of(HEADER_NAME, key))
+                .andExpect(status().isAccepted());
+        postJson(ASYNC_URL, new TransferRequest(fromId, toId, 20L, USED_CURRENCY, null, null), Map.of(HEADER_NAME, key))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+        assertThat(jdbc.queryForObject("SELECT amount_minor FROM wallet_schema.transfer_queue WHERE idempotency_key = ?",
+                Long.class, key)).isEqualTo(10L);
+
+        postJson(ASYNC_URL, new TransferRequest(fromId, fromId, 10L, USED_CURRENCY, null, null),
+                Map.of(HEADER_NAME, UUID.randomUUID().toString()))
+                .andExpect(status().isBadRequest());
+        getJson(ASYNC_URL + "/{key}", "no-such-key").andExpect(status().isNotFound());
+    }
+
+    @Test
+    void claim_skipsLockedRows_andSamplesDepth() throws Exception {
+        long fromId = createAccount(9501L);
+        long toId = createAccount(9502L);
+        mintUsd(fromId, 1_000L);
+        String locked = UUID.randomUUID().toString();
+        String free = UUID.randomUUID().toString();
+        postJson(ASYNC_URL, new TransferRequest(fromId, toId, 1L, USED_CURRENCY, null, null), Map.of(HEADER_NAME, locked))
+                .andExpect(status().isAccepted());
+        postJson(ASYNC_URL, new TransferRequest(fromId, toId, 2L, USED_CURRENCY, null, null), Map.of(HEADER_NAME, free))
+                .andExpect(status().isAccepted());
+
+        transferQueueService.sampleDepth();
+        assertThat(meterRegistry.get("ledger.transfer.queue.depth").tag("status", "pending").gauge().value()).isEqualTo(2.0);
+
+        // another transaction holds the older row: the claim takes the other one instead of waiting
+        Integer claimed = new TransactionTemplate(transactionManager).execute(tx -> {
+            jdbc.queryForObject("SELECT 1 FROM wallet_schema.transfer_queue WHERE idempotency_key = ? FOR UPDATE",
+                    Integer.class, locked);
+            try {
+                return CompletableFuture.supplyAsync(transferQueueService::drainOnce).get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(claimed).isEqualTo(1);
+        getJson(ASYNC_URL + "/{key}", free).andExpect(jsonPath("$.status").value("POSTED"));
+        getJson(ASYNC_URL + "/{key}", locked).andExpect(jsonPath("$.status").value("PENDING"));
+
+        transferQueueService.sampleDepth();
+        assertThat(transferQueueService.depth().pending()).isEqualTo(1L);
+    }
+
+    @Test
+    void expiredClaim_isClaimedAgain_andReplays() throws Exception {
+        long fromId = createAccount(9601L);
+        long toId = createAccount(9602L);
+        mintUsd(fromId, 1_000L);
+        String key = UUID.randomUUID().toString();
+        long entryId = readJson(postJson(TRANSFER_URL, new TransferRequest(fromId, toId, 100L, USED_CURRENCY, "first", null),
+                Map.of(HEADER_NAME, key))
+                .andExpect(status().isCreated())
+                .andReturn()).get("journalEntryId").asLong();
+
+        // as a worker that died after posting would leave it
+        Timestamp longAgo = Timestamp.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        jdbc.update("""
+                INSERT INTO wallet_schema.transfer_queue (idempotency_key, from_account_id, to_account_id, amount_minor,
+                    currency, status, attempts, enqueued_at, claimed_at)
+                VALUES (?, ?, ?, 100, 'USD', 'PROCESSING', 1, ?, ?)
+                """, key, fromId, toId, longAgo, longAgo);
+
+        assertThat(transferQueueService.drainOnce()).isEqualTo(1);
+
+        getJson(ASYNC_URL + "/{key}", key)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("POSTED"))
+                .andExpect(jsonPath("$.attempts").value(2))
+                .andExpect(jsonPath("$.transfer.journalEntryId").value(entryId))
+                // the entry the key was first posted as, not the queued command
+                .andExpect(jsonPath("$.transfer.description").value("first"));
+        assertThat(getBalance(fromId)).isEqualTo(900L);
+    }
+
+    @Test
+    void workers_drainTheQueue() throws Exception {
+        long fromId = createAccount(9701L);
+        long toId = createAccount(9702L);
+        mintUsd(fromId, 1_000L);
+        for (int i = 0; i < 20; i++) {
+            postJson(ASYNC_URL, new TransferRequest(fromId, toId, 10L, USED_CURRENCY, null, null),
+                    Map.of(HEADER_NAME, UUID.randomUUID().toString()))
+                    .andExpect(status().isAccepted());
+        }
+
+        transferQueueProperties.setWorkers(2);
+        transferQueueService.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (getBalance(toId) != 200L && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            transferQueueService.stop();
+            transferQueueProperties.setWorkers(0);
+        }
+        assertThat(getBalance(toId)).isEqualTo(200L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM wallet_schema.transfer_queue WHERE status = 'POSTED'",
+                Long.class)).isEqualTo(20L);
+    }
+
+    private double processed(String outcome) {
+        return meterRegistry.counter("ledger.transfer.queue.processed", "outcome", outcome).count();
+    }
+}
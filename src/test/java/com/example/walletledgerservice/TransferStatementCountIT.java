@@ -0,0 +1,41 @@
+package com.example.walletledgerservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the JDBC statements one transfer sends through Hibernate. A JDBC batch counts as one statement.
+ * The outbox row is inserted with JdbcTemplate and is not counted here.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class TransferStatementCountIT extends IntegrationTestBase {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void transfer_sendsAtMostFiveStatements() throws Exception {
+        long fromId = createAccount(7001L);
+        long toId = createAccount(7002L);
+        mintUsd(fromId, 10_000L);
+
+        // warm-up: lets the pooled id optimizers fetch their first block
+        transfer(fromId, toId, 10L);
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        transfer(fromId, toId, 10L);
+
+        long statements = stats.getPrepareStatementCount();
+        // 2 locking selects, entry insert, one batched line insert, one batch of the two versioned
+        // account updates; the key filter skips the idempotency select, the response comes from the entry row
+        assertThat(statements).isLessThanOrEqualTo(5);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.walletledgerservice;
+
+import com.example.walletledgerservice.domain.repository.LedgerJdbcRepository.TransferRow;
+import com.example.walletledgerservice.service.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteAheadLogTest {
+
+    static final long SEGMENT = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopened_recoversEveryForcedRecord_withEveryField() throws IOException {
+        try (WriteAheadLog wal = WriteAheadLog.open(dir, SEGMENT)) {
+            assertThat(wal.recovered()).isEmpty();
+            for (int i = 0; i < 10; i++) wal.append(row(i));
+            wal.force();
+        }
+
+        try (WriteAheadLog wal = WriteAheadLog.open(dir, SEGMENT)) {
+            assertThat(wal.recovered()).extracting(WriteAheadLog.Record::row)
+                    .containsExactlyElementsOf(IntStream.range(0, 10).mapToObj(WriteAheadLogTest::row).toList());
+            assertThat(wal.recovered()).extracting(WriteAheadLog.Record::sequence)
+                    .containsExactlyElementsOf(LongStream.rangeClosed(1, 10).boxed().toList());
+            assertThat(wal.nextSequence()).isEqualTo(11L);
+        }
+    }
+
+    @Test
+    void tornTail_endsRecovery_atTheLastValidRecord() throws IOException {
+        try (WriteAheadLog wal = WriteAheadLog.open(dir, SEGMENT)) {
+            for (int i = 0; i < 3; i++) wal.append(row(i));
+        }
+        Path segment = segments().get(0);
+        long thirdRecordPayload = 16 + 2L * recordSize(0) + 16;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F, 0x7F}), thirdRecordPayload + 10);
+        }
+
+        try (WriteAheadLog wal = WriteAheadLog.open(dir, SEGMENT)) {
+            assertThat(wal.recovered()).extracting(r -> r.row().entryId()).containsExactly(100L, 101L);
+            // the torn record's sequence is given again
+            assertThat(wal.nextSequence()).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    void fullSegments_roll_andReleasedOnesAreReusedWithoutTheirOldRecords() throws IOException {
+        int perSegment = (int) ((SEGMENT - 16) / recordSize(0));
+        try (WriteAheadLog wal = WriteAheadLog.open(dir, SEGMENT)) {
+            long last = 0;
+            for (int i = 0; i < 2 * perSegment + 5; i++) last = wal.append(row(i));
+            wal.force();
+            assertThat(segments()).hasSize(3);
+
+            wal.release(last - 5);
+            assertThat(segments()).hasSize(1);
+            assertThat(dir.resolve("wal-spare.tmp")).exists();
+
+            // the next roll takes the spare, which still holds records of its previous life
+            for (int i = 0; i < perSegment; i++) wal.append(row(i));
+            wal.force();
+            assertThat(dir.resolve("wal-spare.tmp")).doesNotExist();
+        }
+
+        try (WriteAheadLog wal = WriteAheadLog.open(dir, SEGMENT)) {
+            assertThat(wal.recovered()).hasSize(perSegment + 5);
+            assertThat(wal.recovered()).extracting(WriteAheadLog.Record::sequence)
+                    .isSorted()
+                    .doesNotHaveDuplicates();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    /** Every sample row encodes to the same size, so record offsets can be computed. */
+    private static int recordSize(int i) {
+        TransferRow r = row(i);
+        return 16 + 5 * 8 + 3 + 3 * 4 + r.idempotencyKey().length() + r.description().length();
+    }
+
+    private static TransferRow row(int i) {
+        return new TransferRow(100 + i, "key-%06d".formatted(i), "payment %06d".formatted(i), null,
+                Timestamp.valueOf(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_000)),
+                i % 7, (i + 1) % 7, 1_000 + i, "EUR");
+    }
+}